@@ -0,0 +1,51 @@
+package com.dbtool.benchmarks;
+
+import com.dbtool.core.SQLExecutor;
+import com.dbtool.model.QueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQLExecutor.execute -> handleQueryResult：把结果集物化为 QueryResult 的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExecuteBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private SQLExecutor executor;
+    private Connection connection;
+
+    @Setup
+    public void setup() {
+        executor = new SQLExecutor();
+        connection = SyntheticData.connection(rows);
+    }
+
+    @Benchmark
+    public QueryResult execute() {
+        QueryResult result = executor.execute(connection, "SELECT * FROM orders");
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.dbtool.benchmarks;
+
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.ExportUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExportUtil 导出到临时文件（包含磁盘写入，建议在 tmpfs 上运行以减少波动）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private QueryResult result;
+    private Path directory;
+    private String csvFile;
+    private String textFile;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() throws IOException {
+        result = SyntheticData.queryResult(rows);
+        directory = Files.createTempDirectory("dbtool-bench");
+        csvFile = directory.resolve("export.csv").toString();
+        textFile = directory.resolve("export.txt").toString();
+        // 导出完成的提示信息不计入测量
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        Files.deleteIfExists(Path.of(csvFile));
+        Files.deleteIfExists(Path.of(textFile));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public boolean exportToCSV() {
+        return ExportUtil.exportToCSV(result, csvFile);
+    }
+
+    @Benchmark
+    public boolean exportToText() {
+        return ExportUtil.exportToText(result, textFile);
+    }
+}
@@ -0,0 +1,67 @@
+package com.dbtool.benchmarks;
+
+import com.dbtool.core.HistoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HistoryManager 在 rows 条历史记录下的 add / search。
+ * 搜索关键字固定命中 32 条记录，结果数量不随历史大小变化。
+ * 只通过公开的 add 准备数据；基线版本每次 add 都要 O(n) 地查找重复，准备过程是 O(n²)，
+ * 所以最大规模取 10 万条，两个版本都能在合理时间内完成准备。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class HistoryBenchmark {
+    private static final int MATCHES = 32;
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private HistoryManager history;
+    private long next;
+
+    @Setup
+    public void setup() {
+        history = new HistoryManager(rows);
+        int step = Math.max(1, rows / MATCHES);
+        for (int i = 0; i < rows; i++) {
+            history.add(statement(i, i % step == 0));
+        }
+        next = rows;
+    }
+
+    /**
+     * 每次添加一条新语句；历史已满，所以同时会淘汰最旧的一条
+     */
+    @Benchmark
+    public int add() {
+        history.add(statement(next++, false));
+        return history.size();
+    }
+
+    @Benchmark
+    public List<String> search() {
+        return history.search("audit_log");
+    }
+
+    private static String statement(long i, boolean match) {
+        return "SELECT id, status FROM " + (match ? "audit_log" : "orders") + " WHERE id = " + i;
+    }
+}
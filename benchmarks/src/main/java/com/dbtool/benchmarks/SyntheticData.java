@@ -0,0 +1,224 @@
+package com.dbtool.benchmarks;
+
+import com.dbtool.core.SQLExecutor;
+import com.dbtool.model.QueryResult;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * 内存中的合成数据：用动态代理实现 Connection / Statement / ResultSet，
+ * 基准测试不需要真实数据库，测到的只是本工具自身的开销。
+ *
+ * 列：id INT, customer_id BIGINT, customer VARCHAR(重复值), amount DOUBLE(部分为 NULL),
+ * note VARCHAR(每行不同), created_at TIMESTAMP
+ */
+public final class SyntheticData {
+    static final String[] COLUMNS = {"id", "customer_id", "customer", "amount", "note", "created_at"};
+    private static final String[] CLASS_NAMES = {"java.lang.Integer", "java.lang.Long", "java.lang.String",
+            "java.lang.Double", "java.lang.String", "java.sql.Timestamp"};
+    private static final int[] TYPES = {Types.INTEGER, Types.BIGINT, Types.VARCHAR, Types.DOUBLE,
+            Types.VARCHAR, Types.TIMESTAMP};
+    private static final int[] DISPLAY_SIZES = {11, 20, 64, 22, 255, 19};
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * 每次 execute 都返回一个新的 rows 行结果集的连接
+     */
+    public static Connection connection(int rows) {
+        return proxy(Connection.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return statement(rows);
+                case "isClosed":
+                case "isReadOnly":
+                    return false;
+                case "getAutoCommit":
+                case "isValid":
+                    return true;
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    public static ResultSet resultSet(int rows) {
+        return proxy(ResultSet.class, new ResultSetHandler(rows));
+    }
+
+    /**
+     * 预先物化好的查询结果：经由 SQLExecutor.execute 读取，得到的就是被测版本自己产生的数据结构。
+     * 只用公开 API，基线版本和当前版本都能编译
+     */
+    public static QueryResult queryResult(int rows) {
+        QueryResult result = new SQLExecutor().execute(connection(rows), "SELECT * FROM orders");
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+        return result;
+    }
+
+    private static Statement statement(int rows) {
+        return proxy(Statement.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "execute":
+                    return true;
+                case "getResultSet":
+                case "executeQuery":
+                    return resultSet(rows);
+                case "getUpdateCount":
+                    return -1;
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    private static ResultSetMetaData metaData() {
+        return proxy(ResultSetMetaData.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return COLUMNS.length;
+                case "getColumnLabel":
+                case "getColumnName":
+                    return COLUMNS[(Integer) args[0] - 1];
+                case "getColumnClassName":
+                    return CLASS_NAMES[(Integer) args[0] - 1];
+                case "getColumnType":
+                    return TYPES[(Integer) args[0] - 1];
+                case "getColumnDisplaySize":
+                    return DISPLAY_SIZES[(Integer) args[0] - 1];
+                case "isNullable":
+                    return ResultSetMetaData.columnNullable;
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * 第 row 行第 column 列（均从 1 开始）的值
+     */
+    static Object value(int row, int column) {
+        switch (column) {
+            case 1:
+                return row;
+            case 2:
+                return 100_000L + row % 5000;
+            case 3:
+                return "customer_" + (row % 500);
+            case 4:
+                return row % 17 == 0 ? null : (row % 1000) * 1.25;
+            case 5:
+                return "order note #" + row + (row % 3 == 0 ? ", with \"quotes\"" : "");
+            default:
+                return new Timestamp(BASE_TIME + row * 1000L);
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final int rows;
+        private final ResultSetMetaData metaData = metaData();
+        private int row = 0;
+        private boolean wasNull;
+        private boolean closed;
+
+        ResultSetHandler(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "next":
+                    return ++row <= rows;
+                case "getMetaData":
+                    return metaData;
+                case "wasNull":
+                    return wasNull;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getObject":
+                    return get(args[0]);
+                case "getString": {
+                    Object value = get(args[0]);
+                    return value == null ? null : value.toString();
+                }
+                case "getInt": {
+                    Object value = get(args[0]);
+                    return value == null ? 0 : ((Number) value).intValue();
+                }
+                case "getLong": {
+                    Object value = get(args[0]);
+                    return value == null ? 0L : ((Number) value).longValue();
+                }
+                case "getDouble": {
+                    Object value = get(args[0]);
+                    return value == null ? 0.0 : ((Number) value).doubleValue();
+                }
+                default:
+                    return defaultValue(method);
+            }
+        }
+
+        private Object get(Object column) {
+            int index = column instanceof Integer ? (Integer) column : indexOf((String) column);
+            Object value = value(row, index);
+            wasNull = value == null;
+            return value;
+        }
+
+        private static int indexOf(String label) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (COLUMNS[i].equalsIgnoreCase(label)) {
+                    return i + 1;
+                }
+            }
+            throw new IllegalArgumentException("Unknown column: " + label);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SyntheticData.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.dbtool.benchmarks;
+
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.TableFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TableFormatter 的文本渲染和控制台输出（输出重定向到丢弃所有字节的流）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TableFormatterBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private QueryResult result;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() {
+        result = SyntheticData.queryResult(rows);
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public String formatAsText() {
+        return TableFormatter.formatAsText(result);
+    }
+
+    @Benchmark
+    public void displayResult() {
+        TableFormatter.displayResult(result);
+    }
+}
@@ -19,6 +19,20 @@ if not exist "lib\mysql-connector-java-8.0.33.jar" (
     exit /b 1
 )
 
+if not exist "lib\jline-3.21.0.jar" (
+    echo 下载JLine...
+    powershell -Command "try {Invoke-WebRequest -Uri 'https://repo1.maven.org/maven2/org/jline/jline/3.21.0/jline-3.21.0.jar' -OutFile 'lib/jline-3.21.0.jar'; echo 下载成功!} catch {echo 下载失败，请手动下载}"
+)
+
+if not exist "lib\jline-3.21.0.jar" (
+    echo.
+    echo 请手动下载JLine
+    echo https://mvnrepository.com/artifact/org.jline/jline/3.21.0
+    echo 放到 lib\ 目录下
+    pause
+    exit /b 1
+)
+
 echo 编译...
 javac -cp "lib\*" -d target\classes src\main\java\com\dbtool\*.java src\main\java\com\dbtool\core\*.java src\main\java\com\dbtool\util\*.java src\main\java\com\dbtool\model\*.java src\main\java\com\dbtool\command\*.java
 
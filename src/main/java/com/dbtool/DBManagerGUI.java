@@ -3,19 +3,27 @@ package com.dbtool;
 import com.dbtool.core.DatabaseManager;
 import com.dbtool.core.SQLExecutor;
 import com.dbtool.core.MetadataManager;
+import com.dbtool.core.SchemaSnapshot;
 import com.dbtool.core.HistoryManager;
+import com.dbtool.core.ExecutionContext;
 import com.dbtool.model.QueryResult;
+import com.dbtool.model.RowHandler;
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.SqlScriptSplitter;
 import com.dbtool.util.TableFormatter;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 public class DBManagerGUI extends JFrame {
     private DatabaseManager dbManager;
@@ -28,9 +36,15 @@ public class DBManagerGUI extends JFrame {
     private JTextField inputField;
     private JButton executeButton;
     private JButton clearButton;
-    private DefaultTableModel tableModel;
+    private JButton cancelButton;
+    private ResultTableModel tableModel;
+    private JTable resultTable;
     private JLabel statusLabel;
 
+    // 正在后台执行的请求及其执行上下文，同一时间只有一个（会话连接不能并发使用）
+    private SwingWorker<?, ?> runningQuery;
+    private ExecutionContext runningContext;
+
     public DBManagerGUI() {
         initializeDatabase();
         initializeGUI();
@@ -39,7 +53,10 @@ public class DBManagerGUI extends JFrame {
     private void initializeDatabase() {
         try {
             dbManager = new DatabaseManager();
-            if (!dbManager.connect()) {
+            boolean connected = ConfigLoader.getBoolean("pool.enabled", false)
+                    ? dbManager.connectWithPool()
+                    : dbManager.connect();
+            if (!connected) {
                 JOptionPane.showMessageDialog(this,
                         "Database connection failed! Please check if database service is running.",
                         "Connection Error",
@@ -48,7 +65,14 @@ public class DBManagerGUI extends JFrame {
             }
 
             sqlExecutor = new SQLExecutor();
-            metadataManager = new MetadataManager(dbManager.getConnection());
+            metadataManager = new MetadataManager(dbManager);
+            metadataManager.enableChangePolling(dbManager);
+            if (ConfigLoader.getBoolean("schema.snapshot.enabled", true)) {
+                SchemaSnapshot snapshot = SchemaSnapshot.forConnection(dbManager);
+                snapshot.load();
+                snapshot.refreshAsync();
+                metadataManager.setSchemaSnapshot(snapshot);
+            }
             sqlHistoryManager = new HistoryManager(50);
 
         } catch (Exception e) {
@@ -79,8 +103,8 @@ public class DBManagerGUI extends JFrame {
         outputScroll.setPreferredSize(new Dimension(0, 200));
 
         // Result table
-        tableModel = new DefaultTableModel();
-        JTable resultTable = new JTable(tableModel);
+        tableModel = new ResultTableModel();
+        resultTable = new JTable(tableModel);
         resultTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
         JScrollPane tableScroll = new JScrollPane(resultTable);
 
@@ -92,8 +116,11 @@ public class DBManagerGUI extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         executeButton = new JButton("Execute (Enter)");
         clearButton = new JButton("Clear");
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
 
         buttonPanel.add(executeButton);
+        buttonPanel.add(cancelButton);
         buttonPanel.add(clearButton);
 
         inputPanel.add(new JLabel("SQL Command:"), BorderLayout.WEST);
@@ -156,12 +183,12 @@ public class DBManagerGUI extends JFrame {
         executeButton.addActionListener(this::executeCurrentCommand);
         clearButton.addActionListener(e -> {
             outputArea.setText("");
-            tableModel.setRowCount(0);
-            tableModel.setColumnCount(0);
+            tableModel.clear();
             statusLabel.setText("Cleared");
         });
 
         inputField.addActionListener(this::executeCurrentCommand);
+        cancelButton.addActionListener(e -> cancelRunningQuery());
     }
 
     private void executeCurrentCommand(ActionEvent e) {
@@ -187,6 +214,10 @@ public class DBManagerGUI extends JFrame {
     }
 
     private void executeCommand(String command) {
+        if (runningQuery != null) {
+            appendOutput("A query is still running. Wait for it to finish or press Cancel.\n");
+            return;
+        }
         try {
             if (command.equalsIgnoreCase("STATUS")) {
                 handleStatusCommand();
@@ -227,9 +258,10 @@ public class DBManagerGUI extends JFrame {
      */
     private void handleGetTables() {
         appendOutput("Getting table list via SQLExecutor...\n");
-        QueryResult result = sqlExecutor.getTables(dbManager.getConnection());
-        displayResult(result);
-        statusLabel.setText("Tables retrieved via SQLExecutor");
+        runInBackground(() -> sqlExecutor.getTables(dbManager.getConnection()), result -> {
+            displayResult(result);
+            statusLabel.setText("Tables retrieved via SQLExecutor");
+        });
     }
 
     /**
@@ -243,14 +275,15 @@ public class DBManagerGUI extends JFrame {
 
         if (sql != null && !sql.trim().isEmpty()) {
             appendOutput("Validating SQL: " + sql + "\n");
-            QueryResult result = sqlExecutor.validateSQL(dbManager.getConnection(), sql);
-            if (result.isSuccess()) {
-                appendOutput("✓ SQL is valid: " + result.getMessage() + "\n");
-                statusLabel.setText("SQL validation successful");
-            } else {
-                appendOutput("✗ SQL validation failed: " + result.getMessage() + "\n");
-                statusLabel.setText("SQL validation failed");
-            }
+            runInBackground(() -> sqlExecutor.validateSQL(dbManager.getConnection(), sql), result -> {
+                if (result.isSuccess()) {
+                    appendOutput("✓ SQL is valid: " + result.getMessage() + "\n");
+                    statusLabel.setText("SQL validation successful");
+                } else {
+                    appendOutput("✗ SQL validation failed: " + result.getMessage() + "\n");
+                    statusLabel.setText("SQL validation failed");
+                }
+            });
         }
     }
 
@@ -297,9 +330,11 @@ public class DBManagerGUI extends JFrame {
                     appendOutput("Parameters: " + params + "\n");
                 }
 
-                QueryResult queryResult = sqlExecutor.executePrepared(dbManager.getConnection(), sql, params);
-                displayResult(queryResult);
-                statusLabel.setText("Prepared query executed");
+                runInBackground(() -> sqlExecutor.executePrepared(dbManager.getConnection(), sql, params),
+                        queryResult -> {
+                            displayResult(queryResult);
+                            statusLabel.setText("Prepared query executed");
+                        });
 
             } catch (NumberFormatException e) {
                 appendOutput("Error: Invalid number format in parameters\n");
@@ -331,76 +366,275 @@ public class DBManagerGUI extends JFrame {
                 appendOutput("Executing batch SQL...\n");
                 appendOutput("Batch SQL:\n" + batchSQL + "\n");
 
-                List<QueryResult> results = sqlExecutor.executeMultiple(dbManager.getConnection(), batchSQL);
-
-                appendOutput("=== Batch Execution Results ===\n");
-                for (int i = 0; i < results.size(); i++) {
-                    QueryResult singleResult = results.get(i);
-                    appendOutput("Statement " + (i + 1) + ": " +
-                            (singleResult.isSuccess() ? "✓ " : "✗ ") +
-                            singleResult.getMessage() + "\n");
-
-                    // 如果有数据结果，显示表格
-                    if (singleResult.isSuccess() && singleResult.getData() != null && !singleResult.getData().isEmpty()) {
-                        appendOutput("Result data available for statement " + (i + 1) + "\n");
-                        // 显示最后一个有数据的语句结果
-                        if (i == results.size() - 1 ||
-                                (i < results.size() - 1 && results.get(i + 1).getData() == null)) {
-                            displayResult(singleResult);
-                        }
-                    }
+                runInBackground(() -> sqlExecutor.executeMultiple(dbManager.getConnection(), batchSQL),
+                        results -> showBatchResults(batchSQL, results));
+            }
+        }
+    }
+
+    private void showBatchResults(String batchSQL, List<QueryResult> results) {
+        for (String statement : SqlScriptSplitter.split(batchSQL)) {
+            metadataManager.onStatementExecuted(statement);
+        }
+
+        appendOutput("=== Batch Execution Results ===\n");
+        for (int i = 0; i < results.size(); i++) {
+            QueryResult singleResult = results.get(i);
+            appendOutput("Statement " + (i + 1) + ": " +
+                    (singleResult.isSuccess() ? "✓ " : "✗ ") +
+                    singleResult.getMessage() + "\n");
+
+            // 如果有数据结果，显示表格
+            if (singleResult.isSuccess() && singleResult.getData() != null && !singleResult.getData().isEmpty()) {
+                appendOutput("Result data available for statement " + (i + 1) + "\n");
+                // 显示最后一个有数据的语句结果
+                if (i == results.size() - 1 ||
+                        (i < results.size() - 1 && results.get(i + 1).getData() == null)) {
+                    displayResult(singleResult);
                 }
-                statusLabel.setText("Batch execution completed - " + results.size() + " statements");
             }
         }
+        statusLabel.setText("Batch execution completed - " + results.size() + " statements");
     }
 
     // ========== 原有的方法 ==========
 
     private void handleStatusCommand() {
         appendOutput("Connection Info: " + dbManager.getConnectionInfo() + "\n");
-        boolean success = dbManager.testConnection();
-        appendOutput(success ? "✓ Connection test successful\n" : "✗ Connection test failed\n");
-        statusLabel.setText("Status checked");
+        if (sqlExecutor.getResultCache() != null) {
+            appendOutput("Result cache: " + sqlExecutor.getResultCache().getStats() + "\n");
+        }
+        if (sqlExecutor.getStatementCache() != null) {
+            appendOutput("Statement cache: " + sqlExecutor.getStatementCache().getStats() + "\n");
+        }
+        runInBackground(dbManager::testConnection, success -> {
+            appendOutput(success ? "✓ Connection test successful\n" : "✗ Connection test failed\n");
+            statusLabel.setText("Status checked");
+        });
     }
 
     private void handleTestConnection() {
-        boolean success = dbManager.testConnection();
-        appendOutput(success ? "✓ Connection test successful\n" : "✗ Connection test failed\n");
-        statusLabel.setText("Test completed");
+        runInBackground(dbManager::testConnection, success -> {
+            appendOutput(success ? "✓ Connection test successful\n" : "✗ Connection test failed\n");
+            statusLabel.setText("Test completed");
+        });
     }
 
     private void handleShowDatabases() {
-        QueryResult result = metadataManager.getDatabases();
-        displayResult(result);
+        runInBackground(metadataManager::getDatabases, this::displayResult);
     }
 
     private void handleShowTables() {
-        QueryResult result = metadataManager.getTables();
-        displayResult(result);
+        runInBackground(metadataManager::getTables, this::displayResult);
     }
 
     private void handleDescribeTable() {
         String tableName = JOptionPane.showInputDialog(this, "Enter table name:");
         if (tableName != null && !tableName.trim().isEmpty()) {
-            QueryResult result = metadataManager.describeTable(tableName.trim());
-            displayResult(result);
+            runInBackground(() -> metadataManager.describeTable(tableName.trim()), this::displayResult);
         }
     }
 
     private void handleDatabaseInfo() {
-        QueryResult result = metadataManager.getDatabaseInfo();
-        displayResult(result);
+        runInBackground(metadataManager::getDatabaseInfo, this::displayResult);
     }
 
     private void handleTableStatus() {
-        QueryResult result = metadataManager.getTableStatus();
-        displayResult(result);
+        runInBackground(metadataManager::getTableStatus, this::displayResult);
     }
 
+    /**
+     * 在后台线程执行 SQL，结果行边读取边加入表格，事件分发线程不会被阻塞
+     */
     private void handleSQLExecution(String sql) {
-        QueryResult result = sqlExecutor.execute(dbManager.getConnection(), sql);
-        displayResult(result);
+        QueryWorker worker = new QueryWorker(sql);
+        startWorker(worker, worker.context);
+    }
+
+    /**
+     * 在后台线程执行其他命令（元数据、批量执行、连接测试等），完成后在事件分发线程上处理结果。
+     * 与查询共用同一个忙碌状态，也可以用 Cancel 取消
+     */
+    private <T> void runInBackground(Callable<T> task, Consumer<T> onSuccess) {
+        BackgroundWorker<T> worker = new BackgroundWorker<>(task, onSuccess);
+        startWorker(worker, worker.context);
+    }
+
+    private void startWorker(SwingWorker<?, ?> worker, ExecutionContext context) {
+        runningQuery = worker;
+        runningContext = context;
+        executeButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        statusLabel.setText("Running...");
+        worker.execute();
+    }
+
+    private void workerFinished() {
+        runningQuery = null;
+        runningContext = null;
+        executeButton.setEnabled(true);
+        cancelButton.setEnabled(false);
+    }
+
+    private void cancelRunningQuery() {
+        ExecutionContext context = runningContext;
+        if (context == null) {
+            return;
+        }
+        cancelButton.setEnabled(false);
+        statusLabel.setText("Cancelling...");
+        // Statement.cancel() 需要另开连接发送 KILL QUERY，不在事件分发线程上执行
+        Thread cancelThread = new Thread(context::cancel, "query-cancel");
+        cancelThread.setDaemon(true);
+        cancelThread.start();
+    }
+
+    private void queryFinished(String sql, QueryResult result, ExecutionContext context) {
+        workerFinished();
+
+        if (result == null) {
+            return;
+        }
+        if (context.isCancelled()) {
+            appendOutput(String.format("✗ Query cancelled after %d ms (%,d rows fetched)\n",
+                    context.getElapsedMillis(), context.getRows()));
+            statusLabel.setText("Query cancelled");
+            return;
+        }
+        if (!result.isSuccess()) {
+            appendOutput("✗ Error: " + result.getMessage() + "\n");
+            statusLabel.setText("Execution failed");
+            return;
+        }
+
+        metadataManager.onStatementExecuted(sql);
+        if (result.isQueryResult()) {
+            appendOutput("✓ Query successful: " + result.getRowCount() + " rows returned (" + result.getMessage() + ")\n");
+        } else {
+            appendOutput("✓ Success: " + result.getMessage() + ", " + result.getRowCount() + " row(s) affected\n");
+        }
+        statusLabel.setText("Execution successful");
+    }
+
+    /**
+     * 后台执行查询：工作线程逐行读取并 publish，process 在事件分发线程上成批加入表格
+     */
+    private class QueryWorker extends SwingWorker<QueryResult, Object[]> implements RowHandler {
+        private final String sql;
+        private final ExecutionContext context = new ExecutionContext(dbManager);
+        private final Timer progressTimer;
+        // 表格中最多保留的行数，超出后停止读取
+        private final int maxRows = Math.max(1, ConfigLoader.getInt("gui.max.rows", 1000000));
+        private volatile boolean truncated = false;
+        private boolean columnsSized = false;
+
+        QueryWorker(String sql) {
+            this.sql = sql;
+            // 结果行到达之前也定时刷新已用时间
+            this.progressTimer = new Timer(500, e -> showProgress());
+            progressTimer.start();
+        }
+
+        @Override
+        protected QueryResult doInBackground() throws Exception {
+            return context.run(() -> sqlExecutor.executeStreaming(dbManager.getConnection(), sql, this));
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException {
+            List<String> columns = new ArrayList<>();
+            List<String> classNames = new ArrayList<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i));
+                classNames.add(metaData.getColumnClassName(i));
+            }
+            SwingUtilities.invokeLater(() -> tableModel.startStreaming(columns, classNames));
+        }
+
+        @Override
+        public boolean row(Object[] values) {
+            publish(values);
+            if (context.getRows() >= maxRows) {
+                truncated = true;
+                return false;
+            }
+            return !context.isCancelled();
+        }
+
+        @Override
+        public void end(long rowCount, long elapsedMs) {
+        }
+
+        @Override
+        protected void process(List<Object[]> rows) {
+            // 一批行只触发一次表格事件
+            tableModel.appendRows(rows);
+            if (!columnsSized) {
+                columnsSized = true;
+                autoResizeTableColumns();
+            }
+            showProgress();
+        }
+
+        private void showProgress() {
+            statusLabel.setText(String.format("Running... %.1f s, %,d rows fetched",
+                    context.getElapsedMillis() / 1000.0, context.getRows()));
+        }
+
+        @Override
+        protected void done() {
+            progressTimer.stop();
+            QueryResult result;
+            try {
+                result = get();
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                appendOutput("Error: " + cause.getMessage() + "\n");
+                statusLabel.setText("Execution failed");
+                result = null;
+            }
+            if (truncated) {
+                appendOutput(String.format("Result truncated to the first %,d rows (gui.max.rows)%n", maxRows));
+            }
+            queryFinished(sql, result, context);
+        }
+    }
+
+    /**
+     * 后台执行一个命令，done() 在事件分发线程上调用 onSuccess
+     */
+    private class BackgroundWorker<T> extends SwingWorker<T, Void> {
+        private final Callable<T> task;
+        private final Consumer<T> onSuccess;
+        private final ExecutionContext context = new ExecutionContext(dbManager);
+
+        BackgroundWorker(Callable<T> task, Consumer<T> onSuccess) {
+            this.task = task;
+            this.onSuccess = onSuccess;
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            return context.run(task);
+        }
+
+        @Override
+        protected void done() {
+            workerFinished();
+            try {
+                T result = get();
+                if (context.isCancelled()) {
+                    appendOutput(String.format("✗ Command cancelled after %d ms\n", context.getElapsedMillis()));
+                    statusLabel.setText("Command cancelled");
+                } else {
+                    onSuccess.accept(result);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                appendOutput("Error: " + cause.getMessage() + "\n");
+                statusLabel.setText("Execution failed");
+            }
+        }
     }
 
     private void displayResult(QueryResult result) {
@@ -420,71 +654,35 @@ public class DBManagerGUI extends JFrame {
 
     private void displayTableResult(QueryResult result) {
         SwingUtilities.invokeLater(() -> {
-            // Clear table
-            tableModel.setRowCount(0);
-            tableModel.setColumnCount(0);
-
-            try {
-                List<Map<String, Object>> data = result.getData();
-                if (data != null && !data.isEmpty()) {
-                    // Get column names from first row
-                    Map<String, Object> firstRow = data.get(0);
-                    for (String column : firstRow.keySet()) {
-                        tableModel.addColumn(column);
-                    }
-
-                    // Add data
-                    for (Map<String, Object> row : data) {
-                        Object[] rowData = new Object[firstRow.size()];
-                        int i = 0;
-                        for (String column : firstRow.keySet()) {
-                            Object value = row.get(column);
-                            rowData[i++] = (value != null) ? value : "NULL";
-                        }
-                        tableModel.addRow(rowData);
-                    }
-
-                    // Auto-resize columns after data is loaded
-                    autoResizeTableColumns();
-                }
-            } catch (Exception e) {
-                // If table display fails, use text format
-                appendOutput("Using text format for results:\n");
-                try {
-                    String textResult = TableFormatter.formatAsText(result);
-                    appendOutput(textResult + "\n");
-                } catch (Exception ex) {
-                    appendOutput("Failed to display results: " + ex.getMessage() + "\n");
-                }
-            }
+            tableModel.setResult(result);
+            autoResizeTableColumns();
         });
     }
 
+    /**
+     * 按表头和前若干行的样本计算列宽，不遍历整个结果
+     */
     private void autoResizeTableColumns() {
-        SwingUtilities.invokeLater(() -> {
-            JTable table = (JTable) ((JViewport) ((JScrollPane)
-                    ((JSplitPane) getContentPane().getComponent(0)).getRightComponent()).getComponent(0)).getView();
-
-            for (int column = 0; column < table.getColumnCount(); column++) {
-                TableColumn tableColumn = table.getColumnModel().getColumn(column);
-                int preferredWidth = tableColumn.getMinWidth();
-                int maxWidth = tableColumn.getMaxWidth();
-
-                for (int row = 0; row < table.getRowCount(); row++) {
-                    TableCellRenderer cellRenderer = table.getCellRenderer(row, column);
-                    Component c = table.prepareRenderer(cellRenderer, row, column);
-                    int width = c.getPreferredSize().width + table.getIntercellSpacing().width;
-                    preferredWidth = Math.max(preferredWidth, width);
-
-                    if (preferredWidth >= maxWidth) {
-                        preferredWidth = maxWidth;
-                        break;
-                    }
-                }
-
-                tableColumn.setPreferredWidth(preferredWidth);
+        int sampleRows = Math.min(resultTable.getRowCount(), Math.max(1, ConfigLoader.getInt("gui.autosize.sample.rows", 200)));
+
+        for (int column = 0; column < resultTable.getColumnCount(); column++) {
+            TableColumn tableColumn = resultTable.getColumnModel().getColumn(column);
+            int maxWidth = Math.min(tableColumn.getMaxWidth(), 400);
+
+            TableCellRenderer headerRenderer = resultTable.getTableHeader().getDefaultRenderer();
+            Component header = headerRenderer.getTableCellRendererComponent(
+                    resultTable, tableColumn.getHeaderValue(), false, false, -1, column);
+            int preferredWidth = Math.max(tableColumn.getMinWidth(), header.getPreferredSize().width + 10);
+
+            for (int row = 0; row < sampleRows && preferredWidth < maxWidth; row++) {
+                TableCellRenderer cellRenderer = resultTable.getCellRenderer(row, column);
+                Component c = resultTable.prepareRenderer(cellRenderer, row, column);
+                int width = c.getPreferredSize().width + resultTable.getIntercellSpacing().width + 4;
+                preferredWidth = Math.max(preferredWidth, width);
             }
-        });
+
+            tableColumn.setPreferredWidth(Math.min(preferredWidth, maxWidth));
+        }
     }
 
     private void appendOutput(String text) {
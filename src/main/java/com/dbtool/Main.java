@@ -6,16 +6,44 @@ import com.dbtool.core.MetadataManager;
 import com.dbtool.core.SQLExecutor;
 import com.dbtool.core.HistoryManager;
 import com.dbtool.model.QueryResult;
+import com.dbtool.model.RowSet;
+import com.dbtool.model.SpillingRowSet;
 import com.dbtool.util.ColorPrinter;
+import com.dbtool.util.ColumnarFileReader;
+import com.dbtool.util.ColumnarFileWriter;
 import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.SqlScriptSplitter;
+import com.dbtool.util.StreamingTablePrinter;
 import com.dbtool.util.TableFormatter;
 import com.dbtool.util.ExportUtil;
 import com.dbtool.core.PaginationUtil;
+import com.dbtool.core.ParallelCsvExporter;
+import com.dbtool.core.ParallelScriptRunner;
+import com.dbtool.core.QueryPager;
+import com.dbtool.core.BulkImporter;
+import com.dbtool.core.SchemaSnapshot;
+import com.dbtool.core.LineEditor;
+import com.dbtool.core.ExecutionContext;
+import com.dbtool.core.StatementStats;
 
 import javax.swing.*;  // 添加 Swing 导入
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class Main {
     private static DatabaseManager dbManager;
@@ -27,6 +55,18 @@ public class Main {
     private static int currentPage = 1;
     private static final int PAGE_SIZE = 10;
     private static boolean inPaginationMode = false;
+    private static QueryPager pager;
+    // 交互式终端上的行编辑器；输入被重定向或 cli.line.editor=false 时为 null，改用 inputScanner
+    private static LineEditor lineEditor;
+    private static Scanner inputScanner;
+
+    // 查询在工作线程上执行，主线程显示进度并响应 Ctrl-C
+    private static final ExecutorService queryWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "query-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile ExecutionContext runningQuery;
 
     public static void main(String[] args) {
         // 检查启动参数
@@ -86,14 +126,31 @@ public class Main {
         ConfigLoader.printConfig();
         dbManager = new DatabaseManager();
         sqlExecutor = new SQLExecutor();
-        historyManager = new HistoryManager();
+        historyManager = HistoryManager.forUser();
+        if (historyManager.getLastError() != null) {
+            ColorPrinter.printWarning("Command history not loaded: " + historyManager.getLastError());
+        }
 
-        if (!dbManager.connect()) {
+        boolean connected = ConfigLoader.getBoolean("pool.enabled", false)
+                ? dbManager.connectWithPool()
+                : dbManager.connect();
+        if (!connected) {
             ColorPrinter.printError("Failed to connect to database. Exiting...");
             System.exit(1);
         }
 
-        metadataManager = new MetadataManager(dbManager.getConnection());
+        metadataManager = new MetadataManager(dbManager);
+        metadataManager.enableChangePolling(dbManager);
+        if (ConfigLoader.getBoolean("schema.snapshot.enabled", true)) {
+            SchemaSnapshot snapshot = SchemaSnapshot.forConnection(dbManager);
+            if (snapshot.load()) {
+                ColorPrinter.printInfo("Schema snapshot loaded: " + snapshot.getStats());
+            }
+            snapshot.refreshAsync();
+            metadataManager.setSchemaSnapshot(snapshot);
+        }
+        installInterruptHandler();
+        initLineReader();
         ColorPrinter.printSuccess("All components initialized successfully");
     }
 
@@ -107,17 +164,51 @@ public class Main {
         ColorPrinter.printInfo("Type 'help' for available commands, 'exit' to quit.");
     }
 
-    private static void runCommandLoop() {
-        Scanner scanner = new Scanner(System.in);
+    /**
+     * 交互式终端上使用 JLine：行编辑、上下键历史和 Tab 补全（命令、关键字、库名、表名和列名）
+     */
+    private static void initLineReader() {
+        if (System.console() == null || !ConfigLoader.getBoolean("cli.line.editor", true)) {
+            return;
+        }
+        try {
+            lineEditor = new LineEditor(metadataManager, historyManager.getRecent(500));
+        } catch (IOException | RuntimeException e) {
+            ColorPrinter.printWarning("Line editor not available, using plain input: " + e.getMessage());
+        } catch (LinkageError e) {
+            // lib 目录中没有 jline
+            ColorPrinter.printWarning("Line editor not available (jline not on the classpath), using plain input");
+        }
+    }
 
+    /**
+     * 读取一行输入；输入结束（Ctrl-D）时返回 null，在行编辑器中按 Ctrl-C 清空当前行
+     */
+    private static String readLine(String prompt) {
+        if (lineEditor != null) {
+            return lineEditor.readLine(prompt);
+        }
+        System.out.print(prompt);
+        if (inputScanner == null) {
+            inputScanner = new Scanner(System.in);
+        }
+        return inputScanner.hasNextLine() ? inputScanner.nextLine() : null;
+    }
+
+    // 命令中的补充输入，输入结束时按空输入处理
+    private static String readInput(String prompt) {
+        String line = readLine(prompt);
+        return line == null ? "" : line.trim();
+    }
+
+    private static void runCommandLoop() {
         while (running) {
-            if (inPaginationMode && lastQueryResult != null) {
-                System.out.print("\nPage> ");
-            } else {
-                System.out.print("\nDB> ");
+            System.out.println();
+            String line = readLine(inPaginationMode && lastQueryResult != null ? "Page> " : "DB> ");
+            if (line == null) {
+                break;
             }
-
-            String input = scanner.nextLine().trim();
+            String input = line.trim();
 
             if (inPaginationMode) {
                 handlePaginationInput(input);
@@ -126,8 +217,6 @@ public class Main {
                 handleCommand(command);
             }
         }
-
-        scanner.close();
     }
 
     private static void handleCommand(CommandParser.CommandResult command) {
@@ -177,6 +266,11 @@ public class Main {
                 showTableStatus();
                 break;
 
+            case REFRESH_METADATA:
+                metadataManager.refresh();
+                ColorPrinter.printSuccess("Metadata cache cleared");
+                break;
+
             case USE_DATABASE:
                 useDatabase(command.getContent());
                 break;
@@ -211,7 +305,47 @@ public class Main {
                 break;
 
             case BATCH_EXECUTE:
-                executeBatchSQL();
+                executeBatchSQL(command.getContent().trim());
+                break;
+
+            case EXPORT_TABLE:
+                exportTable(command.getContent());
+                break;
+
+            case EXPORT_COLUMNAR:
+                exportColumnar(command.getContent());
+                break;
+
+            case READ_COLUMNAR:
+                readColumnar(command.getContent());
+                break;
+
+            case IMPORT_CSV:
+                importCsv(command.getContent());
+                break;
+
+            case WRITE_MODE:
+                setWriteMode(command.getContent());
+                break;
+
+            case PARALLEL_EXECUTE:
+                executeParallel(command.getContent());
+                break;
+
+            case QUERY_TIMEOUT:
+                setQueryTimeout(command.getContent());
+                break;
+
+            case STATEMENT_STATS:
+                showStatementStats(command.getContent());
+                break;
+
+            case TOP_STATEMENTS:
+                showTopStatements(command.getContent());
+                break;
+
+            case STREAM_QUERY:
+                streamSQL(command.getContent());
                 break;
 
             case SQL:
@@ -233,10 +367,153 @@ public class Main {
 
     private static void executeSQL(String sql) {
         ColorPrinter.printSQL(sql);
-        QueryResult result = sqlExecutor.execute(dbManager.getConnection(), sql);
+        closePager();
+
+        // 可以在服务器端分页的 SELECT 只读取第一页
+        if (ConfigLoader.getBoolean("pagination.server.enabled", true)) {
+            QueryPager newPager = QueryPager.create(dbManager, sqlExecutor, sql, PAGE_SIZE);
+            if (newPager != null) {
+                QueryPager.Page page = runCancellable(() -> newPager.goToPage(1), true);
+                if (page == null) {
+                    newPager.close();
+                    return;
+                }
+                QueryResult result = page.getResult();
+                if (!result.isSuccess()) {
+                    newPager.close();
+                    TableFormatter.displayResult(result);
+                    return;
+                }
+
+                setLastQueryResult(result);
+                if (page.hasMore()) {
+                    pager = newPager;
+                    inPaginationMode = true;
+                    currentPage = 1;
+                    ColorPrinter.printInfo("Large result set. Entering pagination mode.");
+                    PaginationUtil.displayPage(page);
+                } else {
+                    newPager.close();
+                    TableFormatter.displayResult(result);
+                }
+                return;
+            }
+        }
+
+        QueryResult result = runCancellable(() -> sqlExecutor.execute(dbManager.getConnection(), sql), true);
+        if (result == null) {
+            return;
+        }
+        if (result.isSuccess()) {
+            metadataManager.onStatementExecuted(sql);
+        }
+
+        long renderStart = System.nanoTime();
+        displayResult(result);
+        StatementStats stats = sqlExecutor.getStatementStats();
+        if (stats != null && result.isSuccess() && result.isQueryResult()) {
+            stats.recordRender(sql, System.nanoTime() - renderStart);
+        }
+    }
+
+    private static <T> T runCancellable(Callable<T> task, boolean showProgress) {
+        return runCancellable(task, showProgress, "rows fetched");
+    }
+
+    /**
+     * 在工作线程上执行任务，主线程等待结果：超过 1 秒后显示已用时间和进度计数（单位由 unit 说明），
+     * 期间按 Ctrl-C 取消。任务抛出异常时打印错误并返回 null
+     */
+    private static <T> T runCancellable(Callable<T> task, boolean showProgress, String unit) {
+        ExecutionContext context = new ExecutionContext(dbManager);
+        runningQuery = context;
+        Future<T> future = queryWorker.submit(() -> context.run(task));
+        boolean progressShown = false;
 
+        try {
+            while (true) {
+                try {
+                    return future.get(200, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (showProgress && context.getElapsedMillis() >= 1000) {
+                        System.err.print(String.format("\r  %.1fs elapsed, %,d %s%s   ",
+                                context.getElapsedMillis() / 1000.0, context.getRows(), unit,
+                                context.isCancelled() ? " (cancelling...)" : " (Ctrl-C to cancel)"));
+                        System.err.flush();
+                        progressShown = true;
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            ColorPrinter.printError((context.isCancelled() ? "Query cancelled: " : "Query failed: ") + cause.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            context.cancel();
+            return null;
+        } finally {
+            runningQuery = null;
+            if (progressShown) {
+                System.err.print("\r" + " ".repeat(72) + "\r");
+                System.err.flush();
+            }
+            if (context.isCancelled()) {
+                ColorPrinter.printWarning(String.format("Query cancelled after %d ms (%,d %s)",
+                        context.getElapsedMillis(), context.getRows(), unit));
+            }
+        }
+    }
+
+    /**
+     * Ctrl-C：有查询在执行时取消查询（再按一次直接 KILL QUERY），空闲时按默认方式退出。
+     * sun.misc.Signal 不是标准 API，通过反射使用，编译时没有警告，运行时不存在也不影响启动
+     */
+    private static void installInterruptHandler() {
+        try {
+            Class<?> signalClass = Class.forName("sun.misc.Signal");
+            Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+            Object defaultHandler = handlerClass.getField("SIG_DFL").get(null);
+            Object ignoreHandler = handlerClass.getField("SIG_IGN").get(null);
+            Method handleMethod = handlerClass.getMethod("handle", signalClass);
+            Object[] previous = new Object[1];
+
+            Object handler = Proxy.newProxyInstance(Main.class.getClassLoader(), new Class<?>[]{handlerClass},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "handle":
+                                break;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return "interrupt handler";
+                        }
+                        ExecutionContext context = runningQuery;
+                        if (context != null) {
+                            System.err.println();
+                            context.cancel();
+                        } else if (previous[0] != null && previous[0] != defaultHandler && previous[0] != ignoreHandler) {
+                            handleMethod.invoke(previous[0], args[0]);
+                        } else {
+                            System.exit(130);
+                        }
+                        return null;
+                    });
+            Object interrupt = signalClass.getConstructor(String.class).newInstance("INT");
+            previous[0] = signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, interrupt, handler);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // 平台不支持信号处理时，Ctrl-C 仍按默认方式结束进程
+        }
+    }
+
+    /**
+     * 显示完整的查询结果，超过一页时进入内存分页模式
+     */
+    private static void displayResult(QueryResult result) {
         if (result.isSuccess() && result.isQueryResult() && result.getData() != null) {
-            lastQueryResult = result;
+            setLastQueryResult(result);
 
             // 分页功能
             if (result.getData().size() > PAGE_SIZE) {
@@ -252,43 +529,122 @@ public class Main {
         }
     }
 
-    private static void handlePaginationInput(String input) {
-        // 暂时禁用分页模式
-        inPaginationMode = false;
-        currentPage = 1;
-        ColorPrinter.printInfo("Pagination mode disabled in current version");
+    /**
+     * 替换保存的上一次结果，并释放旧结果占用的临时文件。
+     * 结果缓存不保存溢出到磁盘的结果，关闭不会影响缓存中的条目
+     */
+    private static void setLastQueryResult(QueryResult result) {
+        QueryResult previous = lastQueryResult;
+        lastQueryResult = result;
+        if (previous != null && previous != result) {
+            closeResult(previous);
+        }
+    }
+
+    private static void closeResult(QueryResult result) {
+        if (result != null && result.getData() instanceof RowSet
+                && (lastQueryResult == null || result.getData() != lastQueryResult.getData())) {
+            ((RowSet) result.getData()).close();
+        }
+    }
+
+    /**
+     * 流式执行查询：逐行输出，不保留结果（因此不能导出或分页）
+     */
+    private static void streamSQL(String sql) {
+        ColorPrinter.printSQL(sql);
+        // 流式输出本身就是进度，不再显示计时行
+        QueryResult result = runCancellable(
+                () -> sqlExecutor.executeStreaming(dbManager.getConnection(), sql, new StreamingTablePrinter()), false);
+        if (result == null) {
+            return;
+        }
+
+        if (result.isSuccess()) {
+            System.out.println(result.getMessage());
+        } else {
+            TableFormatter.displayResult(result);
+        }
+    }
 
+    private static void handlePaginationInput(String input) {
         String lowerInput = input.trim().toLowerCase();
+        int targetPage;
 
         switch (lowerInput) {
             case "p":
-                if (currentPage > 1) {
-                    currentPage--;
+                if (currentPage <= 1) {
+                    ColorPrinter.printInfo("Already on the first page");
+                    return;
                 }
+                targetPage = currentPage - 1;
                 break;
 
             case "n":
-                currentPage++;
+                targetPage = currentPage + 1;
                 break;
 
             case "q":
-                inPaginationMode = false;
-                currentPage = 1;
+                exitPaginationMode();
                 return;
 
             default:
                 try {
-                    int page = Integer.parseInt(input);
-                    if (page >= 1) {
-                        currentPage = page;
+                    targetPage = Integer.parseInt(lowerInput);
+                    if (targetPage < 1) {
+                        ColorPrinter.printError("Page number must be at least 1");
+                        return;
                     }
                 } catch (NumberFormatException e) {
-                    ColorPrinter.printError("Invalid page command. Use P, N, Q, or page number.");
+                    // 其他输入：退出分页模式并按普通命令处理
+                    exitPaginationMode();
+                    handleCommand(CommandParser.parse(input));
                     return;
                 }
         }
 
-        PaginationUtil.displayPaginatedResult(lastQueryResult, currentPage, PAGE_SIZE);
+        if (pager != null) {
+            // 翻页也是一次查询：在工作线程上执行，可以用 Ctrl-C 取消；Optional 区分"没有更多行"和执行失败
+            QueryPager activePager = pager;
+            Optional<QueryPager.Page> fetched = runCancellable(
+                    () -> Optional.ofNullable(activePager.goToPage(targetPage)), true);
+            if (fetched == null) {
+                return;
+            }
+            if (fetched.isEmpty()) {
+                ColorPrinter.printInfo("No more rows");
+                return;
+            }
+            QueryPager.Page page = fetched.get();
+            if (!page.getResult().isSuccess()) {
+                ColorPrinter.printError(page.getResult().getMessage());
+                return;
+            }
+            currentPage = page.getNumber();
+            setLastQueryResult(page.getResult());
+            PaginationUtil.displayPage(page);
+        } else {
+            int totalPages = (int) Math.ceil((double) lastQueryResult.getData().size() / PAGE_SIZE);
+            if (targetPage > totalPages) {
+                ColorPrinter.printInfo("No more rows");
+                return;
+            }
+            currentPage = targetPage;
+            PaginationUtil.displayPaginatedResult(lastQueryResult, currentPage, PAGE_SIZE);
+        }
+    }
+
+    private static void exitPaginationMode() {
+        inPaginationMode = false;
+        currentPage = 1;
+    }
+
+    private static void closePager() {
+        if (pager != null) {
+            pager.close();
+            pager = null;
+        }
+        inPaginationMode = false;
     }
 
     private static void listDatabases() {
@@ -313,6 +669,14 @@ public class Main {
         ColorPrinter.printHeader("Describing Table: " + tableName);
         QueryResult result = metadataManager.describeTable(tableName);
         TableFormatter.displayResult(result);
+
+        if (result.isSuccess()) {
+            QueryResult indexes = metadataManager.getIndexes(tableName);
+            if (indexes.isSuccess() && indexes.getData() != null && !indexes.getData().isEmpty()) {
+                System.out.println("Indexes:");
+                TableFormatter.displayResult(indexes);
+            }
+        }
     }
 
     private static void showDatabaseInfo() {
@@ -350,25 +714,187 @@ public class Main {
 
     private static void clearHistory() {
         historyManager.clearHistory();
+        if (historyManager.getLastError() != null) {
+            ColorPrinter.printWarning("Command history cleared for this session only: " + historyManager.getLastError());
+            return;
+        }
         ColorPrinter.printSuccess("Command history cleared");
     }
 
     private static void exportToCSV(String filename) {
-        if (lastQueryResult == null) {
-            ColorPrinter.printError("No query result to export. Please run a query first.");
+        QueryResult result = resultForExport();
+        if (result != null) {
+            ExportUtil.exportToCSV(result, filename);
+            closeResult(result);
+        }
+    }
+
+    private static void exportToText(String filename) {
+        QueryResult result = resultForExport();
+        if (result != null) {
+            ExportUtil.exportToText(result, filename);
+            closeResult(result);
+        }
+    }
+
+    /**
+     * 直接从数据库并行导出整张表，不经过内存中的查询结果
+     */
+    private static void exportTable(String argument) {
+        String[] parts = argument.trim().split("\\s+");
+        int threads = ConfigLoader.getInt("export.threads", 4);
+        if (parts.length > 2) {
+            try {
+                threads = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                ColorPrinter.printError("Invalid thread count: " + parts[2]);
+                return;
+            }
+        }
+
+        String table = parts[0];
+        String filename = parts[1];
+        int workers = threads;
+        runCancellable(() -> new ParallelCsvExporter(dbManager).export(table, filename, workers), true,
+                "rows exported");
+    }
+
+    private static void importCsv(String argument) {
+        if (!sqlExecutor.isWriteEnabled()) {
+            ColorPrinter.printError("Writes are disabled. Use \\write on (or app.write.enabled=true) to allow \\import");
             return;
         }
 
-        ExportUtil.exportToCSV(lastQueryResult, filename);
+        String[] parts = argument.trim().split("\\s+");
+        int threads = ConfigLoader.getInt("import.threads", 4);
+        if (parts.length > 2) {
+            try {
+                threads = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                ColorPrinter.printError("Invalid thread count: " + parts[2]);
+                return;
+            }
+        }
+
+        new BulkImporter(dbManager).importCsv(parts[0], parts[1], threads);
+        if (sqlExecutor.getResultCache() != null) {
+            sqlExecutor.getResultCache().invalidateTable(parts[1]);
+        }
     }
 
-    private static void exportToText(String filename) {
+    private static void setWriteMode(String mode) {
+        if (!mode.isEmpty()) {
+            sqlExecutor.setWriteEnabled(mode.equals("on"));
+        }
+        ColorPrinter.printInfo("Write mode: " + (sqlExecutor.isWriteEnabled() ? "ON" : "OFF"));
+    }
+
+    private static void setQueryTimeout(String seconds) {
+        if (!seconds.isEmpty()) {
+            try {
+                sqlExecutor.setQueryTimeoutSeconds(Integer.parseInt(seconds));
+            } catch (NumberFormatException e) {
+                ColorPrinter.printError("Invalid timeout: " + seconds);
+                return;
+            }
+        }
+        int timeout = sqlExecutor.getQueryTimeoutSeconds();
+        ColorPrinter.printInfo("Statement timeout: " + (timeout > 0 ? timeout + " s" : "none"));
+    }
+
+    /**
+     * 语句耗时统计：\stats [n] 显示累计耗时最多的 n 条，\stats json <file> 导出，\stats reset 清空
+     */
+    private static void showStatementStats(String argument) {
+        StatementStats stats = sqlExecutor.getStatementStats();
+        if (stats == null) {
+            ColorPrinter.printWarning("Statement statistics are disabled (stats.enabled=false)");
+            return;
+        }
+
+        if (argument.equals("reset")) {
+            stats.reset();
+            ColorPrinter.printSuccess("Statement statistics cleared");
+        } else if (argument.startsWith("json")) {
+            String filename = argument.substring(4).trim();
+            try {
+                stats.exportJson(filename);
+                ColorPrinter.printSuccess("Statement statistics exported to: " + filename);
+            } catch (IOException e) {
+                ColorPrinter.printError("Export failed: " + e.getMessage());
+            }
+        } else {
+            int limit = argument.isEmpty() ? 20 : Integer.parseInt(argument);
+            TableFormatter.displayResult(stats.toQueryResult(limit));
+        }
+    }
+
+    /**
+     * 本会话中累计耗时最多的语句形状：\top [n]
+     */
+    private static void showTopStatements(String argument) {
+        StatementStats stats = sqlExecutor.getStatementStats();
+        if (stats == null) {
+            ColorPrinter.printWarning("Statement statistics are disabled (stats.enabled=false)");
+            return;
+        }
+        int limit = argument.isEmpty() ? 10 : Integer.parseInt(argument);
+        TableFormatter.displayResult(stats.toTopQueryResult(limit));
+    }
+
+    /**
+     * 导出为列式二进制文件：给出 SQL 时直接从查询游标流式写入，否则导出上一次的结果
+     */
+    private static void exportColumnar(String argument) {
+        String[] parts = argument.trim().split("\\s+", 2);
+        String filename = parts[0].toLowerCase().endsWith(".dbc") ? parts[0] : parts[0] + ".dbc";
+
+        if (parts.length > 1) {
+            ColumnarFileWriter writer = new ColumnarFileWriter(filename);
+            QueryResult result = sqlExecutor.executeStreaming(dbManager.getConnection(), parts[1], writer);
+            if (!result.isSuccess()) {
+                writer.abort();
+                ColorPrinter.printError(result.getMessage());
+            }
+            return;
+        }
+
+        QueryResult result = resultForExport();
+        if (result != null) {
+            ColumnarFileWriter.export(result, filename);
+            closeResult(result);
+        }
+    }
+
+    private static void readColumnar(String filename) {
+        ColorPrinter.printHeader("Reading Columnar File: " + filename);
+        closePager();
+        displayResult(ColumnarFileReader.read(filename.trim()));
+    }
+
+    /**
+     * 导出用的完整结果：服务器端分页时只保存了当前页，需要重新执行完整查询
+     */
+    private static QueryResult resultForExport() {
         if (lastQueryResult == null) {
             ColorPrinter.printError("No query result to export. Please run a query first.");
-            return;
+            return null;
         }
 
-        ExportUtil.exportToText(lastQueryResult, filename);
+        if (pager != null) {
+            ColorPrinter.printInfo("Fetching full result for export...");
+            String baseSql = pager.getBaseSql();
+            QueryResult full = runCancellable(() -> sqlExecutor.execute(dbManager.getConnection(), baseSql), true);
+            if (full == null) {
+                return null;
+            }
+            if (!full.isSuccess()) {
+                ColorPrinter.printError(full.getMessage());
+                return null;
+            }
+            return full;
+        }
+        return lastQueryResult;
     }
 
     // ========== 新增的方法：实际使用 SQLExecutor 的新功能 ==========
@@ -386,14 +912,17 @@ public class Main {
      * 使用 SQLExecutor 的 validateSQL 方法验证 SQL 语法
      */
     private static void validateSQL() {
-        Scanner scanner = new Scanner(System.in);
-        System.out.print("Enter SQL to validate: ");
-        String sql = scanner.nextLine().trim();
+        String sql = readInput("Enter SQL to validate: ");
 
         if (!sql.isEmpty()) {
             ColorPrinter.printInfo("Validating SQL: " + sql);
             QueryResult result = sqlExecutor.validateSQL(dbManager.getConnection(), sql);
             ColorPrinter.printSuccess(result.getMessage());
+
+            // 用表结构快照检查引用的表是否存在，不需要访问服务器
+            for (String table : metadataManager.findUnknownTables(sql)) {
+                ColorPrinter.printWarning("Unknown table: " + table);
+            }
         } else {
             ColorPrinter.printError("No SQL provided for validation");
         }
@@ -403,22 +932,18 @@ public class Main {
      * 使用 SQLExecutor 的 executePrepared 方法执行参数化查询
      */
     private static void executePreparedQuery() {
-        Scanner scanner = new Scanner(System.in);
-
         System.out.println("=== Parameterized Query Demo ===");
         System.out.println("Example: SELECT * FROM users WHERE age > ? AND name LIKE ?");
 
         try {
             List<Object> params = new ArrayList<>();
 
-            System.out.print("Enter minimum age: ");
-            String ageInput = scanner.nextLine().trim();
+            String ageInput = readInput("Enter minimum age: ");
             if (!ageInput.isEmpty()) {
                 params.add(Integer.parseInt(ageInput));
             }
 
-            System.out.print("Enter name pattern (e.g., %John%): ");
-            String nameInput = scanner.nextLine().trim();
+            String nameInput = readInput("Enter name pattern (e.g., %John%): ");
             if (!nameInput.isEmpty()) {
                 params.add(nameInput);
             }
@@ -449,29 +974,105 @@ public class Main {
     /**
      * 使用 SQLExecutor 的 executeMultiple 方法执行批量 SQL
      */
-    private static void executeBatchSQL() {
-        Scanner scanner = new Scanner(System.in);
-
+    private static void executeBatchSQL(String filename) {
         System.out.println("=== Batch SQL Execution ===");
-        System.out.println("Enter multiple SQL statements separated by semicolons:");
-        System.out.println("Example: SHOW TABLES; SELECT NOW(); SELECT 1 + 1;");
+        List<String> statements = readScript(filename);
+        if (statements == null) {
+            return;
+        }
 
-        String batchInput = scanner.nextLine().trim();
+        ColorPrinter.printInfo("Executing " + statements.size() + " statement(s)...");
+        long startTime = System.currentTimeMillis();
+        List<QueryResult> results = runCancellable(
+                () -> sqlExecutor.executeScript(dbManager.getConnection(), statements), true);
+        if (results == null) {
+            return;
+        }
+        for (String statement : statements) {
+            metadataManager.onStatementExecuted(statement);
+        }
 
-        if (!batchInput.isEmpty()) {
-            ColorPrinter.printInfo("Executing batch SQL...");
-            List<QueryResult> results = sqlExecutor.executeMultiple(dbManager.getConnection(), batchInput);
+        System.out.println("\n=== Batch Execution Results ===");
+        printScriptResults(statements, results, startTime);
+    }
 
-            System.out.println("\n=== Batch Execution Results ===");
-            for (int i = 0; i < results.size(); i++) {
-                QueryResult result = results.get(i);
-                System.out.println("Statement " + (i + 1) + ": " + result.getMessage());
-                if (result.isSuccess() && result.getData() != null && !result.getData().isEmpty()) {
-                    TableFormatter.displayResult(result);
-                }
+    /**
+     * \parallel N [file]：互不相关的语句在 N 个连接上同时执行，同一张表上的语句保持顺序
+     */
+    private static void executeParallel(String argument) {
+        String[] parts = argument.trim().split("\\s+", 2);
+        int connections = Integer.parseInt(parts[0]);
+
+        System.out.println("=== Parallel SQL Execution ===");
+        List<String> statements = readScript(parts.length > 1 ? parts[1] : "");
+        if (statements == null) {
+            return;
+        }
+
+        ColorPrinter.printInfo("Executing " + statements.size() + " statement(s) on up to " + connections + " connection(s)...");
+        long startTime = System.currentTimeMillis();
+        ParallelScriptRunner runner = new ParallelScriptRunner(dbManager, sqlExecutor);
+        List<QueryResult> results = runCancellable(() -> runner.run(statements, connections), true, "statements done");
+        if (results == null) {
+            return;
+        }
+        for (String statement : statements) {
+            metadataManager.onStatementExecuted(statement);
+        }
+
+        System.out.println("\n=== Parallel Execution Results ===");
+        long serialMs = 0;
+        for (QueryResult result : results) {
+            serialMs += result.getExecutionTime();
+        }
+        printScriptResults(statements, results, startTime);
+        ColorPrinter.printInfo(String.format("Sum of statement times: %d ms", serialMs));
+    }
+
+    /**
+     * 读取脚本：给出文件名时读取文件，否则从控制台读取一行
+     */
+    private static List<String> readScript(String filename) {
+        String script;
+        if (!filename.isEmpty()) {
+            try {
+                script = new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                ColorPrinter.printError("Failed to read script: " + e.getMessage());
+                return null;
+            }
+        } else {
+            System.out.println("Enter multiple SQL statements separated by semicolons:");
+            System.out.println("Example: SHOW TABLES; SELECT NOW(); SELECT 1 + 1;");
+            script = readInput("");
+        }
+
+        List<String> statements = SqlScriptSplitter.split(script);
+        if (statements.isEmpty()) {
+            ColorPrinter.printError("No SQL statements provided");
+            return null;
+        }
+        return statements;
+    }
+
+    private static void printScriptResults(List<String> statements, List<QueryResult> results, long startTime) {
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            QueryResult result = results.get(i);
+            if (!result.isSuccess()) {
+                failed++;
+            }
+            System.out.println("Statement " + (i + 1) + ": " + result.getMessage());
+            if (result.isSuccess() && result.getData() != null && !result.getData().isEmpty()) {
+                TableFormatter.displayResult(result);
             }
+        }
+        String summary = String.format("%d statement(s), %d failed, %d ms total",
+                statements.size(), failed, System.currentTimeMillis() - startTime);
+        if (failed == 0) {
+            ColorPrinter.printSuccess(summary);
         } else {
-            ColorPrinter.printError("No SQL provided for batch execution");
+            ColorPrinter.printError(summary);
         }
     }
 
@@ -486,18 +1087,29 @@ public class Main {
         System.out.println("  \\d or \\desc <table>      - Describe table structure");
         System.out.println("  \\info                    - Show database information");
         System.out.println("  \\status                  - Show table status");
+        System.out.println("  \\refresh                 - Clear cached metadata (tables, describe, status)");
         System.out.println("  \\use <database>          - Switch to another database");
         System.out.println("  \\history [count]         - Show command history");
         System.out.println("  \\clear_history           - Clear command history");
         System.out.println("  \\export <file>           - Export last result to CSV");
         System.out.println("  \\export_csv <file>       - Export last result to CSV");
         System.out.println("  \\export_txt <file>       - Export last result to text");
+        System.out.println("  \\export_table <t> <file> [n] - Export a whole table to CSV on n connections");
+        System.out.println("  \\export_col <file> [sql]  - Export last result (or stream a query) to columnar .dbc");
+        System.out.println("  \\read_col <file>         - Load a columnar .dbc export");
+        System.out.println("  \\import <file> <t> [n]   - Bulk load a CSV file into a table on n connections");
+        System.out.println("  \\write [on|off]          - Allow INSERT/UPDATE/DELETE and \\import");
+        System.out.println("  \\stream <sql>            - Stream query rows without buffering the result");
+        System.out.println("  \\timeout [seconds]       - Show or set the statement timeout (0 = none)");
+        System.out.println("  \\stats [n|reset|json <file>] - Show per-statement latency percentiles by phase");
+        System.out.println("  \\top [n]                 - Show the statement shapes using the most time");
 
         // 新增的命令
         System.out.println("  \\get_tables              - Get tables via SQLExecutor");
         System.out.println("  \\validate                - Validate SQL syntax");
         System.out.println("  \\prepared                - Execute parameterized query");
-        System.out.println("  \\batch                   - Execute batch SQL statements");
+        System.out.println("  \\batch [file]            - Execute a SQL script (batched writes in one transaction)");
+        System.out.println("  \\parallel <n> [file]     - Run independent statements of a script on n connections");
         System.out.println("  \\help                    - Show this help");
 
         System.out.println("\nBUILT-IN COMMANDS:");
@@ -528,6 +1140,25 @@ public class Main {
         ColorPrinter.printHeader("Application Status");
         System.out.println("  Database: " + (dbManager.isConnected() ? "Connected" : "Disconnected"));
         System.out.println("  " + dbManager.getConnectionInfo());
+        if (dbManager.isPooled()) {
+            System.out.println("  Connection pool: " + dbManager.getPool().getStats());
+        }
+        System.out.println("  Metadata cache: " + metadataManager.getCacheStats());
+        if (sqlExecutor.getResultCache() != null) {
+            System.out.println("  Result cache: " + sqlExecutor.getResultCache().getStats());
+        }
+        if (sqlExecutor.getStatementCache() != null) {
+            System.out.println("  Statement cache: " + sqlExecutor.getStatementCache().getStats());
+        }
+        if (metadataManager.getSchemaSnapshot() != null) {
+            System.out.println("  Schema snapshot: " + metadataManager.getSchemaSnapshot().getStats());
+        }
+        if (lastQueryResult != null && lastQueryResult.getData() instanceof SpillingRowSet) {
+            SpillingRowSet rows = (SpillingRowSet) lastQueryResult.getData();
+            System.out.println(String.format("  Last result: %,d rows, %.1f MB on heap, %,d rows (%.1f MB) spilled to disk",
+                    rows.size(), rows.estimatedBytes() / 1048576.0, rows.getSpilledRows(),
+                    rows.getSpilledBytes() / 1048576.0));
+        }
 
         if (dbManager.testConnection()) {
             System.out.println("  Connection test: Valid");
@@ -546,6 +1177,15 @@ public class Main {
     }
 
     private static void cleanup() {
+        closePager();
+        setLastQueryResult(null);
+        queryWorker.shutdownNow();
+        if (lineEditor != null) {
+            lineEditor.close();
+        }
+        if (historyManager != null) {
+            historyManager.close();
+        }
         if (dbManager != null) {
             dbManager.disconnect();
         }
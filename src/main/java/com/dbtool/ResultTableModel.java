@@ -0,0 +1,101 @@
+package com.dbtool;
+
+import com.dbtool.model.QueryResult;
+import com.dbtool.model.SpillingRowSet;
+import com.dbtool.util.ConfigLoader;
+
+import javax.swing.table.AbstractTableModel;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 结果表格模型：不复制数据，JTable 绘制哪些行就读取哪些单元格。
+ * 数据来自已物化的 QueryResult（列式存储），或流式查询逐批追加的 SpillingRowSet
+ * （超过 result.memory.max.mb 的部分写入临时文件，换下一个结果时删除）。
+ */
+public class ResultTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private List<String> columnNames = Collections.emptyList();
+    private QueryResult result;
+    private final long memoryLimit = ConfigLoader.getInt("result.memory.max.mb", 128) * 1024L * 1024L;
+    private SpillingRowSet streamed;
+    private int rowCount = 0;
+
+    /**
+     * 显示一个已物化的查询结果，与结果大小无关
+     */
+    public void setResult(QueryResult result) {
+        closeStreamed();
+        this.result = result;
+        this.columnNames = result.getColumnNames() != null ? result.getColumnNames() : Collections.emptyList();
+        this.rowCount = result.getData() != null ? result.getData().size() : 0;
+        fireTableStructureChanged();
+    }
+
+    /**
+     * 开始接收流式查询的行
+     */
+    public void startStreaming(List<String> columnNames, List<String> columnClassNames) {
+        closeStreamed();
+        this.result = null;
+        String spillDir = ConfigLoader.get("result.spill.dir");
+        this.streamed = new SpillingRowSet(columnNames, columnClassNames, memoryLimit,
+                spillDir != null ? new File(spillDir) : null);
+        this.columnNames = streamed.getColumnNames();
+        this.rowCount = 0;
+        fireTableStructureChanged();
+    }
+
+    /**
+     * 追加一批行，只触发一次插入事件
+     */
+    public void appendRows(List<Object[]> rows) {
+        if (streamed == null || rows.isEmpty()) {
+            return;
+        }
+        int first = rowCount;
+        for (Object[] row : rows) {
+            streamed.addRow(row);
+        }
+        rowCount = streamed.size();
+        fireTableRowsInserted(first, rowCount - 1);
+    }
+
+    public void clear() {
+        closeStreamed();
+        result = null;
+        columnNames = Collections.emptyList();
+        rowCount = 0;
+        fireTableStructureChanged();
+    }
+
+    private void closeStreamed() {
+        if (streamed != null) {
+            streamed.close();
+            streamed = null;
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object value = streamed != null ? streamed.getValue(row, column) : result.getValue(row, column);
+        return value != null ? value : "NULL";
+    }
+}
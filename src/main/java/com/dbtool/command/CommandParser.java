@@ -1,6 +1,21 @@
 package com.dbtool.command;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class CommandParser {
+    // 元命令和内置命令的名称（Tab 补全用），新增命令时同时加到这里
+    private static final List<String> COMMAND_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "\\l", "\\list", "\\t", "\\tables", "\\d", "\\desc", "\\describe", "\\info", "\\status",
+            "\\refresh", "\\use", "\\help", "\\history", "\\clear_history", "\\export", "\\export_csv",
+            "\\export_txt", "\\export_table", "\\export_col", "\\read_col", "\\import", "\\write",
+            "\\parallel", "\\timeout", "\\stats", "\\top", "\\stream", "\\batch",
+            "exit", "quit", "help", "status", "test", "config", "get_tables", "validate", "prepared", "batch"));
+
+    public static List<String> getCommandNames() {
+        return COMMAND_NAMES;
+    }
 
     public static CommandResult parse(String input) {
         if (input == null || input.trim().isEmpty()) {
@@ -52,6 +67,9 @@ public class CommandParser {
             case "status":
                 return new CommandResult(CommandType.TABLE_STATUS, argument);
 
+            case "refresh":
+                return new CommandResult(CommandType.REFRESH_METADATA, argument);
+
             case "use":
                 if (argument.isEmpty()) {
                     return new CommandResult(CommandType.ERROR, "Database name required for use command");
@@ -80,6 +98,66 @@ public class CommandParser {
                 }
                 return new CommandResult(CommandType.EXPORT_TEXT, argument);
 
+            case "export_table":
+                if (argument.split("\\s+").length < 2) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\export_table <table> <file> [threads]");
+                }
+                return new CommandResult(CommandType.EXPORT_TABLE, argument);
+
+            case "export_col":
+                if (argument.isEmpty()) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\export_col <file> [sql]");
+                }
+                return new CommandResult(CommandType.EXPORT_COLUMNAR, argument);
+
+            case "read_col":
+                if (argument.isEmpty()) {
+                    return new CommandResult(CommandType.ERROR, "Filename required for read_col command");
+                }
+                return new CommandResult(CommandType.READ_COLUMNAR, argument);
+
+            case "import":
+                if (argument.split("\\s+").length < 2) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\import <file.csv> <table> [threads]");
+                }
+                return new CommandResult(CommandType.IMPORT_CSV, argument);
+
+            case "write":
+                if (!argument.equalsIgnoreCase("on") && !argument.equalsIgnoreCase("off") && !argument.isEmpty()) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\write [on|off]");
+                }
+                return new CommandResult(CommandType.WRITE_MODE, argument.toLowerCase());
+
+            case "parallel":
+                if (!argument.matches("\\d+(\\s+.+)?") || argument.startsWith("0")) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\parallel <connections> [file]");
+                }
+                return new CommandResult(CommandType.PARALLEL_EXECUTE, argument);
+
+            case "timeout":
+                if (!argument.isEmpty() && !argument.matches("\\d+")) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\timeout [seconds]");
+                }
+                return new CommandResult(CommandType.QUERY_TIMEOUT, argument);
+
+            case "stats":
+                if (!argument.isEmpty() && !argument.matches("\\d{1,6}|reset|json\\s+\\S+")) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\stats [count | reset | json <file>]");
+                }
+                return new CommandResult(CommandType.STATEMENT_STATS, argument);
+
+            case "top":
+                if (!argument.isEmpty() && !argument.matches("\\d{1,6}")) {
+                    return new CommandResult(CommandType.ERROR, "Usage: \\top [count]");
+                }
+                return new CommandResult(CommandType.TOP_STATEMENTS, argument);
+
+            case "stream":
+                if (argument.isEmpty()) {
+                    return new CommandResult(CommandType.ERROR, "SQL required for stream command");
+                }
+                return new CommandResult(CommandType.STREAM_QUERY, argument);
+
             case "\\get_tables":
                 return new CommandResult(CommandType.GET_TABLES, argument);
 
@@ -89,6 +167,7 @@ public class CommandParser {
             case "\\prepared":
                 return new CommandResult(CommandType.PREPARED_QUERY, argument);
 
+            case "batch":
             case "\\batch":
                 return new CommandResult(CommandType.BATCH_EXECUTE, argument);
 
@@ -169,6 +248,17 @@ public class CommandParser {
         EXPORT_CSV,        // 导出为CSV
         EXPORT_TEXT,       // 导出为文本
         PAGINATION,        // 分页命令
+        STREAM_QUERY,      // 流式查询
+        EXPORT_TABLE,      // 并行导出整张表
+        EXPORT_COLUMNAR,   // 导出为列式二进制文件
+        READ_COLUMNAR,     // 读取列式二进制文件
+        IMPORT_CSV,        // 批量导入CSV
+        WRITE_MODE,        // 写入开关
+        REFRESH_METADATA,  // 清除元数据缓存
+        QUERY_TIMEOUT,     // 语句超时
+        PARALLEL_EXECUTE,  // 多连接并行执行脚本
+        STATEMENT_STATS,   // 语句耗时统计
+        TOP_STATEMENTS,    // 最耗时的语句形状
         UNKNOWN
     }
 }
\ No newline at end of file
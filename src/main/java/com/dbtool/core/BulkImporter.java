@@ -0,0 +1,228 @@
+package com.dbtool.core;
+
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.CsvReader;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CSV 批量导入：第一行是列名。
+ * 解析线程把记录分批放入队列，多个写入线程各自使用一个连接池连接，
+ * 通过 PreparedStatement.addBatch 执行（驱动开启 rewriteBatchedStatements 后会改写为多行 VALUES），
+ * 每 commitRows 行提交一次事务。
+ */
+public class BulkImporter {
+    private static final List<String[]> END_OF_INPUT = Collections.emptyList();
+
+    private final DatabaseManager dbManager;
+    private final int batchSize;
+    private final int commitRows;
+
+    public BulkImporter(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.batchSize = Math.max(1, ConfigLoader.getInt("import.batch.size", 1000));
+        this.commitRows = Math.max(batchSize, ConfigLoader.getInt("import.commit.rows", 10000));
+    }
+
+    public boolean importCsv(String filename, String table, int threads) {
+        long startTime = System.currentTimeMillis();
+        if (!dbManager.isPooled()) {
+            threads = 1;
+        }
+        threads = Math.max(1, threads);
+
+        AtomicLong committedRows = new AtomicLong();
+        ExecutorService writers = null;
+        List<Future<Void>> futures = new ArrayList<>();
+
+        try (CsvReader reader = CsvReader.open(filename)) {
+            String[] header = reader.next();
+            if (header == null) {
+                System.err.println("Import failed: " + filename + " is empty");
+                return false;
+            }
+
+            String insertSql = buildInsertSql(table, header);
+            int columnCount = header.length;
+
+            BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<>(threads * 2);
+            writers = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "csv-import");
+                t.setDaemon(true);
+                return t;
+            });
+            for (int i = 0; i < threads; i++) {
+                boolean pooled = dbManager.isPooled();
+                futures.add(writers.submit(() -> {
+                    writeBatches(queue, insertSql, columnCount, pooled, committedRows);
+                    return null;
+                }));
+            }
+
+            long parsedRows = 0;
+            List<String[]> batch = new ArrayList<>(batchSize);
+            String[] record;
+            while ((record = reader.next()) != null) {
+                if (record.length == 1 && record[0] == null) {
+                    continue; // 空行
+                }
+                if (record.length > columnCount) {
+                    throw new IOException("Line " + (reader.getLineNumber() - 1) + " has " + record.length
+                            + " fields, expected " + columnCount);
+                }
+                batch.add(record);
+                parsedRows++;
+                if (batch.size() == batchSize) {
+                    putBatch(queue, batch, futures);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                putBatch(queue, batch, futures);
+            }
+            for (int i = 0; i < threads; i++) {
+                putBatch(queue, END_OF_INPUT, futures);
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+            System.out.printf("%d rows imported into %s in %d ms (%.0f rows/s, %d connection(s))%n",
+                    parsedRows, table, elapsed, parsedRows * 1000.0 / elapsed, threads);
+            return true;
+
+        } catch (IOException e) {
+            reportFailure(e.getMessage(), committedRows);
+            return false;
+        } catch (ExecutionException e) {
+            reportFailure(e.getCause().getMessage(), committedRows);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reportFailure("interrupted", committedRows);
+            return false;
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            if (writers != null) {
+                writers.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 放入队列；写入线程已经失败时立即停止解析
+     */
+    private static void putBatch(BlockingQueue<List<String[]>> queue, List<String[]> batch,
+                                 List<Future<Void>> writers) throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 200, TimeUnit.MILLISECONDS)) {
+            for (Future<Void> writer : writers) {
+                if (writer.isDone()) {
+                    writer.get();
+                }
+            }
+        }
+    }
+
+    private void writeBatches(BlockingQueue<List<String[]>> queue, String insertSql, int columnCount,
+                              boolean pooled, AtomicLong committedRows) throws SQLException, InterruptedException {
+        Connection connection = pooled ? dbManager.borrowConnection() : dbManager.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        long uncommitted = 0;
+
+        try (PreparedStatement pstmt = connection.prepareStatement(insertSql)) {
+            connection.setAutoCommit(false);
+
+            while (true) {
+                List<String[]> batch = queue.take();
+                if (batch == END_OF_INPUT) {
+                    break;
+                }
+
+                for (String[] record : batch) {
+                    for (int i = 0; i < columnCount; i++) {
+                        pstmt.setString(i + 1, i < record.length ? record[i] : null);
+                    }
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                uncommitted += batch.size();
+
+                if (uncommitted >= commitRows) {
+                    connection.commit();
+                    committedRows.addAndGet(uncommitted);
+                    uncommitted = 0;
+                }
+            }
+
+            connection.commit();
+            committedRows.addAndGet(uncommitted);
+        } catch (SQLException | InterruptedException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // 连接已失效，事务会被服务器回滚
+            }
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException ignored) {
+                // 归还连接时连接池会重置
+            }
+            if (pooled) {
+                connection.close();
+            }
+        }
+    }
+
+    private static String buildInsertSql(String table, String[] header) throws IOException {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] == null || header[i].trim().isEmpty()) {
+                throw new IOException("Header column " + (i + 1) + " is empty");
+            }
+            if (i > 0) {
+                columns.append(", ");
+                placeholders.append(", ");
+            }
+            columns.append('`').append(header[i].trim().replace("`", "``")).append('`');
+            placeholders.append('?');
+        }
+
+        StringBuilder quotedTable = new StringBuilder();
+        for (String part : table.replace("`", "").split("\\.")) {
+            if (quotedTable.length() > 0) {
+                quotedTable.append('.');
+            }
+            quotedTable.append('`').append(part).append('`');
+        }
+
+        return "INSERT INTO " + quotedTable + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+
+    private static void reportFailure(String message, AtomicLong committedRows) {
+        System.err.println("Import failed: " + message);
+        if (committedRows.get() > 0) {
+            System.err.println(committedRows.get() + " rows were already committed before the failure");
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.dbtool.core;
+
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.SqlLexer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有界连接池：最小/最大连接数、空闲回收、借出时校验、借出超时与泄漏检测。
+ * 执行过改变会话状态的语句（SET、USE、用户变量赋值、LOCK TABLES、临时表等）的连接归还时关闭，
+ * 这些设置不会带给下一个借用者
+ */
+public class ConnectionPool {
+
+    /**
+     * 物理连接的创建方式，默认使用 DriverManager
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // 最近归还的连接在此时间内免校验，避免每次借出都多一次 ping
+    private static final long VALIDATION_BYPASS_MS = 500;
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long borrowTimeoutMs;
+    private final long leakThresholdMs;
+    private final int validationTimeoutSeconds;
+
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, PooledEntry> borrowed = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize,
+                          long idleTimeoutMs, long borrowTimeoutMs, long leakThresholdMs,
+                          int validationTimeoutSeconds) {
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.validationTimeoutSeconds = Math.max(1, validationTimeoutSeconds);
+        this.permits = new Semaphore(this.maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs > 0 ? idleTimeoutMs / 2 : 30000, 30000));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 根据 database.properties 中的 pool.* 配置创建连接池
+     */
+    public static ConnectionPool fromConfig(String url, Properties connectionProps) {
+        Properties props = new Properties();
+        props.putAll(connectionProps);
+        return new ConnectionPool(
+                () -> DriverManager.getConnection(url, props),
+                ConfigLoader.getInt("pool.min.size", 2),
+                ConfigLoader.getInt("pool.max.size", 8),
+                ConfigLoader.getInt("pool.idle.timeout.ms", 600000),
+                ConfigLoader.getInt("pool.borrow.timeout.ms", 30000),
+                ConfigLoader.getInt("pool.leak.threshold.ms", 60000),
+                ConfigLoader.getInt("pool.validation.timeout.s", 3)
+        );
+    }
+
+    /**
+     * 预先建立 minSize 个连接
+     */
+    public void warmUp() throws SQLException {
+        while (totalConnections.get() < minSize) {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                idle.offerFirst(createEntry());
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 借出连接，调用 close() 即归还到池中
+     */
+    public Connection borrow() throws SQLException {
+        return borrow(true);
+    }
+
+    /**
+     * 借出会话级连接：生命周期与会话相同，不参与泄漏检测
+     */
+    public Connection borrowSessionConnection() throws SQLException {
+        return borrow(false);
+    }
+
+    private Connection borrow(boolean trackLeak) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException(String.format(
+                        "Timed out after %d ms waiting for a pooled connection (active=%d, max=%d)",
+                        borrowTimeoutMs, borrowed.size(), maxSize));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = createEntry();
+            }
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.leakReported = false;
+            entry.borrowTrace = (trackLeak && leakThresholdMs > 0) ? new Throwable("Connection borrowed here") : null;
+            entry.trackLeak = trackLeak;
+
+            Connection proxy = entry.newProxy();
+            borrowed.put(proxy, entry);
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isUsable(entry)) {
+                return entry;
+            }
+            discard(entry);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        try {
+            if (entry.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - entry.returnedAt < VALIDATION_BYPASS_MS) {
+                return true;
+            }
+            return entry.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = factory.create();
+        totalConnections.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    private void release(Connection proxy) {
+        PooledEntry entry = borrowed.remove(proxy);
+        if (entry == null) {
+            return;
+        }
+
+        try {
+            boolean reusable = !closed && !entry.sessionChanged && !entry.physical.isClosed();
+            if (reusable && !entry.physical.getAutoCommit()) {
+                // 未提交的事务不能带回池中
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                entry.returnedAt = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            } else {
+                discard(entry);
+            }
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 语句是否会改变连接的会话状态：会话变量、字符集、时区、当前数据库、用户变量、
+     * 表锁、命名锁、临时表、服务器端 PREPARE，以及可能做这些事情的存储过程
+     */
+    public static boolean changesSessionState(String sql) {
+        switch (SqlLexer.classify(sql)) {
+            case SET:
+            case USE:
+            case CALL:
+            case DYNAMIC:
+                return true;
+            default:
+                break;
+        }
+        SqlLexer lexer = new SqlLexer(sql);
+        boolean first = true;
+        boolean afterInto = false;
+        boolean afterColon = false;
+        while (lexer.next() != SqlLexer.Token.EOF) {
+            if (first && (lexer.isWord("lock") || lexer.isWord("unlock"))) {
+                return true;
+            }
+            if (lexer.isWord("temporary") || lexer.isWord("get_lock")) {
+                return true;
+            }
+            // @x := ...、SELECT ... INTO @x
+            if ((afterColon && lexer.isSymbol('='))
+                    || (afterInto && lexer.getToken() == SqlLexer.Token.VARIABLE && !lexer.getText().startsWith("@@"))) {
+                return true;
+            }
+            afterColon = lexer.isSymbol(':');
+            afterInto = lexer.isWord("into");
+            first = false;
+        }
+        return false;
+    }
+
+    private void discard(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException ignored) {
+            // 连接已失效，忽略关闭错误
+        }
+    }
+
+    /**
+     * 定时任务：回收超时空闲连接、补足最小连接数、报告疑似泄漏
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        if (idleTimeoutMs > 0) {
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext() && totalConnections.get() > minSize) {
+                PooledEntry entry = it.next();
+                if (now - entry.returnedAt > idleTimeoutMs && idle.remove(entry)) {
+                    discard(entry);
+                }
+            }
+        }
+
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            System.err.println("⚠ Connection pool refill failed: " + e.getMessage());
+        }
+
+        if (leakThresholdMs > 0) {
+            for (PooledEntry entry : borrowed.values()) {
+                if (entry.trackLeak && !entry.leakReported && now - entry.borrowedAt > leakThresholdMs) {
+                    entry.leakReported = true;
+                    System.err.println("⚠ Possible connection leak: borrowed " + (now - entry.borrowedAt)
+                            + " ms ago and not returned");
+                    if (entry.borrowTrace != null) {
+                        entry.borrowTrace.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+        for (Connection proxy : borrowed.keySet()) {
+            PooledEntry borrowedEntry = borrowed.remove(proxy);
+            if (borrowedEntry != null) {
+                discard(borrowedEntry);
+            }
+        }
+    }
+
+    public int getActiveCount() { return borrowed.size(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getTotalCount() { return totalConnections.get(); }
+    public int getMaxSize() { return maxSize; }
+    public boolean isClosed() { return closed; }
+
+    public String getStats() {
+        return String.format("active=%d, idle=%d, total=%d, max=%d",
+                getActiveCount(), getIdleCount(), getTotalCount(), maxSize);
+    }
+
+    private class PooledEntry {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long returnedAt;
+        private volatile boolean trackLeak;
+        private volatile boolean leakReported;
+        private volatile Throwable borrowTrace;
+        // 执行过改变会话状态的语句，归还时关闭
+        private volatile boolean sessionChanged;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.returnedAt = System.currentTimeMillis();
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new PooledConnectionHandler(this));
+        }
+
+        void noteSql(Object sql) {
+            if (!sessionChanged && sql instanceof String && changesSessionState((String) sql)) {
+                sessionChanged = true;
+            }
+        }
+    }
+
+    /**
+     * 代理连接：close() 归还到池，归还后的任何调用都会失败。
+     * 预处理语句在 prepare 时检查 SQL，普通 Statement 包装一层，在执行时检查
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private volatile boolean logicallyClosed = false;
+
+        PooledConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release((Connection) proxy);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    break;
+            }
+
+            if (logicallyClosed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                    entry.noteSql(args[0]);
+                    break;
+                case "setTransactionIsolation":
+                case "setReadOnly":
+                    entry.sessionChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if ("createStatement".equals(method.getName())) {
+                return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Statement.class},
+                        new TrackedStatementHandler(entry, (Statement) result));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 普通 Statement 的代理：执行的 SQL 改变会话状态时标记所属连接
+     */
+    private static class TrackedStatementHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private final Statement statement;
+
+        TrackedStatementHandler(PooledEntry entry, Statement statement) {
+            this.entry = entry;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "execute":
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "addBatch":
+                    entry.noteSql(args[0]);
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
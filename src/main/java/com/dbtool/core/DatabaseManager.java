@@ -13,6 +13,10 @@ public class DatabaseManager {
     private String databaseUrl;
     private String username;
     private Properties connectionProps; // 添加这行声明
+    private ConnectionPool pool;
+    // 连接池模式下会话连接最近一次通过 isValid 检查的时间，间隔内不再检查
+    private long sessionValidatedAt = 0;
+    private static final long SESSION_VALIDATION_INTERVAL_MS = 5000;
 
     public DatabaseManager() {
         this.connectionProps = new Properties(); // 现在这个变量已经声明了
@@ -51,6 +55,7 @@ public class DatabaseManager {
             connectionProps.setProperty("useSSL", "false");
             connectionProps.setProperty("serverTimezone", "UTC");
             connectionProps.setProperty("characterEncoding", "UTF-8");
+            applyStreamingProperties();
 
             connection = DriverManager.getConnection(url, connectionProps);
             connected = true;
@@ -88,6 +93,10 @@ public class DatabaseManager {
                 System.err.println("Error disconnecting: " + e.getMessage());
             }
         }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
     }
 
     public Connection getConnection() {
@@ -95,9 +104,111 @@ public class DatabaseManager {
             System.err.println("No active database connection");
             return null;
         }
+
+        // 连接池模式下，会话连接失效时直接从池中换一个，无需重新握手
+        if (pool != null) {
+            try {
+                if (connection == null || !isSessionUsable()) {
+                    replaceSessionConnection();
+                }
+            } catch (SQLException e) {
+                System.err.println("Failed to obtain pooled connection: " + e.getMessage());
+                return null;
+            }
+        }
         return connection;
     }
 
+    /**
+     * 会话连接是否可用。服务器重启或 wait_timeout 断开的连接 isClosed() 仍为 false，
+     * 所以每隔 SESSION_VALIDATION_INTERVAL_MS 用 isValid 检查一次
+     */
+    private boolean isSessionUsable() throws SQLException {
+        if (connection.isClosed()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - sessionValidatedAt < SESSION_VALIDATION_INTERVAL_MS) {
+            return true;
+        }
+        boolean valid = connection.isValid(Math.max(1, ConfigLoader.getInt("pool.validation.timeout.s", 3)));
+        sessionValidatedAt = now;
+        return valid;
+    }
+
+    /**
+     * 归还失效的会话连接（释放它占用的名额），借出新的会话连接并切换回原来的数据库
+     */
+    private void replaceSessionConnection() throws SQLException {
+        String catalog = null;
+        if (connection != null) {
+            try {
+                catalog = connection.getCatalog();
+            } catch (SQLException e) {
+                // 失效的连接可能无法返回当前数据库
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // 归还时忽略失效连接的错误
+            }
+            connection = null;
+        }
+        connection = pool.borrowSessionConnection();
+        sessionValidatedAt = System.currentTimeMillis();
+        if (catalog != null && !catalog.equals(connection.getCatalog())) {
+            connection.setCatalog(catalog);
+        }
+    }
+
+    /**
+     * 从连接池借出一个独立连接（用于并发任务），使用完毕后调用 close() 归还。
+     * 借出的连接会切换到与会话连接相同的数据库。
+     */
+    public Connection borrowConnection() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Connection pool is not enabled (set pool.enabled=true)");
+        }
+
+        Connection pooled = pool.borrow();
+        try {
+            String catalog = connection != null && !connection.isClosed() ? connection.getCatalog() : null;
+            if (catalog != null && !catalog.equals(pooled.getCatalog())) {
+                pooled.setCatalog(catalog);
+            }
+        } catch (SQLException e) {
+            pooled.close();
+            throw e;
+        }
+        return pooled;
+    }
+
+    /**
+     * 打开一个不属于连接池的新连接（没有连接池时给后台任务使用），使用完毕后关闭
+     */
+    public Connection openConnection() throws SQLException {
+        if (!connected) {
+            throw new SQLException("No active database connection");
+        }
+        return DriverManager.getConnection(databaseUrl, connectionProps);
+    }
+
+    public String getDatabaseUrl() {
+        return databaseUrl;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
     public boolean isConnected() {
         return connected;
     }
@@ -124,28 +235,66 @@ public class DatabaseManager {
     // 在DatabaseManager类中添加连接池方法
     public boolean connectWithPool() {
         try {
-            // 简单的连接池实现
             String url = ConfigLoader.get("db.url");
             String user = ConfigLoader.get("db.username");
             String password = ConfigLoader.get("db.password");
 
+            System.out.print("Connecting to database (pooled)... ");
+
+            this.databaseUrl = url;
+            this.username = user;
+
             // 设置连接参数 - 使用已经声明的connectionProps
             connectionProps.setProperty("user", user);
             connectionProps.setProperty("password", password);
             connectionProps.setProperty("useSSL", "false");
             connectionProps.setProperty("serverTimezone", "UTC");
             connectionProps.setProperty("characterEncoding", "UTF-8");
+            applyStreamingProperties();
 
-            connection = DriverManager.getConnection(url, connectionProps);
+            if (pool != null) {
+                pool.close();
+            }
+            pool = ConnectionPool.fromConfig(url, connectionProps);
+            connection = pool.borrowSessionConnection();
+            sessionValidatedAt = System.currentTimeMillis();
+            pool.warmUp();
             connected = true;
 
+            System.out.println("✓ SUCCESS");
+            System.out.println("  URL: " + url);
+            System.out.println("  User: " + user);
+            System.out.println("  Pool: " + pool.getStats());
+
             return true;
         } catch (SQLException e) {
+            connected = false;
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+            System.out.println("✗ FAILED");
             System.err.println("Connection failed: " + e.getMessage());
             return false;
         }
     }
 
+    // 服务器端游标读取需要在连接上开启 useCursorFetch；
+    // rewriteBatchedStatements 让驱动把 addBatch 的 INSERT 合并为多行 VALUES
+    private void applyStreamingProperties() {
+        if (ConfigLoader.getBoolean("query.stream.cursor.fetch", false)) {
+            connectionProps.setProperty("useCursorFetch", "true");
+        }
+        if (ConfigLoader.getBoolean("db.rewriteBatchedStatements", true)) {
+            connectionProps.setProperty("rewriteBatchedStatements", "true");
+        }
+        // 预处理语句：服务器端 prepare，驱动缓存解析结果和服务器端语句
+        connectionProps.setProperty("useServerPrepStmts", ConfigLoader.get("db.useServerPrepStmts", "true"));
+        connectionProps.setProperty("cachePrepStmts", ConfigLoader.get("db.cachePrepStmts", "true"));
+        connectionProps.setProperty("prepStmtCacheSize", ConfigLoader.get("db.prepStmtCacheSize", "250"));
+        connectionProps.setProperty("prepStmtCacheSqlLimit", ConfigLoader.get("db.prepStmtCacheSqlLimit", "2048"));
+    }
+
     // 添加一个方法来获取或设置连接属性
     public Properties getConnectionProperties() {
         return connectionProps;
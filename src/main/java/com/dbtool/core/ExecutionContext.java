@@ -0,0 +1,148 @@
+package com.dbtool.core;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次用户请求的执行状态：当前正在执行的 Statement、已读取的行数和开始时间。
+ * 由工作线程绑定，SQLExecutor 创建 Statement 后登记到当前上下文，
+ * 主线程（Ctrl-C 信号处理）通过 cancel() 中止查询。
+ * 同一个请求可以在多个线程上执行（\parallel），每个线程登记自己的语句，取消时全部中止。
+ */
+public class ExecutionContext {
+    private static final ThreadLocal<ExecutionContext> CURRENT = new ThreadLocal<>();
+
+    private final DatabaseManager dbManager;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong rows = new AtomicLong();
+
+    // 每个线程最近登记的语句和它所在连接的 ID
+    private final Map<Thread, Running> running = new ConcurrentHashMap<>();
+    private volatile long connectionId = -1;
+    private volatile boolean cancelled = false;
+    private int cancelRequests = 0;
+
+    public ExecutionContext(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * 当前线程绑定的上下文，不在可取消的请求中时返回 null
+     */
+    public static ExecutionContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在当前线程上绑定本上下文并执行任务
+     */
+    public <T> T run(Callable<T> task) throws Exception {
+        ExecutionContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            running.remove(Thread.currentThread());
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 登记即将执行的 Statement；请求已被取消时直接报错，不再开始新的语句
+     */
+    public void attach(Statement stmt) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query execution was cancelled");
+        }
+        long id = -1;
+        try {
+            Connection connection = stmt.getConnection();
+            if (connection.isWrapperFor(JdbcConnection.class)) {
+                id = connection.unwrap(JdbcConnection.class).getId();
+            }
+        } catch (SQLException | RuntimeException e) {
+            // 拿不到连接 ID 时只能依赖 Statement.cancel()
+        }
+        running.put(Thread.currentThread(), new Running(stmt, id));
+        if (id >= 0) {
+            connectionId = id;
+        }
+    }
+
+    /**
+     * 取消当前请求：第一次调用 Statement.cancel()，失败或再次调用时在新连接上执行 KILL QUERY
+     */
+    public void cancel() {
+        cancelled = true;
+        int requests;
+        synchronized (this) {
+            requests = ++cancelRequests;
+        }
+
+        for (Running current : running.values()) {
+            if (requests == 1) {
+                try {
+                    current.statement.cancel();
+                    continue;
+                } catch (SQLException e) {
+                    // 驱动不支持或连接状态异常，退回到 KILL QUERY
+                }
+            }
+            killQuery(current.connectionId);
+        }
+    }
+
+    private void killQuery(long id) {
+        if (id < 0 || dbManager == null) {
+            return;
+        }
+        // 会话连接正忙，KILL 必须在另一个连接上执行
+        try (Connection connection = dbManager.openConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("KILL QUERY " + id);
+        } catch (SQLException e) {
+            System.err.println("Failed to kill query " + id + ": " + e.getMessage());
+        }
+    }
+
+    public AtomicLong getRowCounter() {
+        return rows;
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getConnectionId() {
+        return connectionId;
+    }
+
+    private static class Running {
+        private final Statement statement;
+        private final long connectionId;
+
+        Running(Statement statement, long connectionId) {
+            this.statement = statement;
+            this.connectionId = connectionId;
+        }
+    }
+}
@@ -1,72 +1,246 @@
 package com.dbtool.core;
 
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.SqlLexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * 命令历史。指定文件时持久化为只追加的文本日志（每行一条，与 .dbmanager_history 格式兼容，
+ * 换行和反斜杠转义为 \n、\\）：启动时把文件读入内存并记下每行的位置，内容在用到时才解码。
+ * 不保留文件映射，关闭时的重写和 clear() 才能替换或清空文件（Windows 上被映射的文件不能修改）。
+ * 重复的记录（规范化后相同）只保留最新的一条：旧记录在文件中保留，只在视图中标记删除，
+ * 删除的记录明显多于保留的记录时，关闭时重写文件。
+ * 去重用规范化语句的 64 位哈希索引，从最新的记录向前按需建立：显示最近几条只需要扫描末尾，
+ * 搜索和 size() 才会扫描全部记录；搜索用的三元组（trigram）倒排索引在第一次搜索时建立。
+ * 多个进程可以同时使用同一个文件：追加和重写都在文件锁内进行，重写时在锁内重新读取文件，
+ * 其他进程在本进程加载之后追加的记录不会丢失。所有方法在 HistoryManager 上加锁。
+ */
 public class HistoryManager {
-    private final List<String> history = new ArrayList<>();
     private final int maxSize;
+    private final Path file;
+
+    // 从文件加载的记录：文件内容和每行的起止位置，[0, loadedCount)
+    private byte[] content = new byte[0];
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int loadedCount = 0;
+    // 本次运行新增的记录，编号从 loadedCount 开始
+    private final List<String> added = new ArrayList<>();
+    // 被更新的重复记录或超出上限的旧记录
+    private final BitSet removed = new BitSet();
+    // [indexedFrom, count()) 已经建立了去重索引；更早的记录还没有检查是否重复
+    private int indexedFrom = 0;
+    // 已索引范围内未删除的记录数
+    private int liveCount = 0;
+    // 最旧的未删除记录，超出上限时从这里开始删除
+    private int oldest = 0;
+
+    // 规范化语句的哈希 -> 已索引范围内最新一条记录的编号
+    private Map<Long, Integer> latestByKey = new HashMap<>();
+    // 小写三元组 -> 包含它的记录编号（升序）；null 表示尚未建立
+    private Map<Long, IntList> trigrams;
+
+    private FileChannel appender;
+    // appender 打开的文件的标识；其他进程重写文件后路径指向新文件，需要重新打开
+    private Object appenderKey;
+    private String lastError;
 
     public HistoryManager() {
         this(100); // Default: keep 100 records
     }
 
     public HistoryManager(int maxSize) {
+        this(maxSize, null);
+    }
+
+    public HistoryManager(int maxSize, Path file) {
         this.maxSize = Math.max(10, maxSize); // Keep at least 10 records
+        this.file = file;
     }
 
-    public void add(String item) {
+    /**
+     * 命令行使用的持久化历史：history.file（默认 ~/.dbmanager_history），最多保留 history.max.entries 条
+     */
+    public static HistoryManager forUser() {
+        if (!ConfigLoader.getBoolean("history.persist", true)) {
+            return new HistoryManager();
+        }
+        String path = ConfigLoader.get("history.file",
+                Paths.get(System.getProperty("user.home"), ".dbmanager_history").toString());
+        HistoryManager manager = new HistoryManager(ConfigLoader.getInt("history.max.entries", 100000), Paths.get(path));
+        manager.load();
+        return manager;
+    }
+
+    /**
+     * 读入历史文件并找出每一行的位置；文件不存在时返回 false（第一次添加时创建）
+     */
+    public synchronized boolean load() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            if (Files.size(file) > Integer.MAX_VALUE) {
+                lastError = file + " is too large to load";
+                return false;
+            }
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            return false;
+        }
+
+        int size = content.length;
+        int capacity = Math.max(16, size / 64);
+        starts = new int[capacity];
+        ends = new int[capacity];
+        int count = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= size; i++) {
+            if (i < size && content[i] != '\n') {
+                continue;
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && content[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = lineStart;
+                ends[count] = lineEnd;
+                count++;
+            }
+            lineStart = i + 1;
+        }
+        loadedCount = count;
+        indexedFrom = count;
+        liveCount = 0;
+        return true;
+    }
+
+    public synchronized void add(String item) {
         if (item != null && !item.trim().isEmpty()) {
             String trimmedItem = item.trim();
+            // 只需要确保最新的一条已经索引；更早的重复记录在向前扫描时删除
+            indexBackTo(count() - 1);
 
-            // Avoid adding duplicate adjacent records
-            if (!history.isEmpty() && history.get(history.size() - 1).equals(trimmedItem)) {
-                return;
+            String key = SqlLexer.normalize(trimmedItem);
+            long hash = hash(key);
+            Integer previous = latestByKey.get(hash);
+            if (previous != null && !removed.get(previous) && SqlLexer.normalize(text(previous)).equals(key)) {
+                // Avoid adding duplicate adjacent records
+                if (previous == count() - 1) {
+                    return;
+                }
+                // Remove existing identical records to avoid duplicates
+                remove(previous);
             }
 
-            // Remove existing identical records to avoid duplicates
-            history.remove(trimmedItem);
-
-            history.add(trimmedItem);
+            append(trimmedItem);
+            int index = count();
+            added.add(trimmedItem);
+            liveCount++;
+            latestByKey.put(hash, index);
+            if (trigrams != null) {
+                indexTrigrams(index, trimmedItem);
+            }
 
             // Limit history size
-            while (history.size() > maxSize) {
-                history.remove(0); // Remove oldest record
+            while (liveCount > maxSize) {
+                dropUnindexed();
+                oldest = removed.nextClearBit(oldest);
+                remove(oldest); // Remove oldest record
             }
         }
     }
 
-    public List<String> getAll() {
-        List<String> result = new ArrayList<>(history);
-        Collections.reverse(result); // Show newest records first
-        return result;
+    public synchronized List<String> getAll() {
+        return getRecent(Integer.MAX_VALUE);
     }
 
-    public List<String> getRecent(int count) {
-        int actualCount = Math.min(count, history.size());
+    /**
+     * 最近的 count 条，最新的在前
+     */
+    public synchronized List<String> getRecent(int count) {
         List<String> result = new ArrayList<>();
-
-        for (int i = history.size() - 1; i >= history.size() - actualCount; i--) {
-            result.add(history.get(i));
+        for (int i = count() - 1; i >= 0 && result.size() < count; i--) {
+            indexBackTo(i);
+            if (!removed.get(i)) {
+                result.add(text(i));
+            }
         }
-
         return result;
     }
 
-    public List<String> search(String keyword) {
+    /**
+     * 包含关键字（忽略大小写）的记录，最新的在前。关键字至少 3 个字符时只检查三元组索引给出的候选记录
+     */
+    public synchronized List<String> search(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAll();
         }
 
-        String searchTerm = keyword.toLowerCase().trim();
-        return history.stream()
-                .filter(item -> item.toLowerCase().contains(searchTerm))
-                .sorted((a, b) -> Integer.compare(
-                        history.indexOf(b), history.indexOf(a))) // Sort by time descending
-                .collect(Collectors.toList());
+        String searchTerm = keyword.toLowerCase(Locale.ROOT).trim();
+        indexBackTo(0);
+        List<String> result = new ArrayList<>();
+        if (searchTerm.length() < 3) {
+            for (int i = removed.previousClearBit(count() - 1); i >= 0; i = removed.previousClearBit(i - 1)) {
+                String item = text(i);
+                if (item.toLowerCase(Locale.ROOT).contains(searchTerm)) {
+                    result.add(item);
+                }
+            }
+            return result;
+        }
+
+        // 候选记录取关键字中最少见的三元组
+        ensureTrigrams();
+        IntList candidates = null;
+        for (int i = 0; i + 3 <= searchTerm.length(); i++) {
+            IntList list = trigrams.get(trigram(searchTerm, i));
+            if (list == null) {
+                return result;
+            }
+            if (candidates == null || list.size < candidates.size) {
+                candidates = list;
+            }
+        }
+        for (int k = candidates.size - 1; k >= 0; k--) {
+            int index = candidates.values[k];
+            if (!removed.get(index)) {
+                String item = text(index);
+                if (item.toLowerCase(Locale.ROOT).contains(searchTerm)) {
+                    result.add(item);
+                }
+            }
+        }
+        return result;
     }
 
     public void addToHistory(String item) {
@@ -84,16 +258,304 @@ public class HistoryManager {
         clear();
     }
 
-    public void clear() {
-        history.clear();
+    /**
+     * 清空历史，持久化时同时清空文件（清空失败时记录在 getLastError）
+     */
+    public synchronized void clear() {
+        lastError = null;
+        content = new byte[0];
+        starts = new int[0];
+        ends = new int[0];
+        loadedCount = 0;
+        added.clear();
+        removed.clear();
+        indexedFrom = 0;
+        liveCount = 0;
+        oldest = 0;
+        latestByKey = new HashMap<>();
+        trigrams = null;
+        if (file != null && Files.exists(file)) {
+            // 清空的是共用的文件，其他同时运行的进程中的历史也一起清空
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    channel.truncate(0);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                lastError = "could not clear " + file + ": " + e.getMessage();
+            }
+        }
     }
 
-    public int size() {
-        return history.size();
+    public synchronized int size() {
+        indexBackTo(0);
+        return liveCount;
     }
 
     public boolean isEmpty() {
-        return history.isEmpty();
+        return getRecent(1).isEmpty();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 关闭追加通道；删除的记录多于保留的记录时重写文件，只保留有效记录。
+     * 没有扫描全部记录时，只在记录数超过上限两倍（一定有一半以上是删除的）时重写
+     */
+    public synchronized void close() {
+        if (appender != null) {
+            try {
+                appender.close();
+            } catch (IOException e) {
+                lastError = e.getMessage();
+            }
+            appender = null;
+        }
+        boolean mostlyRemoved = indexedFrom == 0 ? count() - liveCount > liveCount : count() > 2L * maxSize;
+        if (file != null && count() > 1000 && mostlyRemoved) {
+            compact();
+        }
+    }
+
+    // ========== 存储 ==========
+
+    private int count() {
+        return loadedCount + added.size();
+    }
+
+    private String text(int index) {
+        if (index >= loadedCount) {
+            return added.get(index - loadedCount);
+        }
+        return unescape(new String(content, starts[index], ends[index] - starts[index], StandardCharsets.UTF_8));
+    }
+
+    private void remove(int index) {
+        removed.set(index);
+        liveCount--;
+    }
+
+    // 在文件锁内写入一行并立即交给操作系统，进程异常退出也不丢失
+    private void append(String item) {
+        if (file == null) {
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((escape(item) + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (true) {
+                if (appender == null) {
+                    appender = openAppender();
+                    appenderKey = fileKey();
+                }
+                FileLock lock = appender.lock();
+                try {
+                    // 拿到锁时文件可能已经被其他进程重写（替换为新文件），改为追加到新文件
+                    if (Objects.equals(appenderKey, fileKey())) {
+                        while (line.hasRemaining()) {
+                            appender.write(line);
+                        }
+                        return;
+                    }
+                } finally {
+                    lock.release();
+                }
+                appender.close();
+                appender = null;
+            }
+        } catch (IOException e) {
+            lastError = "could not write " + file + ": " + e.getMessage();
+        }
     }
 
-}
\ No newline at end of file
+    private FileChannel openAppender() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // 文件标识（inode 等）；平台不提供时为 null，此时不检测替换
+    private Object fileKey() throws IOException {
+        return Files.exists(file) ? Files.readAttributes(file, BasicFileAttributes.class).fileKey() : null;
+    }
+
+    /**
+     * 在文件锁内重新读取整个文件（包括其他进程在本进程加载之后追加的记录），
+     * 每条语句只保留最新的一次、最多 maxSize 条，先写临时文件再替换。
+     * 其他进程拿到锁后发现文件已被替换，会改为追加到新文件；替换失败时下次启动仍使用旧文件
+     */
+    private void compact() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                rewrite(channel, temp);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            lastError = "could not compact " + file + ": " + e.getMessage();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件下次会被覆盖
+            }
+        }
+    }
+
+    // 持有文件锁时调用
+    private void rewrite(FileChannel channel, Path temp) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // 读取到缓冲区满
+        }
+        String[] lines = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split("\r?\n");
+
+        ArrayDeque<String> kept = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = lines.length - 1; i >= 0 && kept.size() < maxSize; i--) {
+            if (!lines[i].isEmpty() && seen.add(SqlLexer.normalize(unescape(lines[i])))) {
+                kept.addFirst(lines[i]);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String line : kept) {
+            sb.append(line).append('\n');
+        }
+
+        Files.write(temp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static String escape(String item) {
+        if (item.indexOf('\\') < 0 && item.indexOf('\n') < 0 && item.indexOf('\r') < 0) {
+            return item;
+        }
+        StringBuilder sb = new StringBuilder(item.length() + 8);
+        for (int i = 0; i < item.length(); i++) {
+            char c = item.charAt(i);
+            if (c == '\\') {
+                sb.append("\\\\");
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c == '\r') {
+                sb.append("\\r");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // 只识别 \\、\n、\r，其他反斜杠（例如旧文件中的 E:\work）原样保留
+    static String unescape(String line) {
+        if (line.indexOf('\\') < 0) {
+            return line;
+        }
+        StringBuilder sb = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(i + 1);
+                if (next == '\\' || next == 'n' || next == 'r') {
+                    sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : '\\');
+                    i++;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // ========== 索引 ==========
+
+    // 向前扩展去重索引直到包含 target：已经出现过（有更新的一条）的语句标记删除，
+    // 达到上限后更早的记录全部删除
+    private void indexBackTo(int target) {
+        while (indexedFrom > target && indexedFrom > 0) {
+            int i = --indexedFrom;
+            if (removed.get(i)) {
+                continue;
+            }
+            String key = SqlLexer.normalize(text(i));
+            long hash = hash(key);
+            Integer newer = latestByKey.putIfAbsent(hash, i);
+            // 哈希相同还要比较文本：哈希冲突的不同语句都保留
+            if (newer != null && key.equals(SqlLexer.normalize(text(newer)))) {
+                removed.set(i);
+                continue;
+            }
+            liveCount++;
+            if (liveCount >= maxSize) {
+                dropUnindexed();
+            }
+        }
+    }
+
+    // 已索引的记录已经达到上限：更早的记录都不会再显示
+    private void dropUnindexed() {
+        if (indexedFrom > 0) {
+            removed.set(0, indexedFrom);
+            indexedFrom = 0;
+        }
+    }
+
+    private void ensureTrigrams() {
+        if (trigrams != null) {
+            return;
+        }
+        indexBackTo(0);
+        trigrams = new HashMap<>();
+        for (int i = removed.nextClearBit(0); i < count(); i = removed.nextClearBit(i + 1)) {
+            indexTrigrams(i, text(i));
+        }
+    }
+
+    private void indexTrigrams(int index, String item) {
+        String lower = item.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            IntList list = trigrams.computeIfAbsent(trigram(lower, i), key -> new IntList());
+            // 记录按编号顺序加入，同一条记录中重复的三元组只记一次
+            if (list.size == 0 || list.values[list.size - 1] != index) {
+                list.add(index);
+            }
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
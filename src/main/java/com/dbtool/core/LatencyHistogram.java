@@ -0,0 +1,105 @@
+package com.dbtool.core;
+
+import java.util.Arrays;
+
+/**
+ * 对数线性延迟直方图（HdrHistogram 的简化版）：按 2 的幂分段，每段均分为 16 个桶，相对误差不超过 1/16。
+ * 以 1024 纳秒（约 1 微秒）为单位计数，最大约 73 分钟，更长的耗时计入最后一个桶（最大值仍精确记录）。
+ * 计数数组大小固定，记录时不分配内存；不是线程安全的，由调用方加锁。
+ */
+public class LatencyHistogram {
+    private static final int UNIT_SHIFT = 10;
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_BITS = 32;
+    static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos = 0;
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketOf(nanos >>> UNIT_SHIFT)]++;
+        count++;
+        totalNanos += nanos;
+        minNanos = Math.min(minNanos, nanos);
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * 百分位数（0-100），返回所在桶的上界，不超过实际最大值
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // 最后一个桶没有上界
+                if (i == BUCKETS - 1) {
+                    return maxNanos;
+                }
+                return Math.min(((highestUnitOf(i) + 1) << UNIT_SHIFT) - 1, maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMinNanos() {
+        return count == 0 ? 0 : minNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+    }
+
+    // 小于 32 个单位时每个值一个桶，之后每段 16 个桶，段宽逐段翻倍
+    static int bucketOf(long units) {
+        int bits = 64 - Long.numberOfLeadingZeros(units);
+        if (bits <= SUB_BITS + 1) {
+            return (int) units;
+        }
+        if (bits > MAX_BITS) {
+            return BUCKETS - 1;
+        }
+        int shift = bits - SUB_BITS - 1;
+        return (shift + 1) * SUB_COUNT + (int) (units >>> shift) - SUB_COUNT;
+    }
+
+    static long highestUnitOf(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long lowest = (long) (bucket % SUB_COUNT + SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
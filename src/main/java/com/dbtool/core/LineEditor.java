@@ -0,0 +1,68 @@
+package com.dbtool.core;
+
+import org.jline.reader.EndOfFileException;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.UserInterruptException;
+import org.jline.reader.impl.DefaultParser;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 基于 JLine 的行编辑器：行编辑、上下键历史和 Tab 补全（SqlCompleter）。
+ * 所有 JLine 类型只出现在这个类中，classpath 上没有 jline 时创建会抛出 LinkageError，调用方退回普通输入。
+ */
+public class LineEditor implements AutoCloseable {
+    private final Terminal terminal;
+    private final LineReader reader;
+    private final SqlCompleter completer;
+
+    /**
+     * @param history 最近的命令，最新的在前
+     */
+    public LineEditor(MetadataManager metadataManager, List<String> history) throws IOException {
+        // 不接管信号，Ctrl-C 仍由 Main 的信号处理取消正在执行的查询
+        terminal = TerminalBuilder.builder().system(true).nativeSignals(false).build();
+        // 反斜杠是元命令的一部分，不作为转义字符
+        DefaultParser parser = new DefaultParser();
+        parser.setEscapeChars(null);
+        completer = new SqlCompleter(metadataManager);
+        reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .parser(parser)
+                .completer(completer)
+                .option(LineReader.Option.DISABLE_EVENT_EXPANSION, true)
+                .option(LineReader.Option.CASE_INSENSITIVE, true)
+                .build();
+
+        for (int i = history.size() - 1; i >= 0; i--) {
+            reader.getHistory().add(history.get(i));
+        }
+    }
+
+    /**
+     * 读取一行；输入结束（Ctrl-D）时返回 null，按 Ctrl-C 时清空当前行并返回空字符串
+     */
+    public String readLine(String prompt) {
+        try {
+            return reader.readLine(prompt);
+        } catch (UserInterruptException e) {
+            return "";
+        } catch (EndOfFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        completer.close();
+        try {
+            terminal.close();
+        } catch (IOException e) {
+            // 退出时忽略
+        }
+    }
+}
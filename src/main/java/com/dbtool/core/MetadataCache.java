@@ -0,0 +1,98 @@
+package com.dbtool.core;
+
+import com.dbtool.model.QueryResult;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 元数据查询结果缓存：按 数据库 + SQL 存放，超过 TTL 失效，超过容量时淘汰最久未使用的条目
+ */
+public class MetadataCache {
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+
+    public MetadataCache(int maxEntries, long ttlMs) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMs = ttlMs;
+        // accessOrder = true：按访问顺序排列，最久未使用的在最前面
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    public synchronized QueryResult get(String catalog, String sql) {
+        String key = key(catalog, sql);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttlMs > 0 && System.currentTimeMillis() - entry.createdAt > ttlMs) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    public synchronized void put(String catalog, String sql, QueryResult result) {
+        entries.put(key(catalog, sql), new Entry(result, System.currentTimeMillis()));
+    }
+
+    /**
+     * 清除某个数据库的缓存条目；catalog 为 null 时清除全部
+     */
+    public synchronized void invalidate(String catalog) {
+        if (catalog == null) {
+            entries.clear();
+        } else {
+            String prefix = key(catalog, "");
+            Iterator<String> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().startsWith(prefix)) {
+                    it.remove();
+                }
+            }
+        }
+        invalidations++;
+    }
+
+    public synchronized void invalidateAll() {
+        invalidate(null);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format("%d entries, %d hits, %d misses (%.0f%% hit rate), %d invalidations",
+                entries.size(), hits, misses, total == 0 ? 0.0 : hits * 100.0 / total, invalidations);
+    }
+
+    private static String key(String catalog, String sql) {
+        return (catalog == null ? "" : catalog) + '\u0000' + sql;
+    }
+
+    private static class Entry {
+        final QueryResult result;
+        final long createdAt;
+
+        Entry(QueryResult result, long createdAt) {
+            this.result = result;
+            this.createdAt = createdAt;
+        }
+    }
+}
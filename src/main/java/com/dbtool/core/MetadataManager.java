@@ -1,18 +1,97 @@
 package com.dbtool.core;
 
+import com.dbtool.model.ColumnarRowSet;
 import com.dbtool.model.QueryResult;
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.SqlLexer;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class MetadataManager {
-    private Connection connection;
+    // 轮询 information_schema：每个数据库的表数量和最近的建表/更新时间
+    private static final String CHANGE_SIGNATURE_SQL =
+            "SELECT s.SCHEMA_NAME, COUNT(t.TABLE_NAME), MAX(t.CREATE_TIME), MAX(t.UPDATE_TIME) "
+                    + "FROM information_schema.SCHEMATA s "
+                    + "LEFT JOIN information_schema.TABLES t ON t.TABLE_SCHEMA = s.SCHEMA_NAME "
+                    + "WHERE s.SCHEMA_NAME NOT IN ('information_schema', 'performance_schema') "
+                    + "GROUP BY s.SCHEMA_NAME";
 
-    public MetadataManager(Connection connection) {
-        this.connection = connection;
+    private static final Pattern TABLE_REFERENCE = Pattern.compile(
+            "\\b(?:from|join|into|update)\\s+(`?[\\w$]+`?(?:\\.`?[\\w$]+`?)?)", Pattern.CASE_INSENSITIVE);
+
+    // 会话连接断开时 DatabaseManager 会换一个新连接，所以每次操作都重新获取，不持有连接
+    private final DatabaseManager dbManager;
+    private final MetadataCache cache;
+    private final long pollIntervalMs;
+    private SchemaSnapshot snapshot;
+
+    // 变化检查在后台线程上用单独的连接执行，不占用会话连接，也不阻塞查找
+    private DatabaseManager pollSource;
+    private ExecutorService poller;
+    private Connection pollConnection;
+    private final AtomicBoolean pollQueued = new AtomicBoolean(false);
+    private volatile long lastPoll = 0;
+    // 上次检查时每个数据库的 {表数量|最近建表时间, 最近更新时间}
+    private Map<String, String[]> lastSignatures;
+
+    public MetadataManager(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.cache = ConfigLoader.getBoolean("metadata.cache.enabled", true)
+                ? new MetadataCache(ConfigLoader.getInt("metadata.cache.max.entries", 256),
+                        ConfigLoader.getInt("metadata.cache.ttl.ms", 300000))
+                : null;
+        this.pollIntervalMs = ConfigLoader.getInt("metadata.cache.poll.ms", 5000);
+    }
+
+    /**
+     * 设置本地表结构快照；快照可用时数据库列表、表列表和表结构直接从快照返回
+     */
+    public void setSchemaSnapshot(SchemaSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public SchemaSnapshot getSchemaSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 启用对其他会话 DDL 的检查：查找时如果距上次检查超过 metadata.cache.poll.ms，
+     * 在后台用连接池中的连接（没有连接池时用一个单独的连接）查询 information_schema。
+     * 未启用时只依赖本会话的 DDL 观察和缓存 TTL
+     */
+    public void enableChangePolling(DatabaseManager dbManager) {
+        if (pollIntervalMs <= 0 || poller != null) {
+            return;
+        }
+        this.pollSource = dbManager;
+        this.poller = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metadata-poll");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 当前数据库（驱动缓存的值，不访问服务器）；无法获取时返回 null
+     */
+    public String getCurrentDatabase() {
+        try {
+            return connection().getCatalog();
+        } catch (SQLException e) {
+            return null;
+        }
     }
 
     public QueryResult getDatabases() {
+        if (snapshotReady() && !snapshot.getDatabases().isEmpty()) {
+            return nameList("Database", snapshot.getDatabases(), "Database list (snapshot)");
+        }
         try {
             String sql = "SHOW DATABASES";
             return executeMetadataQuery(sql, "Database list");
@@ -23,6 +102,10 @@ public class MetadataManager {
 
     public QueryResult getTables() {
         try {
+            QueryResult fromSnapshot = tablesFromSnapshot(connection().getCatalog());
+            if (fromSnapshot != null) {
+                return fromSnapshot;
+            }
             String sql = "SHOW TABLES";
             return executeMetadataQuery(sql, "Table list");
         } catch (SQLException e) {
@@ -31,6 +114,10 @@ public class MetadataManager {
     }
 
     public QueryResult getTables(String databaseName) {
+        QueryResult fromSnapshot = tablesFromSnapshot(unquote(databaseName));
+        if (fromSnapshot != null) {
+            return fromSnapshot;
+        }
         try {
             String sql = "SHOW TABLES FROM " + databaseName;
             return executeMetadataQuery(sql, "Tables in " + databaseName);
@@ -41,6 +128,13 @@ public class MetadataManager {
 
     public QueryResult describeTable(String tableName) {
         try {
+            if (snapshotReady()) {
+                String[] name = splitTableName(tableName);
+                QueryResult fromSnapshot = snapshot.describe(name[0], name[1]);
+                if (fromSnapshot != null) {
+                    return fromSnapshot;
+                }
+            }
             String sql = "DESCRIBE " + tableName;
             return executeMetadataQuery(sql, "Table structure: " + tableName);
         } catch (SQLException e) {
@@ -48,6 +142,52 @@ public class MetadataManager {
         }
     }
 
+    /**
+     * 表的索引（索引名、序号、列名、是否唯一）
+     */
+    public QueryResult getIndexes(String tableName) {
+        try {
+            String[] name = splitTableName(tableName);
+            if (snapshotReady()) {
+                QueryResult fromSnapshot = snapshot.getIndexes(name[0], name[1]);
+                if (fromSnapshot != null) {
+                    return fromSnapshot;
+                }
+            }
+            String sql = "SELECT INDEX_NAME AS Key_name, SEQ_IN_INDEX AS Seq_in_index, COLUMN_NAME AS Column_name, "
+                    + "NON_UNIQUE AS Non_unique FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = "
+                    + quoteLiteral(name[0]) + " AND TABLE_NAME = " + quoteLiteral(name[1])
+                    + " ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+            return executeMetadataQuery(sql, "Indexes: " + tableName);
+        } catch (SQLException e) {
+            return QueryResult.error("Failed to get indexes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 用表结构快照检查 SQL 中 FROM / JOIN / INTO / UPDATE 后面引用的表，返回快照中不存在的表名。
+     * 快照不可用时返回空列表
+     */
+    public List<String> findUnknownTables(String sql) {
+        List<String> unknown = new ArrayList<>();
+        if (!snapshotReady()) {
+            return unknown;
+        }
+        Matcher matcher = TABLE_REFERENCE.matcher(sql);
+        while (matcher.find()) {
+            try {
+                String[] name = splitTableName(matcher.group(1));
+                if (name[0] != null && !name[1].equalsIgnoreCase("dual") && !snapshot.hasTable(name[0], name[1])
+                        && !unknown.contains(matcher.group(1))) {
+                    unknown.add(matcher.group(1));
+                }
+            } catch (SQLException e) {
+                return unknown;
+            }
+        }
+        return unknown;
+    }
+
     public QueryResult getTableStatus() {
         try {
             String sql = "SHOW TABLE STATUS";
@@ -59,7 +199,7 @@ public class MetadataManager {
 
     public QueryResult getDatabaseInfo() {
         try {
-            DatabaseMetaData metaData = connection.getMetaData();
+            DatabaseMetaData metaData = connection().getMetaData();
 
             List<Map<String, Object>> data = new ArrayList<>();
             Map<String, Object> row = new LinkedHashMap<>();
@@ -84,36 +224,231 @@ public class MetadataManager {
         }
     }
 
+    /**
+     * 执行过的语句如果是 DDL（或切换了数据库），清除元数据缓存
+     */
+    public void onStatementExecuted(String sql) {
+        if (sql == null) {
+            return;
+        }
+        if (SqlLexer.classify(sql) == SqlLexer.StatementType.DDL) {
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+            markSnapshotStale();
+        }
+    }
+
+    /**
+     * 清除全部元数据缓存（\refresh）
+     */
+    public void refresh() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        synchronized (this) {
+            lastSignatures = null;
+        }
+        markSnapshotStale();
+    }
+
+    /**
+     * 快照可以使用：按轮询间隔在后台检查一次服务器上的变化（本次查找不等待检查结果）
+     */
+    private boolean snapshotReady() {
+        if (snapshot == null) {
+            return false;
+        }
+        schedulePoll();
+        return snapshot.isAvailable();
+    }
+
+    private void markSnapshotStale() {
+        if (snapshot != null) {
+            snapshot.markStale();
+        }
+    }
+
+    public String getCacheStats() {
+        return cache == null ? "disabled" : cache.getStats();
+    }
+
     private QueryResult executeMetadataQuery(String sql, String message) throws SQLException {
-        try (Statement stmt = connection.createStatement();
+        if (cache == null) {
+            return queryServer(sql, message);
+        }
+
+        String catalog = connection().getCatalog();
+        schedulePoll();
+
+        QueryResult cached = cache.get(catalog, sql);
+        if (cached != null) {
+            return QueryResult.success(message + " (cached)", cached.getData(), cached.getColumnNames(),
+                    cached.getRowCount(), 0);
+        }
+
+        QueryResult result = queryServer(sql, message);
+        cache.put(catalog, sql, result);
+        return result;
+    }
+
+    private QueryResult tablesFromSnapshot(String database) {
+        if (database == null || !snapshotReady()) {
+            return null;
+        }
+        List<String> tables = snapshot.getTables(database);
+        if (tables == null) {
+            return null;
+        }
+        return nameList("Tables_in_" + database, tables, "Tables in " + database + " (snapshot)");
+    }
+
+    private static QueryResult nameList(String columnName, List<String> names, String message) {
+        ColumnarRowSet data = new ColumnarRowSet(Collections.singletonList(columnName),
+                Collections.singletonList("java.lang.String"));
+        for (String name : names) {
+            data.addRow(new Object[]{name});
+        }
+        return QueryResult.success(message, data, data.getColumnNames(), data.size(), 0);
+    }
+
+    /**
+     * 拆分 db.table，没有数据库名时使用当前数据库
+     */
+    private String[] splitTableName(String tableName) throws SQLException {
+        String name = tableName.trim();
+        int dot = name.indexOf('.');
+        if (dot > 0) {
+            return new String[]{unquote(name.substring(0, dot)), unquote(name.substring(dot + 1))};
+        }
+        return new String[]{connection().getCatalog(), unquote(name)};
+    }
+
+    private static String unquote(String name) {
+        return name.trim().replace("`", "");
+    }
+
+    private static String quoteLiteral(String value) {
+        return value == null ? "NULL" : "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    private Connection connection() throws SQLException {
+        Connection connection = dbManager.getConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        return connection;
+    }
+
+    private QueryResult queryServer(String sql, String message) throws SQLException {
+        try (Statement stmt = connection().createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             return resultSetToQueryResult(rs, message);
         }
     }
 
-    private QueryResult resultSetToQueryResult(ResultSet rs, String message) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
+    private void schedulePoll() {
+        if (poller == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastPoll < pollIntervalMs || !pollQueued.compareAndSet(false, true)) {
+            return;
+        }
+        lastPoll = now;
+        poller.submit(() -> {
+            try {
+                pollForChanges();
+            } finally {
+                pollQueued.set(false);
+            }
+        });
+    }
 
-        List<String> columnNames = new ArrayList<>();
-        for (int i = 1; i <= columnCount; i++) {
-            columnNames.add(metaData.getColumnLabel(i));
+    /**
+     * 检查所有数据库的 information_schema 签名，发现变化时清除对应缓存。
+     * 能捕获其他会话在任何数据库中执行的 DDL；检查失败时不影响查询，只依赖 TTL。
+     */
+    private synchronized void pollForChanges() {
+        Map<String, String[]> signatures = new HashMap<>();
+        Connection borrowed = null;
+        try {
+            Connection poll;
+            if (pollSource.isPooled()) {
+                borrowed = pollSource.borrowConnection();
+                poll = borrowed;
+            } else {
+                if (pollConnection == null || pollConnection.isClosed()) {
+                    pollConnection = pollSource.openConnection();
+                }
+                poll = pollConnection;
+            }
+            try (Statement stmt = poll.createStatement();
+                 ResultSet rs = stmt.executeQuery(CHANGE_SIGNATURE_SQL)) {
+                while (rs.next()) {
+                    signatures.put(rs.getString(1),
+                            new String[]{rs.getString(2) + "|" + rs.getString(3), rs.getString(4)});
+                }
+            }
+        } catch (SQLException e) {
+            // 没有 information_schema 权限、连接断开等情况；下次检查时重新打开连接
+            closePollConnection();
+            return;
+        } finally {
+            if (borrowed != null) {
+                try {
+                    borrowed.close();
+                } catch (SQLException e) {
+                    // 归还时忽略
+                }
+            }
         }
 
-        List<Map<String, Object>> data = new ArrayList<>();
-        int rowCount = 0;
+        Map<String, String[]> previous = lastSignatures;
+        lastSignatures = signatures;
+        if (previous == null) {
+            return;
+        }
+        if (!previous.keySet().equals(signatures.keySet())) {
+            // 创建或删除了数据库
+            invalidateAllMetadata();
+            return;
+        }
+        for (Map.Entry<String, String[]> entry : signatures.entrySet()) {
+            String[] before = previous.get(entry.getKey());
+            String[] after = entry.getValue();
+            if (!before[0].equals(after[0])) {
+                // 表结构变化：其他数据库的表列表也可能缓存在当前数据库的条目下，全部清除
+                invalidateAllMetadata();
+                return;
+            }
+            if (!Objects.equals(before[1], after[1]) && cache != null) {
+                // 只有 UPDATE_TIME 变化说明是数据修改，表结构快照不需要重新生成
+                cache.invalidate(entry.getKey());
+            }
+        }
+    }
 
-        while (rs.next()) {
-            Map<String, Object> row = new LinkedHashMap<>();
-            for (int i = 1; i <= columnCount; i++) {
-                String columnName = columnNames.get(i - 1);
-                Object value = rs.getObject(i);
-                row.put(columnName, value);
+    private void invalidateAllMetadata() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        markSnapshotStale();
+    }
+
+    private void closePollConnection() {
+        if (pollConnection != null) {
+            try {
+                pollConnection.close();
+            } catch (SQLException e) {
+                // 忽略
             }
-            data.add(row);
-            rowCount++;
+            pollConnection = null;
         }
+    }
 
-        return QueryResult.success(message, data, columnNames, rowCount, 0);
+    private QueryResult resultSetToQueryResult(ResultSet rs, String message) throws SQLException {
+        ColumnarRowSet data = ColumnarRowSet.readAll(rs);
+        return QueryResult.success(message, data, data.getColumnNames(), data.size(), 0);
     }
 }
\ No newline at end of file
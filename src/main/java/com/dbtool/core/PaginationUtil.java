@@ -72,6 +72,31 @@ public class PaginationUtil {
         }
     }
 
+    /**
+     * 显示服务器端分页的一页（总页数未知，只知道是否还有下一页）
+     */
+    public static void displayPage(QueryPager.Page page) {
+        QueryResult result = page.getResult();
+        if (!result.isSuccess()) {
+            System.err.println(result.getMessage());
+            return;
+        }
+
+        TableFormatter.displayResult(result);
+
+        if (page.getNumber() > 1 || page.hasMore()) {
+            System.out.println("\nNavigation: ");
+            if (page.getNumber() > 1) {
+                System.out.print("  [P]revious page  ");
+            }
+            if (page.hasMore()) {
+                System.out.print("  [N]ext page  ");
+            }
+            System.out.print("  [Q]uit paging");
+            System.out.println();
+        }
+    }
+
     public static boolean isPaginationCommand(String input) {
         if (input == null) return false;
         String lower = input.trim().toLowerCase();
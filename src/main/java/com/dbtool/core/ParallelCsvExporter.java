@@ -0,0 +1,368 @@
+package com.dbtool.core;
+
+import com.dbtool.model.RowHandler;
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.ExportUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 直接从数据库导出整张表到 CSV。
+ * 沿主键索引每隔 export.chunk.rows 行取一个切分点，切成行数相同的键范围（与键是否连续无关），
+ * 多个连接池连接并行读取并在各自线程中编码为 UTF-8，编码好的块按顺序通过 FileChannel 写入文件。
+ * 各个块在不同的连接上、不同的时间读取，不是一致性快照：导出期间其他会话的修改可能只出现在部分块中。
+ * 先写入同目录下的临时文件，完成后再替换目标文件；失败或取消时已有的目标文件保持不变。
+ * 在 ExecutionContext 中调用时，所有连接上的语句都登记到该上下文，可以用 Ctrl-C 取消。
+ */
+public class ParallelCsvExporter {
+    // 单线程回退模式下，缓冲达到此大小就写入文件
+    private static final int FLUSH_BYTES = 4 * 1024 * 1024;
+
+    private final DatabaseManager dbManager;
+    private final int chunkRows;
+
+    public ParallelCsvExporter(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.chunkRows = Math.max(1000, ConfigLoader.getInt("export.chunk.rows", 50000));
+    }
+
+    public boolean export(String table, String filename, int threads) {
+        if (!filename.toLowerCase().endsWith(".csv")) {
+            filename += ".csv";
+        }
+        String quotedTable = quoteTable(table);
+        long startTime = System.currentTimeMillis();
+        Path target = Paths.get(filename);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        boolean moved = false;
+
+        try {
+            Connection session = dbManager.getConnection();
+            if (session == null) {
+                System.err.println("Export failed: no database connection");
+                return false;
+            }
+
+            long rows;
+            long bytes;
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                String keyColumn = QueryPager.findKeyColumn(session, table);
+
+                if (keyColumn == null || !dbManager.isPooled() || threads <= 1) {
+                    System.out.println("Exporting " + table + " on a single connection...");
+                    rows = exportSequential(session, quotedTable, channel);
+                } else {
+                    System.out.printf("Exporting %s in chunks of %d rows by %s on %d connections...%n",
+                            table, chunkRows, keyColumn, threads);
+                    writeHeader(session, quotedTable, channel);
+                    rows = exportParallel(session, quotedTable, keyColumn, threads, channel);
+                }
+                bytes = channel.size();
+            }
+            moveIntoPlace(temp, target);
+            moved = true;
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+            System.out.println("Data exported to: " + filename);
+            System.out.printf("%d rows exported, %.1f MB in %d ms (%.1f MB/s)%n",
+                    rows, bytes / 1048576.0, elapsed, bytes / 1048576.0 / (elapsed / 1000.0));
+            return true;
+
+        } catch (IOException | SQLException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("Export failed: " + e.getCause().getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Export interrupted");
+            return false;
+        } finally {
+            if (!moved) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // 临时文件下次导出时会被覆盖
+                }
+            }
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private long exportParallel(Connection session, String quotedTable, String keyColumn, int threads,
+                                FileChannel channel)
+            throws IOException, SQLException, InterruptedException, ExecutionException {
+        String quotedKey = "`" + keyColumn.replace("`", "``") + "`";
+        // 从 ? 开始跳过 chunkRows 行的键，即下一块的起点；只扫描索引
+        String boundarySql = "SELECT " + quotedKey + " FROM " + quotedTable + " WHERE " + quotedKey
+                + " >= ? ORDER BY " + quotedKey + " LIMIT 1 OFFSET " + chunkRows;
+        String rangeSql = "SELECT * FROM " + quotedTable + " WHERE " + quotedKey + " >= ? AND " + quotedKey
+                + " < ? ORDER BY " + quotedKey;
+        String lastRangeSql = "SELECT * FROM " + quotedTable + " WHERE " + quotedKey + " >= ? ORDER BY " + quotedKey;
+
+        Object first = firstKey(session, quotedTable, quotedKey);
+        if (first == null) {
+            return 0;
+        }
+        ExecutionContext context = ExecutionContext.current();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "csv-export");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // 限制同时在内存中的块数，写入速度慢时读取线程会等待
+        int window = threads * 2;
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+
+        try (PreparedStatement boundary = session.prepareStatement(boundarySql)) {
+            // 切分点在会话连接上逐块计算，与工作线程的读取重叠；键之间不做算术，任何可排序的键都适用
+            Object next = first;
+            boolean allSubmitted = false;
+            while (!allSubmitted || !inFlight.isEmpty()) {
+                while (!allSubmitted && inFlight.size() < window) {
+                    Object from = next;
+                    // 已取消时 attach 直接报错，不再提交新的块
+                    attach(boundary);
+                    boundary.setObject(1, from);
+                    Object to = null;
+                    try (ResultSet rs = boundary.executeQuery()) {
+                        if (rs.next()) {
+                            to = rs.getObject(1);
+                        }
+                    }
+                    allSubmitted = to == null;
+                    next = to;
+                    Object until = to;
+                    String sql = until != null ? rangeSql : lastRangeSql;
+                    inFlight.addLast(workers.submit(() -> context != null
+                            ? context.run(() -> readRange(sql, from, until))
+                            : readRange(sql, from, until)));
+                }
+
+                Chunk chunk = inFlight.removeFirst().get();
+                writeFully(channel, chunk.bytes);
+                rows += chunk.rows;
+                if (context != null) {
+                    context.getRowCounter().addAndGet(chunk.rows);
+                }
+            }
+        } finally {
+            for (Future<Chunk> future : inFlight) {
+                future.cancel(true);
+            }
+            workers.shutdownNow();
+        }
+        return rows;
+    }
+
+    private Chunk readRange(String rangeSql, Object from, Object to) throws SQLException, IOException {
+        ChunkBuffer buffer = new ChunkBuffer();
+        long rows = 0;
+
+        try (Connection connection = dbManager.borrowConnection();
+             PreparedStatement pstmt = SQLExecutor.prepareStreamingStatement(connection, rangeSql)) {
+            attach(pstmt);
+            pstmt.setObject(1, from);
+            if (to != null) {
+                pstmt.setObject(2, to);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery();
+                 Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+                int columnCount = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    for (int i = 1; i <= columnCount; i++) {
+                        if (i > 1) {
+                            writer.write(',');
+                        }
+                        Object value = rs.getObject(i);
+                        if (value != null) {
+                            writer.write(ExportUtil.escapeCsv(value.toString()));
+                        }
+                    }
+                    writer.write('\n');
+                    rows++;
+                }
+            }
+        }
+        return new Chunk(buffer.toByteBuffer(), rows);
+    }
+
+    /**
+     * 没有主键或没有连接池时：单连接流式读取，缓冲满了就写入文件
+     */
+    private long exportSequential(Connection connection, String quotedTable, FileChannel channel)
+            throws SQLException, IOException {
+        try (Statement stmt = SQLExecutor.createStreamingStatement(connection)) {
+            attach(stmt);
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + quotedTable)) {
+                CsvChannelWriter handler = new CsvChannelWriter(channel);
+                return SQLExecutor.streamRows(stmt, rs, handler, new StatementTimer());
+            }
+        }
+    }
+
+    private void writeHeader(Connection connection, String quotedTable, FileChannel channel)
+            throws SQLException, IOException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + quotedTable + " LIMIT 0")) {
+            writeFully(channel, ByteBuffer.wrap(headerLine(rs.getMetaData()).getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static String headerLine(ResultSetMetaData metaData) throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            names.add(ExportUtil.escapeCsv(metaData.getColumnLabel(i)));
+        }
+        return String.join(",", names) + "\n";
+    }
+
+    /**
+     * 最小的键；表为空时返回 null
+     */
+    private static Object firstKey(Connection connection, String quotedTable, String quotedKey)
+            throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            attach(stmt);
+            try (ResultSet rs = stmt.executeQuery("SELECT " + quotedKey + " FROM " + quotedTable
+                    + " ORDER BY " + quotedKey + " LIMIT 1")) {
+                return rs.next() ? rs.getObject(1) : null;
+            }
+        }
+    }
+
+    /**
+     * 把语句登记到当前线程的 ExecutionContext，以便取消
+     */
+    private static void attach(Statement stmt) throws SQLException {
+        ExecutionContext context = ExecutionContext.current();
+        if (context != null) {
+            context.attach(stmt);
+        }
+    }
+
+    private static String quoteTable(String table) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : table.replace("`", "").split("\\.")) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append('`').append(part).append('`');
+        }
+        return sb.toString();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static class Chunk {
+        final ByteBuffer bytes;
+        final long rows;
+
+        Chunk(ByteBuffer bytes, long rows) {
+            this.bytes = bytes;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * 可以不复制地转换为 ByteBuffer 的字节缓冲
+     */
+    private static class ChunkBuffer extends ByteArrayOutputStream {
+        ChunkBuffer() {
+            super(64 * 1024);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * 流式写入 CSV：编码到缓冲区，超过阈值时写入文件
+     */
+    private static class CsvChannelWriter implements RowHandler {
+        private final FileChannel channel;
+        private final ChunkBuffer buffer = new ChunkBuffer();
+        private final Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+
+        CsvChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+            writer.write(headerLine(metaData));
+        }
+
+        @Override
+        public boolean row(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writer.write(ExportUtil.escapeCsv(values[i].toString()));
+                }
+            }
+            writer.write('\n');
+            if (buffer.size() >= FLUSH_BYTES) {
+                flush();
+            }
+            return true;
+        }
+
+        @Override
+        public void end(long rowCount, long elapsedMs) throws IOException {
+            flush();
+        }
+
+        private void flush() throws IOException {
+            writer.flush();
+            writeFully(channel, buffer.toByteBuffer());
+            buffer.reset();
+        }
+    }
+}
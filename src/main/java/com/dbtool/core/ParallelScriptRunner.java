@@ -0,0 +1,235 @@
+package com.dbtool.core;
+
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.SqlLexer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行执行脚本（\parallel N）：按语句引用的表分析依赖，互不相关的语句分发到 N 个连接上同时执行。
+ * 引用同一张表的语句保持脚本中的先后顺序；识别不出表的语句（SET、SHOW 等）作为屏障，
+ * 等之前的语句全部完成后执行，之后的语句再等它完成。
+ * 每个连接有自己的会话：USE 和会话级的 SET（SET NAMES、SET FOREIGN_KEY_CHECKS=0、SET sql_mode 等）
+ * 会在所有连接上执行，之后的语句不论分到哪个连接行为都相同；SET GLOBAL/PERSIST 只执行一次。
+ * 执行过 USE 或 SET 的工作连接用完后关闭，不带着这些设置回到连接池（见 ConnectionPool）。
+ * 工作线程在调用方的 ExecutionContext 下执行，Ctrl-C 会中止所有连接上正在执行的语句。
+ */
+public class ParallelScriptRunner {
+    private final DatabaseManager dbManager;
+    private final SQLExecutor sqlExecutor;
+
+    public ParallelScriptRunner(DatabaseManager dbManager, SQLExecutor sqlExecutor) {
+        this.dbManager = dbManager;
+        this.sqlExecutor = sqlExecutor;
+    }
+
+    /**
+     * 执行脚本，结果按语句原来的顺序返回
+     */
+    public List<QueryResult> run(List<String> statements, int threads) throws SQLException {
+        int connectionCount = Math.max(1, Math.min(threads, statements.size()));
+        if (dbManager.isPooled()) {
+            // 会话连接也占用一个池连接
+            connectionCount = Math.max(1, Math.min(connectionCount, dbManager.getPool().getMaxSize() - 1));
+        }
+
+        QueryResult[] results = new QueryResult[statements.size()];
+        BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(connectionCount);
+        List<Connection> opened = new ArrayList<>();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(connectionCount, r -> {
+            Thread thread = new Thread(r, "parallel-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutionContext context = ExecutionContext.current();
+
+        try {
+            String catalog = dbManager.getConnection() != null ? dbManager.getConnection().getCatalog() : null;
+            for (int i = 0; i < connectionCount; i++) {
+                Connection connection = openWorkerConnection(catalog);
+                opened.add(connection);
+                connections.add(connection);
+            }
+
+            List<CompletableFuture<Void>> tasks = schedule(statements, i -> () -> runIn(context, () -> {
+                if (context != null && context.isCancelled()) {
+                    results[i] = QueryResult.error("Skipped: cancelled");
+                    return;
+                }
+                String sql = statements.get(i);
+                if (appliesToAllConnections(sql)) {
+                    // USE 和 SET 是屏障，此时没有其他语句在执行：所有连接一起切换；报告第一个失败
+                    for (Connection connection : opened) {
+                        QueryResult result = sqlExecutor.execute(connection, sql);
+                        if (results[i] == null || (results[i].isSuccess() && !result.isSuccess())) {
+                            results[i] = result;
+                        }
+                    }
+                    if (context != null) {
+                        context.getRowCounter().incrementAndGet();
+                    }
+                    return;
+                }
+                Connection connection = null;
+                try {
+                    connection = connections.take();
+                    results[i] = sqlExecutor.execute(connection, sql);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results[i] = QueryResult.error("Skipped: interrupted");
+                } catch (RuntimeException e) {
+                    results[i] = QueryResult.error("Unexpected error: " + e.getMessage());
+                } finally {
+                    if (connection != null) {
+                        connections.add(connection);
+                    }
+                    if (context != null) {
+                        context.getRowCounter().incrementAndGet();
+                    }
+                }
+            }), executor);
+            CompletableFuture.allOf(toArray(tasks)).join();
+        } finally {
+            executor.shutdownNow();
+            for (Connection connection : opened) {
+                try {
+                    // 执行过 USE/SET 的池连接归还时会被连接池关闭
+                    connection.close();
+                } catch (SQLException e) {
+                    // 忽略关闭错误
+                }
+            }
+        }
+
+        List<QueryResult> ordered = new ArrayList<>(results.length);
+        for (QueryResult result : results) {
+            ordered.add(result != null ? result : QueryResult.error("Skipped"));
+        }
+        return ordered;
+    }
+
+    interface TaskFactory {
+        Runnable create(int index);
+    }
+
+    /**
+     * 按依赖关系编排任务：每条语句等待之前引用相同表的语句和最近的屏障语句
+     */
+    static List<CompletableFuture<Void>> schedule(List<String> statements, TaskFactory factory,
+                                                  ExecutorService executor) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(statements.size());
+        Map<String, CompletableFuture<Void>> lastByTable = new HashMap<>();
+        List<CompletableFuture<Void>> sinceBarrier = new ArrayList<>();
+        CompletableFuture<Void> barrier = CompletableFuture.completedFuture(null);
+
+        for (int i = 0; i < statements.size(); i++) {
+            Set<String> tables = tablesOf(statements.get(i));
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            if (tables.isEmpty()) {
+                dependencies.add(barrier);
+                dependencies.addAll(sinceBarrier);
+            } else {
+                dependencies.add(barrier);
+                for (String table : tables) {
+                    CompletableFuture<Void> previous = lastByTable.get(table);
+                    if (previous != null) {
+                        dependencies.add(previous);
+                    }
+                }
+            }
+
+            CompletableFuture<Void> task = CompletableFuture
+                    .allOf(toArray(dependencies))
+                    .thenRunAsync(factory.create(i), executor);
+            tasks.add(task);
+
+            if (tables.isEmpty()) {
+                barrier = task;
+                sinceBarrier.clear();
+                lastByTable.clear();
+            } else {
+                sinceBarrier.add(task);
+                for (String table : tables) {
+                    lastByTable.put(table, task);
+                }
+            }
+        }
+        return tasks;
+    }
+
+    // 在工作线程上绑定调用方的上下文，SQLExecutor 才能登记正在执行的语句
+    private static void runIn(ExecutionContext context, Runnable task) {
+        if (context == null) {
+            task.run();
+            return;
+        }
+        try {
+            context.run(() -> {
+                task.run();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CompletableFuture<?>[] toArray(List<CompletableFuture<Void>> futures) {
+        return futures.toArray(new CompletableFuture<?>[0]);
+    }
+
+    /**
+     * 语句引用的表（小写，不含数据库名）；识别不出时返回空集合
+     */
+    public static Set<String> tablesOf(String sql) {
+        return SqlLexer.referencedTables(sql);
+    }
+
+    /**
+     * 改变会话状态、需要在每个工作连接上执行的语句：USE，以及不是 GLOBAL/PERSIST/PASSWORD 的 SET
+     */
+    public static boolean appliesToAllConnections(String sql) {
+        SqlLexer.StatementType type = SqlLexer.classify(sql);
+        if (type == SqlLexer.StatementType.USE) {
+            return true;
+        }
+        if (type != SqlLexer.StatementType.SET) {
+            return false;
+        }
+        SqlLexer lexer = new SqlLexer(sql);
+        lexer.next();
+        lexer.next();
+        if (lexer.isWord("global") || lexer.isWord("persist") || lexer.isWord("persist_only")
+                || lexer.isWord("password")) {
+            return false;
+        }
+        String text = lexer.getText().toLowerCase(Locale.ROOT);
+        return !text.startsWith("@@global.") && !text.startsWith("@@persist");
+    }
+
+    private Connection openWorkerConnection(String catalog) throws SQLException {
+        if (dbManager.isPooled()) {
+            return dbManager.borrowConnection();
+        }
+        Connection connection = dbManager.openConnection();
+        if (catalog != null) {
+            connection.setCatalog(catalog);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,184 @@
+package com.dbtool.core;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预处理语句缓存：每个物理连接一个 LRU，按 当前数据库 + SQL 文本 保存已准备好的 PreparedStatement，
+ * 重复执行时省去 prepare 和 close 的往返。
+ * 使用时先 take() 取出（同一语句不会被两个调用方同时使用），执行完再 release() 放回；
+ * 连接关闭或语句出错时丢弃。
+ */
+public class PreparedStatementCache {
+    private final int maxPerConnection;
+    // 连接池借出的是代理连接，按底层物理连接区分
+    private final Map<Connection, LinkedHashMap<String, PreparedStatement>> connections = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    public PreparedStatementCache(int maxPerConnection) {
+        this.maxPerConnection = Math.max(1, maxPerConnection);
+    }
+
+    /**
+     * 取出缓存的语句并清空参数；没有时返回 null，由调用方自行 prepare
+     */
+    public PreparedStatement take(Connection connection, String sql) throws SQLException {
+        Connection physical = physical(connection);
+        String key = key(connection, sql);
+        PreparedStatement stmt;
+        synchronized (this) {
+            LinkedHashMap<String, PreparedStatement> statements = connections.get(physical);
+            stmt = statements != null ? statements.remove(key) : null;
+            if (stmt == null || stmt.isClosed()) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        stmt.clearParameters();
+        return stmt;
+    }
+
+    /**
+     * 执行完毕后放回缓存，超出容量时关闭最久未使用的语句
+     */
+    public void release(Connection connection, String sql, PreparedStatement stmt) throws SQLException {
+        Connection physical = physical(connection);
+        if (physical.isClosed() || stmt.isClosed()) {
+            closeQuietly(stmt);
+            invalidate(connection);
+            return;
+        }
+
+        PreparedStatement evicted = null;
+        PreparedStatement replaced;
+        synchronized (this) {
+            LinkedHashMap<String, PreparedStatement> statements = connections.get(physical);
+            if (statements == null) {
+                removeClosedConnections();
+                statements = new LinkedHashMap<>(16, 0.75f, true);
+                connections.put(physical, statements);
+            }
+            replaced = statements.put(key(connection, sql), stmt);
+            if (statements.size() > maxPerConnection) {
+                Iterator<PreparedStatement> it = statements.values().iterator();
+                evicted = it.next();
+                it.remove();
+                evictions++;
+            }
+        }
+        closeQuietly(replaced != stmt ? replaced : null);
+        closeQuietly(evicted);
+    }
+
+    /**
+     * 丢弃某个连接的全部语句（连接关闭、重置或执行出错时）
+     */
+    public void invalidate(Connection connection) {
+        LinkedHashMap<String, PreparedStatement> statements;
+        synchronized (this) {
+            statements = connections.remove(physical(connection));
+            if (statements == null) {
+                return;
+            }
+            invalidations++;
+        }
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        for (LinkedHashMap<String, PreparedStatement> statements : connections.values()) {
+            for (PreparedStatement stmt : statements.values()) {
+                closeQuietly(stmt);
+            }
+        }
+        connections.clear();
+        invalidations++;
+    }
+
+    /**
+     * 出现新连接时顺带清理已关闭的连接（连接池淘汰、断线重连）
+     */
+    private void removeClosedConnections() {
+        List<Connection> closed = new ArrayList<>();
+        for (Connection connection : connections.keySet()) {
+            try {
+                if (connection.isClosed()) {
+                    closed.add(connection);
+                }
+            } catch (SQLException e) {
+                closed.add(connection);
+            }
+        }
+        for (Connection connection : closed) {
+            connections.remove(connection);
+            invalidations++;
+        }
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (LinkedHashMap<String, PreparedStatement> statements : connections.values()) {
+            size += statements.size();
+        }
+        return size;
+    }
+
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format("%d statements on %d connection(s), %d hits, %d misses (%.0f%% hit rate), %d evictions, %d invalidations",
+                size(), connections.size(), hits, misses, total == 0 ? 0.0 : hits * 100.0 / total,
+                evictions, invalidations);
+    }
+
+    /**
+     * 连接池代理连接的 unwrap 会转发到物理连接
+     */
+    private static Connection physical(Connection connection) {
+        try {
+            if (connection.isWrapperFor(JdbcConnection.class)) {
+                return connection.unwrap(JdbcConnection.class);
+            }
+        } catch (SQLException e) {
+            // 已归还的代理连接：按代理本身区分
+        }
+        return connection;
+    }
+
+    // 不同数据库下同一 SQL 引用的可能是不同的表
+    private static String key(Connection connection, String sql) {
+        String catalog;
+        try {
+            catalog = connection.getCatalog();
+        } catch (SQLException e) {
+            catalog = null;
+        }
+        return (catalog == null ? "" : catalog) + '\u0000' + sql;
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        if (stmt == null) {
+            return;
+        }
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // 连接已失效，语句随之释放
+        }
+    }
+}
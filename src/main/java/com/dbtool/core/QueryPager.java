@@ -0,0 +1,532 @@
+package com.dbtool.core;
+
+import com.dbtool.model.QueryResult;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 服务器端分页：每次只向服务器请求一页数据。
+ * 单表查询且存在单列主键/非空唯一键时使用 keyset 分页（WHERE key > ? ORDER BY key），
+ * 否则退回到 LIMIT/OFFSET。翻页后在后台用连接池中的连接预取下一页。
+ */
+public class QueryPager {
+
+    public enum Mode { KEYSET, OFFSET }
+
+    private static final int PAGE_CACHE_SIZE = 4;
+    // 翻页时等待后台预取的最长时间，超时后取消预取，在前台重新读取
+    private static final long PREFETCH_WAIT_MS = 30000;
+    private static final long PREFETCH_POLL_MS = 100;
+
+    private final DatabaseManager dbManager;
+    private final SQLExecutor sqlExecutor;
+    private final String baseSql;
+    private final int pageSize;
+    private volatile Mode mode;
+    private final String keyColumn;
+
+    // afterKeys.get(p)：第 p 页从哪个键之后开始（第 1 页不需要）
+    private final Map<Integer, Object> afterKeys = new ConcurrentHashMap<>();
+    private final Map<Integer, Page> pageCache = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, Page>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                    return size() > PAGE_CACHE_SIZE;
+                }
+            });
+
+    private final ExecutorService prefetcher;
+    private Future<Page> prefetchFuture;
+    // 预取查询自己的执行上下文，用于取消正在执行的预取语句
+    private ExecutionContext prefetchContext;
+    private int prefetchPage = -1;
+
+    private int currentPage = 0;
+    private Page current;
+
+    private QueryPager(DatabaseManager dbManager, SQLExecutor sqlExecutor, String baseSql,
+                       int pageSize, Mode mode, String keyColumn) {
+        this.dbManager = dbManager;
+        this.sqlExecutor = sqlExecutor;
+        this.baseSql = baseSql;
+        this.pageSize = pageSize;
+        this.mode = mode;
+        this.keyColumn = keyColumn;
+        this.prefetcher = dbManager.isPooled()
+                ? Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "page-prefetch");
+                    t.setDaemon(true);
+                    return t;
+                })
+                : null;
+    }
+
+    /**
+     * 为 SQL 创建分页器；不是可以在服务器端分页的 SELECT 时返回 null
+     */
+    public static QueryPager create(DatabaseManager dbManager, SQLExecutor sqlExecutor, String sql, int pageSize) {
+        String baseSql = stripTrailingSemicolon(sql.trim());
+        String scan = stripLiterals(baseSql).toLowerCase(Locale.ROOT);
+
+        // 带注释的语句无法安全地追加子句，交给原有的执行路径
+        if (scan.contains("--") || scan.contains("#") || scan.contains("/*")) {
+            return null;
+        }
+        if (!scan.startsWith("select") || containsWord(scan, "limit") || containsWord(scan, "into")
+                || containsWord(scan, "for update") || containsWord(scan, "for share")
+                || containsWord(scan, "lock in share mode")) {
+            return null;
+        }
+
+        String table = singleTableName(scan, baseSql);
+        boolean keysetCandidate = table != null
+                && !containsWord(scan, "order by") && !containsWord(scan, "group by")
+                && !containsWord(scan, "having") && !containsWord(scan, "distinct")
+                && !containsWord(scan, "union");
+
+        String keyColumn = null;
+        if (keysetCandidate) {
+            keyColumn = findKeyColumn(dbManager.getConnection(), table);
+            if (keyColumn != null && !selectsKeyColumn(scan, keyColumn)) {
+                keyColumn = null;
+            }
+        }
+
+        Mode mode = keyColumn != null ? Mode.KEYSET : Mode.OFFSET;
+        return new QueryPager(dbManager, sqlExecutor, baseSql, pageSize, mode, keyColumn);
+    }
+
+    /**
+     * 跳到指定页，返回 null 表示页码超出范围（当前页不变）
+     */
+    public Page goToPage(int page) {
+        if (page < 1) {
+            page = 1;
+        }
+        if (page == currentPage && current != null) {
+            return current;
+        }
+
+        Page result = takePrefetched(page);
+        if (result == null) {
+            result = pageCache.get(page);
+        }
+        if (result == null) {
+            result = fetchPage(dbManager.getConnection(), page);
+        }
+
+        if (!result.getResult().isSuccess()) {
+            return result;
+        }
+        if (result.getResult().getRowCount() == 0 && page > 1) {
+            return null;
+        }
+
+        current = result;
+        currentPage = page;
+        pageCache.put(page, result);
+        if (result.hasMore()) {
+            schedulePrefetch(page + 1);
+        }
+        return result;
+    }
+
+    public Page nextPage() {
+        if (current != null && !current.hasMore()) {
+            return null;
+        }
+        return goToPage(currentPage + 1);
+    }
+
+    public Page previousPage() {
+        return currentPage > 1 ? goToPage(currentPage - 1) : null;
+    }
+
+    private Page fetchPage(Connection connection, int page) {
+        long startTime = System.currentTimeMillis();
+        QueryResult raw;
+
+        if (mode == Mode.KEYSET && (page == 1 || afterKeys.containsKey(page))) {
+            String quotedKey = "_page.`" + keyColumn.replace("`", "``") + "`";
+            List<Object> params = new ArrayList<>();
+            String sql = "SELECT * FROM (" + baseSql + ") AS _page";
+            if (page > 1) {
+                sql += " WHERE " + quotedKey + " > ?";
+                params.add(afterKeys.get(page));
+            }
+            sql += " ORDER BY " + quotedKey + " LIMIT " + (pageSize + 1);
+            raw = sqlExecutor.executePrepared(connection, sql, params);
+        } else {
+            // OFFSET 模式，或 keyset 模式下直接跳到尚未访问过的页。
+            // LIMIT/OFFSET 用参数绑定，每一页都是同一条语句，不会挤占 PreparedStatement 缓存
+            String sql = mode == Mode.KEYSET
+                    ? "SELECT * FROM (" + baseSql + ") AS _page ORDER BY _page.`" + keyColumn.replace("`", "``") + "`"
+                    : baseSql;
+            sql += " LIMIT ? OFFSET ?";
+            raw = sqlExecutor.executePrepared(connection, sql,
+                    Arrays.<Object>asList(pageSize + 1, (long) (page - 1) * pageSize));
+        }
+
+        if (mode == Mode.KEYSET && !raw.isSuccess()) {
+            // 外层查询无法按键列排序（例如选择列表的写法没有识别出来），改用 LIMIT/OFFSET 重新读取
+            mode = Mode.OFFSET;
+            return fetchPage(connection, page);
+        }
+        if (!raw.isSuccess() || !raw.isQueryResult()) {
+            return new Page(page, raw, false);
+        }
+
+        int keyIndex = mode == Mode.KEYSET ? indexOfIgnoreCase(raw.getColumnNames(), keyColumn) : -1;
+        if (mode == Mode.KEYSET && keyIndex < 0) {
+            // 键列不在选择列表里，无法记录翻页位置
+            mode = Mode.OFFSET;
+            return fetchPage(connection, page);
+        }
+
+        List<Map<String, Object>> data = raw.getData();
+        boolean hasMore = data.size() > pageSize;
+        List<Map<String, Object>> pageData = hasMore ? data.subList(0, pageSize) : data;
+
+        if (keyIndex >= 0 && !pageData.isEmpty()) {
+            afterKeys.put(page + 1, raw.getValue(pageData.size() - 1, keyIndex));
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        long firstRow = (long) (page - 1) * pageSize + 1;
+        String message = String.format("Page %d (rows %d-%d%s, %s, %d ms)",
+                page, firstRow, firstRow + pageData.size() - 1, hasMore ? ", more available" : "",
+                mode == Mode.KEYSET ? "keyset on " + keyColumn : "limit/offset", elapsed);
+
+        QueryResult pageResult = new QueryResult(true, message, pageData, raw.getColumnNames(),
+                pageData.size(), elapsed);
+        return new Page(page, pageResult, hasMore);
+    }
+
+    // ========== 后台预取 ==========
+
+    private synchronized void schedulePrefetch(int page) {
+        if (prefetcher == null || prefetchPage == page || pageCache.containsKey(page)) {
+            return;
+        }
+        cancelPrefetch(prefetchFuture, prefetchContext);
+        ExecutionContext context = new ExecutionContext(dbManager);
+        prefetchPage = page;
+        prefetchContext = context;
+        prefetchFuture = prefetcher.submit(() -> context.run(() -> {
+            try (Connection connection = dbManager.borrowConnection()) {
+                return fetchPage(connection, page);
+            }
+        }));
+    }
+
+    /**
+     * 取出预取的页。等待时不持有锁，并且定时检查调用方的请求是否已被取消（Ctrl-C），
+     * 取消或等待超时时中止预取查询，返回 null
+     */
+    private Page takePrefetched(int page) {
+        Future<Page> future;
+        ExecutionContext context;
+        synchronized (this) {
+            if (prefetchFuture == null || prefetchPage != page) {
+                return null;
+            }
+            future = prefetchFuture;
+            context = prefetchContext;
+            prefetchFuture = null;
+            prefetchContext = null;
+            prefetchPage = -1;
+        }
+
+        ExecutionContext caller = ExecutionContext.current();
+        long deadline = System.currentTimeMillis() + PREFETCH_WAIT_MS;
+        try {
+            while (true) {
+                try {
+                    Page result = future.get(PREFETCH_POLL_MS, TimeUnit.MILLISECONDS);
+                    return result.getResult().isSuccess() ? result : null;
+                } catch (TimeoutException e) {
+                    if ((caller != null && caller.isCancelled()) || System.currentTimeMillis() >= deadline) {
+                        cancelPrefetch(future, context);
+                        return null;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelPrefetch(future, context);
+            return null;
+        } catch (ExecutionException e) {
+            // 预取失败时在前台重新读取
+            return null;
+        }
+    }
+
+    private static void cancelPrefetch(Future<Page> future, ExecutionContext context) {
+        if (context != null) {
+            context.cancel();
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    public synchronized void close() {
+        cancelPrefetch(prefetchFuture, prefetchContext);
+        prefetchFuture = null;
+        prefetchContext = null;
+        if (prefetcher != null) {
+            prefetcher.shutdownNow();
+        }
+        pageCache.clear();
+    }
+
+    public String getBaseSql() { return baseSql; }
+    public int getCurrentPage() { return currentPage; }
+    public Mode getMode() { return mode; }
+    public String getKeyColumn() { return keyColumn; }
+
+    /**
+     * 一页数据，以及是否还有后续页
+     */
+    public static class Page {
+        private final int number;
+        private final QueryResult result;
+        private final boolean hasMore;
+
+        Page(int number, QueryResult result, boolean hasMore) {
+            this.number = number;
+            this.result = result;
+            this.hasMore = hasMore;
+        }
+
+        public int getNumber() { return number; }
+        public QueryResult getResult() { return result; }
+        public boolean hasMore() { return hasMore; }
+    }
+
+    // ========== SQL 分析与键列检测 ==========
+
+    /**
+     * 查找单列主键，没有时查找单列、非空的唯一索引
+     */
+    static String findKeyColumn(Connection connection, String table) {
+        if (connection == null) {
+            return null;
+        }
+        try {
+            String catalog = connection.getCatalog();
+            String tableName = table;
+            int dot = table.indexOf('.');
+            if (dot > 0) {
+                catalog = table.substring(0, dot);
+                tableName = table.substring(dot + 1);
+            }
+
+            DatabaseMetaData metaData = connection.getMetaData();
+            List<String> primaryKey = new ArrayList<>();
+            try (ResultSet rs = metaData.getPrimaryKeys(catalog, null, tableName)) {
+                while (rs.next()) {
+                    primaryKey.add(rs.getString("COLUMN_NAME"));
+                }
+            }
+            if (primaryKey.size() == 1) {
+                return primaryKey.get(0);
+            }
+
+            Map<String, List<String>> uniqueIndexes = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(catalog, null, tableName, true, true)) {
+                while (rs.next()) {
+                    String indexName = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (indexName != null && column != null) {
+                        uniqueIndexes.computeIfAbsent(indexName, k -> new ArrayList<>()).add(column);
+                    }
+                }
+            }
+            for (List<String> columns : uniqueIndexes.values()) {
+                if (columns.size() == 1 && isNotNull(metaData, catalog, tableName, columns.get(0))) {
+                    return columns.get(0);
+                }
+            }
+        } catch (SQLException e) {
+            // 无法获取元数据时使用 LIMIT/OFFSET
+        }
+        return null;
+    }
+
+    private static boolean isNotNull(DatabaseMetaData metaData, String catalog, String table, String column)
+            throws SQLException {
+        try (ResultSet rs = metaData.getColumns(catalog, null, table, column)) {
+            return rs.next() && "NO".equals(rs.getString("IS_NULLABLE"));
+        }
+    }
+
+    /**
+     * 取 FROM 之后的唯一表名；多表、子查询或 JOIN 时返回 null
+     */
+    public static String singleTableName(String scan, String original) {
+        int from = indexOfWord(scan, "from");
+        if (from < 0 || containsWord(scan, "join")) {
+            return null;
+        }
+
+        int start = from + 4;
+        int where = indexOfWord(scan.substring(start), "where");
+        int end = where >= 0 ? start + where : scan.length();
+        String fromClause = scan.substring(start, end).trim();
+        if (fromClause.isEmpty() || fromClause.contains(",") || fromClause.contains("(")) {
+            return null;
+        }
+
+        // 表名之后只允许出现别名
+        String[] parts = fromClause.split("\\s+");
+        if (parts.length > 3 || (parts.length == 3 && !parts[1].equals("as"))) {
+            return null;
+        }
+
+        int tableStart = scan.indexOf(parts[0], start);
+        return original.substring(tableStart, tableStart + parts[0].length()).replace("`", "");
+    }
+
+    /**
+     * keyset 分页把查询包成 SELECT * FROM (...) AS _page ORDER BY _page.key，
+     * 只有选择列表是 *（或 t.*），或者全是不带别名、不重名的列且包含键列时，外层查询才能引用键列
+     */
+    public static boolean selectsKeyColumn(String scan, String keyColumn) {
+        int from = indexOfWord(scan, "from");
+        if (!scan.startsWith("select") || from < 0) {
+            return false;
+        }
+        String list = scan.substring("select".length(), from).trim();
+        if (list.matches("(`?\\w+`?\\.)?\\*")) {
+            return true;
+        }
+
+        Set<String> names = new HashSet<>();
+        boolean found = false;
+        for (String item : list.split(",", -1)) {
+            String column = item.trim();
+            if (!column.matches("(`?\\w+`?\\.)?`?\\w+`?")) {
+                return false;
+            }
+            String name = column.substring(column.lastIndexOf('.') + 1).replace("`", "");
+            if (!names.add(name)) {
+                return false;
+            }
+            found |= name.equalsIgnoreCase(keyColumn);
+        }
+        return found;
+    }
+
+    private static int indexOfIgnoreCase(List<String> names, String name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static String stripTrailingSemicolon(String sql) {
+        String result = sql;
+        while (result.endsWith(";")) {
+            result = result.substring(0, result.length() - 1).trim();
+        }
+        return result;
+    }
+
+    /**
+     * 把字符串字面量替换为空格，避免把字面量里的关键字当成子句
+     */
+    public static String stripLiterals(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`' && i + 1 < sql.length()) {
+                    sb.append("  ");
+                    i++;
+                    continue;
+                }
+                if (c == quote) {
+                    quote = 0;
+                    sb.append(c);
+                } else {
+                    sb.append(quote == '`' ? c : ' ');
+                }
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static boolean containsWord(String scan, String phrase) {
+        return indexOfWord(scan, phrase) >= 0;
+    }
+
+    /**
+     * 按整词查找关键字（多个词之间允许任意空白），返回位置，找不到时返回 -1
+     */
+    public static int indexOfWord(String scan, String phrase) {
+        String[] words = phrase.split(" ");
+        int from = 0;
+        while (true) {
+            int index = scan.indexOf(words[0], from);
+            if (index < 0) {
+                return -1;
+            }
+            int end = index + words[0].length();
+            boolean boundaryBefore = index == 0 || !isWordChar(scan.charAt(index - 1));
+            boolean boundaryAfter = end >= scan.length() || !isWordChar(scan.charAt(end));
+            if (boundaryBefore && boundaryAfter && matchesRest(scan, end, words)) {
+                return index;
+            }
+            from = index + 1;
+        }
+    }
+
+    private static boolean matchesRest(String scan, int pos, String[] words) {
+        for (int w = 1; w < words.length; w++) {
+            int p = pos;
+            while (p < scan.length() && Character.isWhitespace(scan.charAt(p))) {
+                p++;
+            }
+            if (p == pos || !scan.startsWith(words[w], p)) {
+                return false;
+            }
+            pos = p + words[w].length();
+            if (pos < scan.length() && isWordChar(scan.charAt(pos))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,257 @@
+package com.dbtool.core;
+
+import com.dbtool.model.QueryResult;
+import com.dbtool.model.RowSet;
+import com.dbtool.model.SpillingRowSet;
+import com.dbtool.util.SqlLexer;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 查询结果缓存：按 规范化后的 SQL + 当前数据库 存放只读查询的结果。
+ * 总大小按结果的估算字节数限制，超出时淘汰最久未使用的条目；每个条目超过 TTL 失效。
+ * 含有不确定函数（NOW()、RAND() 等）或会话变量的语句不缓存；
+ * 本会话写入某张表后，清除引用该表的条目，DDL 和其他语句清除全部。
+ * 其他会话的修改只能依靠 TTL。
+ */
+public class QueryResultCache {
+    // 不确定的函数（后面跟括号时）
+    private static final String[] NON_DETERMINISTIC_FUNCTIONS = {
+            "now", "rand", "uuid", "uuid_short", "sysdate", "curdate", "curtime", "unix_timestamp", "utc_date",
+            "utc_time", "utc_timestamp", "last_insert_id", "connection_id", "found_rows", "row_count", "user",
+            "current_user", "session_user", "system_user", "database", "schema", "sleep", "get_lock",
+            "release_lock", "is_free_lock", "is_used_lock", "benchmark", "version"};
+    // 不带括号也能使用的时间/用户函数，以及 INTO、SQL_NO_CACHE
+    private static final String[] NON_DETERMINISTIC_KEYWORDS = {
+            "current_date", "current_time", "current_timestamp", "current_user", "localtime", "localtimestamp",
+            "into", "sql_no_cache"};
+
+    private final long maxBytes;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long bypassed = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    public QueryResultCache(long maxBytes, long ttlMs) {
+        this.maxBytes = Math.max(1, maxBytes);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 语句是否可以缓存：只读查询，且不含不确定函数、会话变量、锁定读和 INTO
+     */
+    public static boolean isCacheable(String sql) {
+        SqlLexer.StatementType type = SqlLexer.classify(sql);
+        if (type != SqlLexer.StatementType.SELECT && type != SqlLexer.StatementType.SHOW
+                && type != SqlLexer.StatementType.DESCRIBE) {
+            return false;
+        }
+        SqlLexer lexer = new SqlLexer(sql);
+        boolean previousFunction = false;
+        boolean previousFor = false;
+        boolean previousIn = false;
+        SqlLexer.Token token;
+        while ((token = lexer.next()) != SqlLexer.Token.EOF) {
+            if (token == SqlLexer.Token.VARIABLE || previousFunction && lexer.isSymbol('(')) {
+                return false;
+            }
+            if (token == SqlLexer.Token.WORD) {
+                if (isAnyWord(lexer, NON_DETERMINISTIC_KEYWORDS)
+                        || previousFor && (lexer.isWord("update") || lexer.isWord("share"))
+                        || previousIn && lexer.isWord("share")) {
+                    return false;
+                }
+                previousFunction = isAnyWord(lexer, NON_DETERMINISTIC_FUNCTIONS);
+                previousFor = lexer.isWord("for");
+                previousIn = lexer.isWord("in");
+            } else {
+                previousFunction = false;
+                previousFor = false;
+                previousIn = false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAnyWord(SqlLexer lexer, String[] keywords) {
+        for (String keyword : keywords) {
+            if (lexer.isWord(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 规范化 SQL：去掉注释（保留 /*! 版本注释）和末尾分号，字面量以外的连续空白合并为一个空格
+     */
+    public static String normalize(String sql) {
+        return SqlLexer.normalize(sql);
+    }
+
+    /**
+     * 语句引用的表名（小写，不含数据库名和反引号）
+     */
+    static Set<String> referencedTables(String sql) {
+        return SqlLexer.referencedTables(sql);
+    }
+
+    public synchronized QueryResult get(String catalog, String key) {
+        Entry entry = entries.get(key(catalog, key));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttlMs > 0 && System.currentTimeMillis() - entry.createdAt > ttlMs) {
+            remove(key(catalog, key));
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /**
+     * 缓存一个成功的查询结果；超过总容量 1/4 的结果不缓存，以免冲掉其他条目，溢出到磁盘的结果也不缓存
+     */
+    public synchronized void put(String catalog, String key, String sql, QueryResult result) {
+        if (!result.isSuccess() || !result.isQueryResult()) {
+            return;
+        }
+        long bytes = estimateBytes(result);
+        // 溢出到临时文件的结果会在被替换时关闭，不能共享
+        boolean spilled = result.getData() instanceof SpillingRowSet && ((SpillingRowSet) result.getData()).isSpilled();
+        if (spilled || bytes > maxBytes / 4) {
+            bypassed++;
+            return;
+        }
+
+        // SHOW / DESCRIBE 等不按表区分，任何写入都清除
+        Set<String> tables = SqlLexer.classify(sql) == SqlLexer.StatementType.SELECT
+                ? referencedTables(sql) : Collections.emptySet();
+
+        String fullKey = key(catalog, key);
+        remove(fullKey);
+        entries.put(fullKey, new Entry(result, bytes, tables, System.currentTimeMillis()));
+        usedBytes += bytes;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            usedBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void recordBypass() {
+        bypassed++;
+    }
+
+    /**
+     * 本会话执行了非查询语句：写入已知的表时只清除引用这些表的条目（以及不引用表的 SHOW 等），
+     * DDL、事务控制等其他语句清除全部
+     */
+    public synchronized void onStatementExecuted(String sql) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        SqlLexer.StatementType type = SqlLexer.classify(sql);
+        // 查询语句和 USE（条目按数据库区分）不影响缓存
+        if (type == SqlLexer.StatementType.SELECT || type == SqlLexer.StatementType.SHOW
+                || type == SqlLexer.StatementType.DESCRIBE || type == SqlLexer.StatementType.EXPLAIN
+                || type == SqlLexer.StatementType.USE) {
+            return;
+        }
+        Set<String> written = type.isDml() ? referencedTables(sql) : Collections.emptySet();
+        if (written.isEmpty()) {
+            invalidateAll();
+            return;
+        }
+        invalidateTables(written);
+    }
+
+    /**
+     * 清除引用某张表的条目（\import 等不经过 SQLExecutor 的写入）
+     */
+    public synchronized void invalidateTable(String table) {
+        String name = table.replace("`", "").toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        invalidateTables(Collections.singleton(dot >= 0 ? name.substring(dot + 1) : name));
+    }
+
+    private void invalidateTables(Set<String> written) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.tables.isEmpty() || !Collections.disjoint(entry.tables, written)) {
+                usedBytes -= entry.bytes;
+                it.remove();
+            }
+        }
+        invalidations++;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        usedBytes = 0;
+        invalidations++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format("%d entries, %.1f/%.1f MB, %d hits, %d misses (%.0f%% hit rate), %d bypassed, %d evictions, %d invalidations",
+                entries.size(), usedBytes / 1048576.0, maxBytes / 1048576.0, hits, misses,
+                total == 0 ? 0.0 : hits * 100.0 / total, bypassed, evictions, invalidations);
+    }
+
+    private void remove(String fullKey) {
+        Entry old = entries.remove(fullKey);
+        if (old != null) {
+            usedBytes -= old.bytes;
+        }
+    }
+
+    private static long estimateBytes(QueryResult result) {
+        if (result.getData() instanceof RowSet) {
+            return ((RowSet) result.getData()).estimatedBytes();
+        }
+        int columns = result.getColumnNames() != null ? result.getColumnNames().size() : 1;
+        return 64 + (long) result.getData().size() * columns * 48;
+    }
+
+    private static String key(String catalog, String key) {
+        return (catalog == null ? "" : catalog) + '\u0000' + key;
+    }
+
+    private static class Entry {
+        final QueryResult result;
+        final long bytes;
+        final Set<String> tables;
+        final long createdAt;
+
+        Entry(QueryResult result, long bytes, Set<String> tables, long createdAt) {
+            this.result = result;
+            this.bytes = bytes;
+            this.tables = tables;
+            this.createdAt = createdAt;
+        }
+    }
+}
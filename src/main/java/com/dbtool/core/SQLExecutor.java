@@ -1,19 +1,106 @@
 package com.dbtool.core;
 
+import com.dbtool.model.ColumnarRowSet;
 import com.dbtool.model.QueryResult;
+import com.dbtool.model.RowHandler;
+import com.dbtool.model.SpillingRowSet;
+import com.dbtool.util.ConfigLoader;
+import com.dbtool.util.SqlLexer;
+import com.dbtool.util.SqlScriptSplitter;
+
+import java.io.File;
+import java.io.IOException;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SQLExecutor {
+    // 写入开关：开启后允许 INSERT/UPDATE/DELETE 和 \import，DDL 仍然禁止
+    private volatile boolean writeEnabled = ConfigLoader.getBoolean("app.write.enabled", false);
+
+    public boolean isWriteEnabled() {
+        return writeEnabled;
+    }
+
+    public void setWriteEnabled(boolean writeEnabled) {
+        this.writeEnabled = writeEnabled;
+    }
+
+    // 会话级语句超时（秒），0 表示不限制
+    private volatile int queryTimeoutSeconds = Math.max(0, ConfigLoader.getInt("query.timeout.seconds", 0));
+
+    public int getQueryTimeoutSeconds() {
+        return queryTimeoutSeconds;
+    }
+
+    public void setQueryTimeoutSeconds(int seconds) {
+        this.queryTimeoutSeconds = Math.max(0, seconds);
+    }
+
+    // 查询结果缓存（query.cache.enabled=true 时启用）
+    private final QueryResultCache resultCache = ConfigLoader.getBoolean("query.cache.enabled", false)
+            ? new QueryResultCache(ConfigLoader.getInt("query.cache.max.mb", 64) * 1024L * 1024L,
+                    ConfigLoader.getInt("query.cache.ttl.ms", 60000))
+            : null;
+
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    // executePrepared 使用的预处理语句缓存，每个连接最多 query.statement.cache.size 条，0 表示不缓存
+    private final PreparedStatementCache statementCache = ConfigLoader.getInt("query.statement.cache.size", 64) > 0
+            ? new PreparedStatementCache(ConfigLoader.getInt("query.statement.cache.size", 64))
+            : null;
+
+    public PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    // 每条语句的分阶段耗时统计（\stats），stats.enabled=false 时不记录
+    private final StatementStats statementStats = ConfigLoader.getBoolean("stats.enabled", true)
+            ? new StatementStats(ConfigLoader.getInt("stats.max.statements", 500))
+            : null;
+
+    public StatementStats getStatementStats() {
+        return statementStats;
+    }
+
+    // 查询结果在堆上最多保存的字节数，超出的行写入内存映射的临时文件（0 表示不溢出）
+    private final long resultMemoryLimit = ConfigLoader.getInt("result.memory.max.mb", 128) * 1024L * 1024L;
+    private final File spillDir = ConfigLoader.get("result.spill.dir") != null
+            ? new File(ConfigLoader.get("result.spill.dir")) : null;
+
+    /**
+     * 执行前设置超时，并登记到当前的 ExecutionContext 以便 Ctrl-C 取消
+     */
+    private void prepare(Statement stmt) throws SQLException {
+        // 缓存的语句可能带着之前的超时，每次都重新设置
+        stmt.setQueryTimeout(queryTimeoutSeconds);
+        ExecutionContext context = ExecutionContext.current();
+        if (context != null) {
+            context.attach(stmt);
+        }
+    }
 
     public QueryResult execute(Connection connection, String sql) {
         if (connection == null) {
             return QueryResult.error("No database connection available");
         }
 
-        long startTime = System.currentTimeMillis();
+        StatementTimer timer = new StatementTimer();
+        String cacheKey = resultCache != null ? QueryResultCache.normalize(sql) : null;
+        QueryResult cached = getCachedResult(connection, sql, cacheKey, timer);
+        if (cached != null) {
+            return cached;
+        }
+        QueryResult result = executeUncached(connection, sql, timer);
+        cacheResult(connection, sql, cacheKey, result);
+        recordStats(sql, timer, result);
+        return result;
+    }
 
+    private QueryResult executeUncached(Connection connection, String sql, StatementTimer timer) {
         try {
             String trimmedSQL = sql.trim();
 
@@ -21,113 +108,226 @@ public class SQLExecutor {
             if (!isSafeSQL(trimmedSQL)) {
                 return QueryResult.error("Unsafe SQL operation detected: " + trimmedSQL);
             }
+            timer.mark(StatementStats.Phase.PARSE);
 
             // 使用通用执行方法处理不确定的语句
             try (Statement stmt = connection.createStatement()) {
+                prepare(stmt);
                 boolean hasResultSet = stmt.execute(trimmedSQL);
+                timer.mark(StatementStats.Phase.EXECUTE);
 
                 if (hasResultSet) {
                     try (ResultSet rs = stmt.getResultSet()) {
-                        return handleQueryResult(rs, startTime);
+                        return handleQueryResult(rs, timer);
                     }
                 } else {
                     int affectedRows = stmt.getUpdateCount();
-                    long endTime = System.currentTimeMillis();
-                    String message = String.format("Command completed successfully (%d ms)", endTime - startTime);
-                    return QueryResult.updateSuccess(message, affectedRows, endTime - startTime);
+                    long elapsed = timer.elapsedMillis();
+                    String message = String.format("Command completed successfully (%d ms)", elapsed);
+                    return QueryResult.updateSuccess(message, affectedRows, elapsed);
                 }
             }
 
         } catch (SQLException e) {
-            long endTime = System.currentTimeMillis();
-            return QueryResult.error("SQL Error: " + e.getMessage() + " (took " + (endTime - startTime) + "ms)");
+            return QueryResult.error("SQL Error: " + e.getMessage() + " (took " + timer.elapsedMillis() + "ms)");
         } catch (Exception e) {
-            long endTime = System.currentTimeMillis();
-            return QueryResult.error("Unexpected error: " + e.getMessage() + " (took " + (endTime - startTime) + "ms)");
+            return QueryResult.error("Unexpected error: " + e.getMessage() + " (took " + timer.elapsedMillis() + "ms)");
         }
     }
 
     /**
-     * 安全检查：防止危险的 SQL 操作
+     * 流式执行查询：逐行推送给处理器，不物化整个结果集，内存占用与结果大小无关
      */
-    private boolean isSafeSQL(String sql) {
-        if (sql == null || sql.trim().isEmpty()) {
-            return false;
+    public QueryResult executeStreaming(Connection connection, String sql, RowHandler handler) {
+        if (connection == null) {
+            return QueryResult.error("No database connection available");
         }
 
-        String cleanSql = sql.trim().toLowerCase(Locale.ROOT);
-
-        // 允许的操作
-        if (cleanSql.startsWith("select") ||
-                cleanSql.startsWith("show") ||
-                cleanSql.startsWith("describe") ||
-                cleanSql.startsWith("desc") ||
-                cleanSql.startsWith("explain") ||
-                cleanSql.startsWith("with") ||
-                cleanSql.startsWith("call") ||
-                cleanSql.startsWith("check") ||
-                cleanSql.startsWith("analyze") ||
-                cleanSql.startsWith("optimize") ||
-                cleanSql.startsWith("repair")) {
-            return true;
+        StatementTimer timer = new StatementTimer();
+        String trimmedSQL = sql.trim();
+
+        if (!isSafeSQL(trimmedSQL)) {
+            return QueryResult.error("Unsafe SQL operation detected: " + trimmedSQL);
         }
+        timer.mark(StatementStats.Phase.PARSE);
 
-        // 禁止的危险操作
-        String[] dangerousKeywords = {"drop", "delete", "update", "insert",
-                "alter", "create", "truncate", "exec",
-                "grant", "revoke"};
-        for (String keyword : dangerousKeywords) {
-            if (cleanSql.startsWith(keyword + " ") || cleanSql.contains(keyword + ";")) {
-                return false;
+        QueryResult result;
+        try (Statement stmt = createStreamingStatement(connection)) {
+            prepare(stmt);
+            boolean hasResultSet = stmt.execute(trimmedSQL);
+            timer.mark(StatementStats.Phase.EXECUTE);
+
+            if (!hasResultSet) {
+                if (resultCache != null) {
+                    resultCache.onStatementExecuted(trimmedSQL);
+                }
+                result = handleUpdateResult(stmt.getUpdateCount(), timer);
+            } else {
+                long rowCount;
+                try (ResultSet rs = stmt.getResultSet()) {
+                    rowCount = streamRows(stmt, rs, handler, timer);
+                }
+
+                long elapsed = timer.elapsedMillis();
+                String message = String.format("Query streamed successfully (%d ms)", elapsed);
+                result = QueryResult.success(message, null, null, (int) Math.min(rowCount, Integer.MAX_VALUE), elapsed);
             }
+
+        } catch (SQLException e) {
+            result = QueryResult.error("SQL Error: " + e.getMessage() + " (took " + timer.elapsedMillis() + "ms)");
+        } catch (IOException e) {
+            result = QueryResult.error("Output error: " + e.getMessage() + " (took " + timer.elapsedMillis() + "ms)");
         }
+        recordStats(sql, timer, result);
+        return result;
+    }
 
-        return true;
+    /**
+     * 把 ResultSet 中的行逐一推送给处理器，返回处理的行数。
+     * 处理器占用的时间（输出、写文件）从 fetch 中扣除，计入 render
+     */
+    public static long streamRows(Statement stmt, ResultSet rs, RowHandler handler, StatementTimer timer)
+            throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        handler.start(metaData);
+
+        ExecutionContext context = ExecutionContext.current();
+        AtomicLong counter = context != null ? context.getRowCounter() : null;
+        long rowCount = 0;
+        long bytes = 0;
+        long handlerNanos = 0;
+        boolean stopped = false;
+        while (rs.next()) {
+            Object[] values = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = rs.getObject(i + 1);
+                bytes += estimateBytes(values[i]);
+            }
+            rowCount++;
+            if (rowCount == 1) {
+                timer.mark(StatementStats.Phase.FIRST_ROW);
+            }
+            if (counter != null) {
+                counter.lazySet(rowCount);
+            }
+            long handlerStart = System.nanoTime();
+            boolean more = handler.row(values);
+            handlerNanos += System.nanoTime() - handlerStart;
+            if (!more) {
+                stopped = true;
+                break;
+            }
+        }
+
+        if (stopped && stmt != null) {
+            // 流式结果集关闭时会读完剩余的行，提前停止时先取消服务器端查询
+            try {
+                stmt.cancel();
+            } catch (SQLException ignored) {
+                // 取消失败时退回到正常关闭
+            }
+        }
+
+        timer.mark(StatementStats.Phase.FETCH);
+        timer.move(StatementStats.Phase.FETCH, StatementStats.Phase.RENDER, handlerNanos);
+        timer.addBytes(bytes);
+        handler.end(rowCount, timer.elapsedMillis());
+        return rowCount;
+    }
+
+    // 流式读取的数据量估算，与 RowSet.estimatedBytes 的口径一致
+    private static long estimateBytes(Object value) {
+        if (value instanceof String) {
+            return 40 + ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        return value != null ? 16 : 0;
     }
 
     /**
-     * 判断是否为查询语句 - 现在被实际使用
+     * 创建流式读取的 Statement。
+     * MySQL 驱动下 fetchSize 为 Integer.MIN_VALUE 表示逐行流式读取；
+     * 开启 useCursorFetch 时使用服务器端游标，按 fetchSize 分批读取。
      */
-    private boolean isQuerySQL(String sql) {
+    public static Statement createStreamingStatement(Connection connection) throws SQLException {
+        Statement stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(streamingFetchSize());
+        return stmt;
+    }
+
+    public static PreparedStatement prepareStreamingStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(streamingFetchSize());
+        return pstmt;
+    }
+
+    private static int streamingFetchSize() {
+        if (ConfigLoader.getBoolean("query.stream.cursor.fetch", false)) {
+            return Math.max(1, ConfigLoader.getInt("query.stream.fetch.size", 1000));
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 安全检查：防止危险的 SQL 操作。按词法分析得到的语句类型判断，注释、字符串和可执行注释不会干扰；
+     * 一次提交多条语句时逐条检查
+     */
+    private boolean isSafeSQL(String sql) {
         if (sql == null || sql.trim().isEmpty()) {
             return false;
         }
+        if (SqlLexer.hasMultipleStatements(sql)) {
+            for (String statement : SqlScriptSplitter.split(sql)) {
+                if (!isSafeStatement(SqlLexer.classify(statement))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return isSafeStatement(SqlLexer.classify(sql));
+    }
 
-        String cleanSql = sql.trim().toLowerCase(Locale.ROOT);
+    private boolean isSafeStatement(SqlLexer.StatementType type) {
+        switch (type) {
+            case EMPTY:
+                return false;
+            // 写入（包括 WITH ... UPDATE/DELETE 和 LOAD DATA）需要开启写入开关
+            case INSERT:
+            case UPDATE:
+            case DELETE:
+            case REPLACE:
+            case LOAD:
+                return writeEnabled;
+            // 禁止的危险操作；PREPARE/EXECUTE 的内容无法检查，一并禁止
+            case DDL:
+            case DCL:
+            case DYNAMIC:
+                return false;
+            default:
+                return true;
+        }
+    }
 
-        // 明确返回结果集的语句
-        if (cleanSql.startsWith("select") ||
-                cleanSql.startsWith("show") ||
-                cleanSql.startsWith("describe") ||
-                cleanSql.startsWith("desc") ||
-                cleanSql.startsWith("explain") ||
-                cleanSql.startsWith("with") ||
-                cleanSql.startsWith("call")) {
-            return true;
+    /**
+     * 判断是否为查询语句 - 现在被实际使用
+     */
+    private boolean isQuerySQL(String sql) {
+        SqlLexer.StatementType type = SqlLexer.classify(sql);
+        if (type == SqlLexer.StatementType.EMPTY) {
+            return false;
         }
 
-        // 表维护命令，也返回结果集
-        if (cleanSql.startsWith("check") ||
-                cleanSql.startsWith("analyze") ||
-                cleanSql.startsWith("optimize") ||
-                cleanSql.startsWith("repair")) {
+        // 明确返回结果集的语句（包括表维护命令）
+        if (type.isQuery()) {
             return true;
         }
 
         // 明确不返回结果集的语句
-        if (cleanSql.startsWith("insert") ||
-                cleanSql.startsWith("update") ||
-                cleanSql.startsWith("delete") ||
-                cleanSql.startsWith("create") ||
-                cleanSql.startsWith("alter") ||
-                cleanSql.startsWith("drop") ||
-                cleanSql.startsWith("truncate") ||
-                cleanSql.startsWith("grant") ||
-                cleanSql.startsWith("revoke") ||
-                cleanSql.startsWith("commit") ||
-                cleanSql.startsWith("rollback") ||
-                cleanSql.startsWith("start transaction") ||
-                cleanSql.startsWith("begin")) {
+        if (type.isWrite() || type == SqlLexer.StatementType.DDL || type == SqlLexer.StatementType.DCL
+                || type == SqlLexer.StatementType.TRANSACTION) {
             return false;
         }
 
@@ -144,21 +344,25 @@ public class SQLExecutor {
     /**
      * 执行查询语句 - 现在被实际使用
      */
-    private QueryResult executeQuery(Connection connection, String sql, long startTime) throws SQLException {
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            return handleQueryResult(rs, startTime);
+    private QueryResult executeQuery(Connection connection, String sql, StatementTimer timer) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            prepare(stmt);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                timer.mark(StatementStats.Phase.EXECUTE);
+                return handleQueryResult(rs, timer);
+            }
         }
     }
 
     /**
      * 执行更新语句 - 现在被实际使用
      */
-    private QueryResult executeUpdate(Connection connection, String sql, long startTime) throws SQLException {
+    private QueryResult executeUpdate(Connection connection, String sql, StatementTimer timer) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
+            prepare(stmt);
             int affectedRows = stmt.executeUpdate(sql);
-            return handleUpdateResult(affectedRows, startTime);
+            timer.mark(StatementStats.Phase.EXECUTE);
+            return handleUpdateResult(affectedRows, timer);
         }
     }
 
@@ -175,29 +379,8 @@ public class SQLExecutor {
 
     // 工具方法：将ResultSet转换为QueryResult
     private QueryResult resultSetToQueryResult(ResultSet rs, String message) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-
-        List<String> columnNames = new ArrayList<>();
-        for (int i = 1; i <= columnCount; i++) {
-            columnNames.add(metaData.getColumnLabel(i));
-        }
-
-        List<Map<String, Object>> data = new ArrayList<>();
-        int rowCount = 0;
-
-        while (rs.next()) {
-            Map<String, Object> row = new LinkedHashMap<>();
-            for (int i = 1; i <= columnCount; i++) {
-                String columnName = columnNames.get(i - 1);
-                Object value = rs.getObject(i);
-                row.put(columnName, value);
-            }
-            data.add(row);
-            rowCount++;
-        }
-
-        return QueryResult.success(message, data, columnNames, rowCount, 0);
+        ColumnarRowSet data = ColumnarRowSet.readAll(rs);
+        return QueryResult.success(message, data, data.getColumnNames(), data.size(), 0);
     }
 
     /**
@@ -208,28 +391,76 @@ public class SQLExecutor {
             return QueryResult.error("No database connection available");
         }
 
-        long startTime = System.currentTimeMillis();
+        StatementTimer timer = new StatementTimer();
+        // 参数不同的同一语句分别缓存
+        String cacheKey = resultCache != null ? QueryResultCache.normalize(sql) + '\u0001' + parameters : null;
+        QueryResult cached = getCachedResult(connection, sql, cacheKey, timer);
+        if (cached != null) {
+            return cached;
+        }
+        QueryResult result = executePreparedUncached(connection, sql, parameters, timer);
+        cacheResult(connection, sql, cacheKey, result);
+        recordStats(sql, timer, result);
+        return result;
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    private QueryResult executePreparedUncached(Connection connection, String sql, List<Object> parameters,
+                                                StatementTimer timer) {
+        PreparedStatement pstmt = null;
+        boolean reusable = false;
+        try {
+            timer.mark(StatementStats.Phase.PARSE);
+            pstmt = statementCache != null ? statementCache.take(connection, sql) : null;
+            if (pstmt == null) {
+                pstmt = connection.prepareStatement(sql);
+            }
+            prepare(pstmt);
             // 设置参数
             for (int i = 0; i < parameters.size(); i++) {
                 pstmt.setObject(i + 1, parameters.get(i));
             }
 
             boolean isResultSet = pstmt.execute();
+            timer.mark(StatementStats.Phase.EXECUTE);
 
+            QueryResult result;
             if (isResultSet) {
                 try (ResultSet rs = pstmt.getResultSet()) {
-                    return handleQueryResult(rs, startTime);
+                    result = handleQueryResult(rs, timer);
                 }
             } else {
                 int affectedRows = pstmt.getUpdateCount();
-                return handleUpdateResult(affectedRows, startTime);
+                result = handleUpdateResult(affectedRows, timer);
             }
+            reusable = statementCache != null;
+            return result;
+
+        } catch (SQLException e) {
+            // 连接级错误（08xxx）说明连接已重置，缓存的其他语句也不能再用
+            if (statementCache != null && e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                statementCache.invalidate(connection);
+            }
+            return QueryResult.error("SQL Error: " + e.getMessage() + " (took " + timer.elapsedMillis() + "ms)");
+        } finally {
+            releaseStatement(connection, sql, pstmt, reusable);
+        }
+    }
 
+    /**
+     * 执行成功的语句放回缓存，否则关闭
+     */
+    private void releaseStatement(Connection connection, String sql, PreparedStatement pstmt, boolean reusable) {
+        if (pstmt == null) {
+            return;
+        }
+        try {
+            if (reusable) {
+                statementCache.release(connection, sql, pstmt);
+            } else {
+                pstmt.close();
+            }
         } catch (SQLException e) {
-            long endTime = System.currentTimeMillis();
-            return QueryResult.error("SQL Error: " + e.getMessage() + " (took " + (endTime - startTime) + "ms)");
+            // 连接已失效，语句随之释放
         }
     }
 
@@ -237,19 +468,213 @@ public class SQLExecutor {
      * 执行多条SQL语句（用分号分隔）- 现在被实际使用
      */
     public List<QueryResult> executeMultiple(Connection connection, String sqlBatch) {
-        List<QueryResult> results = new ArrayList<>();
-        String[] statements = sqlBatch.split(";");
+        return executeScript(connection, SqlScriptSplitter.split(sqlBatch));
+    }
 
+    /**
+     * 执行拆分好的脚本，每条语句对应一个结果。
+     * 连续的 INSERT/UPDATE/DELETE/REPLACE 合并为一次 executeBatch（驱动会合并成多语句包）；
+     * 脚本中有写入语句时整个脚本在一个事务中执行，任何一条失败都回滚，之后的语句不再执行。
+     * 只读脚本不开启事务，出错后继续执行下一条。
+     * 会隐式提交的语句（COMMIT、BEGIN、LOCK TABLES、CALL、表维护等）无法在事务中回滚，这样的脚本整个拒绝执行。
+     */
+    public List<QueryResult> executeScript(Connection connection, List<String> statements) {
+        List<QueryResult> results = new ArrayList<>(statements.size());
+        if (connection == null) {
+            results.add(QueryResult.error("No database connection available"));
+            return results;
+        }
+
+        boolean transactional = false;
         for (String statement : statements) {
-            String trimmed = statement.trim();
-            if (!trimmed.isEmpty()) {
-                results.add(execute(connection, trimmed));
+            if (isBatchable(statement)) {
+                transactional = true;
+                break;
             }
         }
 
+        if (transactional) {
+            for (int i = 0; i < statements.size(); i++) {
+                if (commitsImplicitly(statements.get(i))) {
+                    rejectScript(statements, results, i);
+                    return results;
+                }
+            }
+        }
+
+        int batchSize = Math.max(1, ConfigLoader.getInt("script.batch.size", 500));
+        boolean previousAutoCommit = true;
+        int failedAt = -1;
+        try {
+            if (transactional) {
+                previousAutoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+            }
+
+            int i = 0;
+            while (i < statements.size()) {
+                if (isBatchable(statements.get(i))) {
+                    int end = i + 1;
+                    while (end < statements.size() && end - i < batchSize && isBatchable(statements.get(end))) {
+                        end++;
+                    }
+                    int failed = executeBatchGroup(connection, statements.subList(i, end), results);
+                    if (failed >= 0) {
+                        failedAt = i + failed;
+                        break;
+                    }
+                    i = end;
+                } else {
+                    QueryResult result = execute(connection, statements.get(i));
+                    results.add(result);
+                    if (transactional && !result.isSuccess()) {
+                        failedAt = i;
+                        break;
+                    }
+                    i++;
+                }
+            }
+
+            if (transactional) {
+                if (failedAt >= 0) {
+                    connection.rollback();
+                    markRolledBack(statements, results, failedAt);
+                    // 事务中缓存的查询结果可能包含已回滚的数据
+                    if (resultCache != null) {
+                        resultCache.invalidateAll();
+                    }
+                } else {
+                    connection.commit();
+                }
+            }
+        } catch (SQLException e) {
+            results.add(QueryResult.error("Transaction error: " + e.getMessage()));
+            if (transactional) {
+                // 恢复自动提交之前必须先回滚，否则 setAutoCommit(true) 会提交已执行的部分
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    // 连接已失效，服务器会丢弃未提交的事务
+                }
+                markRolledBack(statements, results, results.size() - 1);
+                if (resultCache != null) {
+                    resultCache.invalidateAll();
+                }
+            }
+        } finally {
+            if (transactional) {
+                try {
+                    connection.setAutoCommit(previousAutoCommit);
+                } catch (SQLException e) {
+                    // 连接已失效
+                }
+            }
+        }
         return results;
     }
 
+    /**
+     * 一组连续的写入语句用一次 executeBatch 执行。
+     * 返回第一条失败语句在组内的下标，全部成功返回 -1
+     */
+    private int executeBatchGroup(Connection connection, List<String> group, List<QueryResult> results) {
+        long startNanos = System.nanoTime();
+        int[] counts;
+        SQLException failure = null;
+        try (Statement stmt = connection.createStatement()) {
+            prepare(stmt);
+            for (String sql : group) {
+                stmt.addBatch(sql);
+            }
+            counts = stmt.executeBatch();
+        } catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+            failure = e;
+        } catch (SQLException e) {
+            counts = new int[0];
+            failure = e;
+        }
+
+        long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+        // 批内每条语句没有单独的耗时，按整批平均
+        long perStatement = elapsed / group.size();
+        int failedIndex = -1;
+        for (int k = 0; k < group.size(); k++) {
+            if (failedIndex < 0 && k < counts.length && counts[k] != Statement.EXECUTE_FAILED) {
+                String message = String.format("Update completed (batch of %d, %d ms)", group.size(), elapsed);
+                results.add(QueryResult.updateSuccess(message, Math.max(counts[k], 0), perStatement));
+                if (resultCache != null) {
+                    resultCache.onStatementExecuted(group.get(k));
+                }
+            } else if (failedIndex < 0) {
+                failedIndex = k;
+                String reason = failure != null ? failure.getMessage() : "statement failed";
+                results.add(QueryResult.error("SQL Error: " + reason + " (batch of " + group.size() + ", took " + elapsed + "ms)"));
+            }
+        }
+        if (failure != null && failedIndex < 0) {
+            // 驱动报告了错误但每条都有更新计数：算作最后一条失败
+            failedIndex = group.size() - 1;
+            results.set(results.size() - 1, QueryResult.error("SQL Error: " + failure.getMessage()));
+        }
+        return failedIndex;
+    }
+
+    /**
+     * 事务回滚后：之前成功的写入标记为已回滚，未执行的语句标记为跳过
+     */
+    private void markRolledBack(List<String> statements, List<QueryResult> results, int failedAt) {
+        for (int i = 0; i < failedAt && i < results.size(); i++) {
+            QueryResult result = results.get(i);
+            if (result.isSuccess() && !result.isQueryResult()) {
+                results.set(i, QueryResult.error("Rolled back: " + result.getMessage()));
+            }
+        }
+        for (int i = results.size(); i < statements.size(); i++) {
+            results.add(QueryResult.error("Skipped: transaction rolled back after statement " + (failedAt + 1) + " failed"));
+        }
+    }
+
+    /**
+     * 含写入的脚本中出现隐式提交的语句：这条报错，其余全部跳过，不执行任何语句
+     */
+    private void rejectScript(List<String> statements, List<QueryResult> results, int index) {
+        for (int i = 0; i < statements.size(); i++) {
+            results.add(i == index
+                    ? QueryResult.error("Not allowed in a transactional script: this statement commits implicitly, "
+                            + "so earlier writes could not be rolled back")
+                    : QueryResult.error("Skipped: script rejected because statement " + (index + 1)
+                            + " commits implicitly"));
+        }
+    }
+
+    /**
+     * 会隐式提交当前事务（或自己控制事务）的语句
+     */
+    static boolean commitsImplicitly(String sql) {
+        switch (SqlLexer.classify(sql)) {
+            case TRANSACTION:
+            case MAINTENANCE:
+            case CALL:
+            case DDL:
+            case DCL:
+            case DYNAMIC:
+                return true;
+            case SET:
+                return SqlLexer.containsWord(sql, "autocommit");
+            case OTHER:
+                SqlLexer lexer = new SqlLexer(sql);
+                lexer.next();
+                return lexer.isWord("lock") || lexer.isWord("unlock");
+            default:
+                return false;
+        }
+    }
+
+    private boolean isBatchable(String sql) {
+        return SqlLexer.classify(sql).isDml() && isSafeSQL(sql);
+    }
+
     /**
      * 检查SQL语法（不实际执行）- 现在被实际使用
      */
@@ -264,39 +689,95 @@ public class SQLExecutor {
         }
     }
 
-    // 更新原有的handleQueryResult和handleUpdateResult方法，添加执行时间参数
-    private QueryResult handleQueryResult(ResultSet rs, long startTime) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
+    /**
+     * 从结果缓存中查找；缓存未启用、语句不可缓存或未命中时返回 null
+     */
+    private QueryResult getCachedResult(Connection connection, String sql, String cacheKey, StatementTimer timer) {
+        if (resultCache == null) {
+            return null;
+        }
+        if (!QueryResultCache.isCacheable(sql)) {
+            resultCache.recordBypass();
+            return null;
+        }
+        QueryResult cached = resultCache.get(currentCatalog(connection), cacheKey);
+        if (cached == null) {
+            return null;
+        }
+        if (statementStats != null) {
+            statementStats.recordCacheHit(sql);
+        }
+        long elapsed = timer.elapsedMillis();
+        return QueryResult.success(String.format("Query executed successfully (%d ms, cached)", elapsed),
+                cached.getData(), cached.getColumnNames(), cached.getRowCount(), elapsed);
+    }
+
+    /**
+     * 缓存可缓存的查询结果；其他语句执行成功后按写入的表清除缓存
+     */
+    private void cacheResult(Connection connection, String sql, String cacheKey, QueryResult result) {
+        if (resultCache == null || !result.isSuccess()) {
+            return;
+        }
+        if (result.isQueryResult() && QueryResultCache.isCacheable(sql)) {
+            resultCache.put(currentCatalog(connection), cacheKey, sql, result);
+        } else {
+            resultCache.onStatementExecuted(sql);
+        }
+    }
 
-        List<String> columnNames = new ArrayList<>();
-        for (int i = 1; i <= columnCount; i++) {
-            columnNames.add(metaData.getColumnLabel(i));
+    /**
+     * 把一次执行记入 \stats：成功时记录各阶段耗时，失败时只计数
+     */
+    private void recordStats(String sql, StatementTimer timer, QueryResult result) {
+        if (statementStats == null) {
+            return;
+        }
+        if (result.isSuccess()) {
+            // 查询为返回的行数，更新为影响的行数
+            statementStats.record(sql, timer, result.getRowCount());
+        } else {
+            statementStats.recordError(sql);
         }
+    }
 
-        List<Map<String, Object>> data = new ArrayList<>();
-        int rowCount = 0;
+    private static String currentCatalog(Connection connection) {
+        try {
+            return connection.getCatalog();
+        } catch (SQLException e) {
+            return null;
+        }
+    }
 
+    // 更新原有的handleQueryResult和handleUpdateResult方法，添加执行时间参数
+    private QueryResult handleQueryResult(ResultSet rs, StatementTimer timer) throws SQLException {
+        ExecutionContext context = ExecutionContext.current();
+        AtomicLong counter = context != null ? context.getRowCounter() : null;
+        SpillingRowSet data = SpillingRowSet.forMetaData(rs.getMetaData(), resultMemoryLimit, spillDir);
+        // 单独记录第一行的耗时
         while (rs.next()) {
-            Map<String, Object> row = new LinkedHashMap<>();
-            for (int i = 1; i <= columnCount; i++) {
-                String columnName = columnNames.get(i - 1);
-                Object value = rs.getObject(i);
-                row.put(columnName, value);
+            data.appendRow(rs);
+            if (data.size() == 1) {
+                timer.mark(StatementStats.Phase.FIRST_ROW);
             }
-            data.add(row);
-            rowCount++;
+            if (counter != null) {
+                counter.lazySet(data.size());
+            }
+        }
+        if (data.size() > 0) {
+            timer.mark(StatementStats.Phase.FETCH);
         }
+        timer.addBytes(data.estimatedBytes() + data.getSpilledBytes());
 
-        long endTime = System.currentTimeMillis();
-        String message = String.format("Query executed successfully (%d ms)", endTime - startTime);
+        long elapsed = timer.elapsedMillis();
+        String message = String.format("Query executed successfully (%d ms)", elapsed);
 
-        return QueryResult.success(message, data, columnNames, rowCount, endTime - startTime);
+        return QueryResult.success(message, data, data.getColumnNames(), data.size(), elapsed);
     }
 
-    private QueryResult handleUpdateResult(int affectedRows, long startTime) {
-        long endTime = System.currentTimeMillis();
-        String message = String.format("Update completed (%d ms)", endTime - startTime);
-        return QueryResult.updateSuccess(message, affectedRows, endTime - startTime);
+    private QueryResult handleUpdateResult(int affectedRows, StatementTimer timer) {
+        long elapsed = timer.elapsedMillis();
+        String message = String.format("Update completed (%d ms)", elapsed);
+        return QueryResult.updateSuccess(message, affectedRows, elapsed);
     }
 }
\ No newline at end of file
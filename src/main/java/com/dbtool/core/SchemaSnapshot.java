@@ -0,0 +1,525 @@
+package com.dbtool.core;
+
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.ConfigLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 保存在本地的表结构快照（数据库、表、列、索引），按连接 URL 和用户区分文件。
+ * 启动时把上次保存的文件读入内存，只解析末尾的目录，列和索引在用到时才解码；
+ * 不保留文件映射，后台刷新可以随时替换文件（Windows 上被映射的文件不能替换）；
+ * 同时在后台从 information_schema 重新生成并写回文件。
+ *
+ * 文件格式（版本 1）：
+ * 头部 MAGIC "DBSS" + short 版本 + long 生成时间；
+ * 之后是每张表的数据块（列、索引）；
+ * 末尾目录：数据库列表，以及每张表的 数据库 / 表名 / 数据块偏移；
+ * 最后 8 字节：int 目录偏移 + MAGIC。
+ */
+public class SchemaSnapshot {
+    private static final byte[] MAGIC = {'D', 'B', 'S', 'S'};
+    private static final int VERSION = 1;
+
+    private static final List<String> DESCRIBE_COLUMNS = Arrays.asList("Field", "Type", "Null", "Key", "Default", "Extra");
+    private static final List<String> INDEX_COLUMNS = Arrays.asList("Key_name", "Seq_in_index", "Column_name", "Non_unique");
+    private static final String EXCLUDED_SCHEMAS = "('information_schema', 'performance_schema')";
+    private static final int MAX_UTF_CHARS = 16 * 1024;
+
+    private final DatabaseManager dbManager;
+    private final Path file;
+    private final ExecutorService refresher;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+    private final AtomicLong staleGeneration = new AtomicLong();
+
+    private volatile Contents contents;
+    private volatile boolean stale = false;
+    private volatile String lastError;
+
+    public SchemaSnapshot(DatabaseManager dbManager, Path file) {
+        this.dbManager = dbManager;
+        this.file = file;
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "schema-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 当前连接对应的快照文件：schema.snapshot.dir（默认 ~/.dbmanager）下，以 URL 和用户名的摘要命名
+     */
+    public static SchemaSnapshot forConnection(DatabaseManager dbManager) {
+        String dir = ConfigLoader.get("schema.snapshot.dir",
+                Paths.get(System.getProperty("user.home"), ".dbmanager").toString());
+        String name = "schema-" + digest(dbManager.getDatabaseUrl() + "|" + dbManager.getUsername()) + ".snap";
+        return new SchemaSnapshot(dbManager, Paths.get(dir, name));
+    }
+
+    /**
+     * 读取上次保存的快照；文件不存在、版本不符或损坏时返回 false
+     */
+    public boolean load() {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            if (Files.size(file) > Integer.MAX_VALUE) {
+                return false;
+            }
+            contents = Contents.parse(ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer());
+            return true;
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            return false;
+        }
+    }
+
+    /**
+     * 在后台重新生成快照；已经有一次排队时不会重复提交
+     */
+    public void refreshAsync() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            refresher.submit(() -> {
+                refreshQueued.set(false);
+                try {
+                    refresh();
+                } catch (SQLException | IOException e) {
+                    lastError = e.getMessage();
+                }
+            });
+        }
+    }
+
+    /**
+     * 从 information_schema 重新生成快照，替换内存中的内容并写回文件
+     */
+    public void refresh() throws SQLException, IOException {
+        long generation = staleGeneration.get();
+        byte[] bytes;
+
+        try (Connection connection = dbManager.isPooled() ? dbManager.borrowConnection() : dbManager.openConnection()) {
+            bytes = build(connection);
+        }
+
+        contents = Contents.parse(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+        if (staleGeneration.get() == generation) {
+            stale = false;
+        }
+        lastError = null;
+        save(bytes);
+    }
+
+    /**
+     * 观察到 DDL：在重新生成完成之前不再使用快照
+     */
+    public void markStale() {
+        staleGeneration.incrementAndGet();
+        stale = true;
+        refreshAsync();
+    }
+
+    public boolean isAvailable() {
+        return contents != null && !stale;
+    }
+
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    public List<String> getDatabases() {
+        Contents current = contents;
+        return current == null ? Collections.emptyList() : current.databases;
+    }
+
+    /**
+     * 数据库中的表名；快照中没有这个数据库时返回 null
+     */
+    public List<String> getTables(String database) {
+        Contents current = contents;
+        if (current == null || database == null || !current.databaseKeys.contains(lower(database))) {
+            return null;
+        }
+        return current.tablesByDatabase.getOrDefault(lower(database), Collections.emptyList());
+    }
+
+    public boolean hasTable(String database, String table) {
+        Contents current = contents;
+        return current != null && current.offsets.containsKey(tableKey(database, table));
+    }
+
+    /**
+     * 与 DESCRIBE 相同列的表结构；快照中没有这张表时返回 null
+     */
+    public QueryResult describe(String database, String table) {
+        TableBlock block = readBlock(database, table);
+        if (block == null) {
+            return null;
+        }
+        ColumnarRowSet data = new ColumnarRowSet(DESCRIBE_COLUMNS, Collections.nCopies(6, "java.lang.String"));
+        for (String[] column : block.columns) {
+            data.addRow(column);
+        }
+        return QueryResult.success("Table structure: " + table + " (snapshot)", data, DESCRIBE_COLUMNS, data.size(), 0);
+    }
+
+    public QueryResult getIndexes(String database, String table) {
+        TableBlock block = readBlock(database, table);
+        if (block == null) {
+            return null;
+        }
+        ColumnarRowSet data = new ColumnarRowSet(INDEX_COLUMNS,
+                Arrays.asList("java.lang.String", "java.lang.Integer", "java.lang.String", "java.lang.Integer"));
+        for (Object[] index : block.indexes) {
+            data.addRow(index);
+        }
+        return QueryResult.success("Indexes: " + table + " (snapshot)", data, INDEX_COLUMNS, data.size(), 0);
+    }
+
+    /**
+     * 表的列名；快照中没有这张表时返回 null
+     */
+    public List<String> getColumnNames(String database, String table) {
+        TableBlock block = readBlock(database, table);
+        if (block == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<>(block.columns.size());
+        for (String[] column : block.columns) {
+            names.add(column[0]);
+        }
+        return names;
+    }
+
+    /**
+     * 当前内容的生成时间，尚未加载时为 0；后台重新生成后会变化
+     */
+    public long getCreatedAt() {
+        Contents current = contents;
+        return current == null ? 0 : current.createdAt;
+    }
+
+    public String getStats() {
+        Contents current = contents;
+        if (current == null) {
+            return lastError == null ? "not loaded" : "not loaded (" + lastError + ")";
+        }
+        long ageSeconds = (System.currentTimeMillis() - current.createdAt) / 1000;
+        return String.format("%d databases, %d tables, %ds old%s%s", current.databases.size(), current.offsets.size(),
+                ageSeconds, stale ? ", refreshing" : "", lastError == null ? "" : " (last refresh failed: " + lastError + ")");
+    }
+
+    private TableBlock readBlock(String database, String table) {
+        Contents current = contents;
+        if (current == null) {
+            return null;
+        }
+        Integer offset = current.offsets.get(tableKey(database, table));
+        if (offset == null) {
+            return null;
+        }
+        try {
+            return TableBlock.read(current.input(offset));
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            return null;
+        }
+    }
+
+    /**
+     * 读取 information_schema 并编码为快照文件内容
+     */
+    private static byte[] build(Connection connection) throws SQLException, IOException {
+        Map<String, List<Object[]>> indexes = new HashMap<>();
+        try (Statement stmt = SQLExecutor.createStreamingStatement(connection);
+             ResultSet rs = stmt.executeQuery("SELECT TABLE_SCHEMA, TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX, COLUMN_NAME, NON_UNIQUE "
+                     + "FROM information_schema.STATISTICS WHERE TABLE_SCHEMA NOT IN " + EXCLUDED_SCHEMAS
+                     + " ORDER BY TABLE_SCHEMA, TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX")) {
+            while (rs.next()) {
+                indexes.computeIfAbsent(tableKey(rs.getString(1), rs.getString(2)), k -> new ArrayList<>())
+                        .add(new Object[]{rs.getString(3), rs.getInt(4), rs.getString(5), rs.getInt(6)});
+            }
+        }
+
+        List<String> databases = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SCHEMA_NAME FROM information_schema.SCHEMATA ORDER BY SCHEMA_NAME")) {
+            while (rs.next()) {
+                databases.add(rs.getString(1));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(System.currentTimeMillis());
+
+        List<String[]> directory = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        try (Statement stmt = SQLExecutor.createStreamingStatement(connection);
+             ResultSet rs = stmt.executeQuery("SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, "
+                     + "COLUMN_KEY, COLUMN_DEFAULT, EXTRA FROM information_schema.COLUMNS WHERE TABLE_SCHEMA NOT IN "
+                     + EXCLUDED_SCHEMAS + " ORDER BY TABLE_SCHEMA, TABLE_NAME, ORDINAL_POSITION")) {
+
+            String currentDatabase = null;
+            String currentTable = null;
+            List<String[]> columns = new ArrayList<>();
+            while (rs.next()) {
+                String database = rs.getString(1);
+                String table = rs.getString(2);
+                if (currentTable != null && !(table.equals(currentTable) && database.equals(currentDatabase))) {
+                    directory.add(new String[]{currentDatabase, currentTable});
+                    offsets.add(out.size());
+                    TableBlock.write(out, columns, indexes.get(tableKey(currentDatabase, currentTable)));
+                    columns.clear();
+                }
+                currentDatabase = database;
+                currentTable = table;
+                columns.add(new String[]{rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6),
+                        rs.getString(7), rs.getString(8)});
+            }
+            if (currentTable != null) {
+                directory.add(new String[]{currentDatabase, currentTable});
+                offsets.add(out.size());
+                TableBlock.write(out, columns, indexes.get(tableKey(currentDatabase, currentTable)));
+            }
+        }
+
+        int footerOffset = out.size();
+        out.writeInt(databases.size());
+        for (String database : databases) {
+            writeString(out, database);
+        }
+        out.writeInt(directory.size());
+        for (int i = 0; i < directory.size(); i++) {
+            writeString(out, directory.get(i)[0]);
+            writeString(out, directory.get(i)[1]);
+            out.writeInt(offsets.get(i));
+        }
+        out.writeInt(footerOffset);
+        out.write(MAGIC);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 先写临时文件再替换；替换失败（例如文件被其他进程占用）时，下次启动仍使用旧文件
+     */
+    private void save(byte[] bytes) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            lastError = "could not save " + file + ": " + e.getMessage();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件下次会被覆盖
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        String text = value == null ? "" : value;
+        // writeUTF 最多 65535 字节，超长的类型定义（如很大的 ENUM）截断保存
+        out.writeUTF(text.length() > MAX_UTF_CHARS ? text.substring(0, MAX_UTF_CHARS) : text);
+    }
+
+    private static String tableKey(String database, String table) {
+        return lower(database) + '\u0000' + lower(table);
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    /**
+     * 快照内容：数据只保存在 ByteBuffer 中（读入的文件或刚生成的字节），这里只有目录
+     */
+    private static class Contents {
+        final ByteBuffer data;
+        final long createdAt;
+        final List<String> databases = new ArrayList<>();
+        final Set<String> databaseKeys = new HashSet<>();
+        final Map<String, List<String>> tablesByDatabase = new HashMap<>();
+        final Map<String, Integer> offsets = new HashMap<>();
+
+        private Contents(ByteBuffer data, long createdAt) {
+            this.data = data;
+            this.createdAt = createdAt;
+        }
+
+        static Contents parse(ByteBuffer data) throws IOException {
+            int size = data.limit();
+            if (size < 14 + 8) {
+                throw new IOException("Schema snapshot is too small");
+            }
+            byte[] magic = new byte[MAGIC.length];
+            data.duplicate().get(magic);
+            if (!Arrays.equals(magic, MAGIC) || data.getShort(4) != VERSION) {
+                throw new IOException("Schema snapshot has an unknown format or version");
+            }
+            int footerOffset = data.getInt(size - 8);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data.get(size - 4 + i) != MAGIC[i]) {
+                    throw new IOException("Schema snapshot is truncated");
+                }
+            }
+            if (footerOffset < 14 || footerOffset > size - 8) {
+                throw new IOException("Schema snapshot footer is corrupt");
+            }
+
+            Contents contents = new Contents(data, data.getLong(6));
+            DataInputStream in = contents.input(footerOffset);
+
+            int databaseCount = in.readInt();
+            for (int i = 0; i < databaseCount; i++) {
+                String database = in.readUTF();
+                contents.databases.add(database);
+                contents.databaseKeys.add(lower(database));
+            }
+            int tableCount = in.readInt();
+            for (int i = 0; i < tableCount; i++) {
+                String database = in.readUTF();
+                String table = in.readUTF();
+                int offset = in.readInt();
+                contents.offsets.put(tableKey(database, table), offset);
+                contents.tablesByDatabase.computeIfAbsent(lower(database), k -> new ArrayList<>()).add(table);
+            }
+            return contents;
+        }
+
+        DataInputStream input(int offset) {
+            ByteBuffer view = data.duplicate();
+            view.position(offset);
+            return new DataInputStream(new ByteBufferInput(view));
+        }
+    }
+
+    private static class TableBlock {
+        final List<String[]> columns = new ArrayList<>();
+        final List<Object[]> indexes = new ArrayList<>();
+
+        static void write(DataOutputStream out, List<String[]> columns, List<Object[]> indexes) throws IOException {
+            out.writeShort(columns.size());
+            for (String[] column : columns) {
+                for (int i = 0; i < 6; i++) {
+                    // Default 列区分 NULL 和空字符串
+                    if (i == 4) {
+                        out.writeBoolean(column[i] != null);
+                    }
+                    writeString(out, column[i]);
+                }
+            }
+
+            List<Object[]> tableIndexes = indexes == null ? Collections.emptyList() : indexes;
+            out.writeShort(tableIndexes.size());
+            for (Object[] index : tableIndexes) {
+                writeString(out, (String) index[0]);
+                out.writeShort((Integer) index[1]);
+                writeString(out, (String) index[2]);
+                out.writeBoolean(((Integer) index[3]) != 0);
+            }
+        }
+
+        static TableBlock read(DataInputStream in) throws IOException {
+            TableBlock block = new TableBlock();
+            int columnCount = in.readUnsignedShort();
+            for (int c = 0; c < columnCount; c++) {
+                String[] column = new String[6];
+                for (int i = 0; i < 6; i++) {
+                    boolean present = i != 4 || in.readBoolean();
+                    String value = in.readUTF();
+                    column[i] = present ? value : null;
+                }
+                block.columns.add(column);
+            }
+            int indexCount = in.readUnsignedShort();
+            for (int i = 0; i < indexCount; i++) {
+                String name = in.readUTF();
+                int seq = in.readUnsignedShort();
+                String column = in.readUTF();
+                int nonUnique = in.readBoolean() ? 1 : 0;
+                block.indexes.add(new Object[]{name, seq, column.isEmpty() ? null : column, nonUnique});
+            }
+            return block;
+        }
+    }
+
+    /**
+     * 在 ByteBuffer 上读取，不复制数据
+     */
+    private static class ByteBufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.dbtool.core;
+
+import com.dbtool.command.CommandParser;
+import com.dbtool.util.CompletionTrie;
+import com.dbtool.util.SqlLexer;
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 命令行的 Tab 补全：元命令、SQL 关键字、数据库名、表名和列名。
+ * 名称来自 MetadataManager 的表结构快照，在后台线程中装入 CompletionTrie，快照重新生成后自动重建；
+ * 补全时只读取已经建好的前缀树，不访问数据库，装入过程中也不会阻塞输入。
+ * 快照不可用（schema.snapshot.enabled=false）时只补全命令和关键字。
+ */
+public class SqlCompleter implements Completer {
+    private static final int MAX_CANDIDATES = 200;
+
+    private static final String[] KEYWORDS = {
+            "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "IN", "IS", "NULL", "LIKE", "BETWEEN", "EXISTS",
+            "AS", "DISTINCT", "JOIN", "INNER", "LEFT", "RIGHT", "CROSS", "OUTER", "ON", "USING", "GROUP", "BY",
+            "ORDER", "ASC", "DESC", "HAVING", "LIMIT", "OFFSET", "UNION", "ALL", "WITH", "RECURSIVE",
+            "INSERT", "INTO", "VALUES", "UPDATE", "SET", "DELETE", "REPLACE", "DUPLICATE", "KEY", "IGNORE",
+            "CREATE", "ALTER", "DROP", "TRUNCATE", "RENAME", "TABLE", "INDEX", "VIEW", "DATABASE", "DATABASES",
+            "SCHEMA", "TABLES", "COLUMNS", "PRIMARY", "FOREIGN", "REFERENCES", "UNIQUE", "DEFAULT",
+            "AUTO_INCREMENT", "SHOW", "DESCRIBE", "EXPLAIN", "ANALYZE", "USE", "CALL", "BEGIN", "COMMIT",
+            "ROLLBACK", "START", "TRANSACTION", "CASE", "WHEN", "THEN", "ELSE", "END", "IF", "FOR", "LOCK",
+            "SHARE", "MODE", "STATUS", "PROCESSLIST", "VARIABLES", "INTERVAL", "TRUE", "FALSE",
+            "COUNT", "SUM", "AVG", "MIN", "MAX", "COALESCE", "IFNULL", "CONCAT", "SUBSTRING", "LENGTH",
+            "LOWER", "UPPER", "TRIM", "ROUND", "CAST", "CONVERT", "NOW", "CURDATE", "DATE", "DATE_FORMAT",
+            "DATE_ADD", "DATE_SUB", "DATEDIFF", "YEAR", "MONTH", "DAY", "HOUR", "GROUP_CONCAT", "JSON_EXTRACT",
+            "INT", "BIGINT", "VARCHAR", "CHAR", "TEXT", "DECIMAL", "DATETIME", "TIMESTAMP", "BOOLEAN"};
+
+    // 后面跟表名的关键字和元命令
+    private static final Set<String> TABLE_KEYWORDS = new LinkedHashSet<>(Arrays.asList(
+            "from", "join", "straight_join", "into", "update", "table", "describe", "desc", "truncate"));
+    private static final Set<String> TABLE_COMMANDS = new LinkedHashSet<>(Arrays.asList(
+            "\\d", "\\desc", "\\describe", "\\export_table"));
+    private static final Set<String> DATABASE_COMMANDS = new LinkedHashSet<>(Arrays.asList(
+            "\\use", "\\t", "\\tables"));
+
+    private final MetadataManager metadataManager;
+    private final CompletionTrie keywords = new CompletionTrie();
+    private final CompletionTrie commands = new CompletionTrie();
+    private volatile Names names = new Names(0, new CompletionTrie(), new CompletionTrie(), new CompletionTrie());
+
+    private final ExecutorService loader;
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+
+    public SqlCompleter(MetadataManager metadataManager) {
+        this.metadataManager = metadataManager;
+        keywords.addAll(Arrays.asList(KEYWORDS));
+        commands.addAll(CommandParser.getCommandNames());
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "completion-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        reloadIfChanged();
+    }
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
+        String word = line.word().substring(0, line.wordCursor());
+        String before = line.line().substring(0, Math.max(0, line.cursor() - word.length()));
+        for (String value : complete(before, word, line.line())) {
+            candidates.add(new Candidate(value, value, null, null, null, null, true));
+        }
+    }
+
+    /**
+     * buffer 末尾的词的补全结果（测试和 complete 共用）
+     */
+    public List<String> complete(String buffer) {
+        int start = buffer.length();
+        while (start > 0 && !Character.isWhitespace(buffer.charAt(start - 1))) {
+            start--;
+        }
+        return complete(buffer.substring(0, start), buffer.substring(start), buffer);
+    }
+
+    public void close() {
+        loader.shutdownNow();
+    }
+
+    private List<String> complete(String before, String word, String line) {
+        reloadIfChanged();
+        Names current = names;
+
+        // 单词开头的 ( ` 等不参与匹配，补全结果中原样保留
+        int identifierStart = word.length();
+        while (identifierStart > 0 && isNamePart(word.charAt(identifierStart - 1))) {
+            identifierStart--;
+        }
+        String head = word.substring(0, identifierStart);
+        String prefix = word.substring(identifierStart);
+
+        String trimmed = before.trim();
+        if (trimmed.isEmpty()) {
+            if (word.startsWith("\\")) {
+                return commands.complete(word, MAX_CANDIDATES);
+            }
+            List<String> result = withHead(head, keywordCase(prefix, keywords.complete(prefix, MAX_CANDIDATES)));
+            result.addAll(commands.complete(word, MAX_CANDIDATES));
+            return result;
+        }
+
+        // 元命令的参数
+        if (trimmed.startsWith("\\")) {
+            String command = trimmed.split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+            if (TABLE_COMMANDS.contains(command)) {
+                return withHead(head, current.tables.complete(prefix, MAX_CANDIDATES));
+            }
+            if (DATABASE_COMMANDS.contains(command)) {
+                return withHead(head, current.databases.complete(prefix, MAX_CANDIDATES));
+            }
+            return Collections.emptyList();
+        }
+
+        // db.table 或 table.column
+        int dot = prefix.lastIndexOf('.');
+        if (dot >= 0) {
+            String qualifier = unquote(prefix.substring(0, dot));
+            String namePrefix = prefix.substring(dot + 1);
+            String qualifiedHead = head + prefix.substring(0, dot + 1);
+            List<String> columns = columnsOf(qualifier, namePrefix);
+            if (columns != null) {
+                return withHead(qualifiedHead, columns);
+            }
+            if (current.databases.contains(qualifier)) {
+                return withHead(qualifiedHead, tablesOf(qualifier, namePrefix));
+            }
+            // 多半是别名：用语句中引用的表的列
+            return withHead(qualifiedHead, referencedColumns(line, namePrefix, current));
+        }
+
+        String context = lastContext(before);
+        if (context.equals("use")) {
+            return withHead(head, current.databases.complete(prefix, MAX_CANDIDATES));
+        }
+        if (TABLE_KEYWORDS.contains(context)) {
+            return withHead(head, current.tables.complete(prefix, MAX_CANDIDATES));
+        }
+
+        // 其他位置：语句中引用的表的列优先，没有时用全部列名；再加上关键字和表名
+        Set<String> result = new LinkedHashSet<>(referencedColumns(line, prefix, current));
+        result.addAll(keywordCase(prefix, keywords.complete(prefix, MAX_CANDIDATES)));
+        result.addAll(current.tables.complete(prefix, MAX_CANDIDATES));
+        return withHead(head, new ArrayList<>(result));
+    }
+
+    private List<String> referencedColumns(String line, String prefix, Names current) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String table : SqlLexer.referencedTables(line)) {
+            List<String> columns = columnsOf(table, prefix);
+            if (columns != null) {
+                result.addAll(columns);
+            }
+        }
+        if (result.isEmpty()) {
+            return current.columns.complete(prefix, MAX_CANDIDATES);
+        }
+        return new ArrayList<>(result);
+    }
+
+    // 光标前最后一个词：表名关键字、USE，或逗号（沿用之前的子句，例如 FROM a, b）
+    private static String lastContext(String before) {
+        SqlLexer lexer = new SqlLexer(before);
+        String last = "";
+        String clause = "";
+        SqlLexer.Token token;
+        while ((token = lexer.next()) != SqlLexer.Token.EOF) {
+            if (token == SqlLexer.Token.WORD) {
+                last = lexer.getText().toLowerCase(Locale.ROOT);
+                if (TABLE_KEYWORDS.contains(last) || last.equals("where") || last.equals("set")
+                        || last.equals("on") || last.equals("select") || last.equals("by")) {
+                    clause = last;
+                }
+            } else if (lexer.isSymbol(',')) {
+                last = clause;
+            } else {
+                last = "";
+            }
+        }
+        return last;
+    }
+
+    // 当前数据库中表的列名（按前缀过滤）；快照中没有这张表时返回 null
+    private List<String> columnsOf(String table, String prefix) {
+        SchemaSnapshot snapshot = metadataManager.getSchemaSnapshot();
+        String database = metadataManager.getCurrentDatabase();
+        if (snapshot == null || database == null) {
+            return null;
+        }
+        List<String> columns = snapshot.getColumnNames(database, table);
+        if (columns == null) {
+            return null;
+        }
+        return filter(columns, prefix);
+    }
+
+    private List<String> tablesOf(String database, String prefix) {
+        SchemaSnapshot snapshot = metadataManager.getSchemaSnapshot();
+        List<String> tables = snapshot == null ? null : snapshot.getTables(database);
+        return tables == null ? Collections.emptyList() : filter(tables, prefix);
+    }
+
+    private static List<String> filter(List<String> names, String prefix) {
+        List<String> result = new ArrayList<>();
+        for (String name : names) {
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                result.add(name);
+                if (result.size() >= MAX_CANDIDATES) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    // 输入的是小写时关键字也用小写
+    private static List<String> keywordCase(String prefix, List<String> matches) {
+        if (prefix.isEmpty() || !prefix.equals(prefix.toLowerCase(Locale.ROOT))) {
+            return matches;
+        }
+        List<String> result = new ArrayList<>(matches.size());
+        for (String keyword : matches) {
+            result.add(keyword.toLowerCase(Locale.ROOT));
+        }
+        return result;
+    }
+
+    private static List<String> withHead(String head, List<String> values) {
+        List<String> result = new ArrayList<>(values.size());
+        for (String value : values) {
+            result.add(head + value);
+        }
+        return result;
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+
+    private static String unquote(String name) {
+        return name.replace("`", "");
+    }
+
+    // ========== 后台装入 ==========
+
+    // 快照第一次加载或重新生成后，在后台重建前缀树
+    private void reloadIfChanged() {
+        SchemaSnapshot snapshot = metadataManager.getSchemaSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        long createdAt = snapshot.getCreatedAt();
+        if (createdAt == 0 || createdAt == names.createdAt || !loading.compareAndSet(false, true)) {
+            return;
+        }
+        loader.submit(() -> {
+            try {
+                names = load(snapshot, createdAt);
+            } finally {
+                loading.set(false);
+            }
+        });
+    }
+
+    private static Names load(SchemaSnapshot snapshot, long createdAt) {
+        CompletionTrie databases = new CompletionTrie();
+        CompletionTrie tables = new CompletionTrie();
+        CompletionTrie columns = new CompletionTrie();
+        for (String database : snapshot.getDatabases()) {
+            databases.add(database);
+            List<String> names = snapshot.getTables(database);
+            if (names == null) {
+                continue;
+            }
+            for (String table : names) {
+                tables.add(table);
+                List<String> columnNames = snapshot.getColumnNames(database, table);
+                if (columnNames != null) {
+                    columns.addAll(columnNames);
+                }
+            }
+        }
+        return new Names(createdAt, databases, tables, columns);
+    }
+
+    /**
+     * 一次装入的结果，整体替换
+     */
+    private static final class Names {
+        final long createdAt;
+        final CompletionTrie databases;
+        final CompletionTrie tables;
+        final CompletionTrie columns;
+
+        Names(long createdAt, CompletionTrie databases, CompletionTrie tables, CompletionTrie columns) {
+            this.createdAt = createdAt;
+            this.databases = databases;
+            this.tables = tables;
+            this.columns = columns;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.dbtool.core;
+
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.SqlFingerprint;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 语句执行统计（\stats、\top）：按语句指纹的 64 位摘要（字面量替换为 ?，见 SqlFingerprint）
+ * 汇总执行次数、行数、字节数，
+ * 以及总耗时和各阶段耗时的延迟直方图，可以看出时间花在服务器执行、网络读取还是本地输出上。
+ * 注意：非流式查询时 MySQL 驱动在 execute 返回前就读完了全部结果，网络传输计入 execute 阶段；
+ * \stream 的 execute 只到第一个数据包，之后的读取计入 first_row 和 fetch。
+ */
+public class StatementStats {
+
+    public enum Phase {
+        // 安全检查、规范化、缓存查找
+        PARSE("parse"),
+        // 创建语句并执行，直到 execute 返回
+        EXECUTE("execute"),
+        // 读取第一行
+        FIRST_ROW("first_row"),
+        // 读取其余的行
+        FETCH("fetch"),
+        // 本地输出：表格显示、流式打印
+        RENDER("render");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // 超出上限的新指纹合并到这一项，避免一次性语句（例如拼接了不同表名的脚本）无限增长
+    static final String OTHER = "(other)";
+    private static final long OTHER_DIGEST = SqlFingerprint.digest(OTHER);
+
+    private final int maxStatements;
+    // 按 64 位摘要索引，查找时不需要生成指纹文本
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public StatementStats(int maxStatements) {
+        this.maxStatements = Math.max(1, maxStatements);
+    }
+
+    /**
+     * 记录一次成功的执行：总耗时为从开始到读完最后一行，不含 render
+     */
+    public void record(String sql, StatementTimer timer, long rows) {
+        entryFor(sql).record(timer, rows);
+    }
+
+    public void recordError(String sql) {
+        entryFor(sql).recordError();
+    }
+
+    public void recordCacheHit(String sql) {
+        entryFor(sql).recordCacheHit();
+    }
+
+    /**
+     * 记录执行结束后显示或导出结果的耗时
+     */
+    public void recordRender(String sql, long nanos) {
+        entryFor(sql).recordRender(nanos);
+    }
+
+    public void reset() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 按累计耗时从高到低排列
+     */
+    public List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getTotalNanos).reversed());
+        return list;
+    }
+
+    public Entry getEntry(String sql) {
+        return entries.get(SqlFingerprint.digest(sql));
+    }
+
+    private Entry entryFor(String sql) {
+        long digest = SqlFingerprint.digest(sql);
+        Entry entry = entries.get(digest);
+        if (entry != null) {
+            return entry;
+        }
+        if (entries.size() >= maxStatements) {
+            return entries.computeIfAbsent(OTHER_DIGEST, key -> new Entry(key, OTHER, OTHER));
+        }
+        return entries.computeIfAbsent(digest, key -> new Entry(key, fingerprint(sql), sql.trim()));
+    }
+
+    /**
+     * 语句指纹：规范化空白和注释，字符串和数字字面量替换为 ?，IN 列表合并为 (...)
+     */
+    public static String fingerprint(String sql) {
+        return SqlFingerprint.fingerprint(sql);
+    }
+
+    /**
+     * 按累计耗时列出前 limit 条语句
+     */
+    public QueryResult toQueryResult(int limit) {
+        List<String> columns = Arrays.asList("Statement", "Count", "Errors", "p50", "p99", "Max",
+                "Execute p50", "First row p50", "Fetch p50", "Render p50", "Rows/s", "Bytes");
+        ColumnarRowSet rows = new ColumnarRowSet(columns, null);
+        List<Entry> list = getEntries();
+        for (Entry entry : list.subList(0, Math.min(limit, list.size()))) {
+            synchronized (entry) {
+                String statement = entry.fingerprint.length() > 60
+                        ? entry.fingerprint.substring(0, 57) + "..." : entry.fingerprint;
+                rows.addRow(new Object[]{
+                        statement,
+                        entry.getCount() + entry.getCacheHits(),
+                        entry.getErrors(),
+                        formatNanos(entry.total.getValueAtPercentile(50)),
+                        formatNanos(entry.total.getValueAtPercentile(99)),
+                        formatNanos(entry.total.getMaxNanos()),
+                        formatPhase(entry, Phase.EXECUTE),
+                        formatPhase(entry, Phase.FIRST_ROW),
+                        formatPhase(entry, Phase.FETCH),
+                        formatPhase(entry, Phase.RENDER),
+                        String.format("%,.0f", entry.getRowsPerSecond()),
+                        formatBytes(entry.getBytes())});
+            }
+        }
+        String message = String.format("%d statement fingerprint(s), showing top %d by total time",
+                list.size(), rows.size());
+        return QueryResult.success(message, rows, columns, rows.size(), 0);
+    }
+
+    /**
+     * 最耗时的语句形状（\top）：按累计耗时排序，显示占全部语句耗时的比例、平均和最大耗时、行数。
+     * 只读取 LongAdder 计数，不加锁
+     */
+    public QueryResult toTopQueryResult(int limit) {
+        List<String> columns = Arrays.asList("Digest", "Statement", "Count", "Total", "% Time", "Avg", "Max",
+                "Rows", "Rows/call", "Errors");
+        ColumnarRowSet rows = new ColumnarRowSet(columns, null);
+        List<Entry> list = getEntries();
+        long allNanos = 0;
+        for (Entry entry : list) {
+            allNanos += entry.getTotalNanos();
+        }
+        for (Entry entry : list.subList(0, Math.min(limit, list.size()))) {
+            long count = entry.getCount();
+            long nanos = entry.getTotalNanos();
+            String statement = entry.fingerprint.length() > 60
+                    ? entry.fingerprint.substring(0, 57) + "..." : entry.fingerprint;
+            rows.addRow(new Object[]{
+                    SqlFingerprint.toHex(entry.digest),
+                    statement,
+                    count,
+                    formatNanos(nanos),
+                    String.format("%.1f%%", allNanos == 0 ? 0.0 : nanos * 100.0 / allNanos),
+                    formatNanos(count == 0 ? 0 : nanos / count),
+                    formatNanos(entry.getMaxNanos()),
+                    entry.getRows(),
+                    String.format("%.1f", count == 0 ? 0.0 : (double) entry.getRows() / count),
+                    entry.getErrors()});
+        }
+        String message = String.format("%d statement shape(s), %s in total, showing top %d",
+                list.size(), formatNanos(allNanos), rows.size());
+        return QueryResult.success(message, rows, columns, rows.size(), 0);
+    }
+
+    private static String formatPhase(Entry entry, Phase phase) {
+        LatencyHistogram histogram = entry.phases[phase.ordinal()];
+        return histogram != null ? formatNanos(histogram.getValueAtPercentile(50)) : "-";
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000_000) {
+            return String.format("%.0f us", nanos / 1000.0);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.2f ms", nanos / 1_000_000.0);
+        }
+        return String.format("%.2f s", nanos / 1_000_000_000.0);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / 1048576.0);
+    }
+
+    /**
+     * 导出为 JSON：每个指纹的计数、总耗时和各阶段的 p50/p90/p99/max（纳秒）
+     */
+    public void exportJson(String filename) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"generated_at\": ").append(System.currentTimeMillis()).append(",\n  \"statements\": [");
+        List<Entry> list = getEntries();
+        for (int i = 0; i < list.size(); i++) {
+            Entry entry = list.get(i);
+            synchronized (entry) {
+                sb.append(i == 0 ? "\n" : ",\n");
+                sb.append("    {\"digest\": ").append(quote(SqlFingerprint.toHex(entry.digest)));
+                sb.append(", \"fingerprint\": ").append(quote(entry.fingerprint));
+                sb.append(", \"sample\": ").append(quote(entry.sample));
+                sb.append(", \"count\": ").append(entry.getCount());
+                sb.append(", \"errors\": ").append(entry.getErrors());
+                sb.append(", \"cache_hits\": ").append(entry.getCacheHits());
+                sb.append(", \"rows\": ").append(entry.getRows());
+                sb.append(", \"bytes\": ").append(entry.getBytes());
+                sb.append(", \"rows_per_sec\": ").append(String.format("%.1f", entry.getRowsPerSecond()));
+                sb.append(",\n     \"total\": ");
+                appendHistogram(sb, entry.total);
+                sb.append(",\n     \"phases\": {");
+                boolean first = true;
+                for (Phase phase : Phase.values()) {
+                    LatencyHistogram histogram = entry.phases[phase.ordinal()];
+                    if (histogram == null) {
+                        continue;
+                    }
+                    sb.append(first ? "" : ", ").append(quote(phase.getLabel())).append(": ");
+                    appendHistogram(sb, histogram);
+                    first = false;
+                }
+                sb.append("}}");
+            }
+        }
+        sb.append(list.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, LatencyHistogram histogram) {
+        sb.append("{\"count\": ").append(histogram.getCount())
+                .append(", \"sum_ns\": ").append(histogram.getTotalNanos())
+                .append(", \"min_ns\": ").append(histogram.getMinNanos())
+                .append(", \"p50_ns\": ").append(histogram.getValueAtPercentile(50))
+                .append(", \"p90_ns\": ").append(histogram.getValueAtPercentile(90))
+                .append(", \"p99_ns\": ").append(histogram.getValueAtPercentile(99))
+                .append(", \"max_ns\": ").append(histogram.getMaxNanos()).append('}');
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * 一个语句指纹的统计：计数和累计值放在 LongAdder 中，并发执行（\parallel）时互不阻塞，读取也不加锁；
+     * 延迟直方图不是线程安全的，在 Entry 上加锁
+     */
+    public static class Entry {
+        private final long digest;
+        private final String fingerprint;
+        private final String sample;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LatencyHistogram total = new LatencyHistogram();
+        // 只为实际经历过的阶段分配直方图（更新语句没有 fetch）
+        private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+        Entry(long digest, String fingerprint, String sample) {
+            this.digest = digest;
+            this.fingerprint = fingerprint;
+            this.sample = sample;
+        }
+
+        void record(StatementTimer timer, long rowCount) {
+            long sum = 0;
+            synchronized (this) {
+                for (Phase phase : Phase.values()) {
+                    if (timer.isMarked(phase)) {
+                        long nanos = timer.getNanos(phase);
+                        phase(phase).record(nanos);
+                        if (phase != Phase.RENDER) {
+                            sum += nanos;
+                        }
+                    }
+                }
+                total.record(sum);
+            }
+            count.increment();
+            totalNanos.add(sum);
+            maxNanos.accumulate(sum);
+            rows.add(rowCount);
+            bytes.add(timer.getBytes());
+        }
+
+        void recordError() {
+            errors.increment();
+        }
+
+        void recordCacheHit() {
+            cacheHits.increment();
+        }
+
+        synchronized void recordRender(long nanos) {
+            phase(Phase.RENDER).record(nanos);
+        }
+
+        private LatencyHistogram phase(Phase phase) {
+            LatencyHistogram histogram = phases[phase.ordinal()];
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                phases[phase.ordinal()] = histogram;
+            }
+            return histogram;
+        }
+
+        public long getDigest() {
+            return digest;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getCacheHits() {
+            return cacheHits.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public synchronized long getPercentileNanos(double percentile) {
+            return total.getValueAtPercentile(percentile);
+        }
+
+        public synchronized long getPhasePercentileNanos(Phase phase, double percentile) {
+            LatencyHistogram histogram = phases[phase.ordinal()];
+            return histogram != null ? histogram.getValueAtPercentile(percentile) : 0;
+        }
+
+        public double getRowsPerSecond() {
+            long nanos = getTotalNanos();
+            return nanos == 0 ? 0.0 : getRows() * 1_000_000_000.0 / nanos;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.dbtool.core;
+
+/**
+ * 单条语句的分阶段计时（System.nanoTime）：每次 mark 把距上一次 mark 的时间计入指定阶段。
+ * 同时记录读取的数据量（估算字节数）。
+ */
+public class StatementTimer {
+    private final long startNanos;
+    private long lastNanos;
+    private final long[] phaseNanos = new long[StatementStats.Phase.values().length];
+    private long bytes = 0;
+    private int marked = 0;
+
+    public StatementTimer() {
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    public void mark(StatementStats.Phase phase) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - lastNanos;
+        marked |= 1 << phase.ordinal();
+        lastNanos = now;
+    }
+
+    /**
+     * 把一段已计入 from 的时间改记到 to（例如流式读取时处理器输出占用的时间）
+     */
+    public void move(StatementStats.Phase from, StatementStats.Phase to, long nanos) {
+        nanos = Math.min(nanos, phaseNanos[from.ordinal()]);
+        phaseNanos[from.ordinal()] -= nanos;
+        phaseNanos[to.ordinal()] += nanos;
+        marked |= 1 << to.ordinal();
+    }
+
+    public void addBytes(long bytes) {
+        this.bytes += bytes;
+    }
+
+    public long getNanos(StatementStats.Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * 语句是否经历了这个阶段（更新语句没有 first_row 和 fetch）
+     */
+    public boolean isMarked(StatementStats.Phase phase) {
+        return (marked & (1 << phase.ordinal())) != 0;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 从开始到最后一次 mark 的时间
+     */
+    public long getMarkedNanos() {
+        return lastNanos - startNanos;
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
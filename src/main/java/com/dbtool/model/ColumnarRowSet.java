@@ -0,0 +1,438 @@
+package com.dbtool.model;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 列式结果集存储。
+ * int/long/double 列使用基本类型数组，字符串列做字典编码，空值记录在位图中，
+ * 避免每行一个 LinkedHashMap、每个单元格一个装箱对象的开销。
+ */
+public class ColumnarRowSet extends RowSet {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Column[] columns;
+    private int rowCount = 0;
+    private int capacity = INITIAL_CAPACITY;
+
+    /**
+     * @param columnClassNames 每列值的 Java 类名（与 ResultSetMetaData.getColumnClassName 一致），
+     *                         决定列的存储方式；为 null 时全部按对象存储
+     */
+    public ColumnarRowSet(List<String> columnNames, List<String> columnClassNames) {
+        super(columnNames);
+        this.columns = new Column[columnNames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            String className = columnClassNames != null ? columnClassNames.get(i) : null;
+            columns[i] = Column.forClassName(className, capacity);
+        }
+    }
+
+    /**
+     * 读取整个 ResultSet
+     */
+    public static ColumnarRowSet readAll(ResultSet rs) throws SQLException {
+        return readAll(rs, null);
+    }
+
+    /**
+     * 读取整个 ResultSet，同时把已读取的行数写入 counter（供其他线程显示进度）
+     */
+    public static ColumnarRowSet readAll(ResultSet rs, AtomicLong counter) throws SQLException {
+        ColumnarRowSet rowSet = forMetaData(rs.getMetaData());
+        while (rs.next()) {
+            rowSet.appendRow(rs);
+            if (counter != null) {
+                counter.lazySet(rowSet.size());
+            }
+        }
+        return rowSet;
+    }
+
+    public static ColumnarRowSet forMetaData(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> names = new ArrayList<>(columnCount);
+        List<String> classNames = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            names.add(metaData.getColumnLabel(i));
+            classNames.add(metaData.getColumnClassName(i));
+        }
+        return new ColumnarRowSet(names, classNames);
+    }
+
+    /**
+     * 追加 ResultSet 的当前行，基本类型列直接用 getInt/getLong/getDouble 读取，不装箱
+     */
+    public void appendRow(ResultSet rs) throws SQLException {
+        ensureCapacity();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, rowCount);
+        }
+        rowCount++;
+    }
+
+    /**
+     * 追加一行对象值；类型与列不符时该列退化为对象存储
+     */
+    public void addRow(Object[] values) {
+        ensureCapacity();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = i < values.length ? values[i] : null;
+            if (value != null && !columns[i].accepts(value)) {
+                columns[i] = columns[i].toObjectColumn(rowCount, capacity);
+            }
+            columns[i].set(rowCount, value);
+        }
+        rowCount++;
+    }
+
+    private void ensureCapacity() {
+        if (rowCount < capacity) {
+            return;
+        }
+        int newCapacity = capacity + (capacity >> 1) + 1;
+        for (Column column : columns) {
+            column.grow(newCapacity);
+        }
+        capacity = newCapacity;
+    }
+
+    @Override
+    public Object getValue(int row, int column) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range (size " + rowCount + ")");
+        }
+        return columns[column].get(row);
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 64;
+        for (Column column : columns) {
+            bytes += column.estimatedBytes(rowCount);
+        }
+        return bytes;
+    }
+
+    // ========== 列实现 ==========
+
+    private abstract static class Column {
+        protected long[] nulls;
+
+        Column(int capacity) {
+            this.nulls = new long[(capacity >> 6) + 1];
+        }
+
+        static Column forClassName(String className, int capacity) {
+            if (className == null) {
+                return new ObjectColumn(capacity);
+            }
+            switch (className) {
+                case "java.lang.Integer":
+                    return new IntColumn(capacity);
+                case "java.lang.Long":
+                    return new LongColumn(capacity);
+                case "java.lang.Double":
+                    return new DoubleColumn(capacity);
+                case "java.lang.String":
+                    return new StringColumn(capacity);
+                default:
+                    return new ObjectColumn(capacity);
+            }
+        }
+
+        boolean isNull(int row) {
+            return (nulls[row >> 6] & (1L << row)) != 0;
+        }
+
+        void setNull(int row, boolean isNull) {
+            if (isNull) {
+                nulls[row >> 6] |= 1L << row;
+            } else {
+                nulls[row >> 6] &= ~(1L << row);
+            }
+        }
+
+        void grow(int newCapacity) {
+            nulls = Arrays.copyOf(nulls, (newCapacity >> 6) + 1);
+            growValues(newCapacity);
+        }
+
+        Object get(int row) {
+            return isNull(row) ? null : getNonNull(row);
+        }
+
+        void set(int row, Object value) {
+            setNull(row, value == null);
+            if (value != null) {
+                setNonNull(row, value);
+            }
+        }
+
+        ObjectColumn toObjectColumn(int rows, int capacity) {
+            ObjectColumn column = new ObjectColumn(capacity);
+            for (int i = 0; i < rows; i++) {
+                column.set(i, get(i));
+            }
+            return column;
+        }
+
+        long nullBitmapBytes() {
+            return 16 + nulls.length * 8L;
+        }
+
+        abstract void read(ResultSet rs, int columnIndex, int row) throws SQLException;
+        abstract boolean accepts(Object value);
+        abstract Object getNonNull(int row);
+        abstract void setNonNull(int row, Object value);
+        abstract void growValues(int newCapacity);
+        abstract long estimatedBytes(int rows);
+    }
+
+    private static class IntColumn extends Column {
+        private int[] values;
+
+        IntColumn(int capacity) {
+            super(capacity);
+            values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+            values[row] = rs.getInt(columnIndex);
+            setNull(row, rs.wasNull());
+        }
+
+        @Override
+        boolean accepts(Object value) { return value instanceof Integer; }
+
+        @Override
+        Object getNonNull(int row) { return values[row]; }
+
+        @Override
+        void setNonNull(int row, Object value) { values[row] = (Integer) value; }
+
+        @Override
+        void growValues(int newCapacity) { values = Arrays.copyOf(values, newCapacity); }
+
+        @Override
+        long estimatedBytes(int rows) { return nullBitmapBytes() + 16 + values.length * 4L; }
+    }
+
+    private static class LongColumn extends Column {
+        private long[] values;
+
+        LongColumn(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+            values[row] = rs.getLong(columnIndex);
+            setNull(row, rs.wasNull());
+        }
+
+        @Override
+        boolean accepts(Object value) { return value instanceof Long; }
+
+        @Override
+        Object getNonNull(int row) { return values[row]; }
+
+        @Override
+        void setNonNull(int row, Object value) { values[row] = (Long) value; }
+
+        @Override
+        void growValues(int newCapacity) { values = Arrays.copyOf(values, newCapacity); }
+
+        @Override
+        long estimatedBytes(int rows) { return nullBitmapBytes() + 16 + values.length * 8L; }
+    }
+
+    private static class DoubleColumn extends Column {
+        private double[] values;
+
+        DoubleColumn(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+            values[row] = rs.getDouble(columnIndex);
+            setNull(row, rs.wasNull());
+        }
+
+        @Override
+        boolean accepts(Object value) { return value instanceof Double; }
+
+        @Override
+        Object getNonNull(int row) { return values[row]; }
+
+        @Override
+        void setNonNull(int row, Object value) { values[row] = (Double) value; }
+
+        @Override
+        void growValues(int newCapacity) { values = Arrays.copyOf(values, newCapacity); }
+
+        @Override
+        long estimatedBytes(int rows) { return nullBitmapBytes() + 16 + values.length * 8L; }
+    }
+
+    /**
+     * 字典编码的字符串列；不同值过多时退化为直接存储
+     */
+    private static class StringColumn extends Column {
+        private static final int DICTIONARY_LIMIT = 1 << 16;
+
+        private int[] codes;
+        private List<String> dictionary = new ArrayList<>();
+        private Map<String, Integer> lookup = new HashMap<>();
+        private String[] plain;
+
+        StringColumn(int capacity) {
+            super(capacity);
+            codes = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+            set(row, rs.getString(columnIndex));
+        }
+
+        @Override
+        boolean accepts(Object value) { return value instanceof String; }
+
+        @Override
+        Object getNonNull(int row) {
+            return plain != null ? plain[row] : dictionary.get(codes[row]);
+        }
+
+        @Override
+        void setNonNull(int row, Object value) {
+            String str = (String) value;
+            if (plain != null) {
+                plain[row] = str;
+                return;
+            }
+
+            Integer code = lookup.get(str);
+            if (code == null) {
+                if (dictionary.size() >= DICTIONARY_LIMIT) {
+                    switchToPlain(row);
+                    plain[row] = str;
+                    return;
+                }
+                code = dictionary.size();
+                dictionary.add(str);
+                lookup.put(str, code);
+            }
+            codes[row] = code;
+        }
+
+        private void switchToPlain(int rows) {
+            plain = new String[codes.length];
+            for (int i = 0; i < rows; i++) {
+                if (!isNull(i)) {
+                    plain[i] = dictionary.get(codes[i]);
+                }
+            }
+            codes = null;
+            dictionary = null;
+            lookup = null;
+        }
+
+        @Override
+        void growValues(int newCapacity) {
+            if (plain != null) {
+                plain = Arrays.copyOf(plain, newCapacity);
+            } else {
+                codes = Arrays.copyOf(codes, newCapacity);
+            }
+        }
+
+        @Override
+        long estimatedBytes(int rows) {
+            long bytes = nullBitmapBytes();
+            if (plain != null) {
+                bytes += 16 + plain.length * 4L;
+                for (int i = 0; i < rows; i++) {
+                    if (plain[i] != null) {
+                        bytes += 40 + plain[i].length();
+                    }
+                }
+            } else {
+                bytes += 16 + codes.length * 4L;
+                for (String value : dictionary) {
+                    bytes += 40 + value.length() + 48;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        private Object[] values;
+
+        ObjectColumn(int capacity) {
+            super(capacity);
+            values = new Object[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+            set(row, rs.getObject(columnIndex));
+        }
+
+        @Override
+        boolean accepts(Object value) { return true; }
+
+        @Override
+        Object getNonNull(int row) { return values[row]; }
+
+        @Override
+        void setNonNull(int row, Object value) { values[row] = value; }
+
+        @Override
+        void set(int row, Object value) {
+            super.set(row, value);
+            if (value == null) {
+                values[row] = null;
+            }
+        }
+
+        @Override
+        void growValues(int newCapacity) { values = Arrays.copyOf(values, newCapacity); }
+
+        @Override
+        ObjectColumn toObjectColumn(int rows, int capacity) { return this; }
+
+        @Override
+        long estimatedBytes(int rows) {
+            long bytes = nullBitmapBytes() + 16 + values.length * 4L;
+            for (int i = 0; i < rows; i++) {
+                Object value = values[i];
+                if (value instanceof String) {
+                    bytes += 40 + ((String) value).length();
+                } else if (value instanceof byte[]) {
+                    bytes += 16 + ((byte[]) value).length;
+                } else if (value != null) {
+                    bytes += 32;
+                }
+            }
+            return bytes;
+        }
+    }
+}
@@ -54,4 +54,14 @@ public class QueryResult {
     public int getRowCount() { return rowCount; }
     public long getExecutionTime() { return executionTime; }
     public boolean isQueryResult() { return data != null; }
+
+    /**
+     * 按下标读取单元格；列式存储时直接读取，不创建行视图
+     */
+    public Object getValue(int row, int column) {
+        if (data instanceof RowSet) {
+            return ((RowSet) data).getValue(row, column);
+        }
+        return data.get(row).get(columnNames.get(column));
+    }
 }
\ No newline at end of file
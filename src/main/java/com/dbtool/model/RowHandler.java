@@ -0,0 +1,28 @@
+package com.dbtool.model;
+
+import java.io.IOException;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 流式结果处理器：逐行接收查询结果，不在内存中保留整个结果集
+ */
+public interface RowHandler {
+
+    /**
+     * 结果集开始，在读取第一行之前调用
+     */
+    void start(ResultSetMetaData metaData) throws SQLException, IOException;
+
+    /**
+     * 处理一行数据。values 数组每行新建，处理器可以直接持有
+     *
+     * @return 返回 false 时停止读取后续行
+     */
+    boolean row(Object[] values) throws IOException;
+
+    /**
+     * 结果集结束（包括被提前停止的情况）
+     */
+    void end(long rowCount, long elapsedMs) throws IOException;
+}
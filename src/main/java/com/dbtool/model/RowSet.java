@@ -0,0 +1,146 @@
+package com.dbtool.model;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 只读结果集存储的基类。
+ * 按 (行, 列) 下标取值；对外仍表现为 List<Map<String, Object>>，
+ * 每一行是轻量的行视图，不复制数据。
+ */
+public abstract class RowSet extends AbstractList<Map<String, Object>> {
+    protected final List<String> columnNames;
+
+    // 行视图的键：与原来 LinkedHashMap 行为一致，重复列名只保留一个（取最后一列的值）
+    private final List<String> viewKeys;
+    private final int[] viewColumns;
+    private final Map<String, Integer> keyToColumn;
+
+    protected RowSet(List<String> columnNames) {
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+
+        Map<String, Integer> lookup = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            String name = columnNames.get(i);
+            if (lookup.put(name, i) == null) {
+                keys.add(name);
+            }
+        }
+        this.keyToColumn = lookup;
+        this.viewKeys = keys;
+        this.viewColumns = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            viewColumns[i] = lookup.get(keys.get(i));
+        }
+    }
+
+    /**
+     * 读取单元格的值，列下标从 0 开始
+     */
+    public abstract Object getValue(int row, int column);
+
+    /**
+     * 估算占用的堆内存字节数
+     */
+    public abstract long estimatedBytes();
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    /**
+     * 列名对应的列下标，不存在时返回 -1
+     */
+    public int columnIndex(String columnName) {
+        Integer index = keyToColumn.get(columnName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 释放底层资源（例如临时文件），默认无操作
+     */
+    public void close() {
+    }
+
+    @Override
+    public Map<String, Object> get(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range (size " + size() + ")");
+        }
+        return new RowView(row);
+    }
+
+    /**
+     * 单行的只读 Map 视图
+     */
+    private class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = keyToColumn.get(key);
+            return column != null ? getValue(row, column) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return keyToColumn.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return viewKeys.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < viewKeys.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            String key = viewKeys.get(index);
+                            Object value = getValue(row, viewColumns[index]);
+                            index++;
+                            return new SimpleImmutableEntry<>(key, value);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return viewKeys.size();
+                }
+            };
+        }
+    }
+}
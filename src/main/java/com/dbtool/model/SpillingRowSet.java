@@ -0,0 +1,522 @@
+package com.dbtool.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可溢出到磁盘的结果集：前 memoryLimit 字节的行保存在堆上的 ColumnarRowSet 中，
+ * 之后的行按紧凑的行格式写入内存映射的临时文件（每段 64 MB），堆上只保留每 64 行一个的偏移索引。
+ * 随机读取某一行时从最近的索引位置向后解码；顺序读取（导出、翻页）时沿用上一行的位置，每行只解码一次。
+ * 不再使用时调用 close() 删除临时文件；未关闭的实例被回收时也会清理。
+ */
+public class SpillingRowSet extends RowSet {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int INDEX_STRIDE = 64;
+    // 首次估算堆内存占用的行数，之后按平均行大小预测下一次检查的位置
+    private static final int FIRST_CHECK_ROWS = 4096;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte STRING = 5;
+    private static final byte BYTES = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte TIMESTAMP = 9;
+    private static final byte DATE = 10;
+    private static final byte TIME = 11;
+    private static final byte LOCAL_DATE_TIME = 12;
+    private static final byte LOCAL_DATE = 13;
+    private static final byte LOCAL_TIME = 14;
+    private static final byte BIG_INTEGER = 15;
+    private static final byte SHORT = 16;
+    private static final byte BYTE = 17;
+
+    private final ColumnarRowSet head;
+    private final long memoryLimit;
+    private final File spillDir;
+    private long nextCheck = FIRST_CHECK_ROWS;
+
+    // 溢出部分
+    private SpillFile file;
+    private Cleaner.Cleanable cleanable;
+    private int spilledRows = 0;
+    private long[] index = new long[16];
+    private ByteBuffer encodeBuffer;
+    private boolean closed = false;
+
+    // 最近解码的一行，顺序读取时从它的下一行继续
+    private int cachedRow = -1;
+    private Object[] cachedValues;
+    // 这一行结束的位置（段号 << 32 | 段内位置）
+    private long cachedEnd;
+
+    /**
+     * @param memoryLimit 堆上保存的最大字节数（估算），0 或负数表示不溢出
+     * @param spillDir    临时文件目录，为 null 时使用系统临时目录
+     */
+    public SpillingRowSet(List<String> columnNames, List<String> columnClassNames, long memoryLimit, File spillDir) {
+        super(columnNames);
+        this.head = new ColumnarRowSet(columnNames, columnClassNames);
+        this.memoryLimit = memoryLimit;
+        this.spillDir = spillDir;
+    }
+
+    public static SpillingRowSet forMetaData(ResultSetMetaData metaData, long memoryLimit, File spillDir)
+            throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> names = new ArrayList<>(columnCount);
+        List<String> classNames = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            names.add(metaData.getColumnLabel(i));
+            classNames.add(metaData.getColumnClassName(i));
+        }
+        return new SpillingRowSet(names, classNames, memoryLimit, spillDir);
+    }
+
+    /**
+     * 追加 ResultSet 的当前行；写临时文件失败时抛出 SQLException
+     */
+    public void appendRow(ResultSet rs) throws SQLException {
+        if (file == null && !shouldSpill()) {
+            head.appendRow(rs);
+            return;
+        }
+        Object[] values = new Object[columnNames.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+        try {
+            spill(values);
+        } catch (IOException e) {
+            throw new SQLException("Failed to spill result to disk: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 追加一行对象值
+     */
+    public void addRow(Object[] values) {
+        if (file == null && !shouldSpill()) {
+            head.addRow(values);
+            return;
+        }
+        try {
+            spill(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill result to disk", e);
+        }
+    }
+
+    /**
+     * 是否已经有行写入临时文件
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * 临时文件中已写入的字节数
+     */
+    public synchronized long getSpilledBytes() {
+        return file != null ? file.writtenBytes() : 0;
+    }
+
+    public int getSpilledRows() {
+        return spilledRows;
+    }
+
+    // 堆上的行数到达检查点时估算内存占用，超过上限后开始溢出
+    private boolean shouldSpill() {
+        int rows = head.size();
+        if (memoryLimit <= 0 || rows < nextCheck) {
+            return false;
+        }
+        long bytes = head.estimatedBytes();
+        if (bytes >= memoryLimit) {
+            return true;
+        }
+        long perRow = Math.max(1, bytes / Math.max(1, rows));
+        nextCheck = rows + Math.max(1024, Math.min(rows, (memoryLimit - bytes) / perRow));
+        return false;
+    }
+
+    private synchronized void spill(Object[] values) throws IOException {
+        if (closed) {
+            throw new IOException("Result has been closed");
+        }
+        if (file == null) {
+            file = new SpillFile(spillDir);
+            cleanable = CLEANER.register(this, file);
+            encodeBuffer = ByteBuffer.allocate(1024);
+        }
+
+        encodeBuffer.clear();
+        for (int i = 0; i < columnNames.size(); i++) {
+            encode(i < values.length ? values[i] : null);
+        }
+        encodeBuffer.flip();
+
+        long address = file.append(encodeBuffer);
+        if (spilledRows % INDEX_STRIDE == 0) {
+            int slot = spilledRows / INDEX_STRIDE;
+            if (slot == index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[slot] = address;
+        }
+        spilledRows++;
+    }
+
+    @Override
+    public Object getValue(int row, int column) {
+        int headRows = head.size();
+        if (row < headRows) {
+            return head.getValue(row, column);
+        }
+        if (row >= headRows + spilledRows) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range (size " + size() + ")");
+        }
+        return readSpilledRow(row - headRows)[column];
+    }
+
+    private synchronized Object[] readSpilledRow(int row) {
+        if (closed) {
+            throw new IllegalStateException("Result has been closed");
+        }
+        if (row == cachedRow) {
+            return cachedValues;
+        }
+
+        // 上一次读取结束的位置在读取时才换算成下一行的地址：之后追加的行可能已经开始了新的段
+        int current;
+        long address;
+        if (row == cachedRow + 1) {
+            current = row;
+            address = file.nextAddress(cachedEnd);
+        } else {
+            // 从不超过目标行的最近索引位置开始（向后读取同一段时也沿用当前位置）
+            int slot = row / INDEX_STRIDE;
+            if (cachedRow >= 0 && cachedRow < row && cachedRow / INDEX_STRIDE == slot) {
+                current = cachedRow + 1;
+                address = file.nextAddress(cachedEnd);
+            } else {
+                current = slot * INDEX_STRIDE;
+                address = index[slot];
+            }
+        }
+
+        Object[] values = new Object[columnNames.size()];
+        long end;
+        while (true) {
+            ByteBuffer segment = file.segment((int) (address >>> 32));
+            int position = (int) address;
+            for (int i = 0; i < values.length; i++) {
+                position = decode(segment, position, values, i);
+            }
+            end = (address & 0xFFFFFFFF00000000L) | position;
+            if (current == row) {
+                break;
+            }
+            address = file.nextAddress(end);
+            current++;
+        }
+        cachedRow = row;
+        cachedValues = values;
+        cachedEnd = end;
+        return values;
+    }
+
+    @Override
+    public int size() {
+        return head.size() + spilledRows;
+    }
+
+    /**
+     * 堆上的估算大小（不含临时文件）
+     */
+    @Override
+    public long estimatedBytes() {
+        return head.estimatedBytes() + index.length * 8L;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        cachedValues = null;
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+    }
+
+    // ========== 行编码 ==========
+
+    private void encode(Object value) {
+        if (value == null) {
+            ensureRoom(1);
+            encodeBuffer.put(NULL);
+        } else if (value instanceof Integer) {
+            ensureRoom(5);
+            encodeBuffer.put(INT).putInt((Integer) value);
+        } else if (value instanceof Long) {
+            ensureRoom(9);
+            encodeBuffer.put(LONG).putLong((Long) value);
+        } else if (value instanceof Double) {
+            ensureRoom(9);
+            encodeBuffer.put(DOUBLE).putDouble((Double) value);
+        } else if (value instanceof Float) {
+            ensureRoom(5);
+            encodeBuffer.put(FLOAT).putFloat((Float) value);
+        } else if (value instanceof Short) {
+            ensureRoom(3);
+            encodeBuffer.put(SHORT).putShort((Short) value);
+        } else if (value instanceof Byte) {
+            ensureRoom(2);
+            encodeBuffer.put(BYTE).put((Byte) value);
+        } else if (value instanceof Boolean) {
+            ensureRoom(2);
+            encodeBuffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof java.sql.Timestamp) {
+            java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+            ensureRoom(13);
+            encodeBuffer.put(TIMESTAMP).putLong(timestamp.getTime()).putInt(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            ensureRoom(9);
+            encodeBuffer.put(DATE).putLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.sql.Time) {
+            ensureRoom(9);
+            encodeBuffer.put(TIME).putLong(((java.sql.Time) value).getTime());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            ensureRoom(5 + bytes.length);
+            encodeBuffer.put(BYTES).putInt(bytes.length).put(bytes);
+        } else if (value instanceof BigDecimal) {
+            encodeText(DECIMAL, value.toString());
+        } else if (value instanceof BigInteger) {
+            encodeText(BIG_INTEGER, value.toString());
+        } else if (value instanceof LocalDateTime) {
+            encodeText(LOCAL_DATE_TIME, value.toString());
+        } else if (value instanceof LocalDate) {
+            encodeText(LOCAL_DATE, value.toString());
+        } else if (value instanceof LocalTime) {
+            encodeText(LOCAL_TIME, value.toString());
+        } else {
+            // 其他类型按显示的文本保存
+            encodeText(STRING, value.toString());
+        }
+    }
+
+    private void encodeText(byte tag, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(5 + bytes.length);
+        encodeBuffer.put(tag).putInt(bytes.length).put(bytes);
+    }
+
+    private void ensureRoom(int bytes) {
+        if (encodeBuffer.remaining() >= bytes) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(encodeBuffer.capacity() * 2, encodeBuffer.position() + bytes));
+        encodeBuffer.flip();
+        larger.put(encodeBuffer);
+        encodeBuffer = larger;
+    }
+
+    /**
+     * 解码 position 处的一个值放入 values[column]，返回下一个值的位置
+     */
+    private static int decode(ByteBuffer segment, int position, Object[] values, int column) {
+        byte tag = segment.get(position++);
+        switch (tag) {
+            case NULL:
+                values[column] = null;
+                return position;
+            case INT:
+                values[column] = segment.getInt(position);
+                return position + 4;
+            case LONG:
+                values[column] = segment.getLong(position);
+                return position + 8;
+            case DOUBLE:
+                values[column] = segment.getDouble(position);
+                return position + 8;
+            case FLOAT:
+                values[column] = segment.getFloat(position);
+                return position + 4;
+            case SHORT:
+                values[column] = segment.getShort(position);
+                return position + 2;
+            case BYTE:
+                values[column] = segment.get(position);
+                return position + 1;
+            case BOOLEAN:
+                values[column] = segment.get(position) != 0;
+                return position + 1;
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(segment.getLong(position));
+                timestamp.setNanos(segment.getInt(position + 8));
+                values[column] = timestamp;
+                return position + 12;
+            case DATE:
+                values[column] = new java.sql.Date(segment.getLong(position));
+                return position + 8;
+            case TIME:
+                values[column] = new java.sql.Time(segment.getLong(position));
+                return position + 8;
+            default:
+                break;
+        }
+
+        int length = segment.getInt(position);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = segment.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        position += 4 + length;
+        if (tag == BYTES) {
+            values[column] = bytes;
+            return position;
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        switch (tag) {
+            case DECIMAL:
+                values[column] = new BigDecimal(text);
+                break;
+            case BIG_INTEGER:
+                values[column] = new BigInteger(text);
+                break;
+            case LOCAL_DATE_TIME:
+                values[column] = LocalDateTime.parse(text);
+                break;
+            case LOCAL_DATE:
+                values[column] = LocalDate.parse(text);
+                break;
+            case LOCAL_TIME:
+                values[column] = LocalTime.parse(text);
+                break;
+            default:
+                values[column] = text;
+                break;
+        }
+        return position;
+    }
+
+    /**
+     * 临时文件及其映射段。行不跨段：当前段放不下时从新段开始，超过段大小的行单独占一段。
+     * 地址为 段号 << 32 | 段内位置。作为 Cleaner 的清理动作，不能引用外层的 SpillingRowSet
+     */
+    private static class SpillFile implements Runnable {
+        // 关闭时没能删除的文件，由一个关闭钩子统一删除（不为每个文件调用 deleteOnExit）
+        private static final Set<Path> UNDELETED = ConcurrentHashMap.newKeySet();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (Path path : UNDELETED) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        // 忽略
+                    }
+                }
+            }, "spill-cleanup"));
+        }
+
+        private final Path path;
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+        // 每段已写入的字节数
+        private final List<Integer> used = new ArrayList<>();
+        private long fileSize = 0;
+
+        SpillFile(File dir) throws IOException {
+            path = dir != null
+                    ? Files.createTempFile(dir.toPath(), "dbtool-result-", ".spill")
+                    : Files.createTempFile("dbtool-result-", ".spill");
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        long append(ByteBuffer row) throws IOException {
+            int length = row.remaining();
+            int last = segments.size() - 1;
+            if (last < 0 || segments.get(last).capacity() - used.get(last) < length) {
+                int size = Math.max(SEGMENT_BYTES, length);
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, fileSize, size));
+                used.add(0);
+                fileSize += size;
+                last++;
+            }
+            MappedByteBuffer segment = segments.get(last);
+            int position = used.get(last);
+            segment.position(position);
+            segment.put(row);
+            used.set(last, position + length);
+            return (long) last << 32 | position;
+        }
+
+        ByteBuffer segment(int number) {
+            return segments.get(number);
+        }
+
+        // 一行结束于 end（段号 << 32 | 段内位置）：同一段还有数据时继续，否则是下一段的开头
+        long nextAddress(long end) {
+            int number = (int) (end >>> 32);
+            int position = (int) end;
+            if (position >= used.get(number) && number + 1 < segments.size()) {
+                return (long) (number + 1) << 32;
+            }
+            return end;
+        }
+
+        long writtenBytes() {
+            long bytes = 0;
+            for (int size : used) {
+                bytes += size;
+            }
+            return bytes;
+        }
+
+        @Override
+        public void run() {
+            segments.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略关闭错误
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // 仍被映射时（Windows）无法删除，退出时再删
+                UNDELETED.add(path);
+            }
+        }
+    }
+}
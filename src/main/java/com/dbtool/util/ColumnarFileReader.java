@@ -0,0 +1,284 @@
+package com.dbtool.util;
+
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.dbtool.util.ColumnarFileWriter.*;
+
+/**
+ * 读取 ColumnarFileWriter 写出的列式文件
+ */
+public class ColumnarFileReader {
+
+    private final String filename;
+    private List<String> columnNames;
+    private byte[] kinds;
+    private long totalRows;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+
+    public ColumnarFileReader(String filename) {
+        this.filename = filename;
+    }
+
+    /**
+     * 读取整个文件为查询结果
+     */
+    public static QueryResult read(String filename) {
+        long startTime = System.currentTimeMillis();
+        try {
+            ColumnarFileReader reader = new ColumnarFileReader(filename);
+            ColumnarRowSet data = reader.readAll();
+            long elapsed = System.currentTimeMillis() - startTime;
+            String message = String.format("Read %d rows in %d row group(s) from %s (%d ms)",
+                    data.size(), reader.getRowGroupCount(), filename, elapsed);
+            return QueryResult.success(message, data, data.getColumnNames(), data.size(), elapsed);
+        } catch (IOException e) {
+            return QueryResult.error("Failed to read " + filename + ": " + e.getMessage());
+        }
+    }
+
+    public ColumnarRowSet readAll() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            readFooter(channel);
+
+            List<String> classNames = new ArrayList<>();
+            for (byte kind : kinds) {
+                classNames.add(classNameForKind(kind));
+            }
+            ColumnarRowSet rowSet = new ColumnarRowSet(columnNames, classNames);
+
+            for (RowGroup group : rowGroups) {
+                Object[][] columns = new Object[kinds.length][];
+                for (int c = 0; c < kinds.length; c++) {
+                    ChunkInfo chunk = group.chunks[c];
+                    byte[] raw = inflate(readBytes(channel, chunk.offset, chunk.compressedLength), chunk.rawLength);
+                    columns[c] = decodeColumn(raw, kinds[c], group.rowCount);
+                }
+
+                Object[] row = new Object[kinds.length];
+                for (int r = 0; r < group.rowCount; r++) {
+                    for (int c = 0; c < kinds.length; c++) {
+                        row[c] = columns[c][r];
+                    }
+                    rowSet.addRow(row);
+                }
+            }
+            return rowSet;
+        }
+    }
+
+    private void readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length * 2 + 6) {
+            throw new IOException("File is too small to be a columnar export");
+        }
+
+        byte[] header = readBytes(channel, 0, MAGIC.length + 2);
+        if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a columnar export file");
+        }
+        int version = ((header[4] & 0xff) << 8) | (header[5] & 0xff);
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar file version: " + version);
+        }
+
+        ByteBuffer trailer = ByteBuffer.wrap(readBytes(channel, size - 8, 8));
+        int footerLength = trailer.getInt();
+        byte[] tailMagic = new byte[MAGIC.length];
+        trailer.get(tailMagic);
+        if (!Arrays.equals(tailMagic, MAGIC) || footerLength <= 0 || footerLength > size - 14) {
+            throw new IOException("Columnar file footer is missing or corrupt");
+        }
+
+        DataInputStream footer = new DataInputStream(
+                new ByteArrayInputStream(readBytes(channel, size - 8 - footerLength, footerLength)));
+
+        int columnCount = footer.readInt();
+        columnNames = new ArrayList<>(columnCount);
+        kinds = new byte[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            columnNames.add(footer.readUTF());
+            kinds[c] = footer.readByte();
+        }
+
+        totalRows = footer.readLong();
+        int groupCount = footer.readInt();
+        rowGroups.clear();
+        for (int g = 0; g < groupCount; g++) {
+            RowGroup group = new RowGroup(footer.readInt(), columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                ChunkInfo chunk = new ChunkInfo();
+                chunk.offset = footer.readLong();
+                chunk.compressedLength = footer.readInt();
+                chunk.rawLength = footer.readInt();
+                chunk.nullCount = footer.readInt();
+                chunk.hasStats = footer.readBoolean();
+                if (chunk.hasStats) {
+                    switch (kinds[c]) {
+                        case KIND_INT:
+                        case KIND_LONG:
+                        case KIND_BOOLEAN:
+                            chunk.min = footer.readLong();
+                            chunk.max = footer.readLong();
+                            break;
+                        case KIND_DOUBLE:
+                            chunk.min = footer.readDouble();
+                            chunk.max = footer.readDouble();
+                            break;
+                        default:
+                            chunk.min = footer.readUTF();
+                            chunk.max = footer.readUTF();
+                            break;
+                    }
+                }
+                group.chunks[c] = chunk;
+            }
+            rowGroups.add(group);
+        }
+    }
+
+    private static Object[] decodeColumn(byte[] raw, byte kind, int rowCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        byte[] nullBitmap = new byte[(rowCount + 7) / 8];
+        buffer.get(nullBitmap);
+
+        Object[] values = new Object[rowCount];
+        for (int r = 0; r < rowCount; r++) {
+            if ((nullBitmap[r >> 3] & (1 << (r & 7))) != 0) {
+                continue;
+            }
+            switch (kind) {
+                case KIND_INT:
+                    values[r] = buffer.getInt();
+                    break;
+                case KIND_LONG:
+                    values[r] = buffer.getLong();
+                    break;
+                case KIND_DOUBLE:
+                    values[r] = buffer.getDouble();
+                    break;
+                case KIND_BOOLEAN:
+                    values[r] = buffer.get() != 0;
+                    break;
+                case KIND_BINARY: {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    values[r] = bytes;
+                    break;
+                }
+                case KIND_STRING: {
+                    int length = buffer.getInt();
+                    values[r] = new String(raw, buffer.position(), length, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + length);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown column kind: " + kind);
+            }
+        }
+        return values;
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int total = 0;
+            while (total < rawLength) {
+                int n = inflater.inflate(raw, total, rawLength - total);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total != rawLength) {
+                throw new IOException("Column chunk is truncated");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Column chunk is corrupt: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static String classNameForKind(byte kind) {
+        switch (kind) {
+            case KIND_INT:
+                return "java.lang.Integer";
+            case KIND_LONG:
+                return "java.lang.Long";
+            case KIND_DOUBLE:
+                return "java.lang.Double";
+            case KIND_STRING:
+                return "java.lang.String";
+            default:
+                return null;
+        }
+    }
+
+    public List<String> getColumnNames() { return columnNames; }
+    public long getTotalRows() { return totalRows; }
+    public int getRowGroupCount() { return rowGroups.size(); }
+
+    /**
+     * 某个行组中某列的最小值（没有统计信息时为 null）
+     */
+    public Object getMin(int rowGroup, int column) { return rowGroups.get(rowGroup).chunks[column].min; }
+
+    public Object getMax(int rowGroup, int column) { return rowGroups.get(rowGroup).chunks[column].max; }
+
+    /**
+     * 只读取索引（不读取数据）
+     */
+    public void open() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            readFooter(channel);
+        }
+    }
+
+    private static class RowGroup {
+        final int rowCount;
+        final ChunkInfo[] chunks;
+
+        RowGroup(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.chunks = new ChunkInfo[columnCount];
+        }
+    }
+
+    private static class ChunkInfo {
+        long offset;
+        int compressedLength;
+        int rawLength;
+        int nullCount;
+        boolean hasStats;
+        Object min;
+        Object max;
+    }
+}
@@ -0,0 +1,469 @@
+package com.dbtool.util;
+
+import com.dbtool.model.QueryResult;
+import com.dbtool.model.RowHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 列式二进制导出（.dbc）。
+ * 按行组写入：每个行组内每列一个 Deflate 压缩的列块，带最小/最大值统计；
+ * 文件末尾是记录所有列块位置和统计信息的索引。可以边读查询游标边写入。
+ * 先写入 &lt;文件名&gt;.tmp，完整写完后才替换目标文件，失败或取消时不会留下不完整的文件。
+ *
+ * <pre>
+ * 文件:   MAGIC(4) VERSION(2) 列块... 索引 索引长度(4) MAGIC(4)
+ * 列块:   压缩前为 空值位图 + 非空值（定长，或 长度(4)+UTF-8 字节）
+ * </pre>
+ */
+public class ColumnarFileWriter implements RowHandler {
+    static final byte[] MAGIC = {'D', 'B', 'M', 'C'};
+    static final short VERSION = 1;
+
+    static final byte KIND_INT = 1;
+    static final byte KIND_LONG = 2;
+    static final byte KIND_DOUBLE = 3;
+    static final byte KIND_STRING = 4;
+    static final byte KIND_BOOLEAN = 5;
+    static final byte KIND_BINARY = 6;
+
+    // 超过此长度的字符串不记录最小/最大值
+    private static final int MAX_STATS_LENGTH = 256;
+
+    private final String filename;
+    private final Path tempFile;
+    private final int rowGroupSize;
+    private OutputStream out;
+    private long offset = 0;
+
+    private List<String> columnNames;
+    private byte[] kinds;
+    private Object[][] buffer;
+    private int bufferedRows = 0;
+    private long totalRows = 0;
+    private final List<RowGroupMeta> rowGroups = new ArrayList<>();
+
+    public ColumnarFileWriter(String filename) {
+        this(filename, ConfigLoader.getInt("export.columnar.rowgroup.rows", 65536));
+    }
+
+    public ColumnarFileWriter(String filename, int rowGroupSize) {
+        this.filename = filename;
+        this.tempFile = Paths.get(filename + ".tmp");
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+    }
+
+    /**
+     * 把内存中的查询结果写成列式文件。
+     * 列类型由整列的非空值决定，同一列中出现不同类型的值（例如 UNION 的各分支类型不同）时按文本保存
+     */
+    public static boolean export(QueryResult result, String filename) {
+        if (!result.isSuccess() || !result.isQueryResult()) {
+            System.err.println("Cannot export: " + result.getMessage());
+            return false;
+        }
+
+        List<String> columnNames = result.getColumnNames();
+        List<String> classNames = new ArrayList<>();
+        int rowCount = result.getData().size();
+        for (int c = 0; c < columnNames.size(); c++) {
+            String className = null;
+            for (int r = 0; r < rowCount; r++) {
+                Object value = result.getValue(r, c);
+                if (value == null) {
+                    continue;
+                }
+                if (className == null) {
+                    className = value.getClass().getName();
+                } else if (!matchesKind(kindForClassName(className), value)) {
+                    className = String.class.getName();
+                    break;
+                }
+            }
+            classNames.add(className);
+        }
+
+        ColumnarFileWriter writer = new ColumnarFileWriter(filename);
+        try {
+            writer.start(columnNames, classNames);
+            for (int r = 0; r < rowCount; r++) {
+                Object[] values = new Object[columnNames.size()];
+                for (int c = 0; c < values.length; c++) {
+                    values[c] = result.getValue(r, c);
+                }
+                writer.row(values);
+            }
+            writer.end(rowCount, 0);
+            return true;
+        } catch (IOException e) {
+            writer.abort();
+            System.err.println("Export failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+        List<String> names = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            names.add(metaData.getColumnLabel(i));
+            classNames.add(metaData.getColumnClassName(i));
+        }
+        start(names, classNames);
+    }
+
+    public void start(List<String> names, List<String> classNames) throws IOException {
+        this.columnNames = new ArrayList<>(names);
+        this.kinds = new byte[names.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = kindForClassName(classNames.get(i));
+        }
+        this.buffer = new Object[kinds.length][rowGroupSize];
+
+        out = new BufferedOutputStream(new FileOutputStream(tempFile.toFile()), 1 << 16);
+        out.write(MAGIC);
+        out.write(VERSION >> 8);
+        out.write(VERSION);
+        offset = MAGIC.length + 2;
+    }
+
+    @Override
+    public boolean row(Object[] values) throws IOException {
+        for (int c = 0; c < kinds.length; c++) {
+            buffer[c][bufferedRows] = c < values.length ? values[c] : null;
+        }
+        bufferedRows++;
+        totalRows++;
+        if (bufferedRows == rowGroupSize) {
+            flushRowGroup();
+        }
+        return true;
+    }
+
+    @Override
+    public void end(long rowCount, long elapsedMs) throws IOException {
+        if (out == null) {
+            return;
+        }
+        if (bufferedRows > 0) {
+            flushRowGroup();
+        }
+        writeFooter();
+        out.close();
+        out = null;
+        Files.move(tempFile, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf("Data exported to: %s%n%d rows exported, %d row group(s), %.1f KB%n",
+                filename, totalRows, rowGroups.size(), offset / 1024.0);
+    }
+
+    /**
+     * 写入失败或取消时关闭并删除临时文件，已有的目标文件保持不变
+     */
+    public void abort() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // 文件本身已经不完整
+            }
+            out = null;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+            // 只剩一个 .tmp 文件，下次导出时覆盖
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        RowGroupMeta group = new RowGroupMeta(bufferedRows, kinds.length);
+        for (int c = 0; c < kinds.length; c++) {
+            ColumnChunkMeta chunk = new ColumnChunkMeta();
+            byte[] raw = encodeColumn(c, chunk);
+            byte[] compressed = deflate(raw);
+
+            chunk.offset = offset;
+            chunk.compressedLength = compressed.length;
+            chunk.rawLength = raw.length;
+            out.write(compressed);
+            offset += compressed.length;
+            group.columns[c] = chunk;
+
+            Arrays.fill(buffer[c], 0, bufferedRows, null);
+        }
+        rowGroups.add(group);
+        bufferedRows = 0;
+    }
+
+    private byte[] encodeColumn(int column, ColumnChunkMeta stats) throws IOException {
+        Object[] values = buffer[column];
+        byte kind = kinds[column];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bufferedRows * 8 + 64);
+        DataOutputStream data = new DataOutputStream(bytes);
+
+        byte[] nullBitmap = new byte[(bufferedRows + 7) / 8];
+        for (int r = 0; r < bufferedRows; r++) {
+            if (values[r] == null) {
+                nullBitmap[r >> 3] |= (byte) (1 << (r & 7));
+                stats.nullCount++;
+            }
+        }
+        data.write(nullBitmap);
+
+        for (int r = 0; r < bufferedRows; r++) {
+            Object value = values[r];
+            if (value == null) {
+                continue;
+            }
+            if (!matchesKind(kind, value)) {
+                // 流式导出时列类型来自结果集元数据，驱动返回的值与之不符时报错，而不是截断或抛出 ClassCastException
+                throw new IOException("Column " + columnNames.get(column) + " holds a "
+                        + value.getClass().getSimpleName() + " value that does not match its declared type");
+            }
+            switch (kind) {
+                case KIND_INT: {
+                    int v = ((Number) value).intValue();
+                    data.writeInt(v);
+                    stats.updateLong(v);
+                    break;
+                }
+                case KIND_LONG: {
+                    long v = ((Number) value).longValue();
+                    data.writeLong(v);
+                    stats.updateLong(v);
+                    break;
+                }
+                case KIND_DOUBLE: {
+                    double v = ((Number) value).doubleValue();
+                    data.writeDouble(v);
+                    stats.updateDouble(v);
+                    break;
+                }
+                case KIND_BOOLEAN: {
+                    boolean v = (Boolean) value;
+                    data.writeByte(v ? 1 : 0);
+                    stats.updateLong(v ? 1 : 0);
+                    break;
+                }
+                case KIND_BINARY: {
+                    byte[] v = (byte[]) value;
+                    data.writeInt(v.length);
+                    data.write(v);
+                    break;
+                }
+                default: {
+                    String v = value.toString();
+                    byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                    data.writeInt(utf8.length);
+                    data.write(utf8);
+                    stats.updateString(v);
+                    break;
+                }
+            }
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflating = new DeflaterOutputStream(bytes, deflater)) {
+            deflating.write(raw);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeFooter() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(bytes);
+
+        footer.writeInt(columnNames.size());
+        for (int c = 0; c < columnNames.size(); c++) {
+            footer.writeUTF(columnNames.get(c));
+            footer.writeByte(kinds[c]);
+        }
+
+        footer.writeLong(totalRows);
+        footer.writeInt(rowGroups.size());
+        for (RowGroupMeta group : rowGroups) {
+            footer.writeInt(group.rowCount);
+            for (int c = 0; c < kinds.length; c++) {
+                ColumnChunkMeta chunk = group.columns[c];
+                footer.writeLong(chunk.offset);
+                footer.writeInt(chunk.compressedLength);
+                footer.writeInt(chunk.rawLength);
+                footer.writeInt(chunk.nullCount);
+                writeStats(footer, kinds[c], chunk);
+            }
+        }
+        footer.flush();
+
+        byte[] footerBytes = bytes.toByteArray();
+        out.write(footerBytes);
+        DataOutputStream trailer = new DataOutputStream(out);
+        trailer.writeInt(footerBytes.length);
+        trailer.write(MAGIC);
+        trailer.flush();
+        offset += footerBytes.length + 4 + MAGIC.length;
+    }
+
+    private static void writeStats(DataOutputStream footer, byte kind, ColumnChunkMeta chunk) throws IOException {
+        if (!chunk.hasStats) {
+            footer.writeBoolean(false);
+            return;
+        }
+        footer.writeBoolean(true);
+        switch (kind) {
+            case KIND_INT:
+            case KIND_LONG:
+            case KIND_BOOLEAN:
+                footer.writeLong(chunk.minLong);
+                footer.writeLong(chunk.maxLong);
+                break;
+            case KIND_DOUBLE:
+                footer.writeDouble(chunk.minDouble);
+                footer.writeDouble(chunk.maxDouble);
+                break;
+            default:
+                footer.writeUTF(chunk.minString);
+                footer.writeUTF(chunk.maxString);
+                break;
+        }
+    }
+
+    static byte kindForClassName(String className) {
+        if (className == null) {
+            return KIND_STRING;
+        }
+        switch (className) {
+            case "java.lang.Integer":
+            case "java.lang.Short":
+            case "java.lang.Byte":
+                return KIND_INT;
+            case "java.lang.Long":
+                return KIND_LONG;
+            case "java.lang.Double":
+            case "java.lang.Float":
+                return KIND_DOUBLE;
+            case "java.lang.Boolean":
+                return KIND_BOOLEAN;
+            case "[B":
+                return KIND_BINARY;
+            default:
+                // 其余类型（DECIMAL、日期时间等）按文本保存
+                return KIND_STRING;
+        }
+    }
+
+    /**
+     * 值能否按该类型编码；文本类型接受任何值
+     */
+    static boolean matchesKind(byte kind, Object value) {
+        switch (kind) {
+            case KIND_INT:
+                return value instanceof Integer || value instanceof Short || value instanceof Byte;
+            case KIND_LONG:
+                return value instanceof Long;
+            case KIND_DOUBLE:
+                return value instanceof Double || value instanceof Float;
+            case KIND_BOOLEAN:
+                return value instanceof Boolean;
+            case KIND_BINARY:
+                return value instanceof byte[];
+            default:
+                return true;
+        }
+    }
+
+    private static class RowGroupMeta {
+        final int rowCount;
+        final ColumnChunkMeta[] columns;
+
+        RowGroupMeta(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.columns = new ColumnChunkMeta[columnCount];
+        }
+    }
+
+    private static class ColumnChunkMeta {
+        long offset;
+        int compressedLength;
+        int rawLength;
+        int nullCount;
+
+        boolean hasStats = false;
+        boolean statsDisabled = false;
+        long minLong;
+        long maxLong;
+        double minDouble;
+        double maxDouble;
+        String minString;
+        String maxString;
+
+        void updateLong(long v) {
+            if (!hasStats) {
+                minLong = maxLong = v;
+                hasStats = true;
+            } else {
+                minLong = Math.min(minLong, v);
+                maxLong = Math.max(maxLong, v);
+            }
+        }
+
+        void updateDouble(double v) {
+            if (Double.isNaN(v)) {
+                return;
+            }
+            if (!hasStats) {
+                minDouble = maxDouble = v;
+                hasStats = true;
+            } else {
+                minDouble = Math.min(minDouble, v);
+                maxDouble = Math.max(maxDouble, v);
+            }
+        }
+
+        void updateString(String v) {
+            if (statsDisabled) {
+                return;
+            }
+            if (v.length() > MAX_STATS_LENGTH) {
+                statsDisabled = true;
+                hasStats = false;
+                return;
+            }
+            if (!hasStats) {
+                minString = maxString = v;
+                hasStats = true;
+            } else {
+                if (v.compareTo(minString) < 0) {
+                    minString = v;
+                }
+                if (v.compareTo(maxString) > 0) {
+                    maxString = v;
+                }
+            }
+        }
+    }
+}
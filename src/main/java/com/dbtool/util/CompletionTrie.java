@@ -0,0 +1,161 @@
+package com.dbtool.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tab 补全用的压缩前缀树（radix tree）：按小写键存放名称，只有一个子节点的路径合并为一条边。
+ * 前缀查找只走前缀长度的边，再按字典序取出前 limit 个名称，与总名称数无关，
+ * 数百万个列名时一次补全也在毫秒以内。
+ * 同一个名称不区分大小写只保留第一次加入的写法。
+ * 构建完成后只读，可以在构建线程之外并发查找（通过 volatile 引用发布）。
+ */
+public class CompletionTrie {
+    private final Node root = new Node("");
+    private int size = 0;
+
+    public void add(String name) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        Node node = root;
+        int i = 0;
+        while (true) {
+            if (i == key.length()) {
+                if (node.name == null) {
+                    node.name = name;
+                    size++;
+                }
+                return;
+            }
+            int index = node.find(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.name = name;
+                node.insert(-index - 1, leaf);
+                size++;
+                return;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // 拆分边：新节点持有公共部分，原子节点保留剩余部分
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.insert(0, child);
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+    }
+
+    public void addAll(Iterable<String> names) {
+        for (String name : names) {
+            add(name);
+        }
+    }
+
+    /**
+     * 以 prefix 开头（不区分大小写）的名称，按字典序最多 limit 个
+     */
+    public List<String> complete(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.find(key.charAt(i));
+            if (index < 0) {
+                return result;
+            }
+            Node child = node.children[index];
+            int length = Math.min(child.label.length(), key.length() - i);
+            if (!child.label.regionMatches(0, key, i, length)) {
+                return result;
+            }
+            node = child;
+            i += length;
+        }
+        collect(node, result, limit);
+        return result;
+    }
+
+    public boolean contains(String name) {
+        List<String> found = complete(name, 1);
+        return !found.isEmpty() && found.get(0).equalsIgnoreCase(name);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static void collect(Node node, List<String> result, int limit) {
+        if (result.size() >= limit) {
+            return;
+        }
+        if (node.name != null) {
+            result.add(node.name);
+        }
+        for (int i = 0; i < node.childCount && result.size() < limit; i++) {
+            collect(node.children[i], result, limit);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        // 从父节点到这里的边（小写），根节点为空
+        private String label;
+        // 以这个节点结尾的名称（原始写法），不是名称时为 null
+        private String name;
+        // 按边的首字符排序
+        private Node[] children;
+        private int childCount = 0;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        // 二分查找首字符为 c 的子节点；没有时返回 -(插入位置) - 1
+        int find(char c) {
+            int low = 0;
+            int high = childCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char first = children[mid].label.charAt(0);
+                if (first < c) {
+                    low = mid + 1;
+                } else if (first > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -low - 1;
+        }
+
+        void insert(int index, Node child) {
+            if (children == null) {
+                children = new Node[2];
+            } else if (childCount == children.length) {
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+            childCount++;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.dbtool.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式 CSV 解析器（RFC 4180：双引号包围、"" 转义、字段内换行、CRLF）。
+ * 直接在读缓冲区上扫描，字段只在结束时从缓冲区截取一次；
+ * 只有包含转义引号或跨越缓冲区边界的字段才会额外拼接。
+ *
+ * 未加引号的空字段返回 null，加引号的空字段 "" 返回空字符串，
+ * 与 ExportUtil 导出 NULL 的方式对应。
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private long lineNumber = 1;
+
+    // 跨越缓冲区或包含转义的字段使用
+    private final StringBuilder spill = new StringBuilder();
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static CsvReader open(String filename) throws IOException {
+        return new CsvReader(new InputStreamReader(Files.newInputStream(Paths.get(filename)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取下一条记录，文件结束时返回 null
+     */
+    public String[] next() throws IOException {
+        if (!fill()) {
+            return null;
+        }
+
+        // 跳过 UTF-8 BOM
+        if (lineNumber == 1 && position == 0 && limit > 0 && buffer[0] == '\uFEFF') {
+            position++;
+        }
+
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            boolean lastField = readField(fields);
+            if (lastField) {
+                lineNumber++;
+                return fields.toArray(new String[0]);
+            }
+        }
+    }
+
+    /**
+     * 读取一个字段并加入列表，返回 true 表示这是记录的最后一个字段
+     */
+    private boolean readField(List<String> fields) throws IOException {
+        if (!fill()) {
+            fields.add(null);
+            return true;
+        }
+
+        if (buffer[position] == '"') {
+            position++;
+            return readQuotedField(fields);
+        }
+
+        int start = position;
+        spill.setLength(0);
+        boolean spilled = false;
+        while (true) {
+            if (position == limit) {
+                spill.append(buffer, start, position - start);
+                spilled = true;
+                if (!fill()) {
+                    fields.add(emptyToNull(spill.toString()));
+                    return true;
+                }
+                start = position;
+            }
+
+            char c = buffer[position];
+            if (c == ',' || c == '\n' || c == '\r') {
+                String value = spilled
+                        ? spill.append(buffer, start, position - start).toString()
+                        : new String(buffer, start, position - start);
+                fields.add(emptyToNull(value));
+                return consumeDelimiter();
+            }
+            position++;
+        }
+    }
+
+    private boolean readQuotedField(List<String> fields) throws IOException {
+        spill.setLength(0);
+        int start = position;
+        while (true) {
+            if (position == limit) {
+                spill.append(buffer, start, position - start);
+                if (!fill()) {
+                    throw new IOException("Unterminated quoted field at line " + lineNumber);
+                }
+                start = position;
+            }
+
+            char c = buffer[position];
+            if (c == '"') {
+                spill.append(buffer, start, position - start);
+                position++;
+                if (!fill()) {
+                    fields.add(spill.toString());
+                    return true;
+                }
+                if (buffer[position] == '"') {
+                    // 转义的双引号
+                    spill.append('"');
+                    position++;
+                    start = position;
+                    continue;
+                }
+                fields.add(spill.toString());
+                if (!fill()) {
+                    return true;
+                }
+                char next = buffer[position];
+                if (next != ',' && next != '\n' && next != '\r') {
+                    throw new IOException("Unexpected character after closing quote at line " + lineNumber);
+                }
+                return consumeDelimiter();
+            }
+            if (c == '\n') {
+                lineNumber++;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * 消耗字段后的分隔符，返回 true 表示记录结束
+     */
+    private boolean consumeDelimiter() throws IOException {
+        char c = buffer[position++];
+        if (c == ',') {
+            return false;
+        }
+        if (c == '\r' && fill() && buffer[position] == '\n') {
+            position++;
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            eof = true;
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
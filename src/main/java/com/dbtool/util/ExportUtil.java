@@ -3,6 +3,9 @@ package com.dbtool.util;
 import com.dbtool.model.QueryResult;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -25,18 +28,19 @@ public class ExportUtil {
             filename += ".csv";
         }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8))) {
             List<String> columnNames = result.getColumnNames();
             List<Map<String, Object>> data = result.getData();
 
             // 写入列头
             writer.println(String.join(",", columnNames));
 
-            // 写入数据
-            for (Map<String, Object> row : data) {
+            // 写入数据（按下标读取，列式结果无需创建行视图）
+            int columnCount = columnNames.size();
+            for (int r = 0; r < data.size(); r++) {
                 StringBuilder csvLine = new StringBuilder();
-                for (String columnName : columnNames) {
-                    Object value = row.get(columnName);
+                for (int c = 0; c < columnCount; c++) {
+                    Object value = result.getValue(r, c);
                     String strValue = (value != null) ? escapeCsv(value.toString()) : "";
                     csvLine.append(strValue).append(",");
                 }
@@ -72,7 +76,7 @@ public class ExportUtil {
             filename += ".txt";
         }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8))) {
             List<String> columnNames = result.getColumnNames();
             List<Map<String, Object>> data = result.getData();
 
@@ -107,7 +111,7 @@ public class ExportUtil {
         }
     }
 
-    private static String escapeCsv(String value) {
+    public static String escapeCsv(String value) {
         if (value == null) return "";
         if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
             return "\"" + value.replace("\"", "\"\"") + "\"";
@@ -0,0 +1,165 @@
+package com.dbtool.util;
+
+/**
+ * 语句指纹和摘要（类似 performance_schema 的 digest）：在 SqlLexer 的词法单元上，
+ * 把字符串、数字和 ? 参数替换为 ?，IN (...) 列表和 VALUES 的多行值合并为 (...)，空白和注释合并。
+ * digest 是这个形状的 64 位 FNV-1a 哈希（关键字和标识符不区分大小写），只扫描一遍、不生成字符串，
+ * 适合每条语句都计算；fingerprint 给出可读的文本形式，只在需要显示时生成。
+ */
+public final class SqlFingerprint {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String LIST = "(...)";
+
+    private SqlFingerprint() {
+    }
+
+    public static long digest(CharSequence sql) {
+        return walk(sql, null);
+    }
+
+    /**
+     * 指纹文本，例如 SELECT * FROM t WHERE id = ? AND x IN (...)
+     */
+    public static String fingerprint(CharSequence sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        walk(sql, sb);
+
+        int start = 0;
+        while (start < sb.length() && sb.charAt(start) == ' ') {
+            start++;
+        }
+        int end = sb.length();
+        while (end > start && (sb.charAt(end - 1) == ';' || sb.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        return sb.substring(start, end);
+    }
+
+    public static String toHex(long digest) {
+        String hex = Long.toHexString(digest);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    // 逐个词法单元计算哈希，sb 不为 null 时同时输出指纹文本
+    private static long walk(CharSequence sql, StringBuilder sb) {
+        long hash = FNV_OFFSET;
+        SqlLexer lexer = new SqlLexer(sql);
+        // 上一个词法单元是 IN（或 VALUES），后面的字面量列表可以合并
+        boolean listKeyword = false;
+        boolean valuesKeyword = false;
+        SqlLexer.Token token;
+        while ((token = lexer.next()) != SqlLexer.Token.EOF) {
+            if (sb != null) {
+                SqlLexer.appendGap(sb, sql, lexer.getGapStart(), lexer.getStart(), true);
+            }
+
+            if (listKeyword && lexer.isSymbol('(')) {
+                int end = literalListEnd(sql, lexer.getEnd());
+                if (end >= 0) {
+                    if (valuesKeyword) {
+                        // VALUES (1, 'a'), (2, 'b') 不论多少行都是同一个形状
+                        int next;
+                        while ((next = nextRowEnd(sql, end)) >= 0) {
+                            end = next;
+                        }
+                    }
+                    hash = hashChar(hashText(hash, LIST, 0, LIST.length(), false), 0);
+                    if (sb != null) {
+                        sb.append(LIST);
+                    }
+                    lexer.seek(end);
+                    listKeyword = false;
+                    continue;
+                }
+            }
+            valuesKeyword = lexer.isWord("values") || lexer.isWord("value");
+            listKeyword = valuesKeyword || lexer.isWord("in");
+
+            switch (token) {
+                case STRING:
+                case NUMBER:
+                case PARAMETER:
+                    hash = hashChar(hash, '?');
+                    if (sb != null) {
+                        sb.append('?');
+                    }
+                    break;
+                case WORD:
+                case QUOTED_IDENTIFIER:
+                    hash = hashText(hash, sql, lexer.getStart(), lexer.getEnd(), true);
+                    if (sb != null) {
+                        sb.append(sql, lexer.getStart(), lexer.getEnd());
+                    }
+                    break;
+                default:
+                    if (sb != null) {
+                        sb.append(sql, lexer.getStart(), lexer.getEnd());
+                    }
+                    // 末尾和语句之间的分号不影响形状
+                    if (lexer.isSymbol(';')) {
+                        continue;
+                    }
+                    hash = hashText(hash, sql, lexer.getStart(), lexer.getEnd(), false);
+                    break;
+            }
+            // 词法单元之间的分隔，使 ab 和 a b 不同
+            hash = hashChar(hash, 0);
+        }
+        if (sb != null) {
+            SqlLexer.appendGap(sb, sql, lexer.getGapStart(), lexer.getStart(), true);
+        }
+        return hash;
+    }
+
+    // 从 from（左括号之后）开始，括号内只有字面量、参数、NULL/TRUE/FALSE、正负号和逗号时，返回右括号之后的位置，否则返回 -1
+    private static int literalListEnd(CharSequence sql, int from) {
+        SqlLexer lexer = new SqlLexer(sql, from, sql.length());
+        boolean empty = true;
+        SqlLexer.Token token;
+        while ((token = lexer.next()) != SqlLexer.Token.EOF) {
+            if (lexer.isSymbol(')')) {
+                return empty ? -1 : lexer.getEnd();
+            }
+            boolean literal = token == SqlLexer.Token.STRING || token == SqlLexer.Token.NUMBER
+                    || token == SqlLexer.Token.PARAMETER
+                    || lexer.isWord("null") || lexer.isWord("true") || lexer.isWord("false")
+                    || lexer.isSymbol(',') || lexer.isSymbol('-') || lexer.isSymbol('+');
+            if (!literal) {
+                return -1;
+            }
+            empty = false;
+        }
+        return -1;
+    }
+
+    // VALUES 列表之后的 , (字面量...)，返回这一行右括号之后的位置，不是时返回 -1
+    private static int nextRowEnd(CharSequence sql, int from) {
+        SqlLexer lexer = new SqlLexer(sql, from, sql.length());
+        lexer.next();
+        if (!lexer.isSymbol(',')) {
+            return -1;
+        }
+        lexer.next();
+        if (!lexer.isSymbol('(')) {
+            return -1;
+        }
+        return literalListEnd(sql, lexer.getEnd());
+    }
+
+    private static long hashText(long hash, CharSequence text, int start, int end, boolean ignoreCase) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            hash = hashChar(hash, ignoreCase ? Character.toLowerCase(c) : c);
+        }
+        return hash;
+    }
+
+    private static long hashChar(long hash, int c) {
+        hash ^= c & 0xff;
+        hash *= FNV_PRIME;
+        hash ^= c >>> 8;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+}
@@ -0,0 +1,643 @@
+package com.dbtool.util;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * SQL 词法分析：单次扫描 CharSequence，逐个给出词法单元的类型和位置，不复制原文。
+ * 空白和注释（--、#、块注释）被跳过；以 /*! 开头的 MySQL 可执行注释中的内容会被服务器执行，
+ * 因此按普通 SQL 识别，只跳过开头的标记（含版本号）和结尾的注释结束符。
+ * 在此之上提供语句分类、引用表提取和规范化，供安全检查、脚本拆分、结果缓存和历史记录共用。
+ */
+public final class SqlLexer {
+
+    public enum Token {
+        // 关键字或标识符
+        WORD,
+        // 反引号标识符
+        QUOTED_IDENTIFIER,
+        // '...' 或 "..." 字符串
+        STRING,
+        NUMBER,
+        // @var、@@var
+        VARIABLE,
+        // ? 参数
+        PARAMETER,
+        // 其他单个字符（括号、逗号、分号、运算符）
+        SYMBOL,
+        EOF
+    }
+
+    public enum StatementType {
+        SELECT, SHOW, DESCRIBE, EXPLAIN, CALL,
+        // CHECK/ANALYZE/OPTIMIZE/REPAIR/CHECKSUM TABLE
+        MAINTENANCE,
+        INSERT, UPDATE, DELETE, REPLACE,
+        // LOAD DATA / LOAD XML
+        LOAD,
+        // CREATE/ALTER/DROP/TRUNCATE/RENAME
+        DDL,
+        // GRANT/REVOKE
+        DCL,
+        // PREPARE/EXECUTE：执行内容无法静态判断
+        DYNAMIC,
+        // BEGIN/START TRANSACTION/COMMIT/ROLLBACK/SAVEPOINT
+        TRANSACTION,
+        USE, SET, OTHER, EMPTY;
+
+        /**
+         * 是否返回结果集
+         */
+        public boolean isQuery() {
+            return this == SELECT || this == SHOW || this == DESCRIBE || this == EXPLAIN || this == CALL
+                    || this == MAINTENANCE;
+        }
+
+        /**
+         * 是否为修改数据的 DML（不含 LOAD）
+         */
+        public boolean isDml() {
+            return this == INSERT || this == UPDATE || this == DELETE || this == REPLACE;
+        }
+
+        public boolean isWrite() {
+            return isDml() || this == LOAD;
+        }
+    }
+
+    // 语句开头的关键字（小写）及其类型，按顺序逐个比较，不分配内存
+    private static final String[] LEADING_KEYWORDS = {
+            "select", "show", "describe", "desc", "explain", "call", "values", "table",
+            "check", "analyze", "optimize", "repair", "checksum",
+            "insert", "update", "delete", "replace", "load",
+            "create", "alter", "drop", "truncate", "rename",
+            "grant", "revoke", "prepare", "execute", "deallocate",
+            "begin", "start", "commit", "rollback", "savepoint", "release", "xa",
+            "use", "set", "with"};
+    private static final StatementType[] LEADING_TYPES = {
+            StatementType.SELECT, StatementType.SHOW, StatementType.DESCRIBE, StatementType.DESCRIBE,
+            StatementType.EXPLAIN, StatementType.CALL, StatementType.SELECT, StatementType.SELECT,
+            StatementType.MAINTENANCE, StatementType.MAINTENANCE, StatementType.MAINTENANCE,
+            StatementType.MAINTENANCE, StatementType.MAINTENANCE,
+            StatementType.INSERT, StatementType.UPDATE, StatementType.DELETE, StatementType.REPLACE,
+            StatementType.LOAD,
+            StatementType.DDL, StatementType.DDL, StatementType.DDL, StatementType.DDL, StatementType.DDL,
+            StatementType.DCL, StatementType.DCL, StatementType.DYNAMIC, StatementType.DYNAMIC, StatementType.DYNAMIC,
+            StatementType.TRANSACTION, StatementType.TRANSACTION, StatementType.TRANSACTION,
+            StatementType.TRANSACTION, StatementType.TRANSACTION, StatementType.TRANSACTION,
+            StatementType.TRANSACTION,
+            StatementType.USE, StatementType.SET, null};
+
+    // 表名之后不会是别名的关键字
+    private static final String[] CLAUSE_KEYWORDS = {
+            "where", "join", "inner", "left", "right", "cross", "natural", "straight_join", "full", "outer",
+            "on", "using", "group", "order", "limit", "having", "union", "except", "intersect", "set", "values",
+            "value", "select", "for", "lock", "window", "partition", "use", "ignore", "force", "into", "from",
+            "as", "with", "procedure", "returning", "read", "write", "low_priority", "local", "quick", "fast",
+            "medium", "extended", "changed", "to", "add", "modify", "drop", "change", "engine", "like"};
+
+    private final CharSequence sql;
+    private final int limit;
+    private int pos;
+    private boolean inHint = false;
+
+    private Token token = null;
+    private int tokenStart;
+    private int tokenEnd;
+    // 当前词法单元之前的空白和注释从这里开始
+    private int gapStart;
+
+    public SqlLexer(CharSequence sql) {
+        this(sql, 0, sql.length());
+    }
+
+    public SqlLexer(CharSequence sql, int start, int end) {
+        this.sql = sql;
+        this.pos = start;
+        this.limit = end;
+        this.tokenStart = start;
+        this.tokenEnd = start;
+        this.gapStart = start;
+    }
+
+    /**
+     * 读取下一个词法单元
+     */
+    public Token next() {
+        gapStart = pos;
+        skipTrivia();
+        tokenStart = pos;
+        if (pos >= limit) {
+            tokenEnd = limit;
+            token = Token.EOF;
+            return token;
+        }
+
+        char c = sql.charAt(pos);
+        if (c == '\'' || c == '"') {
+            pos = skipQuoted(sql, pos, limit, c);
+            token = Token.STRING;
+        } else if (c == '`') {
+            pos = skipQuoted(sql, pos, limit, c);
+            token = Token.QUOTED_IDENTIFIER;
+        } else if (isDigit(c) || (c == '.' && pos + 1 < limit && isDigit(sql.charAt(pos + 1)))) {
+            token = scanNumber();
+        } else if (isIdentifierPart(c)) {
+            pos++;
+            while (pos < limit && isIdentifierPart(sql.charAt(pos))) {
+                pos++;
+            }
+            token = Token.WORD;
+        } else if (c == '@') {
+            pos++;
+            if (pos < limit && sql.charAt(pos) == '@') {
+                pos++;
+            }
+            if (pos < limit && (sql.charAt(pos) == '`' || sql.charAt(pos) == '\'' || sql.charAt(pos) == '"')) {
+                pos = skipQuoted(sql, pos, limit, sql.charAt(pos));
+            } else {
+                while (pos < limit && (isIdentifierPart(sql.charAt(pos)) || sql.charAt(pos) == '.')) {
+                    pos++;
+                }
+            }
+            token = Token.VARIABLE;
+        } else if (c == '?') {
+            pos++;
+            token = Token.PARAMETER;
+        } else {
+            pos++;
+            token = Token.SYMBOL;
+        }
+        tokenEnd = pos;
+        return token;
+    }
+
+    // 123、1.5、.5、1e-3、0x1F、0b101；数字开头的标识符（例如 1abc）按 WORD 处理
+    private Token scanNumber() {
+        if (sql.charAt(pos) == '0' && pos + 1 < limit && "xXbB".indexOf(sql.charAt(pos + 1)) >= 0) {
+            pos += 2;
+            while (pos < limit && isIdentifierPart(sql.charAt(pos))) {
+                pos++;
+            }
+            return Token.NUMBER;
+        }
+        while (pos < limit && (isDigit(sql.charAt(pos)) || sql.charAt(pos) == '.')) {
+            pos++;
+        }
+        if (pos + 1 < limit && (sql.charAt(pos) == 'e' || sql.charAt(pos) == 'E')) {
+            int exponent = pos + 1;
+            if (sql.charAt(exponent) == '-' || sql.charAt(exponent) == '+') {
+                exponent++;
+            }
+            if (exponent < limit && isDigit(sql.charAt(exponent))) {
+                pos = exponent;
+                while (pos < limit && isDigit(sql.charAt(pos))) {
+                    pos++;
+                }
+            }
+        }
+        if (pos < limit && isIdentifierPart(sql.charAt(pos))) {
+            while (pos < limit && isIdentifierPart(sql.charAt(pos))) {
+                pos++;
+            }
+            return Token.WORD;
+        }
+        return Token.NUMBER;
+    }
+
+    private void skipTrivia() {
+        while (pos < limit) {
+            char c = sql.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '#' || (c == '-' && pos + 1 < limit && sql.charAt(pos + 1) == '-'
+                    && (pos + 2 >= limit || Character.isWhitespace(sql.charAt(pos + 2))
+                    || Character.isISOControl(sql.charAt(pos + 2))))) {
+                while (pos < limit && sql.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (c == '/' && pos + 1 < limit && sql.charAt(pos + 1) == '*') {
+                if (pos + 2 < limit && sql.charAt(pos + 2) == '!') {
+                    // 可执行注释：跳过开头和可选的版本号，内容照常识别
+                    pos += 3;
+                    while (pos < limit && isDigit(sql.charAt(pos))) {
+                        pos++;
+                    }
+                    inHint = true;
+                } else {
+                    pos = indexOfCommentEnd(pos + 2);
+                }
+            } else if (inHint && c == '*' && pos + 1 < limit && sql.charAt(pos + 1) == '/') {
+                pos += 2;
+                inHint = false;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private int indexOfCommentEnd(int from) {
+        for (int i = from; i + 1 < limit; i++) {
+            if (sql.charAt(i) == '*' && sql.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        return limit;
+    }
+
+    public Token getToken() {
+        return token;
+    }
+
+    public int getStart() {
+        return tokenStart;
+    }
+
+    public int getEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * 当前词法单元之前的空白和注释的起始位置（到 getStart() 为止）
+     */
+    public int getGapStart() {
+        return gapStart;
+    }
+
+    /**
+     * 从指定位置重新开始扫描（例如跳过自定义分隔符）
+     */
+    public void seek(int position) {
+        pos = position;
+    }
+
+    /**
+     * 当前词法单元是否为指定的关键字（小写，忽略大小写比较，不分配内存）
+     */
+    public boolean isWord(String lowerCaseKeyword) {
+        if (token != Token.WORD || tokenEnd - tokenStart != lowerCaseKeyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseKeyword.length(); i++) {
+            if (Character.toLowerCase(sql.charAt(tokenStart + i)) != lowerCaseKeyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isSymbol(char symbol) {
+        return token == Token.SYMBOL && sql.charAt(tokenStart) == symbol;
+    }
+
+    public String getText() {
+        return sql.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * 标识符的名称：去掉反引号（两个反引号表示一个）
+     */
+    public String getIdentifier() {
+        if (token == Token.QUOTED_IDENTIFIER) {
+            int end = tokenEnd > tokenStart + 1 && sql.charAt(tokenEnd - 1) == '`' ? tokenEnd - 1 : tokenEnd;
+            return sql.subSequence(tokenStart + 1, end).toString().replace("``", "`");
+        }
+        return getText();
+    }
+
+    // ========== 语句分类 ==========
+
+    /**
+     * 第一条语句的类型。WITH 按其后的主语句分类，开头的括号（(SELECT ...) UNION ...）被跳过
+     */
+    public static StatementType classify(CharSequence sql) {
+        SqlLexer lexer = new SqlLexer(sql);
+        Token token = lexer.next();
+        while (token == Token.SYMBOL && lexer.isSymbol('(')) {
+            token = lexer.next();
+        }
+        if (token == Token.EOF || lexer.isSymbol(';')) {
+            return StatementType.EMPTY;
+        }
+        if (token != Token.WORD) {
+            return StatementType.OTHER;
+        }
+        if (lexer.isWord("with")) {
+            return classifyAfterWith(lexer);
+        }
+        StatementType type = leadingType(lexer);
+        return type != null ? type : StatementType.OTHER;
+    }
+
+    private static StatementType leadingType(SqlLexer lexer) {
+        for (int i = 0; i < LEADING_KEYWORDS.length; i++) {
+            if (lexer.isWord(LEADING_KEYWORDS[i])) {
+                return LEADING_TYPES[i];
+            }
+        }
+        return null;
+    }
+
+    // WITH [RECURSIVE] a AS (...), b (x, y) AS (...) 之后括号外的第一个语句关键字
+    private static StatementType classifyAfterWith(SqlLexer lexer) {
+        int depth = 0;
+        Token token;
+        while ((token = lexer.next()) != Token.EOF) {
+            if (token == Token.SYMBOL) {
+                if (lexer.isSymbol('(')) {
+                    depth++;
+                } else if (lexer.isSymbol(')')) {
+                    depth--;
+                } else if (lexer.isSymbol(';') && depth == 0) {
+                    break;
+                }
+            } else if (token == Token.WORD && depth == 0) {
+                if (lexer.isWord("select") || lexer.isWord("values") || lexer.isWord("table")) {
+                    return StatementType.SELECT;
+                }
+                if (lexer.isWord("insert") || lexer.isWord("update") || lexer.isWord("delete")
+                        || lexer.isWord("replace")) {
+                    return leadingType(lexer);
+                }
+            }
+        }
+        return StatementType.OTHER;
+    }
+
+    /**
+     * 第一条语句结束（分号）之后是否还有其他语句
+     */
+    public static boolean hasMultipleStatements(CharSequence sql) {
+        SqlLexer lexer = new SqlLexer(sql);
+        Token token;
+        boolean ended = false;
+        while ((token = lexer.next()) != Token.EOF) {
+            if (lexer.isSymbol(';')) {
+                ended = true;
+            } else if (ended) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 语句中出现过的任何位置是否有指定的关键字（字符串和注释中的不算）
+     */
+    public static boolean containsWord(CharSequence sql, String lowerCaseKeyword) {
+        SqlLexer lexer = new SqlLexer(sql);
+        while (lexer.next() != Token.EOF) {
+            if (lexer.isWord(lowerCaseKeyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== 引用的表 ==========
+
+    /**
+     * 语句引用的表名（小写，不含数据库名和反引号）：FROM/JOIN/INTO/UPDATE/TABLE 之后的表，
+     * 包括逗号分隔的多个表和子查询中的表；EXTRACT(YEAR FROM col) 等函数参数中的 FROM 不算。
+     * 识别不出时返回空集合
+     */
+    public static Set<String> referencedTables(CharSequence sql) {
+        Set<String> tables = new HashSet<>();
+        SqlLexer lexer = new SqlLexer(sql);
+        // 括号层数，以及每一层是否为子查询（以 SELECT/WITH 开头），超过 63 层按子查询处理
+        int depth = 0;
+        long subqueries = 0;
+        boolean afterParen = false;
+        boolean previousFor = false;
+        boolean previousKey = false;
+        Token token = lexer.next();
+        while (token != Token.EOF) {
+            if (afterParen && depth < 64 && (lexer.isWord("select") || lexer.isWord("with"))) {
+                subqueries |= 1L << depth;
+            }
+            afterParen = false;
+            if (lexer.isSymbol('(')) {
+                depth++;
+                afterParen = true;
+            } else if (lexer.isSymbol(')') && depth > 0) {
+                if (depth < 64) {
+                    subqueries &= ~(1L << depth);
+                }
+                depth--;
+            }
+
+            boolean statementLevel = depth == 0 || depth >= 64 || (subqueries & (1L << depth)) != 0;
+            boolean tableKeyword = token == Token.WORD && statementLevel
+                    && (lexer.isWord("from") || lexer.isWord("join") || lexer.isWord("straight_join")
+                    || lexer.isWord("into") || lexer.isWord("table") || lexer.isWord("tables")
+                    // FOR UPDATE、ON DUPLICATE KEY UPDATE 后面不是表名
+                    || lexer.isWord("update") && !previousFor && !previousKey);
+            previousFor = lexer.isWord("for");
+            previousKey = lexer.isWord("key");
+            token = tableKeyword ? readTableList(lexer, tables) : lexer.next();
+        }
+        return tables;
+    }
+
+    // 读取逗号分隔的表名列表，返回之后的第一个词法单元（尚未处理）
+    private static Token readTableList(SqlLexer lexer, Set<String> tables) {
+        Token token = skipModifiers(lexer);
+        while (true) {
+            if (token != Token.WORD && token != Token.QUOTED_IDENTIFIER) {
+                return token;
+            }
+            // INTO OUTFILE/DUMPFILE 后面是文件名
+            if (lexer.isWord("outfile") || lexer.isWord("dumpfile") || isClauseKeyword(lexer)) {
+                return token;
+            }
+            String name = lexer.getIdentifier();
+            token = lexer.next();
+            if (lexer.isSymbol('.')) {
+                token = lexer.next();
+                if (token != Token.WORD && token != Token.QUOTED_IDENTIFIER) {
+                    return token;
+                }
+                name = lexer.getIdentifier();
+                token = lexer.next();
+            }
+            name = name.toLowerCase(Locale.ROOT);
+            if (!name.equals("dual")) {
+                tables.add(name);
+            }
+
+            // 别名：AS x 或直接跟 x
+            if (lexer.isWord("as")) {
+                token = lexer.next();
+                if (token == Token.WORD || token == Token.QUOTED_IDENTIFIER) {
+                    token = lexer.next();
+                }
+            } else if ((token == Token.WORD && !isClauseKeyword(lexer)) || token == Token.QUOTED_IDENTIFIER) {
+                token = lexer.next();
+            }
+            if (!lexer.isSymbol(',')) {
+                return token;
+            }
+            token = lexer.next();
+        }
+    }
+
+    // TABLE IF NOT EXISTS、INTO TABLE、UPDATE LOW_PRIORITY IGNORE 等修饰词
+    private static Token skipModifiers(SqlLexer lexer) {
+        Token token = lexer.next();
+        while (token == Token.WORD && (lexer.isWord("if") || lexer.isWord("not") || lexer.isWord("exists")
+                || lexer.isWord("table") || lexer.isWord("low_priority") || lexer.isWord("ignore")
+                || lexer.isWord("lateral") || lexer.isWord("only"))) {
+            token = lexer.next();
+        }
+        return token;
+    }
+
+    private static boolean isClauseKeyword(SqlLexer lexer) {
+        if (lexer.token != Token.WORD) {
+            return false;
+        }
+        for (String keyword : CLAUSE_KEYWORDS) {
+            if (lexer.isWord(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== 规范化 ==========
+
+    /**
+     * 规范化：去掉注释（保留可执行注释的开始和结束标记）和末尾分号，
+     * 词法单元之间的空白和注释合并为一个空格，字符串等词法单元原样保留
+     */
+    public static String normalize(CharSequence sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        SqlLexer lexer = new SqlLexer(sql);
+        while (lexer.next() != Token.EOF) {
+            appendGap(sb, sql, lexer.getGapStart(), lexer.getStart(), true);
+            sb.append(sql, lexer.getStart(), lexer.getEnd());
+        }
+        appendGap(sb, sql, lexer.getGapStart(), lexer.getStart(), true);
+
+        int start = 0;
+        while (start < sb.length() && sb.charAt(start) == ' ') {
+            start++;
+        }
+        int end = sb.length();
+        while (end > start && (sb.charAt(end - 1) == ';' || sb.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        return sb.substring(start, end);
+    }
+
+    /**
+     * 输出两个词法单元之间的空白和注释：普通注释替换为一个空格，保留可执行注释的开头和结尾标记。
+     * collapse 为 true 时空白合并为一个空格，否则原样保留
+     */
+    public static void appendGap(StringBuilder sb, CharSequence sql, int from, int to, boolean collapse) {
+        boolean pendingSpace = false;
+        int i = from;
+        while (i < to) {
+            char c = sql.charAt(i);
+            int markerEnd = -1;
+            if (c == '/' && i + 2 < to && sql.charAt(i + 1) == '*' && sql.charAt(i + 2) == '!') {
+                markerEnd = i + 3;
+                while (markerEnd < to && isDigit(sql.charAt(markerEnd))) {
+                    markerEnd++;
+                }
+            } else if (c == '*' && i + 1 < to && sql.charAt(i + 1) == '/') {
+                markerEnd = i + 2;
+            }
+            if (markerEnd > 0) {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(sql, i, markerEnd);
+                // 合并空白时标记之后至少一个空格，避免与后面的词法单元连在一起
+                pendingSpace = collapse;
+                i = markerEnd;
+                continue;
+            }
+
+            int commentEnd = skipComment(sql, i, to);
+            if (commentEnd > i) {
+                if (collapse) {
+                    pendingSpace = true;
+                } else {
+                    sb.append(' ');
+                }
+                i = commentEnd;
+            } else if (Character.isWhitespace(c)) {
+                if (collapse) {
+                    pendingSpace = true;
+                } else {
+                    sb.append(c);
+                }
+                i++;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        if (pendingSpace) {
+            sb.append(' ');
+        }
+    }
+
+    // 位于 from 的普通注释的结束位置，不是注释时返回 from
+    private static int skipComment(CharSequence sql, int from, int to) {
+        char c = sql.charAt(from);
+        if (c == '#' || (c == '-' && from + 1 < to && sql.charAt(from + 1) == '-')) {
+            int i = from;
+            while (i < to && sql.charAt(i) != '\n') {
+                i++;
+            }
+            return i;
+        }
+        if (c == '/' && from + 1 < to && sql.charAt(from + 1) == '*') {
+            for (int i = from + 2; i + 1 < to; i++) {
+                if (sql.charAt(i) == '*' && sql.charAt(i + 1) == '/') {
+                    return i + 2;
+                }
+            }
+            return to;
+        }
+        return from;
+    }
+
+    // ========== 字符工具 ==========
+
+    /**
+     * 跳过从 start 开始的引号内容，返回结束引号之后的位置。反斜杠转义（反引号除外）和两个连续引号都表示引号本身
+     */
+    public static int skipQuoted(CharSequence sql, int start, int end, char quote) {
+        int i = start + 1;
+        while (i < end) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (i + 1 < end && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '$'
+                || (c > 0x7f && Character.isLetterOrDigit(c));
+    }
+}
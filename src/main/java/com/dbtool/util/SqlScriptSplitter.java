@@ -0,0 +1,96 @@
+package com.dbtool.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL 脚本拆分：按分隔符拆成单条语句。
+ * 字符串（'...'、"..."）、反引号标识符和注释（--、#、块注释）中的分号不拆分；
+ * 支持 mysql 客户端的 DELIMITER 命令（例如存储过程脚本中的 DELIMITER $$）。
+ * 语句中的普通注释去掉，以 /*! 开头的版本注释保留。
+ * 词法识别由 SqlLexer 完成，分隔符只在字符串和标识符之外匹配。
+ */
+public class SqlScriptSplitter {
+
+    private SqlScriptSplitter() {
+    }
+
+    public static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        String delimiter = ";";
+        StringBuilder current = new StringBuilder();
+        SqlLexer lexer = new SqlLexer(script);
+        SqlLexer.Token token;
+
+        while ((token = lexer.next()) != SqlLexer.Token.EOF) {
+            int start = lexer.getStart();
+            // DELIMITER 只能出现在行首（语句之间）
+            if (isBlank(current) && lexer.isWord("delimiter") && atLineStart(script, start)) {
+                int end = script.indexOf('\n', start);
+                if (end < 0) {
+                    end = script.length();
+                }
+                String value = script.substring(lexer.getEnd(), end).trim();
+                if (!value.isEmpty()) {
+                    delimiter = value;
+                    current.setLength(0);
+                    lexer.seek(end);
+                    continue;
+                }
+            }
+
+            SqlLexer.appendGap(current, script, lexer.getGapStart(), start, false);
+            int found = token == SqlLexer.Token.STRING || token == SqlLexer.Token.QUOTED_IDENTIFIER
+                    ? -1 : indexOfDelimiter(script, delimiter, start, lexer.getEnd());
+            if (found < 0) {
+                current.append(script, start, lexer.getEnd());
+                continue;
+            }
+            // 分隔符可能在词法单元中间（END$$）或跨越多个词法单元（//）
+            current.append(script, start, found);
+            addStatement(statements, current);
+            lexer.seek(found + delimiter.length());
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static int indexOfDelimiter(String script, String delimiter, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (script.charAt(i) == delimiter.charAt(0) && script.startsWith(delimiter, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+
+    private static boolean isBlank(StringBuilder sb) {
+        for (int i = 0; i < sb.length(); i++) {
+            if (!Character.isWhitespace(sb.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean atLineStart(String script, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            char c = script.charAt(i);
+            if (c == '\n') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,269 @@
+package com.dbtool.util;
+
+import com.dbtool.model.RowHandler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式表格输出：先缓存前 N 行（或等待一小段时间）作为样本，
+ * 根据列名、样本内容和 ResultSetMetaData 的显示宽度确定列宽后开始输出，之后收到一行打印一行。
+ * 后续行超出列宽时：明显变宽就加宽该列并重新打印表头，否则按配置截断或折行。
+ * 等待时间由定时任务检查，后续行迟迟不来时已收到的行也会按时输出。
+ */
+public class StreamingTablePrinter implements RowHandler {
+    private static ScheduledExecutorService sampleTimer;
+
+    private final PrintStream out;
+    private final int maxColumnWidth;
+    private final int sampleRows;
+    private final long sampleMillis;
+    private final boolean wrap;
+
+    private String[] columnNames;
+    private int[] hints;
+    private int[] widths;
+    private List<String[]> sample = new ArrayList<>();
+    // 等待时间已到但还没有收到行：收到第一行就输出
+    private boolean sampleExpired;
+    private ScheduledFuture<?> sampleDeadline;
+    private int headerCount = 0;
+
+    public StreamingTablePrinter() {
+        this(System.out);
+    }
+
+    public StreamingTablePrinter(PrintStream out) {
+        this(out,
+                ConfigLoader.getInt("display.stream.sample.rows", 100),
+                ConfigLoader.getInt("display.stream.sample.ms", 250),
+                "wrap".equalsIgnoreCase(ConfigLoader.get("display.stream.overflow", "truncate")));
+    }
+
+    public StreamingTablePrinter(PrintStream out, int sampleRows, long sampleMillis, boolean wrap) {
+        this.out = out;
+        this.maxColumnWidth = Math.max(4, ConfigLoader.getInt("display.max.column.width", 40));
+        this.sampleRows = Math.max(0, sampleRows);
+        this.sampleMillis = Math.max(0, sampleMillis);
+        this.wrap = wrap;
+    }
+
+    @Override
+    public synchronized void start(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        columnNames = new String[columnCount];
+        hints = new int[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metaData.getColumnLabel(i + 1);
+            hints[i] = metaData.getColumnDisplaySize(i + 1);
+        }
+
+        if (sampleRows == 0) {
+            finishSample();
+        } else {
+            sampleDeadline = sampleTimer().schedule(this::sampleTimeout, sampleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized boolean row(Object[] values) {
+        String[] cells = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            cells[i] = values[i] != null ? values[i].toString() : "NULL";
+        }
+
+        if (sample != null) {
+            sample.add(cells);
+            if (sample.size() >= sampleRows || sampleExpired) {
+                finishSample();
+            }
+            return true;
+        }
+
+        int[] wider = widerColumns(cells);
+        if (wider != null) {
+            printHorizontalLine();
+            widths = wider;
+            printHeader();
+        }
+        printRow(cells);
+        return true;
+    }
+
+    @Override
+    public synchronized void end(long rowCount, long elapsedMs) throws IOException {
+        if (columnNames != null) {
+            if (sample != null) {
+                finishSample();
+            }
+            printHorizontalLine();
+        }
+        out.println(rowCount + " row(s) streamed");
+        out.flush();
+    }
+
+    /**
+     * 等待时间到：已经收到行就结束样本，否则等第一行
+     */
+    private synchronized void sampleTimeout() {
+        if (sample == null) {
+            return;
+        }
+        if (sample.isEmpty()) {
+            sampleExpired = true;
+        } else {
+            finishSample();
+        }
+    }
+
+    private static synchronized ScheduledExecutorService sampleTimer() {
+        if (sampleTimer == null) {
+            sampleTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "stream-sample");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return sampleTimer;
+    }
+
+    /**
+     * 样本结束：计算列宽，打印表头和缓存的行
+     */
+    private void finishSample() {
+        if (sampleDeadline != null) {
+            sampleDeadline.cancel(false);
+            sampleDeadline = null;
+        }
+        widths = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            int width = Math.max(columnNames[i].length(), 4);
+            for (String[] cells : sample) {
+                width = Math.max(width, cells[i].length());
+            }
+            // 显示宽度较小的类型（数字、日期、短 VARCHAR）直接按类型宽度，避免后续行逐渐变宽
+            if (hints[i] > 0 && hints[i] <= maxColumnWidth) {
+                width = Math.max(width, hints[i]);
+            }
+            widths[i] = Math.min(width, Math.max(maxColumnWidth, columnNames[i].length()));
+        }
+
+        printHeader();
+        for (String[] cells : sample) {
+            printRow(cells);
+        }
+        sample = null;
+        out.flush();
+    }
+
+    /**
+     * 加宽放不下的列，并多留 1/4 的余量，避免每来一行稍长的数据就重新打印表头；
+     * 增加不到 2 个字符时直接截断。列宽不变时返回 null
+     */
+    private int[] widerColumns(String[] cells) {
+        int[] wider = null;
+        for (int i = 0; i < cells.length; i++) {
+            int length = cells[i].length();
+            if (length <= widths[i] || widths[i] >= maxColumnWidth) {
+                continue;
+            }
+            int target = Math.min(maxColumnWidth, Math.max(length, widths[i] + widths[i] / 4));
+            if (target - widths[i] >= 2) {
+                if (wider == null) {
+                    wider = widths.clone();
+                }
+                wider[i] = target;
+            }
+        }
+        return wider;
+    }
+
+    private void printHeader() {
+        if (headerCount++ > 0) {
+            out.println("(column widths changed)");
+        }
+        printHorizontalLine();
+        printRow(columnNames);
+        printHorizontalLine();
+    }
+
+    private void printRow(String[] cells) {
+        if (!wrap) {
+            StringBuilder row = new StringBuilder(lineLength());
+            row.append('|');
+            for (int i = 0; i < cells.length; i++) {
+                row.append(' ');
+                appendTruncated(row, cells[i], widths[i]);
+                row.append(" |");
+            }
+            out.println(row);
+            return;
+        }
+
+        // 折行：超出列宽的内容在后续行继续显示
+        int lines = 1;
+        for (int i = 0; i < cells.length; i++) {
+            lines = Math.max(lines, (cells[i].length() + widths[i] - 1) / widths[i]);
+        }
+        for (int line = 0; line < lines; line++) {
+            StringBuilder row = new StringBuilder(lineLength());
+            row.append('|');
+            for (int i = 0; i < cells.length; i++) {
+                int from = Math.min(cells[i].length(), line * widths[i]);
+                int to = Math.min(cells[i].length(), from + widths[i]);
+                row.append(' ').append(cells[i], from, to);
+                appendSpaces(row, widths[i] - (to - from));
+                row.append(" |");
+            }
+            out.println(row);
+        }
+    }
+
+    private void printHorizontalLine() {
+        char[] line = new char[lineLength()];
+        Arrays.fill(line, '-');
+        int position = 0;
+        line[0] = '+';
+        for (int width : widths) {
+            position += width + 3;
+            line[position] = '+';
+        }
+        out.println(line);
+    }
+
+    /**
+     * 超出列宽的内容截断并以 ~ 结尾
+     */
+    private static void appendTruncated(StringBuilder sb, String value, int width) {
+        if (value.length() > width) {
+            sb.append(value, 0, width - 1).append('~');
+            return;
+        }
+        sb.append(value);
+        appendSpaces(sb, width - value.length());
+    }
+
+    private static void appendSpaces(StringBuilder sb, int count) {
+        for (int i = 0; i < count; i++) {
+            sb.append(' ');
+        }
+    }
+
+    private int lineLength() {
+        int length = 1;
+        for (int width : widths) {
+            length += width + 3;
+        }
+        return length;
+    }
+}
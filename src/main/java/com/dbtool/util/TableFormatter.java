@@ -2,10 +2,19 @@ package com.dbtool.util;
 
 import com.dbtool.model.QueryResult;
 
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 public class TableFormatter {
+    // 控制台输出时每积累这么多字符写一次
+    private static final int BLOCK_CHARS = 64 * 1024;
+    private static final char[] SPACES = new char[256];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
 
     /**
      * 将查询结果格式化为文本表格
@@ -30,23 +39,22 @@ public class TableFormatter {
     }
 
     private static String formatQueryResultAsText(QueryResult result) {
-        StringBuilder sb = new StringBuilder();
         List<Map<String, Object>> data = result.getData();
-        List<String> columnNames = result.getColumnNames();
 
         if (data == null || data.isEmpty()) {
-            sb.append("No data found.\n");
-            sb.append(result.getMessage());
-            return sb.toString();
+            return "No data found.\n" + result.getMessage();
         }
 
-        int[] columnWidths = calculateColumnWidths(data, columnNames);
+        RenderedTable table = new RenderedTable(result);
+        StringBuilder sb = new StringBuilder(table.estimatedLength() + 64);
 
-        sb.append(createHorizontalLine(columnWidths)).append("\n");
-        sb.append(createHeaderRow(columnNames, columnWidths)).append("\n");
-        sb.append(createHorizontalLine(columnWidths)).append("\n");
-        sb.append(createDataRows(data, columnNames, columnWidths));
-        sb.append(createHorizontalLine(columnWidths)).append("\n");
+        table.appendBorder(sb, "\n");
+        table.appendHeader(sb, "\n");
+        table.appendBorder(sb, "\n");
+        for (int row = 0; row < table.rowCount; row++) {
+            table.appendRow(sb, row, "\n");
+        }
+        table.appendBorder(sb, "\n");
 
         sb.append(result.getRowCount()).append(" row(s) returned\n");
         sb.append(result.getMessage());
@@ -74,9 +82,11 @@ public class TableFormatter {
         }
     }
 
+    /**
+     * 先把所有单元格转换一次文本并计算列宽，再按行拼接到块缓冲区，整块写入控制台
+     */
     private static void displayQueryResult(QueryResult result) {
         List<Map<String, Object>> data = result.getData();
-        List<String> columnNames = result.getColumnNames();
 
         if (data == null || data.isEmpty()) {
             System.out.println("No data found.");
@@ -84,16 +94,27 @@ public class TableFormatter {
             return;
         }
 
-        int[] columnWidths = calculateColumnWidths(data, columnNames);
-
-        printHorizontalLine(columnWidths);
-        printHeader(columnNames, columnWidths);
-        printHorizontalLine(columnWidths);
-        printDataRows(data, columnNames, columnWidths);
-        printHorizontalLine(columnWidths);
+        RenderedTable table = new RenderedTable(result);
+        PrintStream out = System.out;
+        String newline = System.lineSeparator();
+        StringBuilder block = new StringBuilder(Math.min(table.estimatedLength(), BLOCK_CHARS) + table.lineLength + 2);
+
+        table.appendBorder(block, newline);
+        table.appendHeader(block, newline);
+        table.appendBorder(block, newline);
+        for (int row = 0; row < table.rowCount; row++) {
+            table.appendRow(block, row, newline);
+            if (block.length() >= BLOCK_CHARS) {
+                out.print(block);
+                block.setLength(0);
+            }
+        }
+        table.appendBorder(block, newline);
 
-        System.out.println(result.getRowCount() + " row(s) returned");
-        System.out.println(result.getMessage());
+        block.append(result.getRowCount()).append(" row(s) returned").append(newline);
+        block.append(result.getMessage()).append(newline);
+        out.print(block);
+        out.flush();
     }
 
     private static void displayUpdateResult(QueryResult result) {
@@ -101,121 +122,211 @@ public class TableFormatter {
         System.out.println(result.getRowCount() + " row(s) affected");
     }
 
+    private static void appendSpaces(StringBuilder sb, int count) {
+        while (count > 0) {
+            int n = Math.min(count, SPACES.length);
+            sb.append(SPACES, 0, n);
+            count -= n;
+        }
+    }
+
     /**
-     * 计算每列的最大宽度
+     * 渲染中的表格：第一遍扫描所有单元格只计算列宽，第二遍按行窗口渲染。
+     * 一个窗口内的单元格文本连续存放在复用的 char 数组中，cellEnds 记录每个单元格的结束位置（按行优先顺序），
+     * 内存占用只和窗口大小有关，与结果集行数无关
      */
-    private static int[] calculateColumnWidths(List<Map<String, Object>> data, List<String> columnNames) {
-        int[] widths = new int[columnNames.size()];
+    private static final class RenderedTable {
+        private static final char[] NULL_TEXT = "NULL".toCharArray();
+        // 每个窗口转换的行数
+        private static final int WINDOW_ROWS = 1024;
+        // char 数组和 StringBuilder 能容纳的最大长度
+        private static final long MAX_CHARS = Integer.MAX_VALUE - 16;
+
+        final int rowCount;
+        final int columnCount;
+        final int lineLength;
+        private final QueryResult result;
+        private final List<String> columnNames;
+        private final int[] widths;
+        private final char[] border;
+
+        // 当前窗口：第 windowStart 行起的 windowRows 行
+        private final int[] cellEnds;
+        private char[] cells;
+        private int used;
+        private int windowStart = -1;
+        private int windowRows;
+
+        RenderedTable(QueryResult result) {
+            this.result = result;
+            this.columnNames = result.getColumnNames();
+            this.rowCount = result.getData().size();
+            this.columnCount = columnNames.size();
+            this.widths = new int[columnCount];
+
+            // 初始化列宽为列名的长度
+            for (int i = 0; i < columnCount; i++) {
+                widths[i] = Math.max(columnNames.get(i).length(), 4);
+            }
 
-        // 初始化列宽为列名的长度
-        for (int i = 0; i < columnNames.size(); i++) {
-            widths[i] = Math.max(columnNames.get(i).length(), 4);
-        }
+            // 整数只数位数，字符串直接取长度，不为计算列宽保存任何文本
+            for (int row = 0; row < rowCount; row++) {
+                for (int col = 0; col < columnCount; col++) {
+                    widths[col] = Math.max(widths[col], textLength(result.getValue(row, col)));
+                }
+            }
 
-        // 根据数据内容调整列宽
-        for (Map<String, Object> row : data) {
-            for (int i = 0; i < columnNames.size(); i++) {
-                String colName = columnNames.get(i);
-                Object value = row.get(colName);
-                String strValue = (value != null) ? value.toString() : "NULL";
-                widths[i] = Math.max(widths[i], strValue.length());
+            long length = 1;
+            for (int width : widths) {
+                length += width + 3L;
+            }
+            if (length > MAX_CHARS) {
+                throw new IllegalArgumentException("Row is too wide to format: " + length + " characters");
+            }
+            this.lineLength = (int) length;
+
+            this.border = new char[lineLength];
+            Arrays.fill(border, '-');
+            int position = 0;
+            border[position] = '+';
+            for (int width : widths) {
+                position += width + 3;
+                border[position] = '+';
             }
-        }
 
-        return widths;
-    }
+            int maxWindowCells = Math.min(rowCount, WINDOW_ROWS) * columnCount;
+            this.cellEnds = new int[maxWindowCells];
+            this.cells = new char[(int) Math.max(16, Math.min(maxWindowCells * 8L, 1 << 20))];
+        }
 
-    /**
-     * 创建水平分隔线
-     */
-    private static String createHorizontalLine(int[] widths) {
-        StringBuilder line = new StringBuilder("+");
-        for (int width : widths) {
-            line.append(repeatChar('-', width + 2)).append("+");
+        int estimatedLength() {
+            long total = (long) (rowCount + 4) * (lineLength + 1);
+            return (int) Math.min(total, Integer.MAX_VALUE - 16);
         }
-        return line.toString();
-    }
 
-    /**
-     * 创建表头行
-     */
-    private static String createHeaderRow(List<String> columnNames, int[] widths) {
-        StringBuilder row = new StringBuilder("|");
-        for (int i = 0; i < columnNames.size(); i++) {
-            row.append(" ").append(padRight(columnNames.get(i), widths[i])).append(" |");
+        void appendBorder(StringBuilder sb, String newline) {
+            sb.append(border).append(newline);
         }
-        return row.toString();
-    }
 
-    /**
-     * 创建数据行
-     */
-    private static String createDataRows(List<Map<String, Object>> data,
-                                         List<String> columnNames, int[] widths) {
-        StringBuilder allRows = new StringBuilder();
-        for (Map<String, Object> rowData : data) {
-            StringBuilder row = new StringBuilder("|");
-            for (int i = 0; i < columnNames.size(); i++) {
-                String colName = columnNames.get(i);
-                Object value = rowData.get(colName);
-                String strValue = (value != null) ? value.toString() : "NULL";
-                row.append(" ").append(padRight(strValue, widths[i])).append(" |");
-            }
-            allRows.append(row.toString()).append("\n");
-        }
-        return allRows.toString();
-    }
+        void appendHeader(StringBuilder sb, String newline) {
+            sb.append('|');
+            for (int col = 0; col < columnCount; col++) {
+                String name = columnNames.get(col);
+                sb.append(' ').append(name);
+                appendSpaces(sb, widths[col] - name.length());
+                sb.append(" |");
+            }
+            sb.append(newline);
+        }
 
-    /**
-     * 原有的控制台输出方法
-     */
-    private static void printHorizontalLine(int[] widths) {
-        System.out.println(createHorizontalLine(widths));
-    }
+        void appendRow(StringBuilder sb, int row, String newline) {
+            if (row < windowStart || row >= windowStart + windowRows) {
+                fillWindow(row);
+            }
+            sb.append('|');
+            int cell = (row - windowStart) * columnCount;
+            int start = cell == 0 ? 0 : cellEnds[cell - 1];
+            for (int col = 0; col < columnCount; col++, cell++) {
+                int end = cellEnds[cell];
+                sb.append(' ').append(cells, start, end - start);
+                appendSpaces(sb, widths[col] - (end - start));
+                sb.append(" |");
+                start = end;
+            }
+            sb.append(newline);
+        }
 
-    private static void printHeader(List<String> columnNames, int[] widths) {
-        System.out.println(createHeaderRow(columnNames, widths));
-    }
+        /**
+         * 把从 first 行开始的一个窗口的单元格转换为文本，复用上一个窗口的缓冲区
+         */
+        private void fillWindow(int first) {
+            windowStart = first;
+            windowRows = Math.min(WINDOW_ROWS, rowCount - first);
+            used = 0;
+            int cell = 0;
+            for (int row = first; row < first + windowRows; row++) {
+                for (int col = 0; col < columnCount; col++) {
+                    appendValue(result.getValue(row, col));
+                    cellEnds[cell++] = used;
+                }
+            }
+        }
 
-    private static void printDataRows(List<Map<String, Object>> data,
-                                      List<String> columnNames, int[] widths) {
-        for (Map<String, Object> rowData : data) {
-            StringBuilder row = new StringBuilder("|");
-            for (int i = 0; i < columnNames.size(); i++) {
-                String colName = columnNames.get(i);
-                Object value = rowData.get(colName);
-                String strValue = (value != null) ? value.toString() : "NULL";
-                row.append(" ").append(padRight(strValue, widths[i])).append(" |");
+        private static int textLength(Object value) {
+            if (value == null) {
+                return NULL_TEXT.length;
             }
-            System.out.println(row);
+            if (value instanceof String) {
+                return ((String) value).length();
+            }
+            if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                long v = ((Number) value).longValue();
+                if (v == Long.MIN_VALUE) {
+                    return 20;
+                }
+                int digits = v < 0 ? 2 : 1;
+                for (v = Math.abs(v); v >= 10; v /= 10) {
+                    digits++;
+                }
+                return digits;
+            }
+            return value.toString().length();
         }
-    }
 
-    /**
-     * 辅助方法：右填充字符串
-     */
-    private static String padRight(String s, int length) {
-        if (s == null) {
-            s = "NULL";
+        private void appendValue(Object value) {
+            if (value == null) {
+                appendChars(NULL_TEXT);
+            } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                appendLong(((Number) value).longValue());
+            } else {
+                String text = value.toString();
+                ensureCapacity(text.length());
+                text.getChars(0, text.length(), cells, used);
+                used += text.length();
+            }
         }
-        if (s.length() >= length) {
-            return s;
+
+        private void appendChars(char[] chars) {
+            ensureCapacity(chars.length);
+            System.arraycopy(chars, 0, cells, used, chars.length);
+            used += chars.length;
         }
-        StringBuilder sb = new StringBuilder(s);
-        while (sb.length() < length) {
-            sb.append(' ');
+
+        /**
+         * 整数直接写入字符数组，不创建字符串
+         */
+        private void appendLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                appendChars(Long.toString(value).toCharArray());
+                return;
+            }
+            ensureCapacity(20);
+            if (value < 0) {
+                cells[used++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            int position = used + digits;
+            do {
+                cells[--position] = (char) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+            used += digits;
         }
-        return sb.toString();
-    }
 
-    /**
-     * 辅助方法：重复字符
-     */
-    private static String repeatChar(char c, int count) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < count; i++) {
-            sb.append(c);
+        private void ensureCapacity(int extra) {
+            long required = (long) used + extra;
+            if (required > cells.length) {
+                if (required > MAX_CHARS) {
+                    throw new IllegalArgumentException("Result window is too large to format: " + required + " characters");
+                }
+                cells = Arrays.copyOf(cells, (int) Math.min(MAX_CHARS, Math.max(cells.length * 2L, required)));
+            }
         }
-        return sb.toString();
     }
-}
\ No newline at end of file
+}
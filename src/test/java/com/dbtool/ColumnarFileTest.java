@@ -0,0 +1,142 @@
+package com.dbtool;
+
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.ColumnarFileReader;
+import com.dbtool.util.ColumnarFileWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test columnar file round trip across row groups")
+    void testRoundTrip() throws IOException {
+        String file = tempDir.resolve("data.dbc").toString();
+
+        ColumnarFileWriter writer = new ColumnarFileWriter(file, 100);
+        writer.start(Arrays.asList("id", "total", "price", "name", "active"),
+                Arrays.asList("java.lang.Integer", "java.lang.Long", "java.lang.Double",
+                        "java.lang.String", "java.lang.Boolean"));
+        for (int i = 0; i < 250; i++) {
+            writer.row(new Object[]{i, i * 1000L, i % 7 == 0 ? null : i * 0.5, "名字" + (i % 5), i % 2 == 0});
+        }
+        writer.end(250, 0);
+
+        ColumnarFileReader reader = new ColumnarFileReader(file);
+        ColumnarRowSet rowSet = reader.readAll();
+
+        assertEquals(250, rowSet.size());
+        assertEquals(3, reader.getRowGroupCount());
+        assertEquals(Arrays.asList("id", "total", "price", "name", "active"), rowSet.getColumnNames());
+        assertEquals(249, rowSet.getValue(249, 0));
+        assertEquals(249000L, rowSet.getValue(249, 1));
+        assertNull(rowSet.getValue(7, 2));
+        assertEquals(4.0, rowSet.getValue(8, 2));
+        assertEquals("名字3", rowSet.getValue(8, 3));
+        assertEquals(Boolean.TRUE, rowSet.getValue(8, 4));
+
+        assertEquals(100L, reader.getMin(1, 0));
+        assertEquals(199L, reader.getMax(1, 0));
+        assertEquals("名字0", reader.getMin(0, 3));
+    }
+
+    @Test
+    @DisplayName("Test exporting an in-memory result")
+    void testExportQueryResult() {
+        String file = tempDir.resolve("result.dbc").toString();
+        ColumnarRowSet data = new ColumnarRowSet(Arrays.asList("ID", "Name"),
+                Arrays.asList("java.lang.Integer", "java.lang.String"));
+        data.addRow(new Object[]{1, "a"});
+        data.addRow(new Object[]{2, null});
+
+        assertTrue(ColumnarFileWriter.export(QueryResult.success("ok", data, data.getColumnNames(), 2, 0), file));
+
+        QueryResult read = ColumnarFileReader.read(file);
+        assertTrue(read.isSuccess());
+        assertEquals(2, read.getRowCount());
+        assertEquals("a", read.getValue(0, 1));
+        assertNull(read.getValue(1, 1));
+    }
+
+    @Test
+    @DisplayName("Test a column with mixed value types is exported as text")
+    void testExportMixedTypes() {
+        String file = tempDir.resolve("mixed.dbc").toString();
+        List<String> columnNames = Arrays.asList("ID", "Value");
+        List<Map<String, Object>> data = new ArrayList<>();
+        Object[][] rows = {{1, 10}, {2, "ten"}, {3L, null}};
+        for (Object[] values : rows) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("ID", values[0]);
+            row.put("Value", values[1]);
+            data.add(row);
+        }
+
+        assertTrue(ColumnarFileWriter.export(QueryResult.success("ok", data, columnNames, 3, 0), file));
+
+        QueryResult read = ColumnarFileReader.read(file);
+        assertTrue(read.isSuccess());
+        assertEquals("1", read.getValue(0, 0));
+        assertEquals("3", read.getValue(2, 0));
+        assertEquals("10", read.getValue(0, 1));
+        assertEquals("ten", read.getValue(1, 1));
+        assertNull(read.getValue(2, 1));
+    }
+
+    @Test
+    @DisplayName("Test a value that does not match the declared column type fails the export cleanly")
+    void testStreamedTypeMismatch() throws IOException {
+        Path file = tempDir.resolve("mismatch.dbc");
+        ColumnarFileWriter writer = new ColumnarFileWriter(file.toString(), 2);
+        writer.start(Arrays.asList("id"), Arrays.asList("java.lang.Integer"));
+        writer.row(new Object[]{1});
+
+        IOException e = assertThrows(IOException.class, () -> writer.row(new Object[]{5_000_000_000L}));
+        assertTrue(e.getMessage().contains("id"));
+        writer.abort();
+        assertFalse(Files.exists(tempDir.resolve("mismatch.dbc.tmp")));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    @DisplayName("Test reading a file that is not a columnar export")
+    void testInvalidFile() throws IOException {
+        Path file = tempDir.resolve("bad.dbc");
+        Files.write(file, "id,name\n1,a\n".getBytes());
+
+        assertFalse(ColumnarFileReader.read(file.toString()).isSuccess());
+    }
+
+    @Test
+    @DisplayName("Test an aborted export leaves no partial file and keeps the previous one")
+    void testAbort() throws IOException {
+        Path file = tempDir.resolve("data.dbc");
+        Files.write(file, "previous".getBytes());
+
+        ColumnarFileWriter writer = new ColumnarFileWriter(file.toString(), 10);
+        writer.start(Arrays.asList("id"), Arrays.asList("java.lang.Integer"));
+        for (int i = 0; i < 25; i++) {
+            writer.row(new Object[]{i});
+        }
+        writer.abort();
+
+        assertEquals("previous", new String(Files.readAllBytes(file)));
+        assertFalse(Files.exists(tempDir.resolve("data.dbc.tmp")));
+    }
+}
@@ -0,0 +1,97 @@
+package com.dbtool;
+
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.TableFormatter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarRowSetTest {
+
+    private ColumnarRowSet createRowSet() {
+        List<String> names = Arrays.asList("ID", "Total", "Price", "Name", "Amount");
+        List<String> classes = Arrays.asList("java.lang.Integer", "java.lang.Long", "java.lang.Double",
+                "java.lang.String", "java.math.BigDecimal");
+        return new ColumnarRowSet(names, classes);
+    }
+
+    @Test
+    @DisplayName("Test typed values round trip")
+    void testTypedValues() {
+        ColumnarRowSet rowSet = createRowSet();
+        for (int i = 0; i < 1000; i++) {
+            rowSet.addRow(new Object[]{i, i * 10L, i / 2.0, "name" + (i % 3), new BigDecimal(i)});
+        }
+
+        assertEquals(1000, rowSet.size());
+        assertEquals(999, rowSet.getValue(999, 0));
+        assertEquals(9990L, rowSet.getValue(999, 1));
+        assertEquals(499.5, rowSet.getValue(999, 2));
+        assertEquals("name0", rowSet.getValue(999, 3));
+        assertEquals(new BigDecimal(999), rowSet.getValue(999, 4));
+    }
+
+    @Test
+    @DisplayName("Test null values")
+    void testNulls() {
+        ColumnarRowSet rowSet = createRowSet();
+        rowSet.addRow(new Object[]{null, 1L, null, null, null});
+        rowSet.addRow(new Object[]{2, null, 3.5, "x", BigDecimal.ONE});
+
+        assertNull(rowSet.getValue(0, 0));
+        assertNull(rowSet.getValue(0, 2));
+        assertNull(rowSet.getValue(0, 3));
+        assertNull(rowSet.getValue(1, 1));
+        assertEquals(2, rowSet.getValue(1, 0));
+        assertEquals("x", rowSet.getValue(1, 3));
+    }
+
+    @Test
+    @DisplayName("Test mismatched value falls back to object storage")
+    void testTypeFallback() {
+        ColumnarRowSet rowSet = new ColumnarRowSet(Arrays.asList("ID"), Arrays.asList("java.lang.Integer"));
+        rowSet.addRow(new Object[]{1});
+        rowSet.addRow(new Object[]{"two"});
+
+        assertEquals(1, rowSet.getValue(0, 0));
+        assertEquals("two", rowSet.getValue(1, 0));
+    }
+
+    @Test
+    @DisplayName("Test row view behaves like the original row map")
+    void testRowView() {
+        ColumnarRowSet rowSet = createRowSet();
+        rowSet.addRow(new Object[]{1, 2L, 3.0, "a", null});
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("ID", 1);
+        expected.put("Total", 2L);
+        expected.put("Price", 3.0);
+        expected.put("Name", "a");
+        expected.put("Amount", null);
+
+        Map<String, Object> row = rowSet.get(0);
+        assertEquals(expected, row);
+        assertEquals(Arrays.asList("ID", "Total", "Price", "Name", "Amount"), Arrays.asList(row.keySet().toArray()));
+        assertThrows(UnsupportedOperationException.class, () -> rowSet.add(row));
+    }
+
+    @Test
+    @DisplayName("Test formatter works with columnar result")
+    void testFormatter() {
+        ColumnarRowSet rowSet = createRowSet();
+        rowSet.addRow(new Object[]{1, 2L, 3.0, "abc", null});
+        QueryResult result = QueryResult.success("ok", rowSet, rowSet.getColumnNames(), 1, 0);
+
+        String text = TableFormatter.formatAsText(result);
+        assertTrue(text.contains("| 1    | 2     | 3.0   | abc  | NULL   |"));
+    }
+}
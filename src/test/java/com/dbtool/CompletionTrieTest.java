@@ -0,0 +1,100 @@
+package com.dbtool;
+
+import com.dbtool.core.MetadataManager;
+import com.dbtool.core.SchemaSnapshot;
+import com.dbtool.core.SqlCompleter;
+import com.dbtool.util.CompletionTrie;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CompletionTrieTest {
+
+    @Test
+    @DisplayName("Test prefix lookup is case-insensitive, sorted and limited")
+    void testComplete() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.addAll(Arrays.asList("user_roles", "users", "User", "orders", "order_items", "USERS", "u"));
+
+        assertEquals(6, trie.size());
+        assertEquals(Arrays.asList("u", "User", "user_roles", "users"), trie.complete("u", 10));
+        assertEquals(Arrays.asList("User", "user_roles", "users"), trie.complete("USER", 10));
+        assertEquals(Arrays.asList("order_items", "orders"), trie.complete("ord", 10));
+        assertEquals(Collections.singletonList("order_items"), trie.complete("order", 1));
+        assertTrue(trie.complete("x", 10).isEmpty());
+        assertTrue(trie.complete("users_", 10).isEmpty());
+        assertTrue(trie.contains("ORDERS"));
+        assertFalse(trie.contains("order"));
+        assertEquals(6, trie.complete("", 100).size());
+    }
+
+    @Test
+    @DisplayName("Test lookups stay fast on millions of names")
+    void testLargeTrie() {
+        CompletionTrie trie = new CompletionTrie();
+        for (int t = 0; t < 50_000; t++) {
+            for (int c = 0; c < 40; c++) {
+                trie.add("col_" + t + "_" + c);
+            }
+        }
+        assertEquals(2_000_000, trie.size());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(200, trie.complete("col_" + (i % 9 + 1), 200).size());
+        }
+        long averageMicros = (System.nanoTime() - start) / 1000 / 1000;
+        assertTrue(averageMicros < 5000, "average " + averageMicros + "us");
+    }
+
+    @Test
+    @DisplayName("Test the completer picks commands, tables, databases or columns by context")
+    void testSqlCompleter() throws Exception {
+        SchemaSnapshot snapshot = mock(SchemaSnapshot.class);
+        when(snapshot.getCreatedAt()).thenReturn(1L);
+        when(snapshot.getDatabases()).thenReturn(Arrays.asList("shop", "test"));
+        when(snapshot.getTables("shop")).thenReturn(Arrays.asList("users", "orders"));
+        when(snapshot.getTables("test")).thenReturn(Collections.singletonList("t1"));
+        when(snapshot.getColumnNames(anyString(), anyString())).thenReturn(null);
+        when(snapshot.getColumnNames("shop", "users")).thenReturn(Arrays.asList("id", "name", "email"));
+        when(snapshot.getColumnNames("shop", "orders")).thenReturn(Arrays.asList("id", "user_id", "total"));
+        when(snapshot.getColumnNames("test", "t1")).thenReturn(Collections.singletonList("note"));
+        MetadataManager metadataManager = mock(MetadataManager.class);
+        when(metadataManager.getSchemaSnapshot()).thenReturn(snapshot);
+        when(metadataManager.getCurrentDatabase()).thenReturn("shop");
+
+        SqlCompleter completer = new SqlCompleter(metadataManager);
+        try {
+            // 名称在后台装入
+            long deadline = System.currentTimeMillis() + 5000;
+            while (completer.complete("SELECT * FROM u").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(Collections.singletonList("users"), completer.complete("SELECT * FROM u"));
+            assertEquals(Arrays.asList("orders"), completer.complete("select * from users, o"));
+            assertEquals(Arrays.asList("\\stats", "\\status"), completer.complete("\\sta"));
+            assertEquals(Collections.singletonList("shop"), completer.complete("use s"));
+            assertEquals(Collections.singletonList("test"), completer.complete("\\use t"));
+            assertEquals(Collections.singletonList("orders"), completer.complete("\\d or"));
+            assertEquals(Collections.singletonList("users.email"), completer.complete("SELECT users.e"));
+            assertEquals(Collections.singletonList("test.t1"), completer.complete("SELECT * FROM test.t"));
+
+            List<String> columns = completer.complete("SELECT na");
+            assertTrue(columns.contains("name"));
+            List<String> inQuery = completer.complete("SELECT * FROM orders WHERE t");
+            assertEquals("total", inQuery.get(0));
+            assertFalse(inQuery.contains("note"));
+            assertTrue(completer.complete("sel").contains("select"));
+            assertTrue(completer.complete("SEL").contains("SELECT"));
+        } finally {
+            completer.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.dbtool;
+
+import com.dbtool.core.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private ConnectionPool pool;
+
+    private Connection newMockConnection() throws SQLException {
+        created.incrementAndGet();
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        return connection;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test returned connection is reused")
+    void testConnectionReuse() throws SQLException {
+        pool = new ConnectionPool(this::newMockConnection, 0, 2, 60000, 1000, 0, 1);
+
+        Connection first = pool.borrow();
+        first.close();
+        Connection second = pool.borrow();
+        second.close();
+
+        assertEquals(1, created.get());
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    @DisplayName("Test warm up creates minimum connections")
+    void testWarmUp() throws SQLException {
+        pool = new ConnectionPool(this::newMockConnection, 3, 5, 60000, 1000, 0, 1);
+        pool.warmUp();
+
+        assertEquals(3, pool.getTotalCount());
+        assertEquals(3, pool.getIdleCount());
+    }
+
+    @Test
+    @DisplayName("Test borrow times out when pool is exhausted")
+    void testBorrowTimeout() throws SQLException {
+        pool = new ConnectionPool(this::newMockConnection, 0, 1, 60000, 50, 0, 1);
+
+        Connection held = pool.borrow();
+        assertThrows(SQLException.class, () -> pool.borrow());
+
+        held.close();
+        assertDoesNotThrow(() -> pool.borrow().close());
+    }
+
+    @Test
+    @DisplayName("Test returned proxy rejects further use")
+    void testClosedProxy() throws SQLException {
+        pool = new ConnectionPool(this::newMockConnection, 0, 1, 60000, 1000, 0, 1);
+
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, connection::createStatement);
+    }
+
+    @Test
+    @DisplayName("Test uncommitted transaction is rolled back on return")
+    void testRollbackOnReturn() throws SQLException {
+        Connection physical = newMockConnection();
+        when(physical.getAutoCommit()).thenReturn(false);
+        pool = new ConnectionPool(() -> physical, 0, 1, 60000, 1000, 0, 1);
+
+        pool.borrow().close();
+
+        verify(physical).rollback();
+        verify(physical).setAutoCommit(true);
+    }
+
+    @Test
+    @DisplayName("Test connections whose session state was changed are closed on return")
+    void testSessionStateNotShared() throws SQLException {
+        pool = new ConnectionPool(this::newMockConnection, 0, 2, 60000, 1000, 0, 1);
+
+        Connection connection = pool.borrow();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeQuery("SELECT * FROM users");
+        }
+        connection.close();
+        assertEquals(1, pool.getIdleCount());
+
+        connection = pool.borrow();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+        }
+        connection.close();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(0, pool.getTotalCount());
+
+        pool.borrow().close();
+        assertEquals(2, created.get());
+
+        assertTrue(ConnectionPool.changesSessionState("set names utf8mb4"));
+        assertTrue(ConnectionPool.changesSessionState("USE shop"));
+        assertTrue(ConnectionPool.changesSessionState("SELECT @total := SUM(amount) FROM orders"));
+        assertTrue(ConnectionPool.changesSessionState("SELECT id INTO @last FROM orders LIMIT 1"));
+        assertTrue(ConnectionPool.changesSessionState("LOCK TABLES orders READ"));
+        assertTrue(ConnectionPool.changesSessionState("CREATE TEMPORARY TABLE t (id INT)"));
+        assertFalse(ConnectionPool.changesSessionState("SELECT @@sql_mode, 'SET x = 1' FROM dual"));
+        assertFalse(ConnectionPool.changesSessionState("INSERT INTO orders VALUES (1)"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.dbtool;
+
+import com.dbtool.util.CsvReader;
+import com.dbtool.util.ExportUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvReaderTest {
+
+    @Test
+    @DisplayName("Test quoted fields, escaped quotes and embedded newlines")
+    void testQuotedFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "id,name,note\r\n1,\"Smith, John\",\"say \"\"hi\"\"\"\r\n2,plain,\"line1\nline2\"\n"));
+
+        assertArrayEquals(new String[]{"id", "name", "note"}, reader.next());
+        assertArrayEquals(new String[]{"1", "Smith, John", "say \"hi\""}, reader.next());
+        assertArrayEquals(new String[]{"2", "plain", "line1\nline2"}, reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Test empty unquoted fields are NULL and quoted empty fields are empty strings")
+    void testNullAndEmpty() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\uFEFFa,,\"\"\n,x,"));
+
+        assertArrayEquals(new String[]{"a", null, ""}, reader.next());
+        assertArrayEquals(new String[]{null, "x", null}, reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Test fields spanning the read buffer and round trip with ExportUtil")
+    void testLargeFieldRoundTrip() throws IOException {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            large.append("ab,\"c\n");
+        }
+        String value = large.toString();
+
+        CsvReader reader = new CsvReader(new StringReader(
+                "1," + ExportUtil.escapeCsv(value) + ",tail\n2," + value.replaceAll("[,\"\n]", "") + ",end"));
+
+        assertArrayEquals(new String[]{"1", value, "tail"}, reader.next());
+        String[] second = reader.next();
+        assertEquals(3, second.length);
+        assertEquals(value.replaceAll("[,\"\n]", ""), second[1]);
+        assertEquals("end", second[2]);
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Test unterminated quoted field is reported")
+    void testUnterminatedQuote() {
+        CsvReader reader = new CsvReader(new StringReader("1,\"open"));
+        assertThrows(IOException.class, reader::next);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dbtool;
+
+import com.dbtool.core.ExecutionContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ExecutionContextTest {
+
+    @Test
+    @DisplayName("Test context is bound to the thread only while the task runs")
+    void testCurrentBinding() throws Exception {
+        ExecutionContext context = new ExecutionContext(null);
+
+        ExecutionContext seen = context.run(ExecutionContext::current);
+
+        assertSame(context, seen);
+        assertNull(ExecutionContext.current());
+    }
+
+    @Test
+    @DisplayName("Test cancel calls Statement.cancel on the attached statement")
+    void testCancelAttachedStatement() throws Exception {
+        Statement stmt = mock(Statement.class);
+        when(stmt.getConnection()).thenReturn(mock(Connection.class));
+        ExecutionContext context = new ExecutionContext(null);
+
+        context.attach(stmt);
+        context.cancel();
+
+        verify(stmt).cancel();
+        assertTrue(context.isCancelled());
+    }
+
+    @Test
+    @DisplayName("Test no new statement starts after cancellation")
+    void testAttachAfterCancel() {
+        ExecutionContext context = new ExecutionContext(null);
+        context.cancel();
+
+        assertThrows(SQLException.class, () -> context.attach(mock(Statement.class)));
+    }
+}
@@ -0,0 +1,125 @@
+package com.dbtool;
+
+import com.dbtool.core.HistoryManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test an existing plain history file is loaded with duplicates collapsed")
+    void testLoadExistingFile() throws Exception {
+        Path file = tempDir.resolve(".dbmanager_history");
+        Files.write(file, ("SHOW DATABASES\r\ncd E:\\work\\DBManagerTool\nSELECT * FROM user;\n\n"
+                + "show databases\nSELECT *  FROM user\n").getBytes(StandardCharsets.UTF_8));
+
+        HistoryManager history = new HistoryManager(100, file);
+        assertTrue(history.load());
+
+        assertEquals(Arrays.asList("SELECT *  FROM user", "show databases", "cd E:\\work\\DBManagerTool", "SHOW DATABASES"),
+                history.getAll());
+        assertEquals(Collections.singletonList("cd E:\\work\\DBManagerTool"), history.search("WORK"));
+    }
+
+    @Test
+    @DisplayName("Test entries are appended to the file and survive a restart")
+    void testPersistence() throws Exception {
+        Path file = tempDir.resolve("history");
+        HistoryManager history = new HistoryManager(100, file);
+        history.add("SELECT 1");
+        history.add("SELECT 'a\\nb'\nFROM dual");
+        history.add("\\stats");
+        history.add("SELECT 1;");
+        history.close();
+
+        assertEquals(4, Files.readAllLines(file).size());
+        HistoryManager reloaded = new HistoryManager(100, file);
+        reloaded.load();
+        assertEquals(Arrays.asList("SELECT 1;", "\\stats", "SELECT 'a\\nb'\nFROM dual"), reloaded.getRecent(3));
+        assertEquals(3, reloaded.size());
+
+        reloaded.add("SELECT 2");
+        reloaded.clear();
+        assertTrue(reloaded.isEmpty());
+        assertNull(reloaded.getLastError());
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    @DisplayName("Test indexed search and the size limit on a large history")
+    void testLargeHistory() throws Exception {
+        Path file = tempDir.resolve("history");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            sb.append("SELECT * FROM orders_").append(i % 50000).append(" WHERE id = ").append(i).append('\n');
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        HistoryManager history = new HistoryManager(150000, file);
+        history.load();
+        assertEquals(150000, history.size());
+
+        List<String> found = history.search("orders_49999 where id = 1");
+        assertEquals(Arrays.asList("SELECT * FROM orders_49999 WHERE id = 199999",
+                "SELECT * FROM orders_49999 WHERE id = 149999"), found);
+        assertTrue(history.search("no such text").isEmpty());
+
+        history.add("SELECT * FROM orders_49999 WHERE id = 149999");
+        assertEquals("SELECT * FROM orders_49999 WHERE id = 149999", history.search("orders_49999").get(0));
+        assertEquals(3, history.search("orders_49999").size());
+        assertEquals(150000, history.size());
+
+        // 删除的记录多于保留的记录时，关闭时重写文件
+        HistoryManager small = new HistoryManager(10, file);
+        small.load();
+        small.getRecent(1);
+        small.close();
+        assertEquals(10, Files.readAllLines(file).size());
+    }
+
+    @Test
+    @DisplayName("Test rewriting the file keeps entries appended by another session")
+    void testConcurrentSessions() throws Exception {
+        Path file = tempDir.resolve("history");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("SELECT ").append(i % 20).append('\n');
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        HistoryManager first = new HistoryManager(100, file);
+        HistoryManager second = new HistoryManager(100, file);
+        first.load();
+        second.load();
+        second.add("SELECT 'second 1'");
+        first.add("SELECT 'first'");
+        first.close();
+        // 文件已被重写，第二个会话追加到新文件
+        second.add("SELECT 'second 2'");
+        second.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(23, lines.size());
+        assertEquals(Arrays.asList("SELECT 'second 1'", "SELECT 'first'", "SELECT 'second 2'"),
+                lines.subList(20, 23));
+
+        HistoryManager reloaded = new HistoryManager(100, file);
+        reloaded.load();
+        assertEquals(Arrays.asList("SELECT 'second 2'", "SELECT 'first'", "SELECT 'second 1'", "SELECT 19"),
+                reloaded.getRecent(4));
+        assertEquals(23, reloaded.size());
+    }
+}
@@ -0,0 +1,73 @@
+package com.dbtool;
+
+import com.dbtool.core.DatabaseManager;
+import com.dbtool.core.MetadataCache;
+import com.dbtool.core.MetadataManager;
+import com.dbtool.model.QueryResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MetadataCacheTest {
+
+    @Test
+    @DisplayName("Test least recently used entries are evicted")
+    void testLruEviction() {
+        MetadataCache cache = new MetadataCache(2, 0);
+        QueryResult tables = QueryResult.error("tables");
+
+        cache.put("shop", "SHOW TABLES", tables);
+        cache.put("shop", "SHOW TABLE STATUS", QueryResult.error("status"));
+        assertSame(tables, cache.get("shop", "SHOW TABLES"));
+
+        cache.put("shop", "DESCRIBE orders", QueryResult.error("describe"));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("shop", "SHOW TABLES"));
+        assertNull(cache.get("shop", "SHOW TABLE STATUS"));
+    }
+
+    @Test
+    @DisplayName("Test entries are separated by database and invalidated per database")
+    void testInvalidateCatalog() {
+        MetadataCache cache = new MetadataCache(10, 0);
+        cache.put("shop", "SHOW TABLES", QueryResult.error("shop"));
+        cache.put("crm", "SHOW TABLES", QueryResult.error("crm"));
+
+        cache.invalidate("shop");
+
+        assertNull(cache.get("shop", "SHOW TABLES"));
+        assertEquals("crm", cache.get("crm", "SHOW TABLES").getMessage());
+    }
+
+    @Test
+    @DisplayName("Test entries expire after the TTL")
+    void testTtl() throws InterruptedException {
+        MetadataCache cache = new MetadataCache(10, 20);
+        cache.put("shop", "SHOW TABLES", QueryResult.error("tables"));
+        assertNotNull(cache.get("shop", "SHOW TABLES"));
+
+        Thread.sleep(50);
+        assertNull(cache.get("shop", "SHOW TABLES"));
+        assertTrue(cache.getStats().contains("1 hits"));
+    }
+
+    @Test
+    @DisplayName("Test metadata lookups follow a replaced session connection")
+    void testReplacedSessionConnection() throws Exception {
+        Connection dead = mock(Connection.class);
+        when(dead.getCatalog()).thenThrow(new SQLException("connection closed"));
+        Connection replacement = mock(Connection.class);
+        when(replacement.getCatalog()).thenReturn("shop");
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.getConnection()).thenReturn(dead, replacement);
+
+        MetadataManager metadataManager = new MetadataManager(dbManager);
+        assertNull(metadataManager.getCurrentDatabase());
+        assertEquals("shop", metadataManager.getCurrentDatabase());
+    }
+}
@@ -0,0 +1,165 @@
+package com.dbtool;
+
+import com.dbtool.core.DatabaseManager;
+import com.dbtool.core.ParallelCsvExporter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ParallelCsvExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test key ranges are read in parallel and written in key order")
+    void testRangeSplittingAndMergeOrder() throws Exception {
+        // 切分点：1 -> 11 -> 21 -> 结束，共 25 行
+        Map<Object, Object> boundaries = new ConcurrentHashMap<>();
+        boundaries.put(1, 11);
+        boundaries.put(11, 21);
+
+        Connection session = mock(Connection.class);
+        when(session.getCatalog()).thenReturn("shop");
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(session.getMetaData()).thenReturn(metaData);
+        ResultSet primaryKeys = rows(Arrays.<Object[]>asList(new Object[]{"id"}));
+        when(primaryKeys.getString("COLUMN_NAME")).thenReturn("id");
+        when(metaData.getPrimaryKeys("shop", null, "orders")).thenReturn(primaryKeys);
+
+        Statement sessionStmt = mock(Statement.class);
+        when(session.createStatement()).thenReturn(sessionStmt);
+        when(sessionStmt.executeQuery(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.endsWith("LIMIT 0")) {
+                ResultSet header = rows(new ArrayList<>());
+                ResultSetMetaData columns = mock(ResultSetMetaData.class);
+                when(columns.getColumnCount()).thenReturn(2);
+                when(columns.getColumnLabel(1)).thenReturn("id");
+                when(columns.getColumnLabel(2)).thenReturn("name, full");
+                when(header.getMetaData()).thenReturn(columns);
+                return header;
+            }
+            return rows(Arrays.<Object[]>asList(new Object[]{1}));
+        });
+
+        PreparedStatement boundary = mock(PreparedStatement.class);
+        AtomicReference<Object> boundaryFrom = new AtomicReference<>();
+        doAnswer(invocation -> {
+            boundaryFrom.set(invocation.getArgument(1));
+            return null;
+        }).when(boundary).setObject(eq(1), any());
+        when(boundary.executeQuery()).thenAnswer(invocation -> {
+            Object to = boundaries.get(boundaryFrom.get());
+            return rows(to != null ? Arrays.<Object[]>asList(new Object[]{to}) : new ArrayList<>());
+        });
+        when(session.prepareStatement(anyString())).thenReturn(boundary);
+
+        List<String> ranges = new ArrayList<>();
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.getConnection()).thenReturn(session);
+        when(dbManager.isPooled()).thenReturn(true);
+        when(dbManager.borrowConnection()).thenAnswer(invocation -> workerConnection(ranges));
+
+        Path file = tempDir.resolve("orders.csv");
+        Files.write(file, "old".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(new ParallelCsvExporter(dbManager).export("orders", file.toString(), 3));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals("id,\"name, full\"", lines.get(0));
+        assertEquals(26, lines.size());
+        for (int i = 1; i <= 25; i++) {
+            assertEquals(i + ",row " + i, lines.get(i));
+        }
+        synchronized (ranges) {
+            ranges.sort(null);
+            assertEquals(Arrays.asList("1..11", "11..21", "21.."), ranges);
+        }
+        assertFalse(Files.exists(tempDir.resolve("orders.csv.tmp")));
+    }
+
+    @Test
+    @DisplayName("Test a failed export keeps the existing file and removes the temp file")
+    void testFailedExportKeepsExistingFile() throws Exception {
+        Connection session = mock(Connection.class);
+        when(session.getMetaData()).thenThrow(new SQLException("connection lost"));
+        when(session.createStatement()).thenThrow(new SQLException("connection lost"));
+        when(session.createStatement(anyInt(), anyInt())).thenThrow(new SQLException("connection lost"));
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.getConnection()).thenReturn(session);
+
+        Path file = tempDir.resolve("orders.csv");
+        Files.write(file, "old".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(new ParallelCsvExporter(dbManager).export("orders", file.toString(), 1));
+        assertEquals("old", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(tempDir.resolve("orders.csv.tmp")));
+    }
+
+    /**
+     * 工作连接：按绑定的键范围返回行，越早的范围读得越慢，用来检查写入顺序
+     */
+    private static Connection workerConnection(List<String> ranges) throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        Object[] bounds = new Object[2];
+        doAnswer(invocation -> {
+            bounds[(int) invocation.getArgument(0) - 1] = invocation.getArgument(1);
+            return null;
+        }).when(pstmt).setObject(anyInt(), any());
+        when(pstmt.executeQuery()).thenAnswer(invocation -> {
+            int from = (int) bounds[0];
+            int to = bounds[1] != null ? (int) bounds[1] : 26;
+            synchronized (ranges) {
+                ranges.add(from + ".." + (bounds[1] != null ? bounds[1] : ""));
+            }
+            Thread.sleep(Math.max(0, 60 - from * 2L));
+            List<Object[]> data = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                data.add(new Object[]{i, "row " + i});
+            }
+            ResultSet rs = rows(data);
+            ResultSetMetaData columns = mock(ResultSetMetaData.class);
+            when(columns.getColumnCount()).thenReturn(2);
+            when(rs.getMetaData()).thenReturn(columns);
+            return rs;
+        });
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(pstmt);
+        return connection;
+    }
+
+    private static ResultSet rows(List<Object[]> data) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        AtomicInteger cursor = new AtomicInteger(-1);
+        when(rs.next()).thenAnswer(invocation -> cursor.incrementAndGet() < data.size());
+        when(rs.getObject(anyInt())).thenAnswer(invocation ->
+                data.get(cursor.get())[(int) invocation.getArgument(0) - 1]);
+        return rs;
+    }
+}
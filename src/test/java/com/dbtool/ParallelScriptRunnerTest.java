@@ -0,0 +1,146 @@
+package com.dbtool;
+
+import com.dbtool.core.DatabaseManager;
+import com.dbtool.core.ExecutionContext;
+import com.dbtool.core.ParallelScriptRunner;
+import com.dbtool.core.SQLExecutor;
+import com.dbtool.model.QueryResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ParallelScriptRunnerTest {
+
+    @Test
+    @DisplayName("Test tables are extracted from maintenance and DML statements")
+    void testTablesOf() {
+        assertEquals(new HashSet<>(Arrays.asList("orders", "customers")),
+                ParallelScriptRunner.tablesOf("ANALYZE TABLE `shop`.`orders`, customers"));
+        assertEquals(Collections.singleton("orders"), ParallelScriptRunner.tablesOf("CHECK TABLE orders QUICK"));
+        assertEquals(Collections.singleton("orders"), ParallelScriptRunner.tablesOf("UPDATE orders SET v = 1"));
+        assertTrue(ParallelScriptRunner.tablesOf("SET SESSION sql_mode = ''").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test session SET and USE run on every worker connection")
+    void testSessionSetOnAllConnections() throws Exception {
+        assertTrue(ParallelScriptRunner.appliesToAllConnections("SET FOREIGN_KEY_CHECKS = 0"));
+        assertTrue(ParallelScriptRunner.appliesToAllConnections("SET NAMES utf8mb4"));
+        assertTrue(ParallelScriptRunner.appliesToAllConnections("SET @@session.sql_mode = ''"));
+        assertFalse(ParallelScriptRunner.appliesToAllConnections("SET GLOBAL max_connections = 500"));
+        assertFalse(ParallelScriptRunner.appliesToAllConnections("SET @@global.max_connections = 500"));
+
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.getConnection()).thenReturn(mock(Connection.class));
+        when(dbManager.openConnection()).thenAnswer(invocation -> mock(Connection.class));
+        List<Connection> used = new CopyOnWriteArrayList<>();
+        SQLExecutor executor = mock(SQLExecutor.class);
+        when(executor.execute(any(), anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(1);
+            if (sql.startsWith("SET")) {
+                used.add(invocation.getArgument(0));
+            }
+            return QueryResult.success(sql, null, null, 0, 0);
+        });
+
+        new ParallelScriptRunner(dbManager, executor).run(Arrays.asList(
+                "SET FOREIGN_KEY_CHECKS = 0", "INSERT INTO a VALUES (1)", "INSERT INTO b VALUES (1)"), 2);
+
+        assertEquals(2, new HashSet<>(used).size());
+    }
+
+    @Test
+    @DisplayName("Test independent statements overlap while same-table statements keep their order")
+    void testParallelOrdering() throws Exception {
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        Connection session = mock(Connection.class);
+        when(dbManager.getConnection()).thenReturn(session);
+        when(dbManager.openConnection()).thenAnswer(invocation -> mock(Connection.class));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        SQLExecutor executor = mock(SQLExecutor.class);
+        when(executor.execute(any(), anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(1);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            order.add(sql);
+            running.decrementAndGet();
+            return QueryResult.success(sql, null, null, 0, 50);
+        });
+
+        List<String> statements = Arrays.asList(
+                "OPTIMIZE TABLE a", "OPTIMIZE TABLE b", "ANALYZE TABLE a", "OPTIMIZE TABLE c", "ANALYZE TABLE b");
+        List<QueryResult> results = new ParallelScriptRunner(dbManager, executor).run(statements, 3);
+
+        assertEquals(statements.size(), results.size());
+        for (int i = 0; i < statements.size(); i++) {
+            assertEquals(statements.get(i), results.get(i).getMessage());
+        }
+        assertTrue(order.indexOf("OPTIMIZE TABLE a") < order.indexOf("ANALYZE TABLE a"));
+        assertTrue(order.indexOf("OPTIMIZE TABLE b") < order.indexOf("ANALYZE TABLE b"));
+        assertTrue(maxRunning.get() > 1);
+        verify(dbManager, times(3)).openConnection();
+    }
+
+    @Test
+    @DisplayName("Test cancelling stops the statements running on every worker connection")
+    void testCancelRunningStatements() throws Exception {
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.getConnection()).thenReturn(mock(Connection.class));
+        when(dbManager.openConnection()).thenAnswer(invocation -> mock(Connection.class));
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch cancelled = new CountDownLatch(2);
+        SQLExecutor executor = mock(SQLExecutor.class);
+        when(executor.execute(any(), anyString())).thenAnswer(invocation -> {
+            // SQLExecutor.prepare 把语句登记到当前线程的上下文
+            Statement stmt = mock(Statement.class);
+            when(stmt.getConnection()).thenReturn(mock(Connection.class));
+            doAnswer(cancel -> {
+                cancelled.countDown();
+                return null;
+            }).when(stmt).cancel();
+            ExecutionContext.current().attach(stmt);
+            started.countDown();
+            return cancelled.await(5, TimeUnit.SECONDS)
+                    ? QueryResult.error("Query execution was interrupted")
+                    : QueryResult.success("finished", null, null, 0, 0);
+        });
+
+        ExecutionContext context = new ExecutionContext(null);
+        ParallelScriptRunner runner = new ParallelScriptRunner(dbManager, executor);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<QueryResult>> future = caller.submit(() -> context.run(
+                    () -> runner.run(Arrays.asList("UPDATE a SET v = 1", "UPDATE b SET v = 1"), 2)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            context.cancel();
+
+            List<QueryResult> results = future.get(5, TimeUnit.SECONDS);
+            assertFalse(results.get(0).isSuccess());
+            assertFalse(results.get(1).isSuccess());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dbtool;
+
+import com.dbtool.core.PreparedStatementCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PreparedStatementCacheTest {
+
+    @Test
+    @DisplayName("Test released statements are reused with cleared parameters")
+    void testReuse() throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(4);
+        Connection connection = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        String sql = "SELECT * FROM users WHERE id = ?";
+
+        assertNull(cache.take(connection, sql));
+        cache.release(connection, sql, stmt);
+
+        assertSame(stmt, cache.take(connection, sql));
+        verify(stmt).clearParameters();
+        // 取出后不再留在缓存中，不会被同时使用
+        assertNull(cache.take(connection, sql));
+        assertTrue(cache.getStats().contains("1 hits, 2 misses"));
+    }
+
+    @Test
+    @DisplayName("Test statements are cached per connection and per database")
+    void testKeyedByConnectionAndCatalog() throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(4);
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+        when(first.getCatalog()).thenReturn("shop");
+        when(second.getCatalog()).thenReturn("shop");
+
+        cache.release(first, "SELECT 1", mock(PreparedStatement.class));
+
+        assertNull(cache.take(second, "SELECT 1"));
+        when(first.getCatalog()).thenReturn("crm");
+        assertNull(cache.take(first, "SELECT 1"));
+    }
+
+    @Test
+    @DisplayName("Test least recently used statement is closed when the cache is full")
+    void testEviction() throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(2);
+        Connection connection = mock(Connection.class);
+        PreparedStatement a = mock(PreparedStatement.class);
+        PreparedStatement b = mock(PreparedStatement.class);
+        PreparedStatement c = mock(PreparedStatement.class);
+
+        cache.release(connection, "a", a);
+        cache.release(connection, "b", b);
+        cache.release(connection, "c", c);
+
+        verify(a).close();
+        verify(b, never()).close();
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Test statements of a closed connection are discarded")
+    void testInvalidateOnClose() throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(4);
+        Connection connection = mock(Connection.class);
+        PreparedStatement cached = mock(PreparedStatement.class);
+        cache.release(connection, "SELECT 1", cached);
+
+        when(connection.isClosed()).thenReturn(true);
+        cache.release(connection, "SELECT 2", mock(PreparedStatement.class));
+
+        verify(cached).close();
+        assertEquals(0, cache.size());
+    }
+}
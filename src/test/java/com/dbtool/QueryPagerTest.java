@@ -0,0 +1,156 @@
+package com.dbtool;
+
+import com.dbtool.core.DatabaseManager;
+import com.dbtool.core.QueryPager;
+import com.dbtool.core.SQLExecutor;
+import com.dbtool.model.QueryResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class QueryPagerTest {
+
+    @Test
+    @DisplayName("Test string literals are blanked but identifiers are kept")
+    void testStripLiterals() {
+        assertEquals("select * from t where a = '     '", QueryPager.stripLiterals("select * from t where a = 'limit'"));
+        assertEquals("select '     ' from t", QueryPager.stripLiterals("select 'it\\'s' from t"));
+        assertEquals("select `order` from t", QueryPager.stripLiterals("select `order` from t"));
+        assertEquals("select \"    \"", QueryPager.stripLiterals("select \"from\""));
+    }
+
+    @Test
+    @DisplayName("Test keywords are matched as whole words across whitespace")
+    void testIndexOfWord() {
+        assertEquals(9, QueryPager.indexOfWord("select * from t", "from"));
+        assertEquals(-1, QueryPager.indexOfWord("select fromage from t2", "limit"));
+        assertEquals(15, QueryPager.indexOfWord("select fromage from t", "from"));
+        assertEquals(16, QueryPager.indexOfWord("select * from t order   by id", "order by"));
+        assertEquals(-1, QueryPager.indexOfWord("select * from t order_by", "order by"));
+        assertEquals(-1, QueryPager.indexOfWord("select * from t for updates", "for update"));
+    }
+
+    @Test
+    @DisplayName("Test the single table name is extracted from FROM")
+    void testSingleTableName() {
+        assertEquals("orders", table("SELECT * FROM orders WHERE id > 3"));
+        assertEquals("shop.Orders", table("SELECT * FROM `shop`.`Orders` o"));
+        assertEquals("orders", table("SELECT o.id FROM orders AS o"));
+        assertNull(table("SELECT * FROM orders o JOIN customers c ON o.cid = c.id"));
+        assertNull(table("SELECT * FROM orders, customers"));
+        assertNull(table("SELECT * FROM (SELECT 1) x"));
+        assertNull(table("SELECT 1"));
+    }
+
+    @Test
+    @DisplayName("Test keyset paging only applies when the key column is selected")
+    void testSelectsKeyColumn() {
+        assertTrue(QueryPager.selectsKeyColumn("select * from orders", "id"));
+        assertTrue(QueryPager.selectsKeyColumn("select o.* from orders o", "id"));
+        assertTrue(QueryPager.selectsKeyColumn("select `id`, name from orders", "ID"));
+        assertTrue(QueryPager.selectsKeyColumn("select o.id, o.name from orders o", "id"));
+        assertFalse(QueryPager.selectsKeyColumn("select name from orders", "id"));
+        assertFalse(QueryPager.selectsKeyColumn("select id as k, name from orders", "id"));
+        assertFalse(QueryPager.selectsKeyColumn("select id, upper(name) from orders", "id"));
+        assertFalse(QueryPager.selectsKeyColumn("select o.id, c.id from orders o", "id"));
+    }
+
+    @Test
+    @DisplayName("Test a failed keyset query falls back to bound LIMIT/OFFSET")
+    void testKeysetFallsBackToOffset() throws Exception {
+        DatabaseManager dbManager = dbManagerWithPrimaryKey("id");
+        SQLExecutor executor = mock(SQLExecutor.class);
+        List<String> statements = new ArrayList<>();
+        List<List<Object>> parameters = new ArrayList<>();
+        when(executor.executePrepared(any(), anyString(), anyList())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(1);
+            statements.add(sql);
+            parameters.add(new ArrayList<>(invocation.<List<Object>>getArgument(2)));
+            if (sql.contains("WHERE") || sql.contains("ORDER BY")) {
+                return QueryResult.error("Unknown column '_page.id'");
+            }
+            return rows(3);
+        });
+
+        QueryPager pager = QueryPager.create(dbManager, executor, "SELECT * FROM orders;", 2);
+        assertEquals(QueryPager.Mode.KEYSET, pager.getMode());
+
+        QueryPager.Page first = pager.goToPage(1);
+        assertTrue(first.getResult().isSuccess());
+        assertTrue(first.hasMore());
+        assertEquals(2, first.getResult().getRowCount());
+        assertEquals(QueryPager.Mode.OFFSET, pager.getMode());
+        assertEquals("SELECT * FROM orders LIMIT ? OFFSET ?", statements.get(statements.size() - 1));
+        assertEquals(Arrays.<Object>asList(3, 0L), parameters.get(parameters.size() - 1));
+
+        pager.goToPage(3);
+        // 每一页都是同一条语句，只有绑定的参数不同
+        assertEquals("SELECT * FROM orders LIMIT ? OFFSET ?", statements.get(statements.size() - 1));
+        assertEquals(Arrays.<Object>asList(3, 4L), parameters.get(parameters.size() - 1));
+        pager.close();
+    }
+
+    @Test
+    @DisplayName("Test keyset paging continues after the last key of the previous page")
+    void testKeysetContinuesFromLastKey() throws Exception {
+        DatabaseManager dbManager = dbManagerWithPrimaryKey("id");
+        SQLExecutor executor = mock(SQLExecutor.class);
+        List<List<Object>> parameters = new ArrayList<>();
+        when(executor.executePrepared(any(), anyString(), anyList())).thenAnswer(invocation -> {
+            parameters.add(new ArrayList<>(invocation.<List<Object>>getArgument(2)));
+            return rows(3);
+        });
+
+        QueryPager pager = QueryPager.create(dbManager, executor, "SELECT * FROM orders", 2);
+        pager.goToPage(1);
+        pager.nextPage();
+
+        assertEquals(QueryPager.Mode.KEYSET, pager.getMode());
+        assertEquals(Arrays.<Object>asList(2), parameters.get(1));
+        pager.close();
+    }
+
+    private static String table(String sql) {
+        return QueryPager.singleTableName(QueryPager.stripLiterals(sql).toLowerCase(), sql);
+    }
+
+    private static DatabaseManager dbManagerWithPrimaryKey(String column) throws Exception {
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        ResultSet primaryKeys = mock(ResultSet.class);
+        when(primaryKeys.next()).thenReturn(true, false);
+        when(primaryKeys.getString("COLUMN_NAME")).thenReturn(column);
+        when(metaData.getPrimaryKeys(any(), any(), anyString())).thenReturn(primaryKeys);
+        when(connection.getMetaData()).thenReturn(metaData);
+
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.getConnection()).thenReturn(connection);
+        return dbManager;
+    }
+
+    // 每次返回 id 为 1..count 的行，足以判断是否还有下一页
+    private static QueryResult rows(int count) {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            row.put("name", "row " + i);
+            data.add(row);
+        }
+        return QueryResult.success("ok", data, Arrays.asList("id", "name"), count, 0);
+    }
+}
@@ -0,0 +1,100 @@
+package com.dbtool;
+
+import com.dbtool.core.QueryResultCache;
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryResultCacheTest {
+
+    private static QueryResult result(int rows) {
+        ColumnarRowSet data = new ColumnarRowSet(Collections.singletonList("id"),
+                Collections.singletonList("java.lang.Integer"));
+        for (int i = 0; i < rows; i++) {
+            data.addRow(new Object[]{i});
+        }
+        return QueryResult.success("ok", data, data.getColumnNames(), data.size(), 0);
+    }
+
+    private static void put(QueryResultCache cache, String catalog, String sql, QueryResult result) {
+        cache.put(catalog, QueryResultCache.normalize(sql), sql, result);
+    }
+
+    private static QueryResult get(QueryResultCache cache, String catalog, String sql) {
+        return cache.get(catalog, QueryResultCache.normalize(sql));
+    }
+
+    @Test
+    @DisplayName("Test normalization ignores whitespace, comments and trailing semicolons")
+    void testNormalize() {
+        assertEquals("SELECT * FROM orders WHERE note = 'a  b'",
+                QueryResultCache.normalize("SELECT *\n  FROM orders -- all\n WHERE note = 'a  b';"));
+        assertEquals("SELECT /*! SQL_NO_CACHE */ 1", QueryResultCache.normalize("SELECT /* hint */ /*! SQL_NO_CACHE */ 1"));
+    }
+
+    @Test
+    @DisplayName("Test non-deterministic and write statements are not cacheable")
+    void testCacheable() {
+        assertTrue(QueryResultCache.isCacheable("SELECT COUNT(*) FROM orders"));
+        assertTrue(QueryResultCache.isCacheable("SHOW TABLE STATUS"));
+        assertTrue(QueryResultCache.isCacheable("SELECT 'now()' FROM orders"));
+        assertFalse(QueryResultCache.isCacheable("SELECT NOW()"));
+        assertFalse(QueryResultCache.isCacheable("SELECT * FROM orders ORDER BY RAND()"));
+        assertFalse(QueryResultCache.isCacheable("SELECT @@version"));
+        assertFalse(QueryResultCache.isCacheable("SELECT * FROM orders FOR UPDATE"));
+        assertFalse(QueryResultCache.isCacheable("DELETE FROM orders"));
+    }
+
+    @Test
+    @DisplayName("Test entries are keyed by database and normalized SQL")
+    void testHitAndMiss() {
+        QueryResultCache cache = new QueryResultCache(1 << 20, 0);
+        QueryResult cached = result(3);
+        put(cache, "shop", "SELECT id FROM orders", cached);
+
+        assertSame(cached, get(cache, "shop", "SELECT  id\nFROM orders;"));
+        assertNull(get(cache, "crm", "SELECT id FROM orders"));
+        assertTrue(cache.getStats().contains("1 hits"));
+    }
+
+    @Test
+    @DisplayName("Test writes invalidate only entries referencing the written table")
+    void testWriteInvalidation() {
+        QueryResultCache cache = new QueryResultCache(1 << 20, 0);
+        put(cache, "shop", "SELECT * FROM orders o JOIN customers c ON o.cid = c.id", result(1));
+        put(cache, "shop", "SELECT * FROM `shop`.`products`", result(1));
+        put(cache, "shop", "SHOW TABLE STATUS", result(1));
+
+        cache.onStatementExecuted("UPDATE customers SET name = 'x' WHERE id = 1");
+
+        assertNull(get(cache, "shop", "SELECT * FROM orders o JOIN customers c ON o.cid = c.id"));
+        assertNull(get(cache, "shop", "SHOW TABLE STATUS"));
+        assertNotNull(get(cache, "shop", "SELECT * FROM `shop`.`products`"));
+
+        cache.onStatementExecuted("ALTER TABLE products ADD COLUMN sku INT");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Test least recently used entries are evicted when over the byte budget")
+    void testByteBudget() {
+        long entryBytes = ((ColumnarRowSet) result(1000).getData()).estimatedBytes();
+        QueryResultCache cache = new QueryResultCache(entryBytes * 5, 0);
+
+        for (String table : Arrays.asList("a", "b", "c", "d", "e", "f")) {
+            put(cache, "shop", "SELECT * FROM " + table, result(1000));
+            get(cache, "shop", "SELECT * FROM a");
+        }
+
+        assertEquals(5, cache.size());
+        assertNotNull(get(cache, "shop", "SELECT * FROM a"));
+        assertNull(get(cache, "shop", "SELECT * FROM b"));
+        assertTrue(cache.getUsedBytes() <= entryBytes * 5);
+    }
+}
@@ -0,0 +1,57 @@
+package com.dbtool;
+
+import com.dbtool.model.ColumnarRowSet;
+import com.dbtool.model.QueryResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultTableModelTest {
+
+    @Test
+    @DisplayName("Test model reads cells from the materialized result without copying")
+    void testSetResult() {
+        ColumnarRowSet data = new ColumnarRowSet(Arrays.asList("id", "name"),
+                Arrays.asList("java.lang.Integer", "java.lang.String"));
+        data.addRow(new Object[]{1, "Alice"});
+        data.addRow(new Object[]{2, null});
+        QueryResult result = QueryResult.success("ok", data, data.getColumnNames(), data.size(), 0);
+
+        ResultTableModel model = new ResultTableModel();
+        model.setResult(result);
+
+        assertEquals(2, model.getRowCount());
+        assertEquals(2, model.getColumnCount());
+        assertEquals("name", model.getColumnName(1));
+        assertEquals(1, model.getValueAt(0, 0));
+        assertEquals("NULL", model.getValueAt(1, 1));
+    }
+
+    @Test
+    @DisplayName("Test streamed rows are appended with one event per batch")
+    void testAppendRows() {
+        ResultTableModel model = new ResultTableModel();
+        model.startStreaming(Arrays.asList("id", "amount"), Arrays.asList("java.lang.Long", "java.lang.Double"));
+
+        List<int[]> inserted = new ArrayList<>();
+        model.addTableModelListener(e -> inserted.add(new int[]{e.getFirstRow(), e.getLastRow()}));
+
+        List<Object[]> batch = new ArrayList<>();
+        for (long i = 0; i < 500; i++) {
+            batch.add(new Object[]{i, i * 0.5});
+        }
+        model.appendRows(batch);
+        model.appendRows(batch.subList(0, 10));
+
+        assertEquals(510, model.getRowCount());
+        assertEquals(2, inserted.size());
+        assertArrayEquals(new int[]{500, 509}, inserted.get(1));
+        assertEquals(499L, model.getValueAt(499, 0));
+        assertEquals(4.5, model.getValueAt(509, 1));
+    }
+}
@@ -0,0 +1,233 @@
+package com.dbtool;
+
+import com.dbtool.core.ExecutionContext;
+import com.dbtool.core.SQLExecutor;
+import com.dbtool.model.QueryResult;
+import com.dbtool.model.RowHandler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SQLExecutorTest {
+
+    @Test
+    @DisplayName("Test consecutive writes run as one JDBC batch inside a transaction")
+    void testBatchedWrites() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(stmt.executeBatch()).thenReturn(new int[]{1, 1, 3});
+
+        SQLExecutor executor = new SQLExecutor();
+        executor.setWriteEnabled(true);
+        List<QueryResult> results = executor.executeScript(connection, Arrays.asList(
+                "INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)", "UPDATE t SET v = 0"));
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(QueryResult::isSuccess));
+        assertEquals(3, results.get(2).getRowCount());
+        verify(stmt, times(3)).addBatch(anyString());
+        verify(stmt).executeBatch();
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    @DisplayName("Test a failing statement rolls back the script and skips the rest")
+    void testRollbackOnFailure() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(stmt.executeBatch()).thenThrow(new BatchUpdateException("Duplicate entry", new int[]{1}));
+
+        SQLExecutor executor = new SQLExecutor();
+        executor.setWriteEnabled(true);
+        List<QueryResult> results = executor.executeScript(connection, Arrays.asList(
+                "INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (3)"));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).getMessage().startsWith("Rolled back"));
+        assertTrue(results.get(1).getMessage().contains("Duplicate entry"));
+        assertTrue(results.get(2).getMessage().startsWith("Skipped"));
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    @DisplayName("Test a script mixing writes with an implicit commit is rejected before running")
+    void testImplicitCommitRejected() throws SQLException {
+        Connection connection = mock(Connection.class);
+
+        SQLExecutor executor = new SQLExecutor();
+        executor.setWriteEnabled(true);
+        List<QueryResult> results = executor.executeScript(connection, Arrays.asList(
+                "INSERT INTO t VALUES (1)", "COMMIT", "LOCK TABLES t WRITE", "INSERT INTO t VALUES (2)"));
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).getMessage().startsWith("Skipped"));
+        assertTrue(results.get(1).getMessage().contains("commits implicitly"));
+        assertFalse(results.stream().anyMatch(QueryResult::isSuccess));
+        verify(connection, never()).createStatement();
+        verify(connection, never()).setAutoCommit(anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Test a failed commit is rolled back before autocommit is restored")
+    void testRollbackBeforeRestoringAutoCommit() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(stmt.executeBatch()).thenReturn(new int[]{1});
+        doThrow(new SQLException("Lock wait timeout")).when(connection).commit();
+
+        SQLExecutor executor = new SQLExecutor();
+        executor.setWriteEnabled(true);
+        List<QueryResult> results = executor.executeScript(connection,
+                Arrays.asList("INSERT INTO t VALUES (1)"));
+
+        assertTrue(results.get(0).getMessage().startsWith("Rolled back"));
+        assertTrue(results.get(1).getMessage().contains("Lock wait timeout"));
+        InOrder order = inOrder(connection);
+        order.verify(connection).rollback();
+        order.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    @DisplayName("Test writes are not batched while write mode is off")
+    void testWritesRejectedWithoutWriteMode() throws SQLException {
+        Connection connection = mock(Connection.class);
+
+        List<QueryResult> results = new SQLExecutor().executeScript(connection,
+                Arrays.asList("DELETE FROM t", "DELETE FROM u"));
+
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isSuccess());
+        verify(connection, never()).setAutoCommit(false);
+    }
+
+    @Test
+    @DisplayName("Test streamed rows reach the handler and the request's row counter")
+    void testStreamingRows() throws Exception {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        ResultSet rs = resultSet(5);
+        when(connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(stmt);
+        when(stmt.execute("SELECT id FROM t")).thenReturn(true);
+        when(stmt.getResultSet()).thenReturn(rs);
+
+        CollectingHandler handler = new CollectingHandler(Integer.MAX_VALUE);
+        ExecutionContext context = new ExecutionContext(null);
+        QueryResult result = context.run(() ->
+                new SQLExecutor().executeStreaming(connection, "SELECT id FROM t", handler));
+
+        assertTrue(result.isSuccess());
+        assertEquals(5, result.getRowCount());
+        assertEquals(5, handler.rows.size());
+        assertEquals(4, handler.rows.get(3)[0]);
+        assertTrue(handler.started);
+        assertEquals(5, handler.endCount);
+        assertEquals(5, context.getRows());
+        verify(stmt).setFetchSize(Integer.MIN_VALUE);
+        verify(stmt, never()).cancel();
+        verify(rs).close();
+    }
+
+    @Test
+    @DisplayName("Test a handler that stops early cancels the streaming query")
+    void testStreamingEarlyStop() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        ResultSet rs = resultSet(1000);
+        when(connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(stmt);
+        when(stmt.execute("SELECT id FROM t")).thenReturn(true);
+        when(stmt.getResultSet()).thenReturn(rs);
+
+        CollectingHandler handler = new CollectingHandler(3);
+        QueryResult result = new SQLExecutor().executeStreaming(connection, "SELECT id FROM t", handler);
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getRowCount());
+        assertEquals(3, handler.endCount);
+        verify(rs, times(3)).next();
+        InOrder order = inOrder(stmt, rs);
+        order.verify(stmt).cancel();
+        order.verify(rs).close();
+    }
+
+    @Test
+    @DisplayName("Test a streamed statement without a result set reports its update count")
+    void testStreamingUpdateCount() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(stmt);
+        when(stmt.execute(anyString())).thenReturn(false);
+        when(stmt.getUpdateCount()).thenReturn(7);
+
+        SQLExecutor executor = new SQLExecutor();
+        executor.setWriteEnabled(true);
+        CollectingHandler handler = new CollectingHandler(Integer.MAX_VALUE);
+        QueryResult result = executor.executeStreaming(connection, "UPDATE t SET v = 0 WHERE id < 8", handler);
+
+        assertTrue(result.isSuccess());
+        assertEquals(7, result.getRowCount());
+        assertFalse(result.isQueryResult());
+        assertFalse(handler.started);
+        verify(stmt, never()).getResultSet();
+    }
+
+    // 单列结果集，值为 1..rows
+    private static ResultSet resultSet(int rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(rs.getMetaData()).thenReturn(metaData);
+        int[] cursor = {0};
+        when(rs.next()).thenAnswer(invocation -> ++cursor[0] <= rows);
+        when(rs.getObject(1)).thenAnswer(invocation -> cursor[0]);
+        return rs;
+    }
+
+    private static class CollectingHandler implements RowHandler {
+        private final int limit;
+        private final List<Object[]> rows = new ArrayList<>();
+        private boolean started;
+        private long endCount = -1;
+
+        CollectingHandler(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) {
+            started = true;
+        }
+
+        @Override
+        public boolean row(Object[] values) {
+            rows.add(values);
+            return rows.size() < limit;
+        }
+
+        @Override
+        public void end(long rowCount, long elapsedMs) {
+            endCount = rowCount;
+        }
+    }
+}
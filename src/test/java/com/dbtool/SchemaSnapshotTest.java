@@ -0,0 +1,99 @@
+package com.dbtool;
+
+import com.dbtool.core.DatabaseManager;
+import com.dbtool.core.SchemaSnapshot;
+import com.dbtool.model.QueryResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SchemaSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * 按行返回数据的 ResultSet（列从 1 开始）
+     */
+    private static ResultSet rows(Object[][] rows) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        int[] cursor = {-1};
+        when(rs.next()).thenAnswer(inv -> ++cursor[0] < rows.length);
+        when(rs.getString(anyInt())).thenAnswer(inv -> {
+            Object value = rows[cursor[0]][(Integer) inv.getArgument(0) - 1];
+            return value == null ? null : value.toString();
+        });
+        when(rs.getInt(anyInt())).thenAnswer(inv -> ((Number) rows[cursor[0]][(Integer) inv.getArgument(0) - 1]).intValue());
+        return rs;
+    }
+
+    private static DatabaseManager databaseManager() throws Exception {
+        ResultSet statistics = rows(new Object[][]{
+                {"shop", "orders", "PRIMARY", 1, "id", 0},
+                {"shop", "orders", "idx_customer", 1, "customer_id", 1}});
+        ResultSet schemata = rows(new Object[][]{{"crm"}, {"shop"}});
+        ResultSet columns = rows(new Object[][]{
+                {"shop", "customers", "id", "int", "NO", "PRI", null, "auto_increment"},
+                {"shop", "orders", "id", "bigint", "NO", "PRI", null, "auto_increment"},
+                {"shop", "orders", "customer_id", "int", "YES", "MUL", null, ""},
+                {"shop", "orders", "status", "varchar(16)", "NO", "", "new", ""}});
+
+        Statement stmt = mock(Statement.class);
+        when(stmt.executeQuery(contains("STATISTICS"))).thenReturn(statistics);
+        when(stmt.executeQuery(contains("SCHEMATA"))).thenReturn(schemata);
+        when(stmt.executeQuery(contains("COLUMNS"))).thenReturn(columns);
+
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connection.createStatement(anyInt(), anyInt())).thenReturn(stmt);
+
+        DatabaseManager dbManager = mock(DatabaseManager.class);
+        when(dbManager.isPooled()).thenReturn(false);
+        when(dbManager.openConnection()).thenReturn(connection);
+        return dbManager;
+    }
+
+    @Test
+    @DisplayName("Test snapshot is built from information_schema and reloaded from disk")
+    void testRefreshAndLoad() throws Exception {
+        Path file = tempDir.resolve("schema.snap");
+        SchemaSnapshot snapshot = new SchemaSnapshot(databaseManager(), file);
+        assertFalse(snapshot.load());
+
+        snapshot.refresh();
+        assertTrue(snapshot.isAvailable());
+
+        SchemaSnapshot reloaded = new SchemaSnapshot(mock(DatabaseManager.class), file);
+        assertTrue(reloaded.load());
+
+        assertEquals(Arrays.asList("crm", "shop"), reloaded.getDatabases());
+        assertEquals(Arrays.asList("customers", "orders"), reloaded.getTables("SHOP"));
+        assertTrue(reloaded.getTables("crm").isEmpty());
+        assertNull(reloaded.getTables("missing"));
+        assertTrue(reloaded.hasTable("shop", "Orders"));
+        assertFalse(reloaded.hasTable("shop", "payments"));
+
+        QueryResult describe = reloaded.describe("shop", "orders");
+        assertEquals(3, describe.getRowCount());
+        assertEquals(Arrays.asList("Field", "Type", "Null", "Key", "Default", "Extra"), describe.getColumnNames());
+        assertEquals("customer_id", describe.getValue(1, 0));
+        assertNull(describe.getValue(1, 4));
+        assertEquals("new", describe.getValue(2, 4));
+
+        QueryResult indexes = reloaded.getIndexes("shop", "orders");
+        assertEquals(2, indexes.getRowCount());
+        assertEquals("idx_customer", indexes.getValue(1, 0));
+        assertEquals(1, indexes.getValue(1, 3));
+        assertEquals(0, reloaded.getIndexes("shop", "customers").getRowCount());
+    }
+}
@@ -0,0 +1,124 @@
+package com.dbtool;
+
+import com.dbtool.model.SpillingRowSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpillingRowSetTest {
+
+    private static final List<String> NAMES = Arrays.asList("id", "name", "amount", "created", "updated", "data");
+    private static final List<String> CLASSES = Arrays.asList("java.lang.Integer", "java.lang.String",
+            "java.math.BigDecimal", "java.sql.Timestamp", "java.time.LocalDateTime", "[B");
+
+    private static Object[] row(int i) {
+        Timestamp created = new Timestamp(1_700_000_000_000L + i * 1000L);
+        created.setNanos(123_000_000);
+        return new Object[]{
+                i,
+                i % 7 == 0 ? null : "name-" + i,
+                new BigDecimal(i + ".25"),
+                created,
+                LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i),
+                new byte[]{(byte) i, (byte) (i >> 8)}};
+    }
+
+    private static void assertRow(SpillingRowSet rows, int i) {
+        Object[] expected = row(i);
+        for (int c = 0; c < expected.length; c++) {
+            Object actual = rows.getValue(i, c);
+            if (expected[c] instanceof byte[]) {
+                assertArrayEquals((byte[]) expected[c], (byte[]) actual, "row " + i);
+            } else {
+                assertTrue(Objects.equals(expected[c], actual), "row " + i + " column " + c + ": " + actual);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test rows beyond the memory limit are spilled and read back in order")
+    void testSpillAndSequentialRead(@TempDir File dir) {
+        SpillingRowSet rows = new SpillingRowSet(NAMES, CLASSES, 64 * 1024, dir);
+        for (int i = 0; i < 20000; i++) {
+            rows.addRow(row(i));
+        }
+
+        assertTrue(rows.isSpilled());
+        assertEquals(20000, rows.size());
+        assertTrue(rows.getSpilledRows() > 0 && rows.getSpilledRows() < 20000);
+        assertTrue(rows.getSpilledBytes() > 0);
+        for (int i = 0; i < rows.size(); i++) {
+            assertRow(rows, i);
+        }
+        rows.close();
+    }
+
+    @Test
+    @DisplayName("Test random access to spilled rows, including going backwards")
+    void testRandomAccess(@TempDir File dir) {
+        SpillingRowSet rows = new SpillingRowSet(NAMES, CLASSES, 1, dir);
+        for (int i = 0; i < 10000; i++) {
+            rows.addRow(row(i));
+        }
+
+        int[] order = {9999, 5000, 5001, 4999, 4096, 6000, 6063, 6064, 6030, 0, 9998};
+        for (int i : order) {
+            assertRow(rows, i);
+        }
+        assertEquals("name-5001", rows.get(5001).get("name"));
+        assertThrows(IndexOutOfBoundsException.class, () -> rows.getValue(10000, 0));
+        rows.close();
+    }
+
+    @Test
+    @DisplayName("Test reads interleaved with appends across a segment boundary")
+    void testInterleavedAppendAndRead(@TempDir File dir) {
+        SpillingRowSet rows = new SpillingRowSet(Arrays.asList("id", "data"),
+                Arrays.asList("java.lang.Integer", "[B"), 1, dir);
+        // 前 4096 行留在堆上，之后是 1 MB 的行，约 64 行写满一段
+        for (int i = 0; i < 4096; i++) {
+            rows.addRow(new Object[]{i, null});
+        }
+        byte[] data = new byte[1024 * 1024];
+        for (int i = 4096; i < 4096 + 140; i++) {
+            data[0] = (byte) i;
+            rows.addRow(new Object[]{i, data.clone()});
+            // 像表格模型一样每追加一行就读取最后一行
+            assertEquals(i, rows.getValue(i, 0));
+            assertEquals((byte) i, ((byte[]) rows.getValue(i, 1))[0]);
+        }
+        assertTrue(rows.isSpilled());
+        rows.close();
+    }
+
+    @Test
+    @DisplayName("Test close deletes the temp file and small results never spill")
+    void testCloseAndNoSpill(@TempDir File dir) {
+        SpillingRowSet rows = new SpillingRowSet(NAMES, CLASSES, 1, dir);
+        for (int i = 0; i < 5000; i++) {
+            rows.addRow(row(i));
+        }
+        assertEquals(1, dir.listFiles().length);
+        rows.close();
+        assertEquals(0, dir.listFiles().length);
+        assertEquals(row(10)[1], rows.getValue(10, 1));
+        assertThrows(IllegalStateException.class, () -> rows.getValue(4999, 0));
+
+        SpillingRowSet small = new SpillingRowSet(NAMES, CLASSES, 64L * 1024 * 1024, dir);
+        for (int i = 0; i < 5000; i++) {
+            small.addRow(row(i));
+        }
+        assertFalse(small.isSpilled());
+        assertEquals(0, dir.listFiles().length);
+    }
+}
@@ -0,0 +1,111 @@
+package com.dbtool;
+
+import com.dbtool.core.HistoryManager;
+import com.dbtool.util.SqlLexer;
+import com.dbtool.util.SqlLexer.StatementType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlLexerTest {
+
+    @Test
+    @DisplayName("Test tokens are reported with their positions and comments are skipped")
+    void testTokens() {
+        String sql = "SELECT `a``b`, 'x;y' -- note\n FROM t WHERE id = ? AND v > 1.5e3 /* c */ AND @@v";
+        SqlLexer lexer = new SqlLexer(sql);
+
+        assertEquals(SqlLexer.Token.WORD, lexer.next());
+        assertTrue(lexer.isWord("select"));
+        assertEquals(SqlLexer.Token.QUOTED_IDENTIFIER, lexer.next());
+        assertEquals("a`b", lexer.getIdentifier());
+        assertEquals(SqlLexer.Token.SYMBOL, lexer.next());
+        assertEquals(SqlLexer.Token.STRING, lexer.next());
+        assertEquals("'x;y'", lexer.getText());
+        assertEquals(SqlLexer.Token.WORD, lexer.next());
+        assertEquals("FROM", lexer.getText());
+        assertTrue(sql.substring(lexer.getGapStart(), lexer.getStart()).contains("-- note"));
+
+        SqlLexer.Token token;
+        int parameters = 0;
+        int numbers = 0;
+        SqlLexer.Token last = null;
+        while ((token = lexer.next()) != SqlLexer.Token.EOF) {
+            parameters += token == SqlLexer.Token.PARAMETER ? 1 : 0;
+            numbers += token == SqlLexer.Token.NUMBER ? 1 : 0;
+            last = token;
+        }
+        assertEquals(1, parameters);
+        assertEquals(1, numbers);
+        assertEquals(SqlLexer.Token.VARIABLE, last);
+    }
+
+    @Test
+    @DisplayName("Test statements are classified past comments, hints and WITH clauses")
+    void testClassify() {
+        assertEquals(StatementType.SELECT, SqlLexer.classify("  /* report */ select 1"));
+        assertEquals(StatementType.SELECT, SqlLexer.classify("(SELECT 1) UNION (SELECT 2)"));
+        assertEquals(StatementType.DESCRIBE, SqlLexer.classify("desc orders"));
+        assertEquals(StatementType.DDL, SqlLexer.classify("-- cleanup\nDROP TABLE orders"));
+        assertEquals(StatementType.DDL, SqlLexer.classify("/*!40101 DROP TABLE orders */"));
+        assertEquals(StatementType.SELECT,
+                SqlLexer.classify("WITH recent (id) AS (SELECT id FROM orders WHERE x = 'delete') SELECT * FROM recent"));
+        assertEquals(StatementType.DELETE,
+                SqlLexer.classify("WITH old AS (SELECT id FROM orders) DELETE FROM orders WHERE id IN (SELECT id FROM old)"));
+        assertEquals(StatementType.LOAD, SqlLexer.classify("LOAD DATA INFILE 'x' INTO TABLE t"));
+        assertEquals(StatementType.DYNAMIC, SqlLexer.classify("PREPARE s FROM @sql"));
+        assertEquals(StatementType.EMPTY, SqlLexer.classify(" -- nothing\n ;"));
+        assertEquals(StatementType.OTHER, SqlLexer.classify("'select'"));
+        assertTrue(StatementType.MAINTENANCE.isQuery());
+        assertFalse(StatementType.LOAD.isDml());
+    }
+
+    @Test
+    @DisplayName("Test statement boundaries and keywords ignore literals and comments")
+    void testBoundaries() {
+        assertFalse(SqlLexer.hasMultipleStatements("SELECT 'a;b'; -- DROP TABLE t;\n"));
+        assertTrue(SqlLexer.hasMultipleStatements("SELECT 1; DROP TABLE t"));
+        assertFalse(SqlLexer.containsWord("SELECT 'drop' FROM t # drop", "drop"));
+        assertTrue(SqlLexer.containsWord("SELECT 1 /*! DROP */", "drop"));
+    }
+
+    @Test
+    @DisplayName("Test referenced tables are extracted from joins, lists and subqueries")
+    void testReferencedTables() {
+        assertEquals(new HashSet<>(Arrays.asList("orders", "customers", "items")), SqlLexer.referencedTables(
+                "SELECT * FROM `shop`.orders o JOIN customers AS c ON c.id = o.cid "
+                        + "WHERE o.id IN (SELECT order_id FROM items) AND EXTRACT(YEAR FROM o.created) = 2024"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), SqlLexer.referencedTables("SELECT 1 FROM a x, b y"));
+        assertEquals(Collections.singleton("orders"),
+                SqlLexer.referencedTables("INSERT INTO orders VALUES (1) ON DUPLICATE KEY UPDATE v = 2"));
+        assertEquals(Collections.singleton("orders"),
+                SqlLexer.referencedTables("SELECT * FROM orders WHERE note = 'from t2' FOR UPDATE"));
+        assertEquals(Collections.singleton("t"), SqlLexer.referencedTables("SELECT * FROM t INTO OUTFILE '/tmp/x'"));
+        assertTrue(SqlLexer.referencedTables("SELECT 1 FROM dual").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test normalize keeps literals and hints but collapses gaps")
+    void testNormalize() {
+        assertEquals("SELECT 'a  b' FROM t", SqlLexer.normalize("  SELECT 'a  b'\n\tFROM t -- x\n;;"));
+        assertEquals("/*!40101 SET x = 1 */", SqlLexer.normalize("/*!40101   SET x = 1 */;"));
+        assertEquals("SELECT a -b", SqlLexer.normalize("SELECT a/* c */-b"));
+    }
+
+    @Test
+    @DisplayName("Test history treats statements differing in whitespace or comments as duplicates")
+    void testHistoryDedupe() {
+        HistoryManager history = new HistoryManager();
+        history.add("SELECT * FROM t");
+        history.add("SELECT 1");
+        history.add("SELECT  *  FROM t; -- again");
+
+        assertEquals(2, history.size());
+        assertEquals("SELECT  *  FROM t; -- again", history.getRecent(1).get(0));
+    }
+}
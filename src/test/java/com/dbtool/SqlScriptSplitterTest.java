@@ -0,0 +1,54 @@
+package com.dbtool;
+
+import com.dbtool.util.SqlScriptSplitter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlScriptSplitterTest {
+
+    @Test
+    @DisplayName("Test semicolons inside literals and identifiers do not split")
+    void testQuotedSemicolons() {
+        List<String> statements = SqlScriptSplitter.split(
+                "INSERT INTO t VALUES ('a;b', \"c;d\");\nSELECT `odd;name` FROM t; SELECT 'it''s;' ;");
+
+        assertEquals(Arrays.asList(
+                "INSERT INTO t VALUES ('a;b', \"c;d\")",
+                "SELECT `odd;name` FROM t",
+                "SELECT 'it''s;'"), statements);
+    }
+
+    @Test
+    @DisplayName("Test comments are removed and escaped quotes are handled")
+    void testComments() {
+        List<String> statements = SqlScriptSplitter.split(
+                "-- setup; not a statement\nSELECT 1; # trailing; comment\n"
+                        + "/* block; comment */ SELECT 'a\\';b' /*!40101 SQL_NO_CACHE */;");
+
+        assertEquals(2, statements.size());
+        assertEquals("SELECT 1", statements.get(0));
+        assertEquals("SELECT 'a\\';b' /*!40101 SQL_NO_CACHE */", statements.get(1));
+    }
+
+    @Test
+    @DisplayName("Test DELIMITER changes the statement terminator")
+    void testDelimiter() {
+        String script = "DROP PROCEDURE IF EXISTS p;\n"
+                + "DELIMITER $$\n"
+                + "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END$$\n"
+                + "DELIMITER ;\n"
+                + "CALL p();";
+
+        List<String> statements = SqlScriptSplitter.split(script);
+
+        assertEquals(Arrays.asList(
+                "DROP PROCEDURE IF EXISTS p",
+                "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END",
+                "CALL p()"), statements);
+    }
+}
@@ -0,0 +1,188 @@
+package com.dbtool;
+
+import com.dbtool.core.LatencyHistogram;
+import com.dbtool.core.SQLExecutor;
+import com.dbtool.core.StatementStats;
+import com.dbtool.core.StatementTimer;
+import com.dbtool.model.QueryResult;
+import com.dbtool.util.SqlFingerprint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StatementStatsTest {
+
+    @Test
+    @DisplayName("Test histogram percentiles stay within the bucket precision")
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000_000L, histogram.getMaxNanos());
+        assertEquals(1_000_000L, histogram.getMinNanos());
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(Math.abs(p50 - 500_000_000L) <= 500_000_000L / 16, "p50 was " + p50);
+        assertTrue(Math.abs(p99 - 990_000_000L) <= 990_000_000L / 16, "p99 was " + p99);
+        assertEquals(1_000_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Test very small and very large values are recorded")
+    void testHistogramRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(500);
+        histogram.record(5L * 3600 * 1_000_000_000L);
+
+        assertEquals(3, histogram.getCount());
+        assertTrue(histogram.getValueAtPercentile(50) < 2048);
+        assertEquals(5L * 3600 * 1_000_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Test statements differing only in literals share a fingerprint")
+    void testFingerprint() {
+        assertEquals("SELECT * FROM orders WHERE id = ? AND note = ?",
+                StatementStats.fingerprint("SELECT * FROM orders WHERE id = 42 AND note = 'it''s'"));
+        assertEquals(StatementStats.fingerprint("select * from t2 where x in (1, 2, 3)"),
+                StatementStats.fingerprint("select * from t2  where x in (4,5) -- retry"));
+        assertEquals("SELECT col1 FROM `t 1` WHERE v = ?", StatementStats.fingerprint("SELECT col1 FROM `t 1` WHERE v = 1.5e3;"));
+    }
+
+    @Test
+    @DisplayName("Test digests ignore literals, list lengths and keyword case")
+    void testDigest() {
+        long digest = SqlFingerprint.digest("SELECT * FROM orders WHERE id IN (1, 2, 3) AND note = 'x'");
+        assertEquals(digest, SqlFingerprint.digest("select *\n from ORDERS where id in (?) and note = \"y\";"));
+        assertNotEquals(digest, SqlFingerprint.digest("SELECT * FROM orders WHERE id IN (SELECT id FROM t) AND note = 'x'"));
+        assertNotEquals(digest, SqlFingerprint.digest("SELECT * FROM orders WHERE id IN (1, 2, 3) OR note = 'x'"));
+
+        assertEquals("INSERT INTO t (a, b) VALUES (...)",
+                SqlFingerprint.fingerprint("INSERT INTO t (a, b) VALUES (1, 'x'), (2, NULL), (-3, 'z')"));
+        assertEquals(SqlFingerprint.digest("INSERT INTO t (a, b) VALUES (1, 'x')"),
+                SqlFingerprint.digest("INSERT INTO t (a, b) VALUES (1, 'x'), (2, 'y')"));
+        assertEquals("INSERT INTO t VALUES (?, NOW())", SqlFingerprint.fingerprint("INSERT INTO t VALUES (1, NOW())"));
+        assertEquals(16, SqlFingerprint.toHex(5).length());
+    }
+
+    @Test
+    @DisplayName("Test top statements are ordered by total time with their share")
+    void testTop() {
+        StatementStats stats = new StatementStats(10);
+        for (int i = 0; i < 4; i++) {
+            StatementTimer timer = new StatementTimer();
+            busyWait(2_000_000);
+            timer.mark(StatementStats.Phase.EXECUTE);
+            stats.record("SELECT * FROM slow WHERE id = " + i, timer, 10);
+        }
+        StatementTimer timer = new StatementTimer();
+        timer.mark(StatementStats.Phase.EXECUTE);
+        stats.record("SELECT 1", timer, 1);
+
+        StatementStats.Entry slow = stats.getEntries().get(0);
+        assertEquals("SELECT * FROM slow WHERE id = ?", slow.getFingerprint());
+        assertEquals(4, slow.getCount());
+        assertEquals(40, slow.getRows());
+        assertTrue(slow.getMaxNanos() >= 2_000_000 && slow.getMaxNanos() <= slow.getTotalNanos());
+
+        QueryResult top = stats.toTopQueryResult(1);
+        assertEquals(1, top.getRowCount());
+        assertEquals(SqlFingerprint.toHex(slow.getDigest()), top.getData().get(0).get("Digest"));
+        assertEquals(4L, top.getData().get(0).get("Count"));
+    }
+
+    private static void busyWait(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    @DisplayName("Test executions are recorded per fingerprint and exported as JSON")
+    void testRecordAndExport() {
+        StatementStats stats = new StatementStats(10);
+        for (int i = 0; i < 3; i++) {
+            StatementTimer timer = new StatementTimer();
+            timer.mark(StatementStats.Phase.PARSE);
+            timer.mark(StatementStats.Phase.EXECUTE);
+            timer.addBytes(100);
+            stats.record("SELECT * FROM t WHERE id = " + i, timer, 2);
+        }
+        stats.recordError("SELECT * FROM t WHERE id = 9");
+        stats.recordRender("SELECT * FROM t WHERE id = 1", 1_000_000);
+
+        StatementStats.Entry entry = stats.getEntry("SELECT * FROM t WHERE id = 5");
+        assertNotNull(entry);
+        assertEquals(3, entry.getCount());
+        assertEquals(1, entry.getErrors());
+        assertEquals(6, entry.getRows());
+        assertEquals(300, entry.getBytes());
+        assertEquals(0, entry.getPhasePercentileNanos(StatementStats.Phase.FETCH, 50));
+        assertTrue(entry.getPhasePercentileNanos(StatementStats.Phase.RENDER, 50) > 0);
+
+        String json = stats.toJson();
+        assertTrue(json.contains("\"fingerprint\": \"SELECT * FROM t WHERE id = ?\""));
+        assertTrue(json.contains("\"count\": 3"));
+        assertTrue(json.contains("\"render\": {\"count\": 1"));
+        assertFalse(json.contains("\"fetch\""));
+
+        QueryResult table = stats.toQueryResult(20);
+        assertEquals(1, table.getRowCount());
+    }
+
+    @Test
+    @DisplayName("Test new fingerprints beyond the limit are merged into (other)")
+    void testLimit() {
+        StatementStats stats = new StatementStats(2);
+        stats.recordError("SELECT a FROM t1");
+        stats.recordError("SELECT b FROM t1");
+        stats.recordError("SELECT c FROM t1");
+        stats.recordError("SELECT d FROM t1");
+
+        assertEquals(3, stats.size());
+        assertEquals(2, stats.getEntry("(other)").getErrors());
+    }
+
+    @Test
+    @DisplayName("Test SQLExecutor records execute, first row and fetch phases")
+    void testExecutorRecordsPhases() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(stmt.execute(anyString())).thenReturn(true);
+        when(stmt.getResultSet()).thenReturn(rs);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnClassName(1)).thenReturn("java.lang.Integer");
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getInt(1)).thenReturn(1, 2);
+
+        SQLExecutor executor = new SQLExecutor();
+        executor.getStatementStats().reset();
+        QueryResult result = executor.execute(connection, "SELECT id FROM t WHERE id > 0");
+
+        assertTrue(result.isSuccess());
+        StatementStats.Entry entry = executor.getStatementStats().getEntry("SELECT id FROM t WHERE id > 7");
+        assertNotNull(entry);
+        assertEquals(1, entry.getCount());
+        assertEquals(2, entry.getRows());
+        assertTrue(entry.getBytes() > 0);
+        assertTrue(entry.getTotalNanos() > 0);
+    }
+}
@@ -0,0 +1,89 @@
+package com.dbtool;
+
+import com.dbtool.util.StreamingTablePrinter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.ResultSetMetaData;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StreamingTablePrinterTest {
+
+    private static ResultSetMetaData metaData(String[] names, int[] displaySizes) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(names.length);
+        for (int i = 0; i < names.length; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn(names[i]);
+            when(metaData.getColumnDisplaySize(i + 1)).thenReturn(displaySizes[i]);
+        }
+        return metaData;
+    }
+
+    @Test
+    @DisplayName("Test column widths come from the sampled rows and display size hints")
+    void testSampledWidths() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        StreamingTablePrinter printer = new StreamingTablePrinter(new PrintStream(buffer, true), 2, 60000, false);
+
+        printer.start(metaData(new String[]{"id", "name"}, new int[]{11, 255}));
+        printer.row(new Object[]{1, "ab"});
+        assertEquals(0, buffer.size(), "nothing is printed until the sample is complete");
+        printer.row(new Object[]{2, "abcdef"});
+        printer.end(2, 0);
+
+        String[] lines = buffer.toString().split("\\R");
+        assertEquals("+-------------+--------+", lines[0]);
+        assertEquals("| id          | name   |", lines[1]);
+        assertEquals("| 2           | abcdef |", lines[4]);
+    }
+
+    @Test
+    @DisplayName("Test columns widen after the sample and overlong cells are truncated or wrapped")
+    void testWidenAndOverflow() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        StreamingTablePrinter printer = new StreamingTablePrinter(new PrintStream(buffer, true), 1, 60000, false);
+        printer.start(metaData(new String[]{"name"}, new int[]{0}));
+        printer.row(new Object[]{"abcd"});
+        printer.row(new Object[]{"abcdefghij"});
+        printer.row(new Object[]{"x".repeat(45)});
+        printer.end(3, 0);
+
+        String output = buffer.toString();
+        assertTrue(output.contains("(column widths changed)"));
+        assertTrue(output.contains("| abcdefghij |"));
+        assertTrue(output.contains("| " + "x".repeat(39) + "~ |"), "capped at display.max.column.width");
+
+        buffer.reset();
+        printer = new StreamingTablePrinter(new PrintStream(buffer, true), 1, 60000, true);
+        printer.start(metaData(new String[]{"name"}, new int[]{255}));
+        printer.row(new Object[]{"y".repeat(45)});
+        printer.end(1, 0);
+
+        String[] lines = buffer.toString().split("\\R");
+        assertEquals("| " + "y".repeat(40) + " |", lines[3]);
+        assertEquals("| yyyyy" + " ".repeat(35) + " |", lines[4]);
+    }
+
+    @Test
+    @DisplayName("Test sampled rows are printed when the sample time runs out before the next row")
+    void testSampleTimeout() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        StreamingTablePrinter printer = new StreamingTablePrinter(new PrintStream(buffer, true), 100, 50, false);
+        printer.start(metaData(new String[]{"id"}, new int[]{11}));
+        printer.row(new Object[]{1});
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!buffer.toString().contains("| 1 ") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(buffer.toString().contains("| 1 "), "first row printed without waiting for the second");
+
+        printer.row(new Object[]{2});
+        printer.end(2, 0);
+        assertTrue(buffer.toString().contains("| 2 "));
+    }
+}
@@ -108,4 +108,62 @@ public class TableFormatterTest {
             TableFormatter.displayResult(errorResult);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test formatAsText and displayResult render the same padded table")
+    void testRenderedTable() {
+        List<String> columnNames = Arrays.asList("ID", "Name", "Score");
+        List<Map<String, Object>> data = new ArrayList<>();
+        Object[][] rows = {{-12L, "Alexander", 1.5}, {7, null, null}};
+        for (Object[] values : rows) {
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                row.put(columnNames.get(i), values[i]);
+            }
+            data.add(row);
+        }
+        QueryResult result = QueryResult.success("OK", data, columnNames, 2, 1L);
+
+        String table = "+------+-----------+-------+\n"
+                + "| ID   | Name      | Score |\n"
+                + "+------+-----------+-------+\n"
+                + "| -12  | Alexander | 1.5   |\n"
+                + "| 7    | NULL      | NULL  |\n"
+                + "+------+-----------+-------+\n"
+                + "2 row(s) returned\n";
+        assertEquals(table + "OK", TableFormatter.formatAsText(result));
+
+        java.io.PrintStream originalOut = System.out;
+        java.io.ByteArrayOutputStream captured = new java.io.ByteArrayOutputStream();
+        System.setOut(new java.io.PrintStream(captured, true));
+        try {
+            TableFormatter.displayResult(result);
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertEquals((table + "OK\n").replace("\n", System.lineSeparator()), captured.toString());
+    }
+
+    @Test
+    @DisplayName("Test results larger than one render window keep consistent column widths")
+    void testRenderedTableAcrossWindows() {
+        List<String> columnNames = Arrays.asList("ID", "Name");
+        List<Map<String, Object>> data = new ArrayList<>();
+        int rowCount = 2500;
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("ID", i);
+            // 最宽的值在最后一个窗口里，第一行也必须按它对齐
+            row.put("Name", i == rowCount - 1 ? "a much longer name" : "n" + i);
+            data.add(row);
+        }
+        QueryResult result = QueryResult.success("OK", data, columnNames, rowCount, 1L);
+
+        String[] lines = TableFormatter.formatAsText(result).split("\n");
+        assertEquals(rowCount + 6, lines.length);
+        assertEquals(String.format("| %-4s | %-18s |", "ID", "Name"), lines[1]);
+        assertEquals(String.format("| %-4s | %-18s |", 0, "n0"), lines[3]);
+        assertEquals(String.format("| %-4s | %-18s |", 1024, "n1024"), lines[3 + 1024]);
+        assertEquals(String.format("| %-4s | %-18s |", 2499, "a much longer name"), lines[3 + 2499]);
+    }
+}